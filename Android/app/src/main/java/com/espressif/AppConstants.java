@@ -35,6 +35,53 @@ public class AppConstants {
     public static final String NODE_TABLE = "node_table";
     public static final String GROUP_TABLE = "group_table";
     public static final String NOTIFICATION_TABLE = "notification_table";
+    public static final String PARAM_WRITE_TABLE = "param_write_table";
+    public static final String DEVICE_TABLE = "device_table";
+    public static final String SERVICE_TABLE = "service_table";
+    public static final String PARAM_TABLE = "param_table";
+    public static final String PARAM_HISTORY_TABLE = "param_history_table";
+    public static final String PARAM_ROLLUP_TABLE = "param_rollup_table";
+    public static final String FCM_INBOX_TABLE = "fcm_inbox_table";
+
+    // Snapshot of nodes, groups and schedules used on app start.
+    public static final String SNAPSHOT_FILE_NAME = "fleet_snapshot.pb";
+    // Increase when format of the snapshot is changed, older snapshot is discarded.
+    public static final int SNAPSHOT_VERSION = 2;
+    public static final String PARAM_WRITE_WORK_NAME = "param_write_replay";
+
+    // Notification history
+    public static final int NOTIFICATION_PAGE_SIZE = 50;
+    public static final String NOTIFICATION_RETENTION_WORK_NAME = "notification_retention";
+    public static final long NOTIFICATION_RETENTION_INTERVAL = 24; // Hours
+    public static final long NOTIFICATION_RETENTION_TIME = 30L * 24 * 60 * 60 * 1000; // 30 days
+    // Online / offline notifications are most of the history, they are kept for less time.
+    public static final long CONNECTIVITY_NOTIFICATION_RETENTION_TIME = 7L * 24 * 60 * 60 * 1000; // 7 days
+    public static final int NOTIFICATION_MAX_COUNT = 2000;
+    // Push messages are stored in inbox and processed by one worker in batches.
+    public static final String FCM_INBOX_WORK_NAME = "fcm_inbox_drain";
+    public static final int FCM_INBOX_BATCH_SIZE = 50;
+    // Node is flapping when its status changes this many times in flap window.
+    // Changes of flapping node are shown in one summary notification till status is stable for flap quiet time.
+    public static final int FLAP_THRESHOLD = 3;
+    public static final long FLAP_WINDOW = 15 * 60 * 1000; // 15 minutes
+    public static final long FLAP_QUIET_TIME = 30 * 60 * 1000; // 30 minutes
+
+    // History of numeric param values
+    public static final int PARAM_HISTORY_BLOCK_SAMPLES = 240; // Samples in one compressed block
+    public static final long PARAM_HISTORY_SAMPLE_INTERVAL = 60 * 1000; // Unchanged reported value is added once in this time
+    public static final long PARAM_HISTORY_MAX_GAP = 10 * 60 * 1000; // New block is started after longer gap
+    public static final long PARAM_HISTORY_FLUSH_DELAY = 30 * 1000;
+    // Bucket sizes of param history rollups in seconds : 1 minute, 15 minutes, 1 hour and 1 day.
+    public static final int[] PARAM_ROLLUP_RESOLUTIONS = {60, 15 * 60, 60 * 60, 24 * 60 * 60};
+    // Raw samples are displayed in chart if range has less samples than max points multiplied by this factor.
+    public static final int PARAM_HISTORY_RAW_FACTOR = 4;
+    // Backfill of param history from cloud
+    public static final String BACKFILL_WORK_NAME = "param_history_backfill";
+    public static final String BACKFILL_PREFERENCES = "param_history_backfill";
+    public static final long BACKFILL_INTERVAL = 1; // Hours
+    public static final long BACKFILL_PERIOD = 30L * 24 * 60 * 60 * 1000; // History fetched in first run, 30 days
+    public static final int BACKFILL_PAGE_SIZE = 200;
+    public static final int BACKFILL_MAX_PAGES = 100; // Pages fetched in one run, remaining pages are fetched in next run
     public static final String MDNS_SERVICE_TYPE = "_esp_local_ctrl._tcp.";
     public static final String LOCAL_CONTROL_PATH = "esp_local_ctrl/control";
 
@@ -47,12 +94,34 @@ public class AppConstants {
         EVENT_ADD_DEVICE_TIME_OUT,
         EVENT_DEVICE_STATUS_UPDATE,
         EVENT_STATE_CHANGE_UPDATE,
-        EVENT_LOCAL_DEVICE_UPDATE
+        EVENT_LOCAL_DEVICE_UPDATE,
+        EVENT_NODE_PAGE_UPDATE,
+        EVENT_PENDING_WRITES_UPDATE
     }
 
     public static final String CURRENT_VERSION = "v1";
     public static final String PATH_SEPARATOR = "/";
     public static final String HEADER_AUTHORIZATION = "Authorization";
+    public static final String HEADER_CACHE_POLICY = "X-Cache-Policy";
+
+    // HTTP cache
+    public static final String HTTP_CACHE_DIR = "http_cache";
+    public static final long HTTP_CACHE_SIZE = 10 * 1024 * 1024; // 10 MB
+    // Cache policies of cloud APIs, in Cache-Control syntax.
+    public static final String CACHE_POLICY_REVALIDATE = "max-age=0";
+    public static final String CACHE_POLICY_STALE_WHILE_REVALIDATE = "max-age=3600, stale-while-revalidate=604800";
+
+    // Retry policy of cloud API, applied by RetryInterceptor.
+    public static final String HEADER_RETRY_POLICY = "X-Retry-Policy";
+    public static final String RETRY_POLICY_READ = "max-retries=3";
+    public static final String RETRY_POLICY_WRITE = "max-retries=2";
+    public static final long RETRY_BASE_DELAY = 500;
+    public static final long RETRY_MAX_DELAY = 8000;
+    // Max total time (in ms) for which request waits between retries, as it blocks the thread of the request.
+    public static final long RETRY_MAX_TOTAL_DELAY = 10000;
+    // Circuit breaker of cloud host.
+    public static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    public static final long CIRCUIT_OPEN_TIME = 30000;
 
     // Cloud API End point Urls
     public static final String URL_LOGIN = BuildConfig.BASE_URL + AppConstants.PATH_SEPARATOR
@@ -77,8 +146,14 @@ public class AppConstants {
             + AppConstants.CURRENT_VERSION + "/user/nodes?node_details=true";
     public static final String URL_USER_NODE_STATUS = BuildConfig.BASE_URL + AppConstants.PATH_SEPARATOR
             + AppConstants.CURRENT_VERSION + "/user/nodes/status";
+    public static final String URL_USER_NODES_STATUS = BuildConfig.BASE_URL + AppConstants.PATH_SEPARATOR
+            + AppConstants.CURRENT_VERSION + "/user/nodes?status=true";
+    public static final String URL_USER_NODES_PARAMS_STATUS = BuildConfig.BASE_URL + AppConstants.PATH_SEPARATOR
+            + AppConstants.CURRENT_VERSION + "/user/nodes?params=true&status=true";
     public static final String URL_USER_NODES_PARAMS = BuildConfig.BASE_URL + AppConstants.PATH_SEPARATOR
             + AppConstants.CURRENT_VERSION + "/user/nodes/params";
+    public static final String URL_USER_NODES_TS_DATA = BuildConfig.BASE_URL + AppConstants.PATH_SEPARATOR
+            + AppConstants.CURRENT_VERSION + "/user/nodes/tsdata";
     public static final String URL_CLAIM_INITIATE = BuildConfig.CLAIM_BASE_URL + "/claim/initiate";
     public static final String URL_CLAIM_VERIFY = BuildConfig.CLAIM_BASE_URL + "/claim/verify";
     public static final String URL_USER_NODE_GROUP = BuildConfig.BASE_URL + AppConstants.PATH_SEPARATOR
@@ -128,6 +203,8 @@ public class AppConstants {
     public static final String KEY_DEVICE_NAME_PREFIX = "device_prefix";
     public static final String KEY_PROOF_OF_POSSESSION = "proof_of_possession";
     public static final String KEY_DEVICE_NAME = "device_name";
+    public static final String KEY_PARAM_NAME = "param_name";
+    public static final String KEY_SYNC_GENERATION = "sync_generation";
     public static final String KEY_ESP_DEVICE = "esp_device";
     public static final String KEY_NODE_ID = "node_id";
     public static final String KEY_EMAIL = "email";
@@ -157,6 +234,12 @@ public class AppConstants {
     public static final String KEY_NODE_DETAILS = "node_details";
     public static final String KEY_DEVICES = "devices";
     public static final String KEY_PARAMS = "params";
+    public static final String KEY_TS_DATA = "ts_data";
+    public static final String KEY_VALUES = "values";
+    public static final String KEY_TS = "ts";
+    public static final String KEY_VAL = "val";
+    public static final String KEY_START_TIME = "start_time";
+    public static final String KEY_END_TIME = "end_time";
     public static final String KEY_PROPERTIES = "properties";
     public static final String KEY_ATTRIBUTES = "attributes";
     public static final String KEY_SERVICES = "services";
@@ -192,6 +275,7 @@ public class AppConstants {
     public static final String KEY_TIMESTAMP = "timestamp";
     public static final String KEY_DESCRIPTION = "description";
     public static final String KEY_PROPERTY_WRITE = "write";
+    public static final String KEY_PROPERTY_TIME_SERIES = "time_series";
     public static final String KEY_FAILURE_RESPONSE = "failure";
     public static final String KEY_SECRET_KEY = "secret_key";
     public static final String KEY_PROPERTY_COUNT = "property_count";
@@ -226,6 +310,49 @@ public class AppConstants {
     public static final String KEY_METADATA = "metadata";
     public static final String KEY_START_ID = "start_id";
     public static final String KEY_NEXT_ID = "next_id";
+    public static final String KEY_SYNC_DELTA = "sync_delta";
+    public static final String KEY_FAILED_NODES = "failed_nodes";
+    public static final String KEY_STATUS_SUCCESS = "success";
+
+    // Param polling intervals (in ms). Interval is adapted between min and max as per changes and user interaction.
+    public static final long POLL_INTERVAL = 5000;
+    public static final long POLL_MIN_INTERVAL = 2000;
+    public static final long POLL_MAX_INTERVAL = 30000;
+    // Time (in ms) after user interaction for which node is polled with min interval.
+    public static final long POLL_INTERACTION_WINDOW = 30000;
+    // Poll interval is multiplied by these factors when app is in background or battery saver is on.
+    public static final int POLL_BACKGROUND_FACTOR = 4;
+    public static final int POLL_POWER_SAVE_FACTOR = 2;
+    // Params of multiple nodes are read with node list API only if user has these many nodes or less (one page)
+    // and at least this percent of them are due, otherwise due nodes are read one by one.
+    public static final int POLL_BATCH_MAX_NODES = 100;
+    public static final int POLL_BATCH_MIN_DUE_PERCENT = 50;
+    // Access token is refreshed when it is going to expire within this time (in ms).
+    public static final long TOKEN_REFRESH_MARGIN = 5 * 60 * 1000;
+    // Time window (in ms) in which param writes are merged and sent in one request.
+    public static final int PARAM_WRITE_BATCH_WINDOW = 100;
+    // Max time (in ms) to wait for response of queued param write while replaying it.
+    public static final long PARAM_WRITE_REPLAY_TIMEOUT = 30000;
+    // Max time (in ms) for which notification worker waits for details of added node.
+    public static final long NODE_DETAILS_TIMEOUT = 30000;
+    // Queued param write older than this is dropped and its value is rolled back, 1 hour.
+    public static final long PARAM_WRITE_TTL = 60 * 60 * 1000;
+    // Time (in ms) after which request in flight is not joined by new callers.
+    public static final long SINGLE_FLIGHT_TIMEOUT = 2 * 60 * 1000;
+    // Time window (in ms) in which node status requests are collected and sent in one request.
+    public static final int NODE_STATUS_BATCH_WINDOW = 200;
+    // Status of multiple nodes is read with node list API only if user has these many nodes or less.
+    public static final int NODE_STATUS_BATCH_MAX_NODES = 100;
+    // Time (in ms) for which node status received from cloud is considered fresh.
+    public static final long NODE_STATUS_TTL = 15000;
+    // Timeouts (in ms) of local control requests.
+    public static final int LOCAL_CONTROL_CONNECT_TIMEOUT = 5000;
+    public static final int LOCAL_CONTROL_READ_TIMEOUT = 5000;
+    // Max number of local control requests executed in parallel (for all devices).
+    public static final int LOCAL_CONTROL_MAX_REQUESTS = 4;
+    // Time (in ms) for which idle connection with local device is kept open.
+    public static final long LOCAL_CONTROL_KEEP_ALIVE = 60000;
+    public static final String KEY_NUM_RECORDS = "num_records";
     public static final String KEY_EVENT_VERSION = "event_version";
     public static final String KEY_EVENT_TYPE = "event_type";
     public static final String KEY_EVENT_DATA = "event_data";
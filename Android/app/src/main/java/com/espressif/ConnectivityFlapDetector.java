@@ -0,0 +1,134 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif;
+
+import com.espressif.ui.models.NotificationEvent;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * This class is used to find nodes whose connectivity status changes frequently.
+ * Node starts flapping when its status changes {@link AppConstants#FLAP_THRESHOLD} times in {@link AppConstants#FLAP_WINDOW}
+ * and stops flapping only after status is not changed for {@link AppConstants#FLAP_QUIET_TIME},
+ * so that changes of flapping node are coalesced in one summary notification.
+ * State is kept in memory, it is reset if app process is killed.
+ */
+public class ConnectivityFlapDetector {
+
+    private static ConnectivityFlapDetector flapDetector;
+
+    private HashMap<String, FlapState> flapStates = new HashMap<>();
+
+    private static class FlapState {
+
+        private ArrayDeque<Long> changeTimes = new ArrayDeque<>();
+        private long lastChangeTime;
+        private boolean isFlapping;
+        private int flapCount;
+        private long flapStartTime;
+        private NotificationEvent summaryEvent;
+    }
+
+    public static synchronized ConnectivityFlapDetector getInstance() {
+
+        if (flapDetector == null) {
+            flapDetector = new ConnectivityFlapDetector();
+        }
+        return flapDetector;
+    }
+
+    /**
+     * This method is used to add status change of the node.
+     *
+     * @param nodeId Node id.
+     * @param time   Time of the status change in milliseconds.
+     * @return True if node is flapping.
+     */
+    public synchronized boolean onStatusChange(String nodeId, long time) {
+
+        FlapState flapState = flapStates.get(nodeId);
+
+        if (flapState == null) {
+            flapState = new FlapState();
+            flapStates.put(nodeId, flapState);
+        }
+
+        // Events can be received out of order.
+        time = Math.max(time, flapState.lastChangeTime);
+
+        if (flapState.isFlapping && time - flapState.lastChangeTime > AppConstants.FLAP_QUIET_TIME) {
+            flapState.isFlapping = false;
+            flapState.summaryEvent = null;
+            flapState.changeTimes.clear();
+        }
+
+        flapState.lastChangeTime = time;
+        flapState.changeTimes.addLast(time);
+
+        while (time - flapState.changeTimes.peekFirst() > AppConstants.FLAP_WINDOW) {
+            flapState.changeTimes.removeFirst();
+        }
+
+        if (flapState.isFlapping) {
+            flapState.flapCount++;
+        } else if (flapState.changeTimes.size() >= AppConstants.FLAP_THRESHOLD) {
+            flapState.isFlapping = true;
+            flapState.flapCount = flapState.changeTimes.size();
+            flapState.flapStartTime = flapState.changeTimes.peekFirst();
+        }
+        return flapState.isFlapping;
+    }
+
+    /**
+     * This method is used to get number of status changes since node started flapping.
+     */
+    public synchronized int getFlapCount(String nodeId) {
+        FlapState flapState = flapStates.get(nodeId);
+        return flapState != null ? flapState.flapCount : 0;
+    }
+
+    /**
+     * This method is used to get time of first status change counted in {@link #getFlapCount(String)}.
+     */
+    public synchronized long getFlapStartTime(String nodeId) {
+        FlapState flapState = flapStates.get(nodeId);
+        return flapState != null ? flapState.flapStartTime : 0;
+    }
+
+    /**
+     * This method is used to get notification history row which is updated while node is flapping.
+     *
+     * @return Summary event or null if it is not created yet.
+     */
+    public synchronized NotificationEvent getSummaryEvent(String nodeId) {
+        FlapState flapState = flapStates.get(nodeId);
+        return flapState != null ? flapState.summaryEvent : null;
+    }
+
+    public synchronized void setSummaryEvent(String nodeId, NotificationEvent summaryEvent) {
+        FlapState flapState = flapStates.get(nodeId);
+        if (flapState != null) {
+            flapState.summaryEvent = summaryEvent;
+        }
+    }
+
+    /**
+     * This method is used to clear state of all nodes.
+     */
+    public synchronized void clear() {
+        flapStates.clear();
+    }
+}
@@ -22,6 +22,8 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -29,7 +31,10 @@ import androidx.annotation.NonNull;
 
 import com.espressif.cloudapi.ApiManager;
 import com.espressif.cloudapi.ApiResponseListener;
+import com.espressif.cloudapi.NodeStatusService;
+import com.espressif.cloudapi.ServerClock;
 import com.espressif.db.EspDatabase;
+import com.espressif.db.NodeStorage;
 import com.espressif.mdns.mDNSApiManager;
 import com.espressif.mdns.mDNSDevice;
 import com.espressif.mdns.mDNSManager;
@@ -51,7 +56,9 @@ import org.greenrobot.eventbus.EventBus;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
 
 public class EspApplication extends Application {
 
@@ -68,6 +75,7 @@ public class EspApplication extends Application {
     private ApiManager apiManager;
     private mDNSManager mdnsManager;
     private String deviceToken;
+    private Handler handler;
 
     public enum AppState {
         NO_USER_LOGIN,
@@ -86,9 +94,16 @@ public class EspApplication extends Application {
         scheduleMap = new HashMap<>();
         mDNSDeviceMap = new HashMap<>();
         groupMap = new HashMap<>();
+        handler = new Handler(Looper.getMainLooper());
         appPreferences = getSharedPreferences(AppConstants.ESP_PREFERENCES, Context.MODE_PRIVATE);
         apiManager = ApiManager.getInstance(this);
         ESPProvisionManager.getInstance(this);
+        // Created with application to track started activities from the beginning.
+        PollingScheduler.getInstance(this);
+        NotificationRetentionWorker.schedule(this);
+        NotificationWorker.enqueueIfPending(this);
+        ParamHistoryStore.getInstance(this);
+        ParamHistoryBackfillWorker.schedule(this);
         if (BuildConfig.isLocalControlSupported) {
             mdnsManager = mDNSManager.getInstance(getApplicationContext(), AppConstants.MDNS_SERVICE_TYPE, listener);
         }
@@ -110,6 +125,14 @@ public class EspApplication extends Application {
                 if (BuildConfig.isLocalControlSupported) {
                     mdnsManager.initializeNsd();
                 }
+                if (!appState.equals(newState)) {
+                    appState = newState;
+                    // Sync compares nodes of the cloud with stored nodes, so it is started after they are loaded.
+                    loadStoredData();
+                }
+                EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_STATE_CHANGE_UPDATE));
+                break;
+
             case REFRESH_DATA:
                 if (!appState.equals(newState)) {
                     appState = newState;
@@ -138,28 +161,104 @@ public class EspApplication extends Application {
                 break;
 
             case GET_DATA_SUCCESS:
+                SnapshotStore.getInstance(this).save(this);
             case NO_INTERNET:
                 appState = newState;
-                EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_STATE_CHANGE_UPDATE));
+                UpdateEvent stateChangeEvent = new UpdateEvent(AppConstants.UpdateEventType.EVENT_STATE_CHANGE_UPDATE);
+                if (extras != null) {
+                    // Contains changes of node sync
+                    stateChangeEvent.setData(extras);
+                }
+                EventBus.getDefault().post(stateChangeEvent);
                 startLocalDeviceDiscovery();
                 break;
         }
     }
 
+    /**
+     * This method is used to add nodes, schedules and groups from local storage and then get nodes from cloud.
+     * Snapshot is faster to load than database, database is used if snapshot is not available.
+     */
+    private void loadStoredData() {
+
+        if (SnapshotStore.getInstance(this).load(this)) {
+            Log.d(TAG, "Node list size from snapshot : " + nodeMap.size());
+            EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_NODE_PAGE_UPDATE));
+            getNodesFromCloud();
+            return;
+        }
+
+        final EspDatabase espDatabase = EspDatabase.getInstance(this);
+
+        // Database is read on database thread, nodes are added on main thread.
+        EspDatabase.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+                final HashMap<String, EspNode> storedNodeMap = new HashMap<>();
+                final HashMap<String, Schedule> storedScheduleMap = new HashMap<>();
+                final ArrayList<Group> groupList = new ArrayList<>();
+                NodeStorage.loadNodes(espDatabase, storedNodeMap, storedScheduleMap);
+
+                if (BuildConfig.isNodeGroupingSupported) {
+                    groupList.addAll(espDatabase.getGroupDao().getGroupsFromStorage());
+                }
+
+                handler.post(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        addStoredData(storedNodeMap, storedScheduleMap, groupList);
+                        getNodesFromCloud();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * This method is used to add nodes, schedules and groups loaded from local storage.
+     * Data which is already available (e.g. loaded for notification) is not replaced.
+     */
+    private void addStoredData(HashMap<String, EspNode> storedNodeMap, HashMap<String, Schedule> storedScheduleMap,
+                               ArrayList<Group> groupList) {
+
+        for (Map.Entry<String, EspNode> entry : storedNodeMap.entrySet()) {
+            if (!nodeMap.containsKey(entry.getKey())) {
+                nodeMap.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        for (Map.Entry<String, Schedule> entry : storedScheduleMap.entrySet()) {
+            if (!scheduleMap.containsKey(entry.getKey())) {
+                scheduleMap.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        for (Group group : groupList) {
+            if (group != null && !groupMap.containsKey(group.getGroupId())) {
+                groupMap.put(group.getGroupId(), group);
+            }
+        }
+        Log.d(TAG, "Node list size from local storage : " + nodeMap.size());
+        EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_NODE_PAGE_UPDATE));
+    }
+
     private void getNodesFromCloud() {
 
         apiManager.getNodes(new ApiResponseListener() {
 
             @Override
-            public void onSuccess(Bundle data) {
+            public void onSuccess(final Bundle data) {
 
                 if (BuildConfig.isNodeGroupingSupported) {
 
                     apiManager.getUserGroups(null, new ApiResponseListener() {
 
                         @Override
-                        public void onSuccess(Bundle data) {
-                            changeAppState(AppState.GET_DATA_SUCCESS, null);
+                        public void onSuccess(Bundle groupData) {
+                            changeAppState(AppState.GET_DATA_SUCCESS, data);
                         }
 
                         @Override
@@ -175,7 +274,7 @@ public class EspApplication extends Application {
                         }
                     });
                 } else {
-                    changeAppState(AppState.GET_DATA_SUCCESS, null);
+                    changeAppState(AppState.GET_DATA_SUCCESS, data);
                 }
             }
 
@@ -199,10 +298,36 @@ public class EspApplication extends Application {
         }
     }
 
+    /**
+     * This method is used to delete stored groups and notifications of the user on database thread.
+     */
+    private void deleteStoredData() {
+
+        final EspDatabase espDatabase = EspDatabase.getInstance(this);
+
+        EspDatabase.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+                espDatabase.getGroupDao().deleteAll();
+                espDatabase.getNotificationDao().deleteAll();
+                espDatabase.getFcmInboxDao().deleteAll();
+            }
+        });
+    }
+
     public void loginSuccess() {
-        EspDatabase.getInstance(this).getNodeDao().deleteAll();
-        EspDatabase.getInstance(this).getGroupDao().deleteAll();
-        EspDatabase.getInstance(this).getNotificationDao().deleteAll();
+        NodeStorage.deleteAll(EspDatabase.getInstance(this));
+        SnapshotStore.getInstance(this).delete();
+        deleteStoredData();
+        ParamWriteQueue.getInstance(this).clear();
+        ParamHistoryStore.getInstance(this).clear();
+        ParamHistoryBackfillWorker.reset(this);
+        ConnectivityFlapDetector.getInstance().clear();
+        ParamHistoryBackfillWorker.schedule(this);
+        apiManager.clearCache();
+        apiManager.clearInFlightRequests();
+        NodeStatusService.getInstance(this).invalidate();
         nodeMap.clear();
         scheduleMap.clear();
         mDNSDeviceMap.clear();
@@ -271,9 +396,17 @@ public class EspApplication extends Application {
             });
         }
 
-        EspDatabase.getInstance(this).getNodeDao().deleteAll();
-        EspDatabase.getInstance(this).getGroupDao().deleteAll();
-        EspDatabase.getInstance(this).getNotificationDao().deleteAll();
+        NodeStorage.deleteAll(EspDatabase.getInstance(this));
+        SnapshotStore.getInstance(this).delete();
+        deleteStoredData();
+        ParamWriteQueue.getInstance(this).clear();
+        ParamHistoryStore.getInstance(this).clear();
+        ParamHistoryBackfillWorker.reset(this);
+        ConnectivityFlapDetector.getInstance().clear();
+        apiManager.clearCache();
+        apiManager.clearInFlightRequests();
+        NodeStatusService.getInstance(this).invalidate();
+        apiManager.cancelTokenRefresh();
         nodeMap.clear();
         scheduleMap.clear();
         mDNSDeviceMap.clear();
@@ -348,57 +481,64 @@ public class EspApplication extends Application {
                         dnsMsgHelper.getPropertyValues(url, AppConstants.LOCAL_CONTROL_PATH, count, new ApiResponseListener() {
 
                             @Override
-                            public void onSuccess(Bundle data) {
-
-                                if (data != null) {
-
-                                    String configData = data.getString(AppConstants.KEY_CONFIG);
-                                    String paramsData = data.getString(AppConstants.KEY_PARAMS);
-
-                                    Log.d(TAG, "Config data : " + configData);
-                                    Log.d(TAG, "Params data : " + paramsData);
-
-                                    if (!TextUtils.isEmpty(configData)) {
-
-                                        JSONObject configJson = null;
-                                        try {
-                                            configJson = new JSONObject(configData);
-                                        } catch (JSONException e) {
-                                            e.printStackTrace();
-                                        }
-
-                                        String nodeId = configJson.optString(AppConstants.KEY_NODE_ID);
-                                        EspNode node = nodeMap.get(nodeId);
-                                        boolean isDeviceFound = false;
-                                        if (node != null) {
-                                            isDeviceFound = true;
-                                        }
-                                        EspNode localNode = JsonDataParser.setNodeConfig(node, configJson);
-
-                                        if (node != null) {
-                                            Log.e(TAG, "Found node " + localNode.getNodeId() + " on local network.");
-                                            isDeviceFound = true;
-                                            localNode.setAvailableLocally(true);
-                                            localNode.setIpAddress(dnsDevice.getIpAddr());
-                                            localNode.setPort(dnsDevice.getPort());
-                                            localNode.setOnline(true);
-                                            mDNSDeviceMap.put(localNode.getNodeId(), dnsDevice);
-                                        }
-
-                                        if (!TextUtils.isEmpty(paramsData) && isDeviceFound) {
-
-                                            JSONObject paramsJson = null;
-                                            try {
-                                                paramsJson = new JSONObject(paramsData);
-                                            } catch (JSONException e) {
-                                                e.printStackTrace();
+                            public void onSuccess(final Bundle data) {
+
+                                handler.post(new Runnable() {
+
+                                    @Override
+                                    public void run() {
+
+                                        if (data != null) {
+
+                                            String configData = data.getString(AppConstants.KEY_CONFIG);
+                                            String paramsData = data.getString(AppConstants.KEY_PARAMS);
+
+                                            Log.d(TAG, "Config data : " + configData);
+                                            Log.d(TAG, "Params data : " + paramsData);
+
+                                            if (!TextUtils.isEmpty(configData)) {
+
+                                                JSONObject configJson = null;
+                                                try {
+                                                    configJson = new JSONObject(configData);
+                                                } catch (JSONException e) {
+                                                    e.printStackTrace();
+                                                }
+
+                                                String nodeId = configJson.optString(AppConstants.KEY_NODE_ID);
+                                                EspNode node = nodeMap.get(nodeId);
+                                                boolean isDeviceFound = false;
+                                                if (node != null) {
+                                                    isDeviceFound = true;
+                                                }
+                                                EspNode localNode = JsonDataParser.setNodeConfig(node, configJson);
+
+                                                if (node != null) {
+                                                    Log.e(TAG, "Found node " + localNode.getNodeId() + " on local network.");
+                                                    isDeviceFound = true;
+                                                    localNode.setAvailableLocally(true);
+                                                    localNode.setIpAddress(dnsDevice.getIpAddr());
+                                                    localNode.setPort(dnsDevice.getPort());
+                                                    localNode.setOnline(true);
+                                                    mDNSDeviceMap.put(localNode.getNodeId(), dnsDevice);
+                                                }
+
+                                                if (!TextUtils.isEmpty(paramsData) && isDeviceFound) {
+
+                                                    JSONObject paramsJson = null;
+                                                    try {
+                                                        paramsJson = new JSONObject(paramsData);
+                                                    } catch (JSONException e) {
+                                                        e.printStackTrace();
+                                                    }
+                                                    JsonDataParser.setAllParams(EspApplication.this, localNode, paramsJson, ServerClock.now());
+                                                    nodeMap.put(localNode.getNodeId(), localNode);
+                                                    EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_LOCAL_DEVICE_UPDATE));
+                                                }
                                             }
-                                            JsonDataParser.setAllParams(EspApplication.this, localNode, paramsJson);
-                                            nodeMap.put(localNode.getNodeId(), localNode);
-                                            EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_LOCAL_DEVICE_UPDATE));
                                         }
                                     }
-                                }
+                                });
                             }
 
                             @Override
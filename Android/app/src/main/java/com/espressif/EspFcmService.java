@@ -16,18 +16,11 @@ package com.espressif;
 
 import android.util.Log;
 
-import androidx.work.Data;
-import androidx.work.OneTimeWorkRequest;
-import androidx.work.WorkManager;
-
-import com.espressif.ui.models.NotificationEvent;
+import com.espressif.db.EspDatabase;
+import com.espressif.ui.models.FcmMessage;
 import com.google.firebase.messaging.FirebaseMessagingService;
 import com.google.firebase.messaging.RemoteMessage;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.util.HashMap;
 import java.util.Map;
 
 public class EspFcmService extends FirebaseMessagingService {
@@ -58,29 +51,12 @@ public class EspFcmService extends FirebaseMessagingService {
 
         if (eventPayload != null) {
 
-            try {
-                JSONObject eventDataJson = new JSONObject(eventPayload);
-                String eventType = eventDataJson.optString(AppConstants.KEY_EVENT_TYPE);
-                JSONObject jsonEventData = eventDataJson.optJSONObject(AppConstants.KEY_EVENT_DATA);
-                NotificationEvent notificationEvent = new NotificationEvent();
-                notificationEvent.setEventType(eventType);
-                notificationEvent.setEventVersion(eventDataJson.optString(AppConstants.KEY_EVENT_VERSION));
-                notificationEvent.setEventId(eventDataJson.optString(AppConstants.KEY_ID));
-                notificationEvent.setEventData(jsonEventData.toString());
-                notificationEvent.setEventDescription(eventDataJson.optString(AppConstants.KEY_DESCRIPTION));
-                notificationEvent.setTimestamp(eventDataJson.optLong(AppConstants.KEY_TIMESTAMP));
-                Log.e(TAG, "Event type : " + eventType);
-                Data data = new Data.Builder()
-                        .putString(AppConstants.KEY_TITLE, title)
-                        .putString(AppConstants.KEY_EVENT_DATA_PAYLOAD, eventPayload)
-                        .build();
-                OneTimeWorkRequest workRequest = new OneTimeWorkRequest.Builder(NotificationWorker.class)
-                        .setInputData(data)
-                        .build();
-                WorkManager.getInstance().enqueue(workRequest);
+            // Service runs on background thread. Message is stored first, so it is not lost if process is killed.
+            FcmMessage message = new FcmMessage(title, eventPayload, System.currentTimeMillis());
+            boolean wasEmpty = EspDatabase.getInstance(this).getFcmInboxDao().add(message);
 
-            } catch (JSONException e) {
-                e.printStackTrace();
+            if (wasEmpty) {
+                NotificationWorker.enqueue(this);
             }
         }
     }
@@ -17,20 +17,19 @@ package com.espressif;
 import android.text.TextUtils;
 import android.util.Log;
 
-import com.espressif.ui.models.Action;
+import com.espressif.cloudapi.ServerClock;
 import com.espressif.ui.models.Device;
 import com.espressif.ui.models.EspNode;
 import com.espressif.ui.models.Param;
-import com.espressif.ui.models.Schedule;
 import com.espressif.ui.models.Service;
 
-import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 
 public class JsonDataParser {
 
@@ -42,11 +41,100 @@ public class JsonDataParser {
      * @param deviceJson JSON data of device params.
      * @param device     Device object.
      * @param param      Param object in which values to be set.
+     * @param readTime   Time (of the cloud) at which value is read, see {@link ServerClock}.
      */
-    public static void setDeviceParamValue(JSONObject deviceJson, Device device, Param param) {
+    public static void setDeviceParamValue(JSONObject deviceJson, Device device, Param param, long readTime) {
+        setParamValue(deviceJson.opt(param.getName()), device, param, readTime, false);
+    }
+
+    /**
+     * This method is used to set param value reported by device, e.g. in param change event.
+     * Unlike values read from cloud, it is added in param history even if value is not changed.
+     *
+     * @param deviceJson JSON data of device params.
+     * @param device     Device object.
+     * @param param      Param object in which values to be set.
+     * @param reportTime Time at which device reported the value.
+     */
+    public static void setReportedParamValue(JSONObject deviceJson, Device device, Param param, long reportTime) {
+        setParamValue(deviceJson.opt(param.getName()), device, param, reportTime, true);
+    }
+
+    /**
+     * This method is used to set param value received from cloud or local device. It should be called on main thread.
+     * If user has written value of the param after the value is read, value is stale.
+     * It is kept to roll back the write and written value is displayed till a value read after the write is received.
+     *
+     * @param receivedValue Value of the param. It can be Boolean, Number or String.
+     * @param device        Device object.
+     * @param param         Param object in which values to be set.
+     * @param readTime      Time (of the cloud) at which value is read, see {@link ServerClock}.
+     */
+    public static void setDeviceParamValue(Object receivedValue, Device device, Param param, long readTime) {
+        setParamValue(receivedValue, device, param, readTime, false);
+    }
+
+    private static void setParamValue(Object receivedValue, Device device, Param param, long readTime, boolean isReport) {
+
+        addParamHistory(receivedValue, device, param, readTime, isReport);
+        double value = param.getValue();
+        boolean switchStatus = param.getSwitchStatus();
+        String labelValue = param.getLabelValue();
+
+        if (param.hasPendingWrite() && readTime < param.getPendingWriteTime()) {
+
+            // Stale value. Keep it to roll back the write and display written value.
+            Object pendingValue = param.getPendingValue();
+            applyParamValue(receivedValue, device, param);
+            param.saveConfirmedValue();
+            applyParamValue(pendingValue, device, param);
+        } else {
+            param.clearPendingWrite();
+            applyParamValue(receivedValue, device, param);
+        }
+
+        if (!param.isSameValue(value, switchStatus, labelValue)) {
+            param.setValueChanged(true);
+        }
+    }
+
+    /**
+     * This method is used to set param value of schedule action. It is not reported by device.
+     *
+     * @param actionJson JSON data of device params in the action.
+     * @param device     Device object.
+     * @param param      Param object in which values to be set.
+     */
+    public static void setActionParamValue(JSONObject actionJson, Device device, Param param) {
+        applyParamValue(actionJson.opt(param.getName()), device, param);
+    }
+
+    /**
+     * This method is used to display value written by user till device reports it.
+     *
+     * @param writtenValue Value of the param. It can be Boolean, Number or String.
+     * @param device       Device object.
+     * @param param        Param object in which values to be set.
+     */
+    public static void setPendingParamValue(Object writtenValue, Device device, Param param) {
+        param.setPendingWrite(writtenValue, ServerClock.now());
+        applyParamValue(writtenValue, device, param);
+    }
+
+    private static void addParamHistory(Object receivedValue, Device device, Param param, long readTime, boolean isReport) {
+
+        ParamHistoryStore paramHistoryStore = ParamHistoryStore.getInstance();
+
+        if (paramHistoryStore != null && receivedValue instanceof Number && device.getNodeId() != null
+                && device.getDeviceName() != null && param.getName() != null) {
+            paramHistoryStore.add(device.getNodeId(), device.getDeviceName(), param.getName(),
+                    readTime, ((Number) receivedValue).doubleValue(), isReport);
+        }
+    }
+
+    private static void applyParamValue(Object receivedValue, Device device, Param param) {
 
         String dataType = param.getDataType();
-        String paramName = param.getName();
 
         if (AppConstants.UI_TYPE_SLIDER.equalsIgnoreCase(param.getUiType()) || AppConstants.UI_TYPE_HUE_SLIDER.equalsIgnoreCase(param.getUiType())) {
 
@@ -54,31 +142,31 @@ public class JsonDataParser {
 
             if (dataType.equalsIgnoreCase("int") || dataType.equalsIgnoreCase("integer")) {
 
-                int value = deviceJson.optInt(paramName);
+                int value = optInt(receivedValue);
                 labelValue = String.valueOf(value);
                 param.setLabelValue(labelValue);
                 param.setValue(value);
 
             } else if (dataType.equalsIgnoreCase("float") || dataType.equalsIgnoreCase("double")) {
 
-                double value = deviceJson.optDouble(paramName);
+                double value = optDouble(receivedValue);
                 labelValue = String.valueOf(value);
                 param.setLabelValue(labelValue);
                 param.setValue(value);
 
             } else {
 
-                labelValue = deviceJson.optString(paramName);
+                labelValue = optString(receivedValue);
                 param.setLabelValue(labelValue);
             }
         } else if (AppConstants.UI_TYPE_TOGGLE.equalsIgnoreCase(param.getUiType())) {
 
-            boolean value = deviceJson.optBoolean(paramName);
+            boolean value = optBoolean(receivedValue);
             param.setSwitchStatus(value);
 
         } else if (AppConstants.UI_TYPE_TRIGGER.equalsIgnoreCase(param.getUiType())) {
 
-            boolean value = deviceJson.optBoolean(paramName);
+            boolean value = optBoolean(receivedValue);
             param.setSwitchStatus(value);
 
         } else if (AppConstants.UI_TYPE_DROP_DOWN.equalsIgnoreCase(param.getUiType())) {
@@ -86,12 +174,12 @@ public class JsonDataParser {
             String labelValue = "";
 
             if (dataType.equalsIgnoreCase("int") || dataType.equalsIgnoreCase("integer")) {
-                int value = deviceJson.optInt(paramName);
+                int value = optInt(receivedValue);
                 labelValue = String.valueOf(value);
                 param.setLabelValue(labelValue);
                 param.setValue(value);
             } else {
-                labelValue = deviceJson.optString(paramName);
+                labelValue = optString(receivedValue);
                 param.setLabelValue(labelValue);
             }
         } else {
@@ -100,7 +188,7 @@ public class JsonDataParser {
 
             if (dataType.equalsIgnoreCase("bool") || dataType.equalsIgnoreCase("boolean")) {
 
-                boolean value = deviceJson.optBoolean(paramName);
+                boolean value = optBoolean(receivedValue);
                 if (value) {
                     param.setLabelValue("true");
                 } else {
@@ -109,19 +197,19 @@ public class JsonDataParser {
 
             } else if (dataType.equalsIgnoreCase("int") || dataType.equalsIgnoreCase("integer")) {
 
-                int value = deviceJson.optInt(paramName);
+                int value = optInt(receivedValue);
                 labelValue = String.valueOf(value);
                 param.setLabelValue(labelValue);
 
             } else if (dataType.equalsIgnoreCase("float") || dataType.equalsIgnoreCase("double")) {
 
-                double value = deviceJson.optDouble(paramName);
+                double value = optDouble(receivedValue);
                 labelValue = String.valueOf(value);
                 param.setLabelValue(labelValue);
 
             } else {
 
-                labelValue = deviceJson.optString(paramName);
+                labelValue = optString(receivedValue);
                 param.setLabelValue(labelValue);
 
                 if (param.getParamType().equals(AppConstants.PARAM_TYPE_NAME)) {
@@ -131,177 +219,77 @@ public class JsonDataParser {
         }
     }
 
-    public static EspNode setNodeConfig(EspNode espNode, JSONObject nodeConfigJson) {
-
-        // Node ID
-        String nodeId = nodeConfigJson.optString(AppConstants.KEY_NODE_ID);
-
-        if (TextUtils.isEmpty(nodeId)) {
-            return null;
-        }
-
-        if (espNode == null) {
-            espNode = new EspNode(nodeId);
-        }
-
-        // Node Config
-        espNode.setConfigVersion(nodeConfigJson.optString(AppConstants.KEY_CONFIG_VERSION));
-
-        JSONObject infoObj = nodeConfigJson.optJSONObject(AppConstants.KEY_INFO);
+    static int optInt(Object value) {
 
-        if (infoObj != null) {
-            espNode.setNodeName(infoObj.optString(AppConstants.KEY_NAME));
-            espNode.setFwVersion(infoObj.optString(AppConstants.KEY_FW_VERSION));
-            espNode.setNodeType(infoObj.optString(AppConstants.KEY_TYPE));
-        } else {
-            Log.d(TAG, "Info object is null");
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        } else if (value instanceof String) {
+            try {
+                return (int) Double.parseDouble((String) value);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
         }
+        return 0;
+    }
 
-        // Devices
-        JSONArray devicesJsonArray = nodeConfigJson.optJSONArray(AppConstants.KEY_DEVICES);
-        ArrayList<Device> devices = new ArrayList<>();
-
-        if (devicesJsonArray != null) {
-
-            for (int i = 0; i < devicesJsonArray.length(); i++) {
-
-                JSONObject deviceObj = devicesJsonArray.optJSONObject(i);
-                Device device = new Device(nodeId);
-                device.setDeviceName(deviceObj.optString(AppConstants.KEY_NAME));
-                device.setUserVisibleName(deviceObj.optString(AppConstants.KEY_NAME));
-                device.setDeviceType(deviceObj.optString(AppConstants.KEY_TYPE));
-                device.setPrimaryParamName(deviceObj.optString(AppConstants.KEY_PRIMARY));
-
-                JSONArray paramsJson = deviceObj.optJSONArray(AppConstants.KEY_PARAMS);
-                ArrayList<Param> params = new ArrayList<>();
-
-                if (paramsJson != null) {
-
-                    for (int j = 0; j < paramsJson.length(); j++) {
-
-                        JSONObject paraObj = paramsJson.optJSONObject(j);
-                        Param param = new Param();
-                        param.setName(paraObj.optString(AppConstants.KEY_NAME));
-                        param.setParamType(paraObj.optString(AppConstants.KEY_TYPE));
-                        param.setDataType(paraObj.optString(AppConstants.KEY_DATA_TYPE));
-                        param.setUiType(paraObj.optString(AppConstants.KEY_UI_TYPE));
-                        param.setDynamicParam(true);
-                        params.add(param);
-
-                        JSONArray propertiesJson = paraObj.optJSONArray(AppConstants.KEY_PROPERTIES);
-                        ArrayList<String> properties = new ArrayList<>();
-
-                        if (propertiesJson != null) {
-                            for (int k = 0; k < propertiesJson.length(); k++) {
-
-                                properties.add(propertiesJson.optString(k));
-                            }
-                        }
-                        param.setProperties(properties);
-
-                        JSONObject boundsJson = paraObj.optJSONObject(AppConstants.KEY_BOUNDS);
-
-                        if (boundsJson != null) {
-                            param.setMaxBounds(boundsJson.optInt(AppConstants.KEY_MAX));
-                            param.setMinBounds(boundsJson.optInt(AppConstants.KEY_MIN));
-                            param.setStepCount((float) boundsJson.optDouble(AppConstants.KEY_STEP, 0));
-                        }
-
-                        JSONArray validValuesJson = paraObj.optJSONArray(AppConstants.KEY_VALID_STRS);
-                        ArrayList<String> validVals = new ArrayList<>();
-
-                        if (validValuesJson != null) {
-                            for (int k = 0; k < validValuesJson.length(); k++) {
-                                validVals.add(validValuesJson.optString(k));
-                            }
-                        }
-                        param.setValidStrings(validVals);
-                    }
-                }
-
-                JSONArray attributesJson = deviceObj.optJSONArray(AppConstants.KEY_ATTRIBUTES);
-
-                if (attributesJson != null) {
-
-                    for (int j = 0; j < attributesJson.length(); j++) {
-
-                        JSONObject attrObj = attributesJson.optJSONObject(j);
-                        Param param = new Param();
-                        param.setName(attrObj.optString(AppConstants.KEY_NAME));
-                        param.setDataType(attrObj.optString(AppConstants.KEY_DATA_TYPE));
-                        param.setLabelValue(attrObj.optString(AppConstants.KEY_VALUE));
-                        params.add(param);
-                    }
-                }
+    static double optDouble(Object value) {
 
-                device.setParams(params);
-                devices.add(device);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof String) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
             }
         }
-        espNode.setDevices(devices);
-
-        // Services
-        JSONArray servicesJsonArray = nodeConfigJson.optJSONArray(AppConstants.KEY_SERVICES);
-        ArrayList<Service> services = new ArrayList<>();
-
-        if (servicesJsonArray != null) {
-
-            for (int i = 0; i < servicesJsonArray.length(); i++) {
-
-                JSONObject serviceObj = servicesJsonArray.optJSONObject(i);
-                Service service = new Service(nodeId);
-                service.setName(serviceObj.optString(AppConstants.KEY_NAME));
-                service.setType(serviceObj.optString(AppConstants.KEY_TYPE));
-
-                JSONArray paramsJson = serviceObj.optJSONArray(AppConstants.KEY_PARAMS);
-                ArrayList<Param> params = new ArrayList<>();
+        return Double.NaN;
+    }
 
-                if (paramsJson != null) {
+    private static boolean optBoolean(Object value) {
 
-                    for (int j = 0; j < paramsJson.length(); j++) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof String) {
+            return "true".equalsIgnoreCase((String) value);
+        }
+        return false;
+    }
 
-                        JSONObject paraObj = paramsJson.optJSONObject(j);
-                        Param param = new Param();
-                        param.setName(paraObj.optString(AppConstants.KEY_NAME));
-                        param.setParamType(paraObj.optString(AppConstants.KEY_TYPE));
-                        param.setDataType(paraObj.optString(AppConstants.KEY_DATA_TYPE));
-                        param.setDynamicParam(true);
-                        params.add(param);
+    private static String optString(Object value) {
+        return value != null ? String.valueOf(value) : "";
+    }
 
-                        JSONArray propertiesJson = paraObj.optJSONArray(AppConstants.KEY_PROPERTIES);
-                        ArrayList<String> properties = new ArrayList<>();
+    /**
+     * This method is used to set config, param values and status of the node from node config JSON,
+     * e.g. received from device on local network. Config is read by {@link JsonStreamParser#readNodeConfig(Reader, EspNode)}.
+     *
+     * @param espNode        Node in which config to be set, null to create new node.
+     * @param nodeConfigJson JSON data of node config.
+     * @return Node with its config, null if config is not valid.
+     */
+    public static EspNode setNodeConfig(EspNode espNode, JSONObject nodeConfigJson) {
 
-                        if (propertiesJson != null) {
-                            for (int k = 0; k < propertiesJson.length(); k++) {
+        // Node ID
+        String nodeId = nodeConfigJson.optString(AppConstants.KEY_NODE_ID);
 
-                                properties.add(propertiesJson.optString(k));
-                            }
-                        }
-                        param.setProperties(properties);
-                    }
-                }
-                service.setParams(params);
-                services.add(service);
-            }
+        if (TextUtils.isEmpty(nodeId)) {
+            return null;
         }
-        espNode.setServices(services);
-
-        // Attributes
-        JSONArray nodeAttributesJson = infoObj.optJSONArray(AppConstants.KEY_ATTRIBUTES);
-        ArrayList<Param> nodeAttributes = new ArrayList<>();
-
-        if (nodeAttributesJson != null) {
 
-            for (int j = 0; j < nodeAttributesJson.length(); j++) {
+        if (espNode == null) {
+            espNode = new EspNode(nodeId);
+        }
 
-                JSONObject attrObj = nodeAttributesJson.optJSONObject(j);
-                Param param = new Param();
-                param.setName(attrObj.optString(AppConstants.KEY_NAME));
-                param.setLabelValue(attrObj.optString(AppConstants.KEY_VALUE));
-                nodeAttributes.add(param);
-            }
+        // Node Config
+        try {
+            espNode = JsonStreamParser.readNodeConfig(new StringReader(nodeConfigJson.toString()), espNode);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
         }
-        espNode.setAttributes(nodeAttributes);
+        ArrayList<Device> devices = espNode.getDevices();
 
         // Node Params values
         JSONObject paramsJson = nodeConfigJson.optJSONObject(AppConstants.KEY_PARAMS);
@@ -324,8 +312,9 @@ public class JsonDataParser {
                             continue;
                         }
 
+                        // Values in node config are read now, e.g. from device on local network.
                         if (deviceJson.has(key)) {
-                            setDeviceParamValue(deviceJson, devices.get(i), param);
+                            setDeviceParamValue(deviceJson, devices.get(i), param, ServerClock.now());
                         }
                     }
                 } else {
@@ -356,13 +345,21 @@ public class JsonDataParser {
         return espNode;
     }
 
-    public static void setAllParams(EspApplication espAppContext, EspNode node, JSONObject paramsJson) {
+    /**
+     * This method is used to set param values, schedules and time zone of the node. It should be called on main thread.
+     *
+     * @param espAppContext Application.
+     * @param node          Node.
+     * @param paramsJson    JSON data of node params.
+     * @param readTime      Time (of the cloud) at which values are read, see {@link ServerClock}.
+     */
+    public static void setAllParams(EspApplication espAppContext, EspNode node, JSONObject paramsJson, long readTime) {
 
         String nodeId = node.getNodeId();
         ArrayList<Device> devices = node.getDevices();
-        ArrayList<Service> services = node.getServices();
         JSONObject scheduleJson = paramsJson.optJSONObject(AppConstants.KEY_SCHEDULE);
         JSONObject timeJson = paramsJson.optJSONObject(AppConstants.KEY_TIME);
+        node.setScheduleData(scheduleJson != null ? scheduleJson.toString() : null);
 
         if (devices != null) {
             for (int i = 0; i < devices.size(); i++) {
@@ -383,7 +380,7 @@ public class JsonDataParser {
                         }
 
                         if (deviceJson.has(key)) {
-                            setDeviceParamValue(deviceJson, devices.get(i), param);
+                            setDeviceParamValue(deviceJson, devices.get(i), param, readTime);
                         }
                     }
                 } else {
@@ -394,167 +391,25 @@ public class JsonDataParser {
 
         // Schedules
         if (scheduleJson != null) {
-
-            JSONArray scheduleArrayJson = scheduleJson.optJSONArray(AppConstants.KEY_SCHEDULES);
-
-            if (scheduleArrayJson != null) {
-
-                for (int index = 0; index < scheduleArrayJson.length(); index++) {
-
-                    JSONObject schJson = null;
-                    try {
-                        schJson = scheduleArrayJson.getJSONObject(index);
-                    } catch (JSONException e) {
-                        e.printStackTrace();
-                    }
-                    String scheduleId = schJson.optString(AppConstants.KEY_ID);
-                    String key = scheduleId;
-
-                    if (!TextUtils.isEmpty(scheduleId)) {
-
-                        String name = schJson.optString(AppConstants.KEY_NAME);
-                        key = key + "_" + name + "_" + schJson.optBoolean(AppConstants.KEY_ENABLED);
-
-                        HashMap<String, Integer> triggers = new HashMap<>();
-                        JSONArray triggerArray = schJson.optJSONArray(AppConstants.KEY_TRIGGERS);
-                        for (int t = 0; t < triggerArray.length(); t++) {
-                            JSONObject triggerJson = triggerArray.optJSONObject(t);
-                            int days = triggerJson.optInt(AppConstants.KEY_DAYS);
-                            int mins = triggerJson.optInt(AppConstants.KEY_MINUTES);
-                            triggers.put(AppConstants.KEY_DAYS, days);
-                            triggers.put(AppConstants.KEY_MINUTES, mins);
-                            key = key + "_" + days + "_" + mins;
-                        }
-
-                        Schedule schedule = espAppContext.scheduleMap.get(key);
-                        if (schedule == null) {
-                            schedule = new Schedule();
-                        }
-
-                        schedule.setId(scheduleId);
-                        schedule.setName(schJson.optString(AppConstants.KEY_NAME));
-                        schedule.setEnabled(schJson.optBoolean(AppConstants.KEY_ENABLED));
-                        schedule.setTriggers(triggers);
-                        Log.d(TAG, "=============== Schedule : " + schedule.getName() + " ===============");
-
-                        // Actions
-                        JSONObject actionsSchJson = schJson.optJSONObject(AppConstants.KEY_ACTION);
-
-                        if (actionsSchJson != null) {
-
-                            ArrayList<Action> actions = schedule.getActions();
-                            if (actions == null) {
-                                actions = new ArrayList<>();
-                                schedule.setActions(actions);
-                            }
-
-                            for (int deviceIndex = 0; deviceIndex < devices.size(); deviceIndex++) {
-
-                                Device d = new Device(devices.get(deviceIndex));
-                                ArrayList<Param> params = d.getParams();
-                                String deviceName = d.getDeviceName();
-                                JSONObject deviceAction = actionsSchJson.optJSONObject(deviceName);
-
-                                if (deviceAction != null) {
-
-                                    Action action = null;
-                                    Device actionDevice = null;
-                                    int actionIndex = -1;
-
-                                    for (int aIndex = 0; aIndex < actions.size(); aIndex++) {
-
-                                        Action a = actions.get(aIndex);
-                                        if (a.getDevice().getNodeId().equals(nodeId) && deviceName.equals(a.getDevice().getDeviceName())) {
-                                            action = actions.get(aIndex);
-                                            actionIndex = aIndex;
-                                        }
-                                    }
-
-                                    if (action == null) {
-                                        action = new Action();
-                                        action.setNodeId(nodeId);
-
-                                        for (int k = 0; k < devices.size(); k++) {
-
-                                            if (devices.get(k).getNodeId().equals(nodeId) && devices.get(k).getDeviceName().equals(deviceName)) {
-                                                actionDevice = new Device(devices.get(k));
-                                                actionDevice.setSelectedState(1);
-                                                break;
-                                            }
-                                        }
-
-                                        if (actionDevice == null) {
-                                            actionDevice = new Device(nodeId);
-                                        }
-                                        action.setDevice(actionDevice);
-                                    } else {
-                                        actionDevice = action.getDevice();
-                                    }
-
-                                    ArrayList<Param> actionParams = new ArrayList<>();
-                                    if (params != null) {
-
-                                        Iterator<Param> iterator = params.iterator();
-                                        while (iterator.hasNext()) {
-                                            Param p = iterator.next();
-                                            actionParams.add(new Param(p));
-                                        }
-
-                                        Iterator itr = actionParams.iterator();
-
-                                        while (itr.hasNext()) {
-
-                                            Param p = (Param) itr.next();
-
-                                            if (!p.isDynamicParam()) {
-                                                itr.remove();
-                                            } else if (p.getParamType() != null && p.getParamType().equals(AppConstants.PARAM_TYPE_NAME)) {
-                                                itr.remove();
-                                            } else if (!p.getProperties().contains(AppConstants.KEY_PROPERTY_WRITE)) {
-                                                itr.remove();
-                                            }
-                                        }
-                                    }
-                                    actionDevice.setParams(actionParams);
-
-                                    for (int paramIndex = 0; paramIndex < actionParams.size(); paramIndex++) {
-
-                                        Param p = actionParams.get(paramIndex);
-                                        String paramName = p.getName();
-
-                                        if (deviceAction.has(paramName)) {
-
-                                            p.setSelected(true);
-                                            setDeviceParamValue(deviceAction, devices.get(deviceIndex), p);
-                                        }
-                                    }
-
-                                    for (int paramIndex = 0; paramIndex < actionParams.size(); paramIndex++) {
-
-                                        if (!actionParams.get(paramIndex).isSelected()) {
-                                            actionDevice.setSelectedState(2); // Partially selected
-                                        }
-                                    }
-
-                                    if (actionIndex == -1) {
-                                        actions.add(action);
-                                    } else {
-                                        actions.set(actionIndex, action);
-                                    }
-                                    schedule.setActions(actions);
-
-                                }
-                            }
-                        }
-                        espAppContext.scheduleMap.put(key, schedule);
-                    }
-                }
-            }
+            ScheduleParser.parseSchedules(node, scheduleJson, espAppContext.scheduleMap);
         } else {
             Log.e(TAG, "Schedule JSON is not available");
         }
 
         // Timezone
+        setTimeParams(node, timeJson);
+    }
+
+    /**
+     * This method is used to set values of time service params.
+     *
+     * @param node     Node object.
+     * @param timeJson JSON data of time service params.
+     */
+    public static void setTimeParams(EspNode node, JSONObject timeJson) {
+
+        ArrayList<Service> services = node.getServices();
+
         if (timeJson != null && services != null) {
             for (int serviceIdx = 0; serviceIdx < services.size(); serviceIdx++) {
                 Service service = services.get(serviceIdx);
@@ -566,7 +421,11 @@ public class JsonDataParser {
                             String dataType = timeParam.getDataType();
                             if (!TextUtils.isEmpty(dataType)) {
                                 if (dataType.equalsIgnoreCase("string")) {
-                                    timeParam.setLabelValue(timeJson.optString(timeParam.getName()));
+                                    String labelValue = timeJson.optString(timeParam.getName());
+                                    if (!labelValue.equals(timeParam.getLabelValue())) {
+                                        timeParam.setLabelValue(labelValue);
+                                        timeParam.setValueChanged(true);
+                                    }
                                 }
                             }
                         }
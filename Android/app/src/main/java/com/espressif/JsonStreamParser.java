@@ -0,0 +1,828 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif;
+
+import android.util.Log;
+
+import com.espressif.ui.models.Device;
+import com.espressif.ui.models.EspNode;
+import com.espressif.ui.models.Param;
+import com.espressif.ui.models.Service;
+import com.espressif.ui.models.TimeSeries;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * This class is used to decode large cloud responses directly from the response stream,
+ * without reading whole response in a string and building JSON tree of it.
+ */
+public class JsonStreamParser {
+
+    private static final String TAG = JsonStreamParser.class.getSimpleName();
+
+    /**
+     * Node entry of "node_details" array.
+     * Config and params are kept as compact JSON text which is also the data persisted in local storage.
+     */
+    public static class NodeDetails {
+
+        public String nodeId = "";
+        public String role = "";
+        public String configVersion;
+        public String configData;
+        public String paramData;
+        public boolean isStatusAvailable;
+        public boolean isConnected;
+        public long statusTimestamp;
+    }
+
+    /**
+     * One page of node list response.
+     */
+    public static class NodesPage {
+
+        public ArrayList<NodeDetails> nodes = new ArrayList<>();
+        public String nextId = "";
+    }
+
+    /**
+     * One page of time series data response.
+     */
+    public static class TimeSeriesPage {
+
+        public TimeSeries samples = new TimeSeries();
+        public String nextId = "";
+    }
+
+    /**
+     * This method is used to read response of node details API (node list / single node).
+     *
+     * @param in Character stream of response body.
+     * @return Nodes and next id of the page.
+     * @throws IOException If response can not be read or it is not a valid JSON.
+     */
+    public static NodesPage readNodesPage(Reader in) throws IOException {
+
+        NodesPage page = new NodesPage();
+        JsonReader reader = new JsonReader(in);
+
+        try {
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+
+                String name = reader.nextName();
+
+                if (AppConstants.KEY_NODE_DETAILS.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                            page.nodes.add(readNodeDetails(reader));
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endArray();
+
+                } else if (AppConstants.KEY_NEXT_ID.equals(name) && reader.peek() == JsonToken.STRING) {
+                    page.nextId = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException e) {
+            throw new IOException("Invalid node details response", e);
+        } finally {
+            reader.close();
+        }
+        return page;
+    }
+
+    /**
+     * This method is used to read response of time series data API.
+     * Numeric values of all params in the response are added in samples, time is converted to milliseconds.
+     *
+     * @param in Character stream of response body.
+     * @return Samples and next id of the page.
+     * @throws IOException If response can not be read or it is not a valid JSON.
+     */
+    public static TimeSeriesPage readTimeSeriesPage(Reader in) throws IOException {
+
+        TimeSeriesPage page = new TimeSeriesPage();
+        JsonReader reader = new JsonReader(in);
+
+        try {
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+
+                String name = reader.nextName();
+
+                if (AppConstants.KEY_TS_DATA.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readObjectArray(reader, AppConstants.KEY_PARAMS, page.samples);
+                    }
+                    reader.endArray();
+
+                } else if (AppConstants.KEY_NEXT_ID.equals(name) && reader.peek() == JsonToken.STRING) {
+                    page.nextId = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException e) {
+            throw new IOException("Invalid time series response", e);
+        } finally {
+            reader.close();
+        }
+        return page;
+    }
+
+    /**
+     * This method is used to read objects of given array in the object, e.g. "params" of node and "values" of param.
+     * Values are added in samples.
+     */
+    private static void readObjectArray(JsonReader reader, String arrayName, TimeSeries samples) throws IOException {
+
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+
+            String name = reader.nextName();
+
+            if (arrayName.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (AppConstants.KEY_PARAMS.equals(arrayName)) {
+                        readObjectArray(reader, AppConstants.KEY_VALUES, samples);
+                    } else {
+                        readSample(reader, samples);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readSample(JsonReader reader, TimeSeries samples) throws IOException {
+
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+
+        long time = -1;
+        Object value = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+
+            String name = reader.nextName();
+
+            if (AppConstants.KEY_TS.equals(name) && reader.peek() == JsonToken.NUMBER) {
+                time = reader.nextLong();
+            } else if (AppConstants.KEY_VAL.equals(name)) {
+                value = readValue(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (time >= 0 && value instanceof Number) {
+            samples.add(time * 1000, ((Number) value).doubleValue());
+        }
+    }
+
+    private static NodeDetails readNodeDetails(JsonReader reader) throws IOException {
+
+        NodeDetails nodeDetails = new NodeDetails();
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+
+            String name = reader.nextName();
+            JsonToken token = reader.peek();
+
+            if (AppConstants.KEY_ID.equals(name) && token == JsonToken.STRING) {
+                nodeDetails.nodeId = reader.nextString();
+            } else if (AppConstants.KEY_ROLE.equals(name) && token == JsonToken.STRING) {
+                nodeDetails.role = reader.nextString();
+            } else if (AppConstants.KEY_CONFIG.equals(name) && token == JsonToken.BEGIN_OBJECT) {
+                readConfig(reader, nodeDetails);
+            } else if (AppConstants.KEY_PARAMS.equals(name) && token == JsonToken.BEGIN_OBJECT) {
+                nodeDetails.paramData = readRawValue(reader);
+            } else if (AppConstants.KEY_STATUS.equals(name) && token == JsonToken.BEGIN_OBJECT) {
+                readStatus(reader, nodeDetails);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return nodeDetails;
+    }
+
+    private static void readConfig(JsonReader reader, NodeDetails nodeDetails) throws IOException {
+
+        StringWriter stringWriter = new StringWriter();
+        JsonWriter writer = new JsonWriter(stringWriter);
+
+        reader.beginObject();
+        writer.beginObject();
+        while (reader.hasNext()) {
+
+            String name = reader.nextName();
+            writer.name(name);
+
+            if (AppConstants.KEY_CONFIG_VERSION.equals(name) && reader.peek() == JsonToken.STRING) {
+                nodeDetails.configVersion = reader.nextString();
+                writer.value(nodeDetails.configVersion);
+            } else {
+                copyValue(reader, writer);
+            }
+        }
+        reader.endObject();
+        writer.endObject();
+        writer.flush();
+        nodeDetails.configData = stringWriter.toString();
+    }
+
+    private static void readStatus(JsonReader reader, NodeDetails nodeDetails) throws IOException {
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+
+            if (AppConstants.KEY_CONNECTIVITY.equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+
+                nodeDetails.isStatusAvailable = true;
+                reader.beginObject();
+                while (reader.hasNext()) {
+
+                    String name = reader.nextName();
+                    Object value = readValue(reader);
+
+                    if (AppConstants.KEY_CONNECTED.equals(name)) {
+                        nodeDetails.isConnected = Boolean.TRUE.equals(value);
+                    } else if (AppConstants.KEY_TIMESTAMP.equals(name) && value instanceof Number) {
+                        nodeDetails.statusTimestamp = ((Number) value).longValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * This method is used to set config of the node from JSON text of node config.
+     * Devices, services and attributes of the node are created again, existing objects of the node are not changed.
+     * It is the only parser of node config, config received from device on local network is also read with it.
+     *
+     * @param in      Character stream of node config.
+     * @param espNode Node in which config to be set.
+     * @return Node with its config.
+     * @throws IOException If config can not be read or it is not a valid JSON.
+     */
+    public static EspNode readNodeConfig(Reader in, EspNode espNode) throws IOException {
+
+        String nodeId = espNode.getNodeId();
+        ArrayList<Device> devices = new ArrayList<>();
+        ArrayList<Service> services = new ArrayList<>();
+        ArrayList<Param> nodeAttributes = new ArrayList<>();
+        espNode.setConfigVersion("");
+        JsonReader reader = new JsonReader(in);
+
+        try {
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+
+                String name = reader.nextName();
+                JsonToken token = reader.peek();
+
+                if (AppConstants.KEY_CONFIG_VERSION.equals(name)) {
+                    espNode.setConfigVersion(readString(reader));
+                } else if (AppConstants.KEY_INFO.equals(name) && token == JsonToken.BEGIN_OBJECT) {
+                    readNodeInfo(reader, espNode, nodeAttributes);
+                } else if (AppConstants.KEY_DEVICES.equals(name) && token == JsonToken.BEGIN_ARRAY) {
+
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        Device device = readDevice(reader, nodeId);
+                        if (device != null) {
+                            devices.add(device);
+                        }
+                    }
+                    reader.endArray();
+
+                } else if (AppConstants.KEY_SERVICES.equals(name) && token == JsonToken.BEGIN_ARRAY) {
+
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        Service service = readService(reader, nodeId);
+                        if (service != null) {
+                            services.add(service);
+                        }
+                    }
+                    reader.endArray();
+
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException e) {
+            throw new IOException("Invalid node config", e);
+        } finally {
+            reader.close();
+        }
+
+        espNode.setDevices(devices);
+        espNode.setServices(services);
+        espNode.setAttributes(nodeAttributes);
+        return espNode;
+    }
+
+    private static void readNodeInfo(JsonReader reader, EspNode espNode, ArrayList<Param> nodeAttributes) throws IOException {
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+
+            String name = reader.nextName();
+
+            if (AppConstants.KEY_NAME.equals(name)) {
+                espNode.setNodeName(readString(reader));
+            } else if (AppConstants.KEY_FW_VERSION.equals(name)) {
+                espNode.setFwVersion(readString(reader));
+            } else if (AppConstants.KEY_TYPE.equals(name)) {
+                espNode.setNodeType(readString(reader));
+            } else if (AppConstants.KEY_ATTRIBUTES.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Param attribute = readParamConfig(reader);
+                    if (attribute != null) {
+                        nodeAttributes.add(attribute);
+                    }
+                }
+                reader.endArray();
+
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static Device readDevice(JsonReader reader, String nodeId) throws IOException {
+
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        Device device = new Device(nodeId);
+        device.setDeviceName("");
+        device.setUserVisibleName("");
+        device.setDeviceType("");
+        device.setPrimaryParamName("");
+        ArrayList<Param> params = new ArrayList<>();
+        ArrayList<Param> attributes = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+
+            String name = reader.nextName();
+
+            if (AppConstants.KEY_NAME.equals(name)) {
+                String deviceName = readString(reader);
+                device.setDeviceName(deviceName);
+                device.setUserVisibleName(deviceName);
+            } else if (AppConstants.KEY_TYPE.equals(name)) {
+                device.setDeviceType(readString(reader));
+            } else if (AppConstants.KEY_PRIMARY.equals(name)) {
+                device.setPrimaryParamName(readString(reader));
+            } else if (AppConstants.KEY_PARAMS.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                readParamsConfig(reader, params, true);
+            } else if (AppConstants.KEY_ATTRIBUTES.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                readParamsConfig(reader, attributes, false);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // Attributes are displayed after params.
+        params.addAll(attributes);
+        device.setParams(params);
+        return device;
+    }
+
+    private static Service readService(JsonReader reader, String nodeId) throws IOException {
+
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        Service service = new Service(nodeId);
+        service.setName("");
+        service.setType("");
+        ArrayList<Param> params = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+
+            String name = reader.nextName();
+
+            if (AppConstants.KEY_NAME.equals(name)) {
+                service.setName(readString(reader));
+            } else if (AppConstants.KEY_TYPE.equals(name)) {
+                service.setType(readString(reader));
+            } else if (AppConstants.KEY_PARAMS.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                readParamsConfig(reader, params, true);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        service.setParams(params);
+        return service;
+    }
+
+    /**
+     * This method is used to read array of params or attributes in the config.
+     *
+     * @param isDynamic True for params, false for attributes.
+     */
+    private static void readParamsConfig(JsonReader reader, ArrayList<Param> params, boolean isDynamic) throws IOException {
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+
+            Param param = readParamConfig(reader);
+
+            if (param != null) {
+                param.setDynamicParam(isDynamic);
+                params.add(param);
+            }
+        }
+        reader.endArray();
+    }
+
+    private static Param readParamConfig(JsonReader reader) throws IOException {
+
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        Param param = new Param();
+        param.setName("");
+        param.setParamType("");
+        param.setDataType("");
+        ArrayList<String> properties = new ArrayList<>();
+        ArrayList<String> validStrings = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+
+            String name = reader.nextName();
+
+            if (AppConstants.KEY_NAME.equals(name)) {
+                param.setName(readString(reader));
+            } else if (AppConstants.KEY_TYPE.equals(name)) {
+                param.setParamType(readString(reader));
+            } else if (AppConstants.KEY_DATA_TYPE.equals(name)) {
+                param.setDataType(readString(reader));
+            } else if (AppConstants.KEY_UI_TYPE.equals(name)) {
+                param.setUiType(readString(reader));
+            } else if (AppConstants.KEY_VALUE.equals(name)) {
+                param.setLabelValue(readString(reader));
+            } else if (AppConstants.KEY_PROPERTIES.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                readStringArray(reader, properties);
+            } else if (AppConstants.KEY_VALID_STRS.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                readStringArray(reader, validStrings);
+            } else if (AppConstants.KEY_BOUNDS.equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                readBounds(reader, param);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        param.setProperties(properties);
+        param.setValidStrings(validStrings);
+        return param;
+    }
+
+    private static void readBounds(JsonReader reader, Param param) throws IOException {
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+
+            String name = reader.nextName();
+            Object value = readValue(reader);
+
+            // Values are converted same as param values, numbers in strings are also allowed.
+            if (AppConstants.KEY_MAX.equals(name)) {
+                param.setMaxBounds(JsonDataParser.optInt(value));
+            } else if (AppConstants.KEY_MIN.equals(name)) {
+                param.setMinBounds(JsonDataParser.optInt(value));
+            } else if (AppConstants.KEY_STEP.equals(name)) {
+                double step = JsonDataParser.optDouble(value);
+                param.setStepCount(Double.isNaN(step) ? 0 : (float) step);
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readStringArray(JsonReader reader, ArrayList<String> values) throws IOException {
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            values.add(readString(reader));
+        }
+        reader.endArray();
+    }
+
+    /**
+     * This method is used to read next value as string, same as optString of org.json objects.
+     */
+    private static String readString(JsonReader reader) throws IOException {
+
+        Object value = readValue(reader);
+        return value != null ? String.valueOf(value) : "";
+    }
+
+    /**
+     * This method is used to read JSON text of each object in params of the node.
+     * It is used to compare params of each device and service without building JSON tree of params.
+     *
+     * @param in Character stream of params JSON.
+     * @return Map of device / service name and its JSON text.
+     * @throws IOException If params can not be read or it is not a valid JSON.
+     */
+    public static HashMap<String, String> readParamObjects(Reader in) throws IOException {
+
+        HashMap<String, String> paramObjects = new HashMap<>();
+        JsonReader reader = new JsonReader(in);
+
+        try {
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+
+                String name = reader.nextName();
+
+                if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    paramObjects.put(name, readRawValue(reader));
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException e) {
+            throw new IOException("Invalid params", e);
+        } finally {
+            reader.close();
+        }
+        return paramObjects;
+    }
+
+    /**
+     * This method is used to set param values of the device from JSON text of device params.
+     *
+     * @param deviceJson JSON text of device params.
+     * @param device     Device in which values to be set.
+     * @param readTime   Time (of the cloud) at which values are read.
+     * @throws IOException If JSON text can not be read.
+     */
+    public static void readDeviceParamValues(String deviceJson, Device device, long readTime) throws IOException {
+
+        JsonReader reader = new JsonReader(new StringReader(deviceJson));
+
+        try {
+            readDeviceParamValues(reader, device, readTime);
+        } catch (IllegalStateException e) {
+            throw new IOException("Invalid device params", e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * This method is used to apply param values received in response of get params API.
+     * Values of devices are set in params directly from the stream.
+     * JSON text of service params (e.g. "Schedule", "Time") is returned to process it separately.
+     *
+     * @param in       Character stream of response body.
+     * @param node     Node for which params are received.
+     * @param readTime Time (of the cloud) at which values are read.
+     * @return Map of service name and its JSON text.
+     * @throws IOException If response can not be read or it is not a valid JSON.
+     */
+    public static HashMap<String, String> readParamValues(Reader in, EspNode node, long readTime) throws IOException {
+
+        HashMap<String, String> serviceParams = new HashMap<>();
+        HashMap<String, Device> deviceMap = new HashMap<>();
+        ArrayList<Device> devices = node.getDevices();
+
+        if (devices != null) {
+            for (Device device : devices) {
+                deviceMap.put(device.getDeviceName(), device);
+            }
+        }
+
+        JsonReader reader = new JsonReader(in);
+
+        try {
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+
+                String name = reader.nextName();
+                Device device = deviceMap.get(name);
+
+                if (device != null && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    readDeviceParamValues(reader, device, readTime);
+                } else if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    serviceParams.put(name, readRawValue(reader));
+                } else {
+                    Log.e(TAG, "Device JSON is null for " + name);
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException e) {
+            throw new IOException("Invalid params response", e);
+        } finally {
+            reader.close();
+        }
+        return serviceParams;
+    }
+
+    private static void readDeviceParamValues(JsonReader reader, Device device, long readTime) throws IOException {
+
+        HashMap<String, Param> paramMap = new HashMap<>();
+        ArrayList<Param> params = device.getParams();
+
+        if (params != null) {
+            for (Param param : params) {
+                paramMap.put(param.getName(), param);
+            }
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+
+            Param param = paramMap.get(reader.nextName());
+
+            // Attributes are not reported in params.
+            if (param != null && param.isDynamicParam()) {
+                JsonDataParser.setDeviceParamValue(readValue(reader), device, param, readTime);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * This method is used to read next value as java object, same as values of org.json objects.
+     * Objects and arrays are returned as their JSON text.
+     */
+    static Object readValue(JsonReader reader) throws IOException {
+
+        switch (reader.peek()) {
+
+            case BOOLEAN:
+                return reader.nextBoolean();
+
+            case NUMBER:
+                return parseNumber(reader.nextString());
+
+            case STRING:
+                return reader.nextString();
+
+            case NULL:
+                reader.nextNull();
+                return null;
+
+            default:
+                return readRawValue(reader);
+        }
+    }
+
+    /**
+     * This method is used to read next value as compact JSON text.
+     */
+    static String readRawValue(JsonReader reader) throws IOException {
+
+        StringWriter stringWriter = new StringWriter();
+        JsonWriter writer = new JsonWriter(stringWriter);
+        copyValue(reader, writer);
+        writer.flush();
+        return stringWriter.toString();
+    }
+
+    private static void copyValue(JsonReader reader, JsonWriter writer) throws IOException {
+
+        switch (reader.peek()) {
+
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    copyValue(reader, writer);
+                }
+                reader.endArray();
+                writer.endArray();
+                break;
+
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    writer.name(reader.nextName());
+                    copyValue(reader, writer);
+                }
+                reader.endObject();
+                writer.endObject();
+                break;
+
+            case STRING:
+                writer.value(reader.nextString());
+                break;
+
+            case NUMBER:
+                // Keep number as it is received.
+                writer.jsonValue(reader.nextString());
+                break;
+
+            case BOOLEAN:
+                writer.value(reader.nextBoolean());
+                break;
+
+            case NULL:
+                reader.nextNull();
+                writer.nullValue();
+                break;
+
+            default:
+                reader.skipValue();
+                break;
+        }
+    }
+
+    private static Object parseNumber(String number) {
+
+        try {
+            if (number.indexOf('.') == -1 && number.indexOf('e') == -1 && number.indexOf('E') == -1) {
+                long longValue = Long.parseLong(number);
+                if (longValue <= Integer.MAX_VALUE && longValue >= Integer.MIN_VALUE) {
+                    return (int) longValue;
+                }
+                return longValue;
+            }
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            return number;
+        }
+    }
+}
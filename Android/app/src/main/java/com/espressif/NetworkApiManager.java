@@ -20,8 +20,18 @@ import android.util.Log;
 
 import com.espressif.cloudapi.ApiManager;
 import com.espressif.cloudapi.ApiResponseListener;
+import com.espressif.cloudapi.ServerClock;
 import com.espressif.mdns.mDNSApiManager;
+import com.espressif.ui.models.Device;
+import com.espressif.ui.models.EspNode;
+import com.espressif.ui.models.Param;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * This class will decide to call API on local network or on cloud.
@@ -46,6 +56,10 @@ public class NetworkApiManager {
 
     /**
      * This method is used to update param values of a device.
+     * Writes are batched by {@link ParamWriteBatcher}, so writes of the same node within a short time window
+     * are merged and writes of multiple nodes are sent in one request.
+     * If write fails because of network, it is stored in {@link ParamWriteQueue} and sent when network is available.
+     * Written values are displayed immediately and they are rolled back if write is rejected.
      *
      * @param nodeId   Node id.
      * @param body     Json data to be sent in request. It contains new value of a param.
@@ -53,6 +67,100 @@ public class NetworkApiManager {
      */
     public void updateParamValue(final String nodeId, final JsonObject body, final ApiResponseListener listener) {
 
+        final long sendTime = ServerClock.now();
+        final ArrayList<Param> pendingParams = setPendingValues(nodeId, body);
+
+        ParamWriteBatcher.getInstance(context).write(nodeId, body, new ApiResponseListener() {
+
+            @Override
+            public void onSuccess(Bundle data) {
+                ParamWriteQueue.getInstance(context).onWriteSuccess(nodeId, body, sendTime);
+                listener.onSuccess(data);
+            }
+
+            @Override
+            public void onResponseFailure(Exception exception) {
+                for (Param param : pendingParams) {
+                    param.rollbackPendingWrite();
+                }
+                listener.onResponseFailure(exception);
+            }
+
+            @Override
+            public void onNetworkFailure(Exception exception) {
+                // Written values are kept, as write is sent again when network is available.
+                ParamWriteQueue.getInstance(context).enqueue(nodeId, body);
+                listener.onNetworkFailure(exception);
+            }
+        });
+    }
+
+    /**
+     * This method is used to set written values in params of the node, till device reports them.
+     *
+     * @return Params in which written values are set.
+     */
+    private ArrayList<Param> setPendingValues(String nodeId, JsonObject body) {
+
+        ArrayList<Param> pendingParams = new ArrayList<>();
+        EspNode node = espApp.nodeMap.get(nodeId);
+
+        if (node == null || node.getDevices() == null) {
+            return pendingParams;
+        }
+
+        HashMap<String, Device> deviceMap = new HashMap<>();
+        for (Device device : node.getDevices()) {
+            deviceMap.put(device.getDeviceName(), device);
+        }
+
+        for (Map.Entry<String, JsonElement> deviceEntry : body.entrySet()) {
+
+            Device device = deviceMap.get(deviceEntry.getKey());
+
+            if (device == null || device.getParams() == null || !deviceEntry.getValue().isJsonObject()) {
+                continue;
+            }
+
+            JsonObject deviceJson = deviceEntry.getValue().getAsJsonObject();
+
+            for (Param param : device.getParams()) {
+
+                JsonElement value = deviceJson.get(param.getName());
+
+                // Trigger is momentary, device does not report written value.
+                if (value == null || !value.isJsonPrimitive()
+                        || AppConstants.UI_TYPE_TRIGGER.equalsIgnoreCase(param.getUiType())) {
+                    continue;
+                }
+
+                JsonPrimitive primitive = value.getAsJsonPrimitive();
+                Object writtenValue;
+
+                if (primitive.isBoolean()) {
+                    writtenValue = primitive.getAsBoolean();
+                } else if (primitive.isNumber()) {
+                    writtenValue = primitive.getAsNumber();
+                } else {
+                    writtenValue = primitive.getAsString();
+                }
+
+                JsonDataParser.setPendingParamValue(writtenValue, device, param);
+                pendingParams.add(param);
+            }
+        }
+        return pendingParams;
+    }
+
+    /**
+     * This method is used to send param values of a node without batching.
+     *
+     * @param nodeId   Node id.
+     * @param body     Json data to be sent in request. It contains new value of a param.
+     * @param listener Listener to send success or failure.
+     */
+    void sendParamValue(final String nodeId, final JsonObject body, final ApiResponseListener listener) {
+
         if (espApp.mDNSDeviceMap.containsKey(nodeId)) {
 
             dnsMsgHelper.updateParamValue(nodeId, body, new ApiResponseListener() {
@@ -67,7 +175,7 @@ public class NetworkApiManager {
                     Log.e(TAG, "Error : " + exception.getMessage());
                     Log.e(TAG, "Removing Node id : " + nodeId);
                     espApp.mDNSDeviceMap.remove(nodeId);
-                    updateParamValue(nodeId, body, listener);
+                    sendParamValue(nodeId, body, listener);
                 }
 
                 @Override
@@ -75,7 +183,7 @@ public class NetworkApiManager {
                     Log.e(TAG, "Error : " + exception.getMessage());
                     Log.e(TAG, "Removing Node id : " + nodeId);
                     espApp.mDNSDeviceMap.remove(nodeId);
-                    updateParamValue(nodeId, body, listener);
+                    sendParamValue(nodeId, body, listener);
                 }
             });
 
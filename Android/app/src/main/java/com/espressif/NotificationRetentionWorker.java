@@ -0,0 +1,83 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.espressif.db.EspDatabase;
+import com.espressif.db.NotificationDao;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This worker is used to delete old notifications from notification history.
+ * Online / offline notifications are deleted after {@link AppConstants#CONNECTIVITY_NOTIFICATION_RETENTION_TIME},
+ * other notifications after {@link AppConstants#NOTIFICATION_RETENTION_TIME}
+ * and only latest {@link AppConstants#NOTIFICATION_MAX_COUNT} notifications are kept.
+ */
+public class NotificationRetentionWorker extends Worker {
+
+    private static final String TAG = NotificationRetentionWorker.class.getSimpleName();
+
+    public NotificationRetentionWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * This method is used to schedule periodic cleanup of notification history. Existing schedule is kept.
+     *
+     * @param context Context.
+     */
+    public static void schedule(Context context) {
+
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .build();
+
+        PeriodicWorkRequest workRequest = new PeriodicWorkRequest.Builder(NotificationRetentionWorker.class,
+                AppConstants.NOTIFICATION_RETENTION_INTERVAL, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(AppConstants.NOTIFICATION_RETENTION_WORK_NAME,
+                ExistingPeriodicWorkPolicy.KEEP, workRequest);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+
+        NotificationDao notificationDao = EspDatabase.getInstance(getApplicationContext()).getNotificationDao();
+        long now = System.currentTimeMillis();
+
+        int count = notificationDao.deleteOlderThan(Arrays.asList(AppConstants.EVENT_NODE_CONNECTED,
+                AppConstants.EVENT_NODE_DISCONNECTED), now - AppConstants.CONNECTIVITY_NOTIFICATION_RETENTION_TIME);
+        count += notificationDao.deleteOlderThan(now - AppConstants.NOTIFICATION_RETENTION_TIME);
+        count += notificationDao.deleteExceptLatest(AppConstants.NOTIFICATION_MAX_COUNT);
+
+        Log.d(TAG, "Deleted " + count + " old notifications");
+        return Result.success();
+    }
+}
@@ -7,28 +7,35 @@ import android.content.Intent;
 import android.media.RingtoneManager;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
-import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
 import com.espressif.cloudapi.ApiManager;
 import com.espressif.cloudapi.ApiResponseListener;
 import com.espressif.db.EspDatabase;
-import com.espressif.rainmaker.BuildConfig;
+import com.espressif.db.FcmInboxDao;
+import com.espressif.db.NodeStorage;
+import com.espressif.db.NotificationDao;
 import com.espressif.rainmaker.R;
 import com.espressif.ui.activities.NotificationsActivity;
 import com.espressif.ui.activities.SplashActivity;
 import com.espressif.ui.models.Device;
 import com.espressif.ui.models.EspNode;
-import com.espressif.ui.models.Group;
+import com.espressif.ui.models.FcmMessage;
 import com.espressif.ui.models.NotificationEvent;
 import com.espressif.ui.models.Param;
+import com.espressif.ui.models.Schedule;
 import com.espressif.ui.models.UpdateEvent;
 
 import org.greenrobot.eventbus.EventBus;
@@ -36,7 +43,15 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 public class NotificationWorker extends Worker {
 
@@ -44,10 +59,17 @@ public class NotificationWorker extends Worker {
 
     private EspApplication espApp;
     private static int notificationId = 0;
+    // Id of connectivity notification, it is posted with node id as tag so that each node has one notification.
+    private static final int CONNECTIVITY_NOTIFICATION_ID = 1;
+    // Notifications of the batch which is being processed.
+    private ArrayList<NotificationEvent> notificationEvents = new ArrayList<>();
+    // Nodes of the app are changed only on main thread.
+    private Handler handler;
 
     public NotificationWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
         super(context, workerParams);
         espApp = (EspApplication) getApplicationContext();
+        handler = new Handler(Looper.getMainLooper());
     }
 
     @NonNull
@@ -55,122 +77,222 @@ public class NotificationWorker extends Worker {
     public Result doWork() {
 
         Log.d(TAG, "Do Notification Work");
-        Data data = getInputData();
-        String title = data.getString(AppConstants.KEY_TITLE);
-        String eventPayload = data.getString(AppConstants.KEY_EVENT_DATA_PAYLOAD);
+        EspDatabase espDatabase = EspDatabase.getInstance(espApp);
+        List<FcmMessage> messages = espDatabase.getFcmInboxDao().getMessages(AppConstants.FCM_INBOX_BATCH_SIZE);
 
-        try {
-            JSONObject eventDataJson = new JSONObject(eventPayload);
-            String eventType = eventDataJson.optString(AppConstants.KEY_EVENT_TYPE);
-            JSONObject jsonEventData = eventDataJson.optJSONObject(AppConstants.KEY_EVENT_DATA);
-            NotificationEvent notificationEvent = new NotificationEvent();
-            notificationEvent.setEventType(eventType);
-            notificationEvent.setEventVersion(eventDataJson.optString(AppConstants.KEY_EVENT_VERSION));
-            notificationEvent.setEventId(eventDataJson.optString(AppConstants.KEY_ID));
-            notificationEvent.setEventData(jsonEventData.toString());
-            notificationEvent.setEventDescription(eventDataJson.optString(AppConstants.KEY_DESCRIPTION));
-            notificationEvent.setTimestamp(eventDataJson.optLong(AppConstants.KEY_TIMESTAMP));
-            Log.e(TAG, "Event type : " + eventType);
+        while (!messages.isEmpty()) {
 
-            if (!TextUtils.isEmpty(eventType)) {
+            if (isStopped()) {
+                // Remaining messages are kept in inbox.
+                return Result.retry();
+            }
+            processMessages(espDatabase, messages);
+            messages = espDatabase.getFcmInboxDao().getMessages(AppConstants.FCM_INBOX_BATCH_SIZE);
+        }
+        return Result.success();
+    }
 
-                if (jsonEventData != null) {
+    /**
+     * This method is used to start worker which processes messages of the inbox, if it is not running.
+     *
+     * @param context Context.
+     */
+    public static void enqueue(Context context) {
+
+        OneTimeWorkRequest workRequest = new OneTimeWorkRequest.Builder(NotificationWorker.class).build();
+        // Messages received while worker is running are processed by the same worker,
+        // so appended worker only runs if worker has finished before message is added.
+        WorkManager.getInstance(context).enqueueUniqueWork(AppConstants.FCM_INBOX_WORK_NAME,
+                ExistingWorkPolicy.APPEND_OR_REPLACE, workRequest);
+    }
 
-                    if (AppConstants.EVENT_NODE_CONNECTED.equals(eventType)
-                            || AppConstants.EVENT_NODE_DISCONNECTED.equals(eventType)) {
+    /**
+     * This method is used to start worker if messages are left in the inbox, e.g. when process was killed
+     * while messages were being processed.
+     *
+     * @param context Context.
+     */
+    public static void enqueueIfPending(Context context) {
 
-                        processConnectivityEvent(title, notificationEvent, jsonEventData);
+        final Context appContext = context.getApplicationContext();
 
-                    } else if (AppConstants.EVENT_NODE_ADDED.equals(eventType)) {
+        EspDatabase.getExecutor().execute(new Runnable() {
 
-                        processNodeAddedEvent(title, notificationEvent, jsonEventData);
+            @Override
+            public void run() {
+                if (EspDatabase.getInstance(appContext).getFcmInboxDao().getCount() > 0) {
+                    enqueue(appContext);
+                }
+            }
+        });
+    }
 
-                    } else if (AppConstants.EVENT_NODE_REMOVED.equals(eventType)) {
+    /**
+     * This method is used to process one batch of messages.
+     * Only nodes referenced by the messages are loaded from local storage and notifications of all messages
+     * are stored in one transaction in which messages are removed from the inbox.
+     */
+    private void processMessages(EspDatabase espDatabase, List<FcmMessage> messages) {
 
-                        processNodeRemovedEvent(title, notificationEvent, jsonEventData);
+        ArrayList<JSONObject> events = new ArrayList<>();
+        HashSet<String> nodeIds = new HashSet<>();
 
-                    } else if (AppConstants.EVENT_NODE_SHARING_ADD.equals(eventType)) {
+        for (FcmMessage message : messages) {
 
-                        processSharingAddEvent(title, notificationEvent, jsonEventData);
+            JSONObject eventDataJson = null;
+            try {
+                eventDataJson = new JSONObject(message.getPayload());
+                addNodeIds(eventDataJson.optJSONObject(AppConstants.KEY_EVENT_DATA), nodeIds);
+            } catch (JSONException e) {
+                e.printStackTrace();
+            }
+            events.add(eventDataJson);
+        }
 
-                    } else if (AppConstants.EVENT_NODE_PARAM_MODIFIED.equals(eventType)) {
+        loadNodes(espDatabase, nodeIds);
+        notificationEvents.clear();
 
-                        String nodeId = jsonEventData.optString(AppConstants.KEY_NODE_ID);
-                        String payload = jsonEventData.optString(AppConstants.KEY_PAYLOAD);
-                        Log.d(TAG, "Node Id : " + nodeId);
-                        Log.d(TAG, "Payload : " + payload);
-                        JSONObject payloadJson = null;
-                        try {
-                            payloadJson = new JSONObject(payload);
-                        } catch (JSONException e) {
-                            e.printStackTrace();
-                        }
+        for (int i = 0; i < messages.size(); i++) {
+            if (events.get(i) != null) {
+                processEvent(messages.get(i).getTitle(), events.get(i));
+            }
+        }
 
-                        if (!espApp.nodeMap.containsKey(nodeId)) {
-                            ApiManager.getInstance(espApp).getNodeDetails(nodeId);
-                        }
+        final NotificationDao notificationDao = espDatabase.getNotificationDao();
+        final FcmInboxDao inboxDao = espDatabase.getFcmInboxDao();
+        final ArrayList<NotificationEvent> newEvents = new ArrayList<>(notificationEvents);
+        final long lastId = messages.get(messages.size() - 1).getId();
 
-                        if (!espApp.nodeMap.containsKey(nodeId)) {
-                            loadDataFromLocalStorage();
-                        }
+        espDatabase.runInTransaction(new Runnable() {
 
-                        if (payloadJson != null && espApp.nodeMap.containsKey(nodeId)) {
-                            EspNode node = espApp.nodeMap.get(nodeId);
-                            JsonDataParser.setAllParams(espApp, node, payloadJson);
-                            // Send event for UI update
-                            EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_DEVICE_STATUS_UPDATE));
-                        }
-                    } else if (AppConstants.EVENT_ALERT.equals(eventType)) {
-                        processAlertEvent(title, notificationEvent, jsonEventData);
-                    } else {
-                        sendNotification(title, notificationEvent.getEventDescription(), AppConstants.CHANNEL_ALERT);
-                    }
+            @Override
+            public void run() {
+                long[] ids = notificationDao.insertOrUpdate(newEvents);
+                inboxDao.deleteUpTo(lastId);
+
+                // Ids are kept, as summary event of flapping node is updated in next batches.
+                for (int i = 0; i < ids.length; i++) {
+                    newEvents.get(i).setNotificationId(ids[i]);
                 }
             }
+        });
+        Log.d(TAG, "Processed " + messages.size() + " messages, stored " + newEvents.size() + " notifications");
+    }
 
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
+    private void processEvent(String title, JSONObject eventDataJson) {
 
+        String eventType = eventDataJson.optString(AppConstants.KEY_EVENT_TYPE);
+        JSONObject jsonEventData = eventDataJson.optJSONObject(AppConstants.KEY_EVENT_DATA);
+        NotificationEvent notificationEvent = new NotificationEvent();
+        notificationEvent.setEventType(eventType);
+        notificationEvent.setEventVersion(eventDataJson.optString(AppConstants.KEY_EVENT_VERSION));
+        notificationEvent.setEventId(eventDataJson.optString(AppConstants.KEY_ID));
+        notificationEvent.setEventData(jsonEventData != null ? jsonEventData.toString() : null);
+        notificationEvent.setEventDescription(eventDataJson.optString(AppConstants.KEY_DESCRIPTION));
+        notificationEvent.setTimestamp(eventDataJson.optLong(AppConstants.KEY_TIMESTAMP));
+        Log.e(TAG, "Event type : " + eventType);
+
+        if (!TextUtils.isEmpty(eventType)) {
+
+            if (jsonEventData != null) {
+
+                if (AppConstants.EVENT_NODE_CONNECTED.equals(eventType)
+                        || AppConstants.EVENT_NODE_DISCONNECTED.equals(eventType)) {
+
+                    processConnectivityEvent(title, notificationEvent, jsonEventData);
+
+                } else if (AppConstants.EVENT_NODE_ADDED.equals(eventType)) {
+
+                    processNodeAddedEvent(title, notificationEvent, jsonEventData);
+
+                } else if (AppConstants.EVENT_NODE_REMOVED.equals(eventType)) {
+
+                    processNodeRemovedEvent(title, notificationEvent, jsonEventData);
+
+                } else if (AppConstants.EVENT_NODE_SHARING_ADD.equals(eventType)) {
+
+                    processSharingAddEvent(title, notificationEvent, jsonEventData);
+
+                } else if (AppConstants.EVENT_NODE_PARAM_MODIFIED.equals(eventType)) {
+
+                    final String nodeId = jsonEventData.optString(AppConstants.KEY_NODE_ID);
+                    String payload = jsonEventData.optString(AppConstants.KEY_PAYLOAD);
+                    Log.d(TAG, "Node Id : " + nodeId);
+                    Log.d(TAG, "Payload : " + payload);
+                    JSONObject payloadJson = null;
+                    try {
+                        payloadJson = new JSONObject(payload);
+                    } catch (JSONException e) {
+                        e.printStackTrace();
+                    }
+
+                    // Node which is not available is received with next sync of nodes.
+                    if (payloadJson != null) {
+
+                        final JSONObject paramsJson = payloadJson;
+                        final long timestamp = notificationEvent.getTimestamp();
+
+                        runOnMainThread(new Runnable() {
+
+                            @Override
+                            public void run() {
+                                PushEventApplier.getInstance(espApp).applyParams(nodeId, paramsJson, timestamp);
+                            }
+                        });
+                    }
+                } else if (AppConstants.EVENT_ALERT.equals(eventType)) {
+                    processAlertEvent(title, notificationEvent, jsonEventData);
+                } else {
+                    sendNotification(title, notificationEvent.getEventDescription(), AppConstants.CHANNEL_ALERT);
+                }
+            }
+        }
 
-        return Result.success();
     }
 
     // Event type - Node connected / disconnected
 
     private void processConnectivityEvent(String title, NotificationEvent notificationEvent, JSONObject jsonEventData) {
 
-        EspApplication espApp = (EspApplication) getApplicationContext();
+        final EspApplication espApp = (EspApplication) getApplicationContext();
         JSONObject connectivityJson = jsonEventData.optJSONObject(AppConstants.KEY_CONNECTIVITY);
-        String nodeId = jsonEventData.optString(AppConstants.KEY_NODE_ID);
+        final String nodeId = jsonEventData.optString(AppConstants.KEY_NODE_ID);
         Log.d(TAG, "Node Id : " + nodeId);
         StringBuilder msgBuilder = new StringBuilder();
+        final ArrayList<String> deviceNames = new ArrayList<>();
+        long changeTime = System.currentTimeMillis();
 
         if (connectivityJson != null) {
 
-            boolean nodeStatus = connectivityJson.optBoolean(AppConstants.KEY_CONNECTED);
-            long timestamp = connectivityJson.optLong(AppConstants.KEY_TIMESTAMP);
+            final boolean nodeStatus = connectivityJson.optBoolean(AppConstants.KEY_CONNECTED);
+            final long timestamp = connectivityJson.optLong(AppConstants.KEY_TIMESTAMP);
+            final boolean[] isNodeAvailable = {false};
 
-            if (!espApp.nodeMap.containsKey(nodeId)) {
-                ApiManager.getInstance(espApp).getNodeDetails(nodeId);
+            if (timestamp != 0) {
+                changeTime = timestamp;
             }
 
-            if (!espApp.nodeMap.containsKey(nodeId)) {
-                loadDataFromLocalStorage();
-            }
+            runOnMainThread(new Runnable() {
+
+                @Override
+                public void run() {
 
-            if (espApp.nodeMap.containsKey(nodeId)) {
+                    // Node which is not available is received with next sync of nodes.
+                    if (PushEventApplier.getInstance(espApp).applyConnectivity(nodeId, nodeStatus, timestamp)) {
 
-                EspNode node = espApp.nodeMap.get(nodeId);
-                node.setTimeStampOfStatus(timestamp);
-                node.setOnline(nodeStatus);
-                ArrayList<Device> devices = node.getDevices();
-                ArrayList<String> deviceNames = new ArrayList<>();
-                if (devices != null) {
-                    for (int deviceIndex = 0; deviceIndex < devices.size(); deviceIndex++) {
-                        deviceNames.add(devices.get(deviceIndex).getUserVisibleName());
+                        isNodeAvailable[0] = true;
+                        EspNode node = espApp.nodeMap.get(nodeId);
+                        ArrayList<Device> devices = node.getDevices();
+                        if (devices != null) {
+                            for (int deviceIndex = 0; deviceIndex < devices.size(); deviceIndex++) {
+                                deviceNames.add(devices.get(deviceIndex).getUserVisibleName());
+                            }
+                        }
                     }
                 }
+            });
+
+            if (isNodeAvailable[0]) {
 
                 if (deviceNames.size() > 0) {
 
@@ -212,24 +334,76 @@ public class NotificationWorker extends Worker {
                 msgBuilder.append(espApp.getString(R.string.notify_node_disconnected));
             }
         }
-        notificationEvent.setNotificationMsg(msgBuilder.toString());
-        EspDatabase.getInstance(espApp).getNotificationDao().insertOrUpdate(notificationEvent);
-        Log.d(TAG, "Connectivity Notification inserted in database");
 
-        if (AppConstants.EVENT_NODE_CONNECTED.equals(notificationEvent.getEventType())) {
-            sendNotification(title, msgBuilder.toString(), AppConstants.CHANNEL_NODE_ONLINE_ID);
-            EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_DEVICE_ONLINE));
+        boolean isConnected = AppConstants.EVENT_NODE_CONNECTED.equals(notificationEvent.getEventType());
+        String channelId = isConnected ? AppConstants.CHANNEL_NODE_ONLINE_ID : AppConstants.CHANNEL_NODE_OFFLINE_ID;
+
+        if (TextUtils.isEmpty(nodeId)) {
+            notificationEvent.setNotificationMsg(msgBuilder.toString());
+            notificationEvents.add(notificationEvent);
+            sendNotification(title, msgBuilder.toString(), channelId);
+            return;
+        }
+
+        ConnectivityFlapDetector flapDetector = ConnectivityFlapDetector.getInstance();
+
+        if (flapDetector.onStatusChange(nodeId, changeTime)) {
+
+            // Node is flapping, summary row and notification of the node are updated instead of adding new ones.
+            String summaryMsg = getFlapSummary(nodeId, deviceNames, isConnected);
+            NotificationEvent summaryEvent = flapDetector.getSummaryEvent(nodeId);
+
+            if (summaryEvent == null) {
+                summaryEvent = notificationEvent;
+                flapDetector.setSummaryEvent(nodeId, summaryEvent);
+            } else {
+                summaryEvent.setEventType(notificationEvent.getEventType());
+                summaryEvent.setEventVersion(notificationEvent.getEventVersion());
+                summaryEvent.setEventId(notificationEvent.getEventId());
+                summaryEvent.setEventData(notificationEvent.getEventData());
+                summaryEvent.setEventDescription(notificationEvent.getEventDescription());
+                summaryEvent.setTimestamp(notificationEvent.getTimestamp());
+            }
+            summaryEvent.setNotificationMsg(summaryMsg);
+
+            if (!notificationEvents.contains(summaryEvent)) {
+                notificationEvents.add(summaryEvent);
+            }
+            Log.d(TAG, "Node is flapping, updated summary of node : " + nodeId);
+            sendNotification(nodeId, CONNECTIVITY_NOTIFICATION_ID, title, summaryMsg, channelId, true);
+
+        } else {
+            notificationEvent.setNotificationMsg(msgBuilder.toString());
+            notificationEvents.add(notificationEvent);
+            Log.d(TAG, "Connectivity Notification inserted in database");
+            sendNotification(nodeId, CONNECTIVITY_NOTIFICATION_ID, title, msgBuilder.toString(), channelId, false);
+        }
+    }
+
+    private String getFlapSummary(String nodeId, ArrayList<String> deviceNames, boolean isConnected) {
+
+        ConnectivityFlapDetector flapDetector = ConnectivityFlapDetector.getInstance();
+        SimpleDateFormat formatter = new SimpleDateFormat("HH:mm");
+        StringBuilder msgBuilder = new StringBuilder();
+
+        if (deviceNames.size() > 0) {
+            msgBuilder.append(TextUtils.join(", ", deviceNames));
         } else {
-            sendNotification(title, msgBuilder.toString(), AppConstants.CHANNEL_NODE_OFFLINE_ID);
-            EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_DEVICE_OFFLINE));
+            msgBuilder.append("Node");
         }
+        msgBuilder.append(" went online / offline ");
+        msgBuilder.append(flapDetector.getFlapCount(nodeId));
+        msgBuilder.append(" times since ");
+        msgBuilder.append(formatter.format(new Date(flapDetector.getFlapStartTime(nodeId))));
+        msgBuilder.append(isConnected ? ", now online." : ", now offline.");
+        return msgBuilder.toString();
     }
 
     // Event type - Node added
 
     private void processNodeAddedEvent(String title, NotificationEvent notificationEvent, JSONObject jsonEventData) {
 
-        EspApplication espApp = (EspApplication) getApplicationContext();
+        final EspApplication espApp = (EspApplication) getApplicationContext();
         StringBuilder msgBuilder = new StringBuilder();
         // If it is more than one node then called API to get all nodes instead of getting specific nodes.
         JSONArray nodeJsonArray = jsonEventData.optJSONArray(AppConstants.KEY_NODES);
@@ -237,38 +411,40 @@ public class NotificationWorker extends Worker {
 
             if (nodeJsonArray.length() == 1) {
 
-                String nodeId = nodeJsonArray.optString(0);
-                ApiManager.getInstance(espApp).getNodeDetails(nodeId);
+                final String nodeId = nodeJsonArray.optString(0);
+                final ArrayList<String> deviceNames = new ArrayList<>();
+                getNodeDetails(nodeId);
 
-                if (!espApp.nodeMap.containsKey(nodeId)) {
-                    loadDataFromLocalStorage();
-                }
+                runOnMainThread(new Runnable() {
 
-                if (espApp.nodeMap.containsKey(nodeId)) {
-                    ArrayList<String> deviceNames = new ArrayList<>();
-                    ArrayList<Device> devices = espApp.nodeMap.get(nodeId).getDevices();
-                    if (devices != null) {
-                        for (int deviceIndex = 0; deviceIndex < devices.size(); deviceIndex++) {
-                            deviceNames.add(devices.get(deviceIndex).getUserVisibleName());
+                    @Override
+                    public void run() {
+                        if (espApp.nodeMap.containsKey(nodeId)) {
+                            ArrayList<Device> devices = espApp.nodeMap.get(nodeId).getDevices();
+                            if (devices != null) {
+                                for (int deviceIndex = 0; deviceIndex < devices.size(); deviceIndex++) {
+                                    deviceNames.add(devices.get(deviceIndex).getUserVisibleName());
+                                }
+                            }
                         }
                     }
+                });
 
-                    if (deviceNames.size() > 0) {
+                if (deviceNames.size() > 0) {
 
-                        if (deviceNames.size() == 1) {
-                            msgBuilder.append(deviceNames.get(0));
-                            msgBuilder.append(" is added.");
-                        } else {
-                            for (int i = 0; i < deviceNames.size(); i++) {
+                    if (deviceNames.size() == 1) {
+                        msgBuilder.append(deviceNames.get(0));
+                        msgBuilder.append(" is added.");
+                    } else {
+                        for (int i = 0; i < deviceNames.size(); i++) {
 
-                                if (i != 0) {
-                                    msgBuilder.append(",");
-                                    msgBuilder.append(" ");
-                                }
-                                msgBuilder.append(deviceNames.get(i));
+                            if (i != 0) {
+                                msgBuilder.append(",");
+                                msgBuilder.append(" ");
                             }
-                            msgBuilder.append(" are added.");
+                            msgBuilder.append(deviceNames.get(i));
                         }
+                        msgBuilder.append(" are added.");
                     }
                 }
 
@@ -277,7 +453,7 @@ public class NotificationWorker extends Worker {
                 }
 
                 notificationEvent.setNotificationMsg(msgBuilder.toString());
-                EspDatabase.getInstance(espApp).getNotificationDao().insertOrUpdate(notificationEvent);
+                notificationEvents.add(notificationEvent);
                 Log.d(TAG, "Node added Notification inserted in database");
                 sendNotification(title, msgBuilder.toString(), AppConstants.CHANNEL_NODE_ADDED);
                 EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_DEVICE_STATUS_UPDATE));
@@ -327,7 +503,7 @@ public class NotificationWorker extends Worker {
                     public void onResponseFailure(Exception exception) {
                         msgBuilder.append(espApp.getString(R.string.notify_node_added));
                         notificationEvent.setNotificationMsg(msgBuilder.toString());
-                        EspDatabase.getInstance(espApp).getNotificationDao().insertOrUpdate(notificationEvent);
+                        notificationEvents.add(notificationEvent);
                         Log.d(TAG, "Node added Notification inserted in database");
                         sendNotification(title, msgBuilder.toString(), AppConstants.CHANNEL_NODE_ADDED);
                         EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_DEVICE_STATUS_UPDATE));
@@ -337,7 +513,7 @@ public class NotificationWorker extends Worker {
                     public void onNetworkFailure(Exception exception) {
                         msgBuilder.append(espApp.getString(R.string.notify_node_added));
                         notificationEvent.setNotificationMsg(msgBuilder.toString());
-                        EspDatabase.getInstance(espApp).getNotificationDao().insertOrUpdate(notificationEvent);
+                        notificationEvents.add(notificationEvent);
                         Log.d(TAG, "Node added Notification inserted in database");
                         sendNotification(title, msgBuilder.toString(), AppConstants.CHANNEL_NODE_ADDED);
                         EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_DEVICE_STATUS_UPDATE));
@@ -353,25 +529,32 @@ public class NotificationWorker extends Worker {
 
     private void processNodeRemovedEvent(String title, NotificationEvent notificationEvent, JSONObject jsonEventData) {
 
-        EspApplication espApp = (EspApplication) getApplicationContext();
-        JSONArray nodeJsonArray = jsonEventData.optJSONArray(AppConstants.KEY_NODES);
+        final EspApplication espApp = (EspApplication) getApplicationContext();
+        final JSONArray nodeJsonArray = jsonEventData.optJSONArray(AppConstants.KEY_NODES);
         StringBuilder msgBuilder = new StringBuilder();
-        ArrayList<String> deviceNames = new ArrayList<>();
+        final ArrayList<String> deviceNames = new ArrayList<>();
 
         if (nodeJsonArray != null && nodeJsonArray.length() > 0) {
 
-            for (int nodeIndex = 0; nodeIndex < nodeJsonArray.length(); nodeIndex++) {
-                String nodeId = nodeJsonArray.optString(nodeIndex);
-                if (espApp.nodeMap.get(nodeId) != null) {
-                    ArrayList<Device> devices = espApp.nodeMap.get(nodeId).getDevices();
-                    if (devices != null) {
-                        for (int deviceIndex = 0; deviceIndex < devices.size(); deviceIndex++) {
-                            deviceNames.add(devices.get(deviceIndex).getUserVisibleName());
+            runOnMainThread(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    for (int nodeIndex = 0; nodeIndex < nodeJsonArray.length(); nodeIndex++) {
+                        String nodeId = nodeJsonArray.optString(nodeIndex);
+                        if (espApp.nodeMap.get(nodeId) != null) {
+                            ArrayList<Device> devices = espApp.nodeMap.get(nodeId).getDevices();
+                            if (devices != null) {
+                                for (int deviceIndex = 0; deviceIndex < devices.size(); deviceIndex++) {
+                                    deviceNames.add(devices.get(deviceIndex).getUserVisibleName());
+                                }
+                            }
                         }
+                        espApp.removeNodeInformation(nodeId);
                     }
                 }
-                espApp.removeNodeInformation(nodeId);
-            }
+            });
         }
 
         if (deviceNames.size() > 0) {
@@ -396,7 +579,7 @@ public class NotificationWorker extends Worker {
             msgBuilder.append(espApp.getString(R.string.notify_node_removed));
         }
         notificationEvent.setNotificationMsg(msgBuilder.toString());
-        EspDatabase.getInstance(espApp).getNotificationDao().insertOrUpdate(notificationEvent);
+        notificationEvents.add(notificationEvent);
         Log.d(TAG, "Node removed Notification inserted in database");
         sendNotification(title, msgBuilder.toString(), AppConstants.CHANNEL_NODE_REMOVED);
         EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_DEVICE_STATUS_UPDATE));
@@ -483,7 +666,6 @@ public class NotificationWorker extends Worker {
             Log.d(TAG, "Secondary User : " + secondaryUserName);
             JSONArray nodeJsonArray = jsonEventData.optJSONArray(AppConstants.KEY_NODES);
             ArrayList<String> deviceNames = new ArrayList<>();
-            loadDataFromLocalStorage();
 
             if (nodeJsonArray != null && nodeJsonArray.length() > 0) {
                 for (int nodeIndex = 0; nodeIndex < nodeJsonArray.length(); nodeIndex++) {
@@ -537,7 +719,7 @@ public class NotificationWorker extends Worker {
 
             Log.d(TAG, "Notification msg string  : " + msgBuilder.toString());
             notificationEvent.setNotificationMsg(msgBuilder.toString());
-            EspDatabase.getInstance(espApp).getNotificationDao().insertOrUpdate(notificationEvent);
+            notificationEvents.add(notificationEvent);
             Log.d(TAG, "Node sharing add Notification inserted in database");
             sendSharingNotificationForPrimaryUser(title, msgBuilder.toString());
         }
@@ -627,12 +809,12 @@ public class NotificationWorker extends Worker {
 
     private void processAlertEvent(String title, NotificationEvent notificationEvent, JSONObject jsonEventData) {
 
-        EspApplication espApp = (EspApplication) getApplicationContext();
-        String nodeId = jsonEventData.optString(AppConstants.KEY_NODE_ID);
+        final EspApplication espApp = (EspApplication) getApplicationContext();
+        final String nodeId = jsonEventData.optString(AppConstants.KEY_NODE_ID);
         String msgBody = jsonEventData.optString(AppConstants.KEY_MESSAGE_BODY);
         Log.d(TAG, "Node Id : " + nodeId);
         Log.d(TAG, "Message body : " + msgBody);
-        StringBuilder msgBuilder = new StringBuilder();
+        final StringBuilder msgBuilder = new StringBuilder();
         JSONObject payloadJson = null;
 
         try {
@@ -646,70 +828,72 @@ public class NotificationWorker extends Worker {
             Log.e(TAG, "Alert string : " + alertStr);
             if (TextUtils.isEmpty(alertStr)) {
 
-                if (!espApp.nodeMap.containsKey(nodeId)) {
-                    ApiManager.getInstance(espApp).getNodeDetails(nodeId);
-                }
+                final JSONObject paramsJson = payloadJson;
+                final long timestamp = notificationEvent.getTimestamp();
 
-                if (!espApp.nodeMap.containsKey(nodeId)) {
-                    loadDataFromLocalStorage();
-                }
-
-                if (espApp.nodeMap.containsKey(nodeId)) {
-                    EspNode node = espApp.nodeMap.get(nodeId);
-                    JsonDataParser.setAllParams(espApp, node, payloadJson);
-                    ArrayList<Device> devices = node.getDevices();
-
-                    if (devices != null) {
-                        for (int i = 0; i < devices.size(); i++) {
+                // Params are applied and message is created from the node on main thread.
+                runOnMainThread(new Runnable() {
 
-                            ArrayList<Param> params = devices.get(i).getParams();
-                            String deviceName = devices.get(i).getDeviceName();
-                            JSONObject deviceJson = payloadJson.optJSONObject(deviceName);
+                    @Override
+                    public void run() {
 
-                            if (deviceJson != null) {
+                        if (PushEventApplier.getInstance(espApp).applyParams(nodeId, paramsJson, timestamp)) {
+                            EspNode node = espApp.nodeMap.get(nodeId);
+                            ArrayList<Device> devices = node.getDevices();
 
-                                msgBuilder.append(devices.get(i).getUserVisibleName());
-                                msgBuilder.append(" ");
-                                msgBuilder.append("reported");
-                                msgBuilder.append(" ");
+                            if (devices != null) {
+                                for (int i = 0; i < devices.size(); i++) {
 
-                                for (int j = 0; j < params.size(); j++) {
+                                    ArrayList<Param> params = devices.get(i).getParams();
+                                    String deviceName = devices.get(i).getDeviceName();
+                                    JSONObject deviceJson = paramsJson.optJSONObject(deviceName);
 
-                                    Param param = params.get(j);
-                                    String key = param.getName();
+                                    if (deviceJson != null) {
 
-                                    if (!param.isDynamicParam()) {
-                                        continue;
-                                    }
+                                        msgBuilder.append(devices.get(i).getUserVisibleName());
+                                        msgBuilder.append(" ");
+                                        msgBuilder.append("reported");
+                                        msgBuilder.append(" ");
 
-                                    if (deviceJson.has(key)) {
-                                        msgBuilder.append(key);
-                                        msgBuilder.append(" : ");
-                                        String dataType = param.getDataType();
-
-                                        if (dataType.equalsIgnoreCase("bool") || dataType.equalsIgnoreCase("boolean")) {
-                                            boolean value = deviceJson.optBoolean(key);
-                                            msgBuilder.append("" + value);
-                                        } else if (dataType.equalsIgnoreCase("int") || dataType.equalsIgnoreCase("integer")) {
-                                            int value = deviceJson.optInt(key);
-                                            msgBuilder.append("" + value);
-                                        } else if (dataType.equalsIgnoreCase("float") || dataType.equalsIgnoreCase("double")) {
-                                            double value = deviceJson.optDouble(key);
-                                            msgBuilder.append("" + value);
+                                        for (int j = 0; j < params.size(); j++) {
+
+                                            Param param = params.get(j);
+                                            String key = param.getName();
+
+                                            if (!param.isDynamicParam()) {
+                                                continue;
+                                            }
+
+                                            if (deviceJson.has(key)) {
+                                                msgBuilder.append(key);
+                                                msgBuilder.append(" : ");
+                                                String dataType = param.getDataType();
+
+                                                if (dataType.equalsIgnoreCase("bool") || dataType.equalsIgnoreCase("boolean")) {
+                                                    boolean value = deviceJson.optBoolean(key);
+                                                    msgBuilder.append("" + value);
+                                                } else if (dataType.equalsIgnoreCase("int") || dataType.equalsIgnoreCase("integer")) {
+                                                    int value = deviceJson.optInt(key);
+                                                    msgBuilder.append("" + value);
+                                                } else if (dataType.equalsIgnoreCase("float") || dataType.equalsIgnoreCase("double")) {
+                                                    double value = deviceJson.optDouble(key);
+                                                    msgBuilder.append("" + value);
+                                                }
+                                            }
                                         }
+                                    } else {
+                                        Log.e(TAG, "Device JSON is not available");
+                                        msgBuilder.append(espApp.getString(R.string.notify_node_alert));
                                     }
                                 }
                             } else {
-                                Log.e(TAG, "Device JSON is not available");
                                 msgBuilder.append(espApp.getString(R.string.notify_node_alert));
                             }
+                        } else {
+                            msgBuilder.append(espApp.getString(R.string.notify_node_alert));
                         }
-                    } else {
-                        msgBuilder.append(espApp.getString(R.string.notify_node_alert));
                     }
-                } else {
-                    msgBuilder.append(espApp.getString(R.string.notify_node_alert));
-                }
+                });
             } else {
                 msgBuilder.append(alertStr);
             }
@@ -718,11 +902,9 @@ public class NotificationWorker extends Worker {
         }
 
         notificationEvent.setNotificationMsg(msgBuilder.toString());
-        EspDatabase.getInstance(espApp).getNotificationDao().insertOrUpdate(notificationEvent);
+        notificationEvents.add(notificationEvent);
         Log.d(TAG, "Alert Notification inserted in database");
         sendAlertNotification(title, msgBuilder.toString(), AppConstants.CHANNEL_ALERT);
-        // Send event for UI update
-        EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_DEVICE_STATUS_UPDATE));
     }
 
     private void sendAlertNotification(String title, String messageBody, String channelId) {
@@ -754,6 +936,15 @@ public class NotificationWorker extends Worker {
     }
 
     private void sendNotification(String title, String messageBody, String channelId) {
+        sendNotification(null, notificationId++, title, messageBody, channelId, false);
+    }
+
+    /**
+     * This method is used to send notification with given tag and id, which replaces earlier notification of same tag and id.
+     *
+     * @param isOnlyAlertOnce True if notification should not alert again when it replaces earlier notification.
+     */
+    private void sendNotification(String tag, int id, String title, String messageBody, String channelId, boolean isOnlyAlertOnce) {
 
         Log.e(TAG, "Message : " + messageBody);
         Intent activityIntent = new Intent(espApp, SplashActivity.class);
@@ -777,56 +968,156 @@ public class NotificationWorker extends Worker {
                 .setShowWhen(true)
                 .setAutoCancel(true)
                 .setSound(defaultSoundUri)
+                .setOnlyAlertOnce(isOnlyAlertOnce)
                 .setPriority(NotificationCompat.PRIORITY_HIGH)
                 .build();
 
-        notificationManager.notify(notificationId++, notification);
+        notificationManager.notify(tag, id, notification);
+    }
+
+    private void saveNotification(final NotificationEvent notificationEvent) {
+
+        // Callbacks of API are received after batch is stored.
+        EspDatabase.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+                EspDatabase.getInstance(espApp).getNotificationDao().insertOrUpdate(notificationEvent);
+            }
+        });
     }
 
-    private void loadDataFromLocalStorage() {
+    /**
+     * This method is used to add ids of the nodes referenced in event data.
+     */
+    private void addNodeIds(JSONObject jsonEventData, HashSet<String> nodeIds) {
 
-        EspDatabase espDatabase = EspDatabase.getInstance(getApplicationContext());
-        ArrayList<EspNode> nodeList = (ArrayList<EspNode>) espDatabase.getNodeDao().getNodesFromStorage();
+        if (jsonEventData == null) {
+            return;
+        }
 
-        for (int nodeIndex = 0; nodeIndex < nodeList.size(); nodeIndex++) {
+        String nodeId = jsonEventData.optString(AppConstants.KEY_NODE_ID);
+        if (!TextUtils.isEmpty(nodeId)) {
+            nodeIds.add(nodeId);
+        }
 
-            EspNode node = nodeList.get(nodeIndex);
+        JSONArray nodeJsonArray = jsonEventData.optJSONArray(AppConstants.KEY_NODES);
+        if (nodeJsonArray != null) {
+            for (int i = 0; i < nodeJsonArray.length(); i++) {
+                if (!TextUtils.isEmpty(nodeJsonArray.optString(i))) {
+                    nodeIds.add(nodeJsonArray.optString(i));
+                }
+            }
+        }
+    }
 
-            if (node != null) {
+    /**
+     * This method is used to load nodes from local storage which are referenced in the batch and not loaded yet.
+     * Nodes are read on worker thread and added in nodes of the app on main thread.
+     */
+    private void loadNodes(EspDatabase espDatabase, final HashSet<String> nodeIds) {
 
-                String configData = node.getConfigData();
-                String paramData = node.getParamData();
+        final ArrayList<String> missingIds = new ArrayList<>();
 
-                if (configData != null) {
-                    try {
-                        node = JsonDataParser.setNodeConfig(node, new JSONObject(configData));
-                        if (paramData != null) {
-                            JSONObject paramsJson = new JSONObject(paramData);
-                            JsonDataParser.setAllParams(espApp, node, paramsJson);
-                        } else {
-                            Log.e(TAG, "Param configuration is not available.");
-                        }
-                        espApp.nodeMap.put(node.getNodeId(), node);
+        runOnMainThread(new Runnable() {
 
-                    } catch (JSONException e) {
-                        e.printStackTrace();
+            @Override
+            public void run() {
+                for (String nodeId : nodeIds) {
+                    if (!espApp.nodeMap.containsKey(nodeId)) {
+                        missingIds.add(nodeId);
                     }
-                } else {
-                    Log.e(TAG, "Node configuration is not available.");
                 }
             }
+        });
+
+        if (missingIds.isEmpty()) {
+            return;
         }
 
-        if (BuildConfig.isNodeGroupingSupported) {
-            ArrayList<Group> groupList = (ArrayList<Group>) espDatabase.getGroupDao().getGroupsFromStorage();
-            for (int groupIndex = 0; groupIndex < groupList.size(); groupIndex++) {
+        final HashMap<String, EspNode> nodeMap = new HashMap<>();
+        final HashMap<String, Schedule> scheduleMap = new HashMap<>();
+        NodeStorage.loadNodes(espDatabase, missingIds, nodeMap, scheduleMap);
+
+        runOnMainThread(new Runnable() {
 
-                Group group = groupList.get(groupIndex);
-                if (group != null) {
-                    espApp.groupMap.put(group.getGroupId(), group);
+            @Override
+            public void run() {
+
+                // Node received by sync of nodes meanwhile is newer, keep it.
+                for (Map.Entry<String, EspNode> entry : nodeMap.entrySet()) {
+                    if (!espApp.nodeMap.containsKey(entry.getKey())) {
+                        espApp.nodeMap.put(entry.getKey(), entry.getValue());
+                    }
+                }
+
+                for (Map.Entry<String, Schedule> entry : scheduleMap.entrySet()) {
+                    if (!espApp.scheduleMap.containsKey(entry.getKey())) {
+                        espApp.scheduleMap.put(entry.getKey(), entry.getValue());
+                    }
                 }
             }
+        });
+        Log.d(TAG, "Loaded " + nodeMap.size() + " nodes from local storage");
+    }
+
+    /**
+     * This method is used to get node details from cloud. Node is updated on main thread and
+     * this method waits till it is updated.
+     */
+    private void getNodeDetails(String nodeId) {
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        ApiManager.getInstance(espApp).getNodeDetails(nodeId, new ApiResponseListener() {
+
+            @Override
+            public void onSuccess(Bundle data) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onResponseFailure(Exception exception) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onNetworkFailure(Exception exception) {
+                latch.countDown();
+            }
+        });
+
+        try {
+            latch.await(AppConstants.NODE_DETAILS_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * This method is used to run the task on main thread, where nodes of the app are changed,
+     * and wait till it is completed.
+     */
+    private void runOnMainThread(final Runnable task) {
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        handler.post(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } finally {
+                    latch.countDown();
+                }
+            }
+        });
+
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
         }
-        Log.d(TAG, "Node list size from local storage : " + espApp.nodeMap.size());
     }
 }
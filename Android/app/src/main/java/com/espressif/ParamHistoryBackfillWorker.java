@@ -0,0 +1,269 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.espressif;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.espressif.cloudapi.ApiManager;
+import com.espressif.cloudapi.CloudException;
+import com.espressif.db.EspDatabase;
+import com.espressif.db.NodeStorage;
+import com.espressif.ui.models.Device;
+import com.espressif.ui.models.EspNode;
+import com.espressif.ui.models.Param;
+import com.espressif.ui.models.Schedule;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This worker is used to add param history received from cloud time series API in {@link ParamHistoryStore},
+ * so history is available for the time when app was not running.
+ * Each numeric param is fetched page by page. Range and next id of each param are stored after each page,
+ * so work is resumed from the same page after process is killed.
+ */
+public class ParamHistoryBackfillWorker extends Worker {
+
+    private static final String TAG = ParamHistoryBackfillWorker.class.getSimpleName();
+
+    private static final String KEY_SUFFIX_START = "_start";
+    private static final String KEY_SUFFIX_END = "_end";
+    private static final String KEY_SUFFIX_NEXT_ID = "_next_id";
+
+    public ParamHistoryBackfillWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * This method is used to schedule periodic backfill when network is available and battery is not low.
+     * Existing schedule is kept.
+     *
+     * @param context Context.
+     */
+    public static void schedule(Context context) {
+
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+
+        PeriodicWorkRequest workRequest = new PeriodicWorkRequest.Builder(ParamHistoryBackfillWorker.class,
+                AppConstants.BACKFILL_INTERVAL, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(AppConstants.BACKFILL_WORK_NAME,
+                ExistingPeriodicWorkPolicy.KEEP, workRequest);
+    }
+
+    /**
+     * This method is used to cancel backfill and remove stored progress. It should be called when user is changed.
+     *
+     * @param context Context.
+     */
+    public static void reset(Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(AppConstants.BACKFILL_WORK_NAME);
+        context.getSharedPreferences(AppConstants.BACKFILL_PREFERENCES, Context.MODE_PRIVATE).edit().clear().apply();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+
+        Context context = getApplicationContext();
+        SharedPreferences appPreferences = context.getSharedPreferences(AppConstants.ESP_PREFERENCES, Context.MODE_PRIVATE);
+
+        if (TextUtils.isEmpty(appPreferences.getString(AppConstants.KEY_ID_TOKEN, ""))) {
+            Log.d(TAG, "User is not logged in");
+            return Result.success();
+        }
+
+        // Nodes are read from local storage, as node map of the app is changed on main thread.
+        HashMap<String, EspNode> nodeMap = new HashMap<>();
+        NodeStorage.loadNodes(EspDatabase.getInstance(context), nodeMap, new HashMap<String, Schedule>());
+
+        SharedPreferences cursors = context.getSharedPreferences(AppConstants.BACKFILL_PREFERENCES, Context.MODE_PRIVATE);
+        final ApiManager apiManager = ApiManager.getInstance(context);
+        ParamHistoryStore paramHistoryStore = ParamHistoryStore.getInstance(context);
+        int pageCount = 0;
+        int sampleCount = 0;
+
+        for (EspNode node : nodeMap.values()) {
+
+            if (node.getDevices() == null) {
+                continue;
+            }
+
+            for (Device device : node.getDevices()) {
+
+                if (device.getParams() == null) {
+                    continue;
+                }
+
+                for (Param param : device.getParams()) {
+
+                    // Cloud keeps time series data only for params with time series property.
+                    if (!isNumeric(param.getDataType()) || param.getProperties() == null
+                            || !param.getProperties().contains(AppConstants.KEY_PROPERTY_TIME_SERIES)) {
+                        continue;
+                    }
+
+                    final String nodeId = node.getNodeId();
+                    final String timeSeriesName = device.getDeviceName() + "." + param.getName();
+                    String key = nodeId + "/" + device.getDeviceName() + "/" + param.getName();
+                    long now = System.currentTimeMillis() / 1000;
+                    Cursor cursor = new Cursor(cursors.getLong(key + KEY_SUFFIX_START, now - AppConstants.BACKFILL_PERIOD / 1000),
+                            cursors.getLong(key + KEY_SUFFIX_END, now),
+                            cursors.getString(key + KEY_SUFFIX_NEXT_ID, null));
+
+                    PageSource pageSource = new PageSource() {
+
+                        @Override
+                        public JsonStreamParser.TimeSeriesPage getPage(long startTime, long endTime, String startId) throws IOException {
+                            return apiManager.getTimeSeriesData(nodeId, timeSeriesName, startTime, endTime, startId);
+                        }
+                    };
+
+                    while (!cursor.isCompleted()) {
+
+                        if (isStopped() || pageCount >= AppConstants.BACKFILL_MAX_PAGES) {
+                            Log.d(TAG, "Backfill paused after " + pageCount + " pages, " + sampleCount + " samples");
+                            return Result.retry();
+                        }
+
+                        JsonStreamParser.TimeSeriesPage page;
+
+                        try {
+                            page = cursor.fetchNextPage(pageSource);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                            return Result.retry();
+                        } catch (CloudException e) {
+                            // Progress of the param is kept, it is fetched again in next run.
+                            Log.e(TAG, "Failed to get time series data of " + key + " : " + e.getMessage());
+                            break;
+                        }
+
+                        sampleCount += paramHistoryStore.addSamples(nodeId, device.getDeviceName(), param.getName(), page.samples);
+                        pageCount++;
+                        SharedPreferences.Editor editor = cursors.edit();
+
+                        if (cursor.isCompleted()) {
+                            // Range is completed, next run fetches samples after it.
+                            editor.putLong(key + KEY_SUFFIX_START, cursor.getStart());
+                            editor.remove(key + KEY_SUFFIX_END);
+                            editor.remove(key + KEY_SUFFIX_NEXT_ID);
+                        } else {
+                            editor.putLong(key + KEY_SUFFIX_START, cursor.getStart());
+                            editor.putLong(key + KEY_SUFFIX_END, cursor.getEnd());
+                            editor.putString(key + KEY_SUFFIX_NEXT_ID, cursor.getNextId());
+                        }
+                        editor.apply();
+                    }
+                }
+            }
+        }
+
+        Log.d(TAG, "Backfill completed, " + pageCount + " pages, " + sampleCount + " samples");
+        return Result.success();
+    }
+
+    /**
+     * Source of time series pages of one param.
+     */
+    interface PageSource {
+
+        /**
+         * @param startTime Start of the range in seconds.
+         * @param endTime   End of the range in seconds.
+         * @param startId   Next id received in previous page, null for first page.
+         */
+        JsonStreamParser.TimeSeriesPage getPage(long startTime, long endTime, String startId) throws IOException;
+    }
+
+    /**
+     * Position of backfill in the time range of one param.
+     * It is moved only after a page is received, so failed page is fetched again with the same next id.
+     */
+    static class Cursor {
+
+        private long start;
+        private long end;
+        private String nextId;
+        private boolean isCompleted;
+
+        Cursor(long start, long end, String nextId) {
+            this.start = start;
+            this.end = end;
+            this.nextId = nextId;
+        }
+
+        /**
+         * This method is used to fetch next page of the range and move cursor after it.
+         *
+         * @param source Source of pages.
+         * @return Received page.
+         * @throws IOException    If page can not be fetched, cursor is not moved.
+         * @throws CloudException If cloud returns error, cursor is not moved.
+         */
+        JsonStreamParser.TimeSeriesPage fetchNextPage(PageSource source) throws IOException {
+
+            JsonStreamParser.TimeSeriesPage page = source.getPage(start, end, nextId);
+
+            if (page.nextId == null || page.nextId.length() == 0) {
+                // Range is completed, next range starts at its end.
+                start = end;
+                nextId = null;
+                isCompleted = true;
+            } else {
+                nextId = page.nextId;
+            }
+            return page;
+        }
+
+        long getStart() {
+            return start;
+        }
+
+        long getEnd() {
+            return end;
+        }
+
+        String getNextId() {
+            return nextId;
+        }
+
+        boolean isCompleted() {
+            return isCompleted;
+        }
+    }
+
+    private static boolean isNumeric(String dataType) {
+        return "int".equalsIgnoreCase(dataType) || "integer".equalsIgnoreCase(dataType)
+                || "float".equalsIgnoreCase(dataType) || "double".equalsIgnoreCase(dataType);
+    }
+}
@@ -0,0 +1,507 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.espressif;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.espressif.db.EspDatabase;
+import com.espressif.db.ParamHistoryDao;
+import com.espressif.db.ParamRollupDao;
+import com.espressif.ui.models.ParamHistoryBlock;
+import com.espressif.ui.models.ParamRollup;
+import com.espressif.ui.models.TimeSeries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * This class is used to keep history of numeric param values received from cloud, local control and notifications.
+ * Samples of each param are compressed in blocks of {@link AppConstants#PARAM_HISTORY_BLOCK_SAMPLES} samples.
+ * Open blocks are kept in memory and written in database after {@link AppConstants#PARAM_HISTORY_FLUSH_DELAY}.
+ * After app restart, samples are added in new block.
+ * <p>
+ * Min, max, sum and count of samples are also kept in buckets of {@link AppConstants#PARAM_ROLLUP_RESOLUTIONS},
+ * updated with each sample, so charts of long range do not read raw samples.
+ */
+public class ParamHistoryStore {
+
+    private static final String TAG = ParamHistoryStore.class.getSimpleName();
+
+    private static ParamHistoryStore paramHistoryStore;
+
+    private EspDatabase espDatabase;
+    private Handler handler;
+    private HashMap<String, Series> seriesMap = new HashMap<>();
+    // Rollups of completed buckets which are not written yet.
+    private ArrayList<ParamRollup> closedRollups = new ArrayList<>();
+    private boolean isFlushScheduled;
+
+    private static class Series {
+
+        private String nodeId;
+        private String deviceName;
+        private String paramName;
+        private TimeSeriesBlock block;
+        private long lastSampleTime;
+        private boolean isDirty;
+        // Samples of current bucket of each resolution which are not written yet.
+        private ParamRollup[] rollups = new ParamRollup[AppConstants.PARAM_ROLLUP_RESOLUTIONS.length];
+    }
+
+    public static synchronized ParamHistoryStore getInstance(Context context) {
+
+        if (paramHistoryStore == null) {
+            paramHistoryStore = new ParamHistoryStore(context);
+        }
+        return paramHistoryStore;
+    }
+
+    /**
+     * This method is used to get store if it is created with context.
+     *
+     * @return Store, null if it is not created yet.
+     */
+    public static synchronized ParamHistoryStore getInstance() {
+        return paramHistoryStore;
+    }
+
+    private ParamHistoryStore(Context context) {
+        espDatabase = EspDatabase.getInstance(context.getApplicationContext());
+        handler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * This method is used to add value of the param received from device.
+     * Value read from cloud or local device is added only if it is changed.
+     * Value reported by device is not added if it is not changed and previous sample of the param is added less than
+     * {@link AppConstants#PARAM_HISTORY_SAMPLE_INTERVAL} before.
+     *
+     * @param nodeId     Node id.
+     * @param deviceName Device name.
+     * @param paramName  Param name.
+     * @param timestamp  Time of the read or report in milliseconds.
+     * @param value      Value of the param.
+     * @param isReport   True if value is reported by device, false if it is read.
+     */
+    public synchronized void add(String nodeId, String deviceName, String paramName, long timestamp, double value,
+                                 boolean isReport) {
+
+        String key = getKey(nodeId, deviceName, paramName);
+        Series series = seriesMap.get(key);
+
+        if (series == null) {
+            series = new Series();
+            series.nodeId = nodeId;
+            series.deviceName = deviceName;
+            series.paramName = paramName;
+            seriesMap.put(key, series);
+        }
+
+        TimeSeriesBlock block = series.block;
+
+        if (block != null && Double.compare(block.getLastValue(), value) == 0
+                && (!isReport || timestamp - series.lastSampleTime < AppConstants.PARAM_HISTORY_SAMPLE_INTERVAL)) {
+            return;
+        }
+
+        long time = timestamp / 1000;
+
+        if (block != null && time < block.getEndTime()) {
+            // Time of devices and phone can differ, keep samples in order.
+            time = block.getEndTime();
+        }
+
+        if (block == null || block.getCount() >= AppConstants.PARAM_HISTORY_BLOCK_SAMPLES
+                || time - block.getEndTime() > AppConstants.PARAM_HISTORY_MAX_GAP / 1000) {
+            // Full block is written now, next flush writes the new block.
+            if (block != null && series.isDirty) {
+                writeBlocks(Collections.singletonList(toBlockRow(series)), new ArrayList<ParamRollup>());
+            }
+            block = new TimeSeriesBlock(time);
+            series.block = block;
+        }
+
+        block.append(time, value);
+        addRollups(series, time, value);
+        series.lastSampleTime = timestamp;
+        series.isDirty = true;
+        scheduleFlush();
+    }
+
+    private void addRollups(Series series, long time, double value) {
+
+        for (int i = 0; i < AppConstants.PARAM_ROLLUP_RESOLUTIONS.length; i++) {
+
+            int resolution = AppConstants.PARAM_ROLLUP_RESOLUTIONS[i];
+            long bucketTime = time - time % resolution;
+            ParamRollup rollup = series.rollups[i];
+
+            if (rollup != null && rollup.getBucketTime() != bucketTime) {
+                closedRollups.add(rollup);
+                rollup = null;
+            }
+
+            if (rollup == null) {
+                rollup = new ParamRollup(series.nodeId, series.deviceName, series.paramName, resolution, bucketTime);
+                series.rollups[i] = rollup;
+            }
+            rollup.add(value);
+        }
+    }
+
+    /**
+     * This method is used to add samples of the param received from cloud history. It should not be called from main thread.
+     * Samples in time ranges which are already stored are skipped, so same samples can be added again.
+     *
+     * @param nodeId     Node id.
+     * @param deviceName Device name.
+     * @param paramName  Param name.
+     * @param samples    Samples with time in milliseconds.
+     * @return Number of added samples.
+     */
+    public int addSamples(String nodeId, String deviceName, String paramName, TimeSeries samples) {
+
+        if (samples.size() == 0) {
+            return 0;
+        }
+
+        samples.sortByTime();
+        long from = samples.getTimestamp(0) / 1000;
+        long to = samples.getTimestamp(samples.size() - 1) / 1000;
+        ArrayList<ParamHistoryBlock> storedBlocks = new ArrayList<>(espDatabase.getParamHistoryDao().getBlocks(nodeId, deviceName, paramName, from, to));
+
+        synchronized (this) {
+            Series series = seriesMap.get(getKey(nodeId, deviceName, paramName));
+            if (series != null && series.block != null) {
+                storedBlocks.add(toBlockRow(series));
+            }
+        }
+
+        ArrayList<ParamHistoryBlock> blockRows = new ArrayList<>();
+        HashMap<String, ParamRollup> rollups = new HashMap<>();
+        TimeSeriesBlock block = null;
+        long lastTime = Long.MIN_VALUE;
+        int count = 0;
+
+        for (int i = 0; i < samples.size(); i++) {
+
+            long time = samples.getTimestamp(i) / 1000;
+            double value = samples.getValue(i);
+
+            if (time <= lastTime) {
+                continue;
+            }
+
+            if (isStored(storedBlocks, time)) {
+                // Blocks should not overlap, end the block before stored range.
+                if (block != null) {
+                    blockRows.add(toBlockRow(nodeId, deviceName, paramName, block));
+                    block = null;
+                }
+                continue;
+            }
+
+            if (block != null && (block.getCount() >= AppConstants.PARAM_HISTORY_BLOCK_SAMPLES
+                    || time - block.getEndTime() > AppConstants.PARAM_HISTORY_MAX_GAP / 1000)) {
+                blockRows.add(toBlockRow(nodeId, deviceName, paramName, block));
+                block = null;
+            }
+
+            if (block == null) {
+                block = new TimeSeriesBlock(time);
+            }
+
+            block.append(time, value);
+            lastTime = time;
+            count++;
+
+            for (int resolution : AppConstants.PARAM_ROLLUP_RESOLUTIONS) {
+
+                long bucketTime = time - time % resolution;
+                String key = resolution + "/" + bucketTime;
+                ParamRollup rollup = rollups.get(key);
+
+                if (rollup == null) {
+                    rollup = new ParamRollup(nodeId, deviceName, paramName, resolution, bucketTime);
+                    rollups.put(key, rollup);
+                }
+                rollup.add(value);
+            }
+        }
+
+        if (block != null) {
+            blockRows.add(toBlockRow(nodeId, deviceName, paramName, block));
+        }
+
+        if (!blockRows.isEmpty()) {
+            espDatabase.getParamHistoryDao().insertOrUpdate(blockRows);
+            espDatabase.getParamRollupDao().add(new ArrayList<>(rollups.values()));
+        }
+        return count;
+    }
+
+    private static boolean isStored(List<ParamHistoryBlock> storedBlocks, long time) {
+
+        for (ParamHistoryBlock storedBlock : storedBlocks) {
+            if (time >= storedBlock.getStartTime() && time <= storedBlock.getEndTime()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This method is used to get samples of the param in given time range. It should not be called from main thread.
+     *
+     * @param nodeId     Node id.
+     * @param deviceName Device name.
+     * @param paramName  Param name.
+     * @param from       Start of the range in milliseconds.
+     * @param to         End of the range in milliseconds.
+     * @return Samples ordered by time, with time in milliseconds.
+     */
+    public TimeSeries getSamples(String nodeId, String deviceName, String paramName, long from, long to) {
+
+        long fromSec = from / 1000;
+        long toSec = to / 1000;
+        List<ParamHistoryBlock> blocks = espDatabase.getParamHistoryDao().getBlocks(nodeId, deviceName, paramName, fromSec, toSec);
+        ParamHistoryBlock openBlock = null;
+
+        synchronized (this) {
+            Series series = seriesMap.get(getKey(nodeId, deviceName, paramName));
+            if (series != null && series.block != null) {
+                openBlock = toBlockRow(series);
+            }
+        }
+
+        int sampleCount = 0;
+        for (ParamHistoryBlock block : blocks) {
+            sampleCount += block.getSampleCount();
+        }
+
+        TimeSeries timeSeries = new TimeSeries(sampleCount);
+
+        for (ParamHistoryBlock block : blocks) {
+            // Open block in memory has samples which are not written yet.
+            if (openBlock == null || block.getStartTime() != openBlock.getStartTime()) {
+                TimeSeriesBlock.decode(block.getData(), block.getSampleCount(), fromSec, toSec, timeSeries);
+            }
+        }
+
+        if (openBlock != null && openBlock.getStartTime() <= toSec && openBlock.getEndTime() >= fromSec) {
+            TimeSeriesBlock.decode(openBlock.getData(), openBlock.getSampleCount(), fromSec, toSec, timeSeries);
+        }
+        return timeSeries;
+    }
+
+    /**
+     * This method is used to get samples of the param to be displayed in chart. It should not be called from main thread.
+     * Raw samples are used if range has less than {@link AppConstants#PARAM_HISTORY_RAW_FACTOR} times max points.
+     * Otherwise average of rollups of smallest resolution which has at most max points buckets in the range is used.
+     * Result is downsampled to max points with Largest-Triangle-Three-Buckets.
+     *
+     * @param nodeId     Node id.
+     * @param deviceName Device name.
+     * @param paramName  Param name.
+     * @param from       Start of the range in milliseconds.
+     * @param to         End of the range in milliseconds.
+     * @param maxPoints  Max number of samples in result.
+     * @return Samples ordered by time, with time in milliseconds.
+     */
+    public TimeSeries getChartSamples(String nodeId, String deviceName, String paramName, long from, long to, int maxPoints) {
+
+        int sampleCount = espDatabase.getParamHistoryDao().getSampleCount(nodeId, deviceName, paramName, from / 1000, to / 1000);
+        TimeSeries timeSeries;
+
+        if (sampleCount <= (long) maxPoints * AppConstants.PARAM_HISTORY_RAW_FACTOR) {
+            timeSeries = getSamples(nodeId, deviceName, paramName, from, to);
+        } else {
+            int[] resolutions = AppConstants.PARAM_ROLLUP_RESOLUTIONS;
+            int resolution = resolutions[resolutions.length - 1];
+
+            for (int r : resolutions) {
+                if ((to - from) / 1000 / r <= maxPoints) {
+                    resolution = r;
+                    break;
+                }
+            }
+            timeSeries = getRollupSamples(nodeId, deviceName, paramName, resolution, from, to);
+        }
+        return TimeSeriesDownsampler.downsample(timeSeries, maxPoints);
+    }
+
+    /**
+     * This method is used to get average of the param in each bucket of given resolution.
+     * Time of each sample is middle of the bucket.
+     */
+    private TimeSeries getRollupSamples(String nodeId, String deviceName, String paramName, int resolution, long from, long to) {
+
+        long fromSec = from / 1000;
+        long toSec = to / 1000;
+        fromSec = fromSec - fromSec % resolution;
+        TreeMap<Long, ParamRollup> buckets = new TreeMap<>();
+
+        for (ParamRollup rollup : espDatabase.getParamRollupDao().getRollups(nodeId, deviceName, paramName, resolution, fromSec, toSec)) {
+            buckets.put(rollup.getBucketTime(), rollup);
+        }
+
+        // Add samples which are not written yet.
+        synchronized (this) {
+
+            ArrayList<ParamRollup> rollups = new ArrayList<>(closedRollups);
+            Series series = seriesMap.get(getKey(nodeId, deviceName, paramName));
+
+            if (series != null) {
+                rollups.addAll(Arrays.asList(series.rollups));
+            }
+
+            for (ParamRollup rollup : rollups) {
+
+                if (rollup == null || rollup.getResolution() != resolution || rollup.getBucketTime() < fromSec
+                        || rollup.getBucketTime() > toSec || !rollup.getNodeId().equals(nodeId)
+                        || !rollup.getDeviceName().equals(deviceName) || !rollup.getParamName().equals(paramName)) {
+                    continue;
+                }
+
+                ParamRollup bucket = buckets.get(rollup.getBucketTime());
+
+                if (bucket == null) {
+                    bucket = new ParamRollup(nodeId, deviceName, paramName, resolution, rollup.getBucketTime());
+                    buckets.put(rollup.getBucketTime(), bucket);
+                }
+                bucket.add(rollup);
+            }
+        }
+
+        TimeSeries timeSeries = new TimeSeries(buckets.size());
+
+        for (ParamRollup bucket : buckets.values()) {
+            timeSeries.add(bucket.getBucketTime() * 1000 + resolution * 500L, bucket.getAverage());
+        }
+        return timeSeries;
+    }
+
+    /**
+     * This method is used to remove history of all params. It should be called when user is changed.
+     */
+    public synchronized void clear() {
+
+        seriesMap.clear();
+        closedRollups.clear();
+
+        EspDatabase.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+                espDatabase.getParamHistoryDao().deleteAll();
+                espDatabase.getParamRollupDao().deleteAll();
+            }
+        });
+    }
+
+    private void scheduleFlush() {
+
+        if (!isFlushScheduled) {
+            isFlushScheduled = true;
+            handler.postDelayed(flushTask, AppConstants.PARAM_HISTORY_FLUSH_DELAY);
+        }
+    }
+
+    private Runnable flushTask = new Runnable() {
+
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * This method is used to write open blocks and rollups which have new samples.
+     */
+    private synchronized void flush() {
+
+        isFlushScheduled = false;
+        ArrayList<ParamHistoryBlock> blockRows = new ArrayList<>();
+        ArrayList<ParamRollup> rollups = new ArrayList<>(closedRollups);
+        closedRollups.clear();
+
+        for (Series series : seriesMap.values()) {
+
+            if (series.isDirty) {
+                blockRows.add(toBlockRow(series));
+            }
+
+            for (int i = 0; i < series.rollups.length; i++) {
+                if (series.rollups[i] != null) {
+                    // Next sample of this bucket is added in new rollup, which is merged with stored one.
+                    rollups.add(series.rollups[i]);
+                    series.rollups[i] = null;
+                }
+            }
+        }
+
+        if (!blockRows.isEmpty() || !rollups.isEmpty()) {
+            writeBlocks(blockRows, rollups);
+        }
+    }
+
+    /**
+     * This method is used to create row of open block of the series.
+     */
+    private ParamHistoryBlock toBlockRow(Series series) {
+        return toBlockRow(series.nodeId, series.deviceName, series.paramName, series.block);
+    }
+
+    private static ParamHistoryBlock toBlockRow(String nodeId, String deviceName, String paramName, TimeSeriesBlock block) {
+        return new ParamHistoryBlock(nodeId, deviceName, paramName,
+                block.getStartTime(), block.getEndTime(), block.getCount(), block.getData());
+    }
+
+    /**
+     * This method is used to write blocks and rollups on database thread and mark series of the blocks as written.
+     */
+    private void writeBlocks(final List<ParamHistoryBlock> blockRows, final List<ParamRollup> rollups) {
+
+        for (ParamHistoryBlock blockRow : blockRows) {
+            Series series = seriesMap.get(getKey(blockRow.getNodeId(), blockRow.getDeviceName(), blockRow.getParamName()));
+            if (series != null) {
+                series.isDirty = false;
+            }
+        }
+
+        final ParamHistoryDao paramHistoryDao = espDatabase.getParamHistoryDao();
+        final ParamRollupDao paramRollupDao = espDatabase.getParamRollupDao();
+
+        EspDatabase.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+                paramHistoryDao.insertOrUpdate(blockRows);
+                paramRollupDao.add(rollups);
+                Log.d(TAG, "Stored " + blockRows.size() + " param history blocks and " + rollups.size() + " rollups");
+            }
+        });
+    }
+
+    private static String getKey(String nodeId, String deviceName, String paramName) {
+        return nodeId + "/" + deviceName + "/" + paramName;
+    }
+}
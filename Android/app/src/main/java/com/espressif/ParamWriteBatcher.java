@@ -0,0 +1,228 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.espressif.cloudapi.ApiManager;
+import com.espressif.cloudapi.ApiResponseListener;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class is used to batch param writes.
+ * Writes of the same node received within {@link AppConstants#PARAM_WRITE_BATCH_WINDOW} are merged in one payload
+ * and writes of multiple cloud nodes are sent in one multi node params request.
+ * Result of each node is reported to the listeners of that node.
+ */
+public class ParamWriteBatcher {
+
+    private static final String TAG = ParamWriteBatcher.class.getSimpleName();
+
+    private static ParamWriteBatcher paramWriteBatcher;
+
+    private EspApplication espApp;
+    private ApiManager apiManager;
+    private NetworkApiManager networkApiManager;
+    private Handler handler;
+    private LinkedHashMap<String, PendingWrite> pendingWrites = new LinkedHashMap<>();
+    private boolean isFlushScheduled;
+
+    private static class PendingWrite {
+
+        private JsonObject body = new JsonObject();
+        private ArrayList<ApiResponseListener> listeners = new ArrayList<>();
+    }
+
+    public static ParamWriteBatcher getInstance(Context context) {
+
+        if (paramWriteBatcher == null) {
+            paramWriteBatcher = new ParamWriteBatcher(context);
+        }
+        return paramWriteBatcher;
+    }
+
+    private ParamWriteBatcher(Context context) {
+        espApp = (EspApplication) context.getApplicationContext();
+        apiManager = ApiManager.getInstance(context);
+        networkApiManager = new NetworkApiManager(context.getApplicationContext());
+        handler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * This method is used to queue param values of the node.
+     *
+     * @param nodeId   Node id.
+     * @param body     Json data of param values. e.g. {"Light":{"power":true}}
+     * @param listener Listener to send success or failure of this node.
+     */
+    public synchronized void write(String nodeId, JsonObject body, ApiResponseListener listener) {
+
+        PendingWrite pendingWrite = pendingWrites.get(nodeId);
+
+        if (pendingWrite == null) {
+            pendingWrite = new PendingWrite();
+            pendingWrites.put(nodeId, pendingWrite);
+        }
+
+        merge(pendingWrite.body, body);
+        pendingWrite.listeners.add(listener);
+
+        if (!isFlushScheduled) {
+            isFlushScheduled = true;
+            handler.postDelayed(flushTask, AppConstants.PARAM_WRITE_BATCH_WINDOW);
+        }
+    }
+
+    private Runnable flushTask = new Runnable() {
+
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private void flush() {
+
+        LinkedHashMap<String, PendingWrite> writes;
+
+        synchronized (this) {
+            writes = pendingWrites;
+            pendingWrites = new LinkedHashMap<>();
+            isFlushScheduled = false;
+        }
+
+        final HashMap<String, PendingWrite> cloudWrites = new HashMap<>();
+
+        for (Map.Entry<String, PendingWrite> entry : writes.entrySet()) {
+
+            String nodeId = entry.getKey();
+            PendingWrite pendingWrite = entry.getValue();
+            PollingScheduler.getInstance(espApp).onUserInteraction(nodeId);
+
+            if (espApp.mDNSDeviceMap.containsKey(nodeId)) {
+                // Local control is done per node.
+                networkApiManager.sendParamValue(nodeId, pendingWrite.body, getNodeListener(pendingWrite));
+            } else {
+                cloudWrites.put(nodeId, pendingWrite);
+            }
+        }
+
+        if (cloudWrites.size() == 1) {
+
+            Map.Entry<String, PendingWrite> entry = cloudWrites.entrySet().iterator().next();
+            apiManager.updateParamValue(entry.getKey(), entry.getValue().body, getNodeListener(entry.getValue()));
+
+        } else if (cloudWrites.size() > 1) {
+
+            Log.d(TAG, "Sending param values of " + cloudWrites.size() + " nodes in one request");
+            HashMap<String, JsonObject> nodeParams = new HashMap<>();
+
+            for (Map.Entry<String, PendingWrite> entry : cloudWrites.entrySet()) {
+                nodeParams.put(entry.getKey(), entry.getValue().body);
+            }
+
+            apiManager.updateParamValues(nodeParams, new ApiResponseListener() {
+
+                @Override
+                public void onSuccess(Bundle data) {
+
+                    Bundle failedNodes = (data != null) ? data.getBundle(AppConstants.KEY_FAILED_NODES) : null;
+
+                    for (Map.Entry<String, PendingWrite> entry : cloudWrites.entrySet()) {
+
+                        ApiResponseListener listener = getNodeListener(entry.getValue());
+
+                        if (failedNodes != null && failedNodes.containsKey(entry.getKey())) {
+                            listener.onResponseFailure(new RuntimeException(failedNodes.getString(entry.getKey())));
+                        } else {
+                            listener.onSuccess(null);
+                        }
+                    }
+                }
+
+                @Override
+                public void onResponseFailure(Exception exception) {
+                    for (PendingWrite pendingWrite : cloudWrites.values()) {
+                        getNodeListener(pendingWrite).onResponseFailure(exception);
+                    }
+                }
+
+                @Override
+                public void onNetworkFailure(Exception exception) {
+                    for (PendingWrite pendingWrite : cloudWrites.values()) {
+                        getNodeListener(pendingWrite).onNetworkFailure(exception);
+                    }
+                }
+            });
+        }
+    }
+
+    private ApiResponseListener getNodeListener(final PendingWrite pendingWrite) {
+
+        return new ApiResponseListener() {
+
+            @Override
+            public void onSuccess(Bundle data) {
+                for (ApiResponseListener listener : pendingWrite.listeners) {
+                    listener.onSuccess(data);
+                }
+            }
+
+            @Override
+            public void onResponseFailure(Exception exception) {
+                for (ApiResponseListener listener : pendingWrite.listeners) {
+                    listener.onResponseFailure(exception);
+                }
+            }
+
+            @Override
+            public void onNetworkFailure(Exception exception) {
+                for (ApiResponseListener listener : pendingWrite.listeners) {
+                    listener.onNetworkFailure(exception);
+                }
+            }
+        };
+    }
+
+    /**
+     * This method is used to merge param values of devices. Later value of a param replaces earlier one.
+     */
+    private static void merge(JsonObject target, JsonObject source) {
+
+        for (Map.Entry<String, JsonElement> entry : source.entrySet()) {
+
+            JsonElement existing = target.get(entry.getKey());
+            JsonElement value = entry.getValue();
+
+            if (existing != null && existing.isJsonObject() && value.isJsonObject()) {
+                for (Map.Entry<String, JsonElement> param : value.getAsJsonObject().entrySet()) {
+                    existing.getAsJsonObject().add(param.getKey(), param.getValue().deepCopy());
+                }
+            } else {
+                target.add(entry.getKey(), value.deepCopy());
+            }
+        }
+    }
+}
@@ -0,0 +1,345 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import com.espressif.cloudapi.ServerClock;
+import com.espressif.db.EspDatabase;
+import com.espressif.db.ParamWriteDao;
+import com.espressif.ui.models.Device;
+import com.espressif.ui.models.EspNode;
+import com.espressif.ui.models.Param;
+import com.espressif.ui.models.ParamWrite;
+import com.espressif.ui.models.UpdateEvent;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.greenrobot.eventbus.EventBus;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * This class is used to keep param writes which could not be sent because of no connectivity.
+ * Writes are stored in database and only latest value of each param of the device is kept.
+ * Stored writes are sent by {@link ParamWriteWorker} when network is available.
+ * Writes older than {@link AppConstants#PARAM_WRITE_TTL} are dropped and rejected / dropped values are rolled back in params.
+ */
+public class ParamWriteQueue {
+
+    private static final String TAG = ParamWriteQueue.class.getSimpleName();
+
+    private static ParamWriteQueue paramWriteQueue;
+
+    private Context context;
+    private ParamWriteDao paramWriteDao;
+    private Handler handler;
+
+    public static synchronized ParamWriteQueue getInstance(Context context) {
+
+        if (paramWriteQueue == null) {
+            paramWriteQueue = new ParamWriteQueue(context);
+        }
+        return paramWriteQueue;
+    }
+
+    private ParamWriteQueue(Context context) {
+        this.context = context.getApplicationContext();
+        paramWriteDao = EspDatabase.getInstance(this.context).getParamWriteDao();
+        handler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * This method is used to store param values of the node and schedule replay when network is available.
+     *
+     * @param nodeId Node id.
+     * @param body   Json data of param values. e.g. {"Light":{"power":true}}
+     */
+    public void enqueue(String nodeId, JsonObject body) {
+
+        long timestamp = ServerClock.now();
+        final ArrayList<ParamWrite> paramWrites = new ArrayList<>();
+
+        for (Map.Entry<String, JsonElement> device : body.entrySet()) {
+
+            if (!device.getValue().isJsonObject()) {
+                continue;
+            }
+
+            for (Map.Entry<String, JsonElement> param : device.getValue().getAsJsonObject().entrySet()) {
+                paramWrites.add(new ParamWrite(nodeId, device.getKey(), param.getKey(), param.getValue().toString(), timestamp));
+            }
+        }
+
+        Log.d(TAG, "Queue " + paramWrites.size() + " param values of node : " + nodeId);
+
+        EspDatabase.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+                dropExpired();
+                paramWriteDao.insertOrUpdate(paramWrites);
+                EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_PENDING_WRITES_UPDATE));
+                scheduleReplay();
+            }
+        });
+    }
+
+    /**
+     * This method is used to remove queued values which are older than values written successfully.
+     *
+     * @param nodeId   Node id.
+     * @param body     Json data of param values written successfully.
+     * @param sendTime Time at which values were sent.
+     */
+    public void onWriteSuccess(final String nodeId, final JsonObject body, final long sendTime) {
+
+        EspDatabase.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+                if (paramWriteDao.getCount() == 0) {
+                    return;
+                }
+
+                for (Map.Entry<String, JsonElement> device : body.entrySet()) {
+
+                    if (!device.getValue().isJsonObject()) {
+                        continue;
+                    }
+
+                    for (String paramName : device.getValue().getAsJsonObject().keySet()) {
+                        paramWriteDao.deleteIfNotReplaced(nodeId, device.getKey(), paramName, sendTime);
+                    }
+                }
+                EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_PENDING_WRITES_UPDATE));
+            }
+        });
+    }
+
+    /**
+     * This method is used to get param values of the node which are not sent yet.
+     * It should be called on database executor.
+     *
+     * @param nodeId Node id.
+     * @return Json data of param values. e.g. {"Light":{"power":true}}
+     */
+    public JsonObject getPendingValues(String nodeId) {
+        return toBody(paramWriteDao.getByNode(nodeId, getExpiryTime()));
+    }
+
+    /**
+     * This method is used to get all queued writes, after removing expired writes.
+     * Database is read on database executor and this method waits for it, so it should not be called from main thread.
+     *
+     * @return Queued writes. Empty list if database could not be read.
+     */
+    public List<ParamWrite> getQueuedWrites() {
+
+        Future<List<ParamWrite>> future = EspDatabase.getExecutor().submit(new Callable<List<ParamWrite>>() {
+
+            @Override
+            public List<ParamWrite> call() {
+                dropExpired();
+                return paramWriteDao.getAll();
+            }
+        });
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * This method is used to remove writes which are sent or rejected.
+     * Value queued again after the write is newer, so it is kept.
+     *
+     * @param paramWrites Writes to be removed.
+     */
+    public void remove(final List<ParamWrite> paramWrites) {
+
+        EspDatabase.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+                for (ParamWrite paramWrite : paramWrites) {
+                    paramWriteDao.deleteIfNotReplaced(paramWrite.getNodeId(), paramWrite.getDeviceName(),
+                            paramWrite.getParamName(), paramWrite.getTimestamp());
+                }
+                EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_PENDING_WRITES_UPDATE));
+            }
+        });
+    }
+
+    /**
+     * This method is used to remove writes older than {@link AppConstants#PARAM_WRITE_TTL} and roll back their values.
+     * It is called on database executor.
+     */
+    private void dropExpired() {
+
+        List<ParamWrite> expiredWrites = paramWriteDao.getExpired(getExpiryTime());
+
+        if (expiredWrites.isEmpty()) {
+            return;
+        }
+
+        Log.d(TAG, "Drop " + expiredWrites.size() + " expired param values");
+
+        for (ParamWrite paramWrite : expiredWrites) {
+            paramWriteDao.deleteIfNotReplaced(paramWrite.getNodeId(), paramWrite.getDeviceName(),
+                    paramWrite.getParamName(), paramWrite.getTimestamp());
+        }
+        rollback(expiredWrites);
+        EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_PENDING_WRITES_UPDATE));
+    }
+
+    /**
+     * This method is used to restore values reported by device in params of rejected / dropped writes.
+     * Params are changed on main thread. Param written again after the queued write is not changed.
+     *
+     * @param paramWrites Writes which will not be sent.
+     */
+    public void rollback(final List<ParamWrite> paramWrites) {
+
+        handler.post(new Runnable() {
+
+            @Override
+            public void run() {
+
+                EspApplication espApp = (EspApplication) context;
+                HashSet<String> nodeIds = new HashSet<>();
+
+                for (ParamWrite paramWrite : paramWrites) {
+
+                    Param param = getParam(espApp.nodeMap.get(paramWrite.getNodeId()), paramWrite.getDeviceName(),
+                            paramWrite.getParamName());
+
+                    if (param != null && param.hasPendingWrite() && param.getPendingWriteTime() <= paramWrite.getTimestamp()) {
+                        param.rollbackPendingWrite();
+                        nodeIds.add(paramWrite.getNodeId());
+                    }
+                }
+
+                for (String nodeId : nodeIds) {
+                    Bundle data = new Bundle();
+                    data.putString(AppConstants.KEY_NODE_ID, nodeId);
+                    UpdateEvent updateEvent = new UpdateEvent(AppConstants.UpdateEventType.EVENT_DEVICE_STATUS_UPDATE);
+                    updateEvent.setData(data);
+                    EventBus.getDefault().post(updateEvent);
+                }
+            }
+        });
+    }
+
+    /**
+     * This method is used to schedule replay of queued writes when network is available.
+     */
+    public void scheduleReplay() {
+
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+
+        OneTimeWorkRequest workRequest = new OneTimeWorkRequest.Builder(ParamWriteWorker.class)
+                .setConstraints(constraints)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(AppConstants.PARAM_WRITE_WORK_NAME,
+                ExistingWorkPolicy.APPEND_OR_REPLACE, workRequest);
+    }
+
+    /**
+     * This method is used to remove all queued writes. It should be called when user is changed.
+     */
+    public void clear() {
+        WorkManager.getInstance(context).cancelUniqueWork(AppConstants.PARAM_WRITE_WORK_NAME);
+
+        EspDatabase.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+                paramWriteDao.deleteAll();
+            }
+        });
+    }
+
+    private static long getExpiryTime() {
+        return ServerClock.now() - AppConstants.PARAM_WRITE_TTL;
+    }
+
+    private static Param getParam(EspNode node, String deviceName, String paramName) {
+
+        if (node == null || node.getDevices() == null) {
+            return null;
+        }
+
+        for (Device device : node.getDevices()) {
+
+            if (deviceName.equals(device.getDeviceName()) && device.getParams() != null) {
+
+                for (Param param : device.getParams()) {
+                    if (paramName.equals(param.getName())) {
+                        return param;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * This method is used to create request body from param values.
+     */
+    static JsonObject toBody(List<ParamWrite> paramWrites) {
+
+        JsonObject body = new JsonObject();
+
+        for (ParamWrite paramWrite : paramWrites) {
+
+            JsonObject deviceJson = body.getAsJsonObject(paramWrite.getDeviceName());
+
+            if (deviceJson == null) {
+                deviceJson = new JsonObject();
+                body.add(paramWrite.getDeviceName(), deviceJson);
+            }
+            deviceJson.add(paramWrite.getParamName(), JsonParser.parseString(paramWrite.getValue()));
+        }
+        return body;
+    }
+}
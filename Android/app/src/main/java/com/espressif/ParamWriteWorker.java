@@ -0,0 +1,135 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.espressif.cloudapi.ApiResponseListener;
+import com.espressif.ui.models.ParamWrite;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This worker is used to send param writes queued in {@link ParamWriteQueue}.
+ * Route (local / cloud) is selected at the time of replay.
+ */
+public class ParamWriteWorker extends Worker {
+
+    private static final String TAG = ParamWriteWorker.class.getSimpleName();
+
+    private static final int RESULT_SUCCESS = 0;
+    private static final int RESULT_REJECTED = 1;
+    private static final int RESULT_NETWORK_FAILURE = 2;
+
+    public ParamWriteWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+
+        ParamWriteQueue paramWriteQueue = ParamWriteQueue.getInstance(getApplicationContext());
+        List<ParamWrite> paramWrites = paramWriteQueue.getQueuedWrites();
+
+        if (paramWrites.isEmpty()) {
+            return Result.success();
+        }
+
+        Log.d(TAG, "Replay " + paramWrites.size() + " queued param values");
+        LinkedHashMap<String, ArrayList<ParamWrite>> nodeWrites = new LinkedHashMap<>();
+
+        for (ParamWrite paramWrite : paramWrites) {
+
+            ArrayList<ParamWrite> writes = nodeWrites.get(paramWrite.getNodeId());
+
+            if (writes == null) {
+                writes = new ArrayList<>();
+                nodeWrites.put(paramWrite.getNodeId(), writes);
+            }
+            writes.add(paramWrite);
+        }
+
+        NetworkApiManager networkApiManager = new NetworkApiManager(getApplicationContext());
+        boolean shouldRetry = false;
+
+        for (Map.Entry<String, ArrayList<ParamWrite>> entry : nodeWrites.entrySet()) {
+
+            int result = send(networkApiManager, entry.getKey(), entry.getValue());
+
+            if (result == RESULT_NETWORK_FAILURE) {
+                shouldRetry = true;
+                continue;
+            }
+
+            if (result == RESULT_REJECTED) {
+                // Values are not accepted, sending them again will not help.
+                Log.e(TAG, "Param values rejected for node : " + entry.getKey());
+                paramWriteQueue.rollback(entry.getValue());
+            }
+
+            // Value queued during replay is newer, it is kept.
+            paramWriteQueue.remove(entry.getValue());
+        }
+        return shouldRetry ? Result.retry() : Result.success();
+    }
+
+    private int send(NetworkApiManager networkApiManager, String nodeId, ArrayList<ParamWrite> writes) {
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final int[] result = {RESULT_NETWORK_FAILURE};
+
+        networkApiManager.sendParamValue(nodeId, ParamWriteQueue.toBody(writes), new ApiResponseListener() {
+
+            @Override
+            public void onSuccess(Bundle data) {
+                result[0] = RESULT_SUCCESS;
+                latch.countDown();
+            }
+
+            @Override
+            public void onResponseFailure(Exception exception) {
+                result[0] = RESULT_REJECTED;
+                latch.countDown();
+            }
+
+            @Override
+            public void onNetworkFailure(Exception exception) {
+                result[0] = RESULT_NETWORK_FAILURE;
+                latch.countDown();
+            }
+        });
+
+        try {
+            if (!latch.await(AppConstants.PARAM_WRITE_REPLAY_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                return RESULT_NETWORK_FAILURE;
+            }
+        } catch (InterruptedException e) {
+            return RESULT_NETWORK_FAILURE;
+        }
+        return result[0];
+    }
+}
@@ -0,0 +1,436 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.espressif.cloudapi.ApiManager;
+import com.espressif.cloudapi.ApiResponseListener;
+import com.espressif.ui.models.Device;
+import com.espressif.ui.models.EspNode;
+import com.espressif.ui.models.Param;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class is used to poll param values of the nodes which are displayed on screen.
+ * Screens watch nodes and one timer reads all nodes which are due, with local control if node is available locally
+ * and with one node list request if most of the cloud nodes of the user are due.
+ * Node list API returns values of all nodes, so few due nodes are read one by one.
+ * <p>
+ * Interval of each node is adapted between {@link AppConstants#POLL_MIN_INTERVAL} and {@link AppConstants#POLL_MAX_INTERVAL}.
+ * It is reduced after user interaction or change in values and increased while values are not changing or reads fail.
+ * Interval is increased while app is in background or battery saver is on.
+ * Methods of this class should be called from main thread.
+ */
+public class PollingScheduler {
+
+    private static final String TAG = PollingScheduler.class.getSimpleName();
+
+    private static PollingScheduler pollingScheduler;
+
+    private EspApplication espApp;
+    private ApiManager apiManager;
+    private NetworkApiManager networkApiManager;
+    private PowerManager powerManager;
+    private Handler handler;
+    private HashMap<String, PollState> pollStates = new HashMap<>();
+    private int startedActivities;
+
+    private static class PollState {
+
+        private ArrayList<ApiResponseListener> listeners = new ArrayList<>();
+        private long interval = AppConstants.POLL_INTERVAL;
+        private long nextPollTime;
+        private long lastInteractionTime;
+        private boolean isInFlight;
+    }
+
+    public static PollingScheduler getInstance(Context context) {
+
+        if (pollingScheduler == null) {
+            pollingScheduler = new PollingScheduler(context);
+        }
+        return pollingScheduler;
+    }
+
+    private PollingScheduler(Context context) {
+        espApp = (EspApplication) context.getApplicationContext();
+        apiManager = ApiManager.getInstance(context);
+        networkApiManager = new NetworkApiManager(context.getApplicationContext());
+        powerManager = (PowerManager) context.getApplicationContext().getSystemService(Context.POWER_SERVICE);
+        handler = new Handler(Looper.getMainLooper());
+        espApp.registerActivityLifecycleCallbacks(lifecycleCallbacks);
+    }
+
+    /**
+     * This method is used to start polling param values of the node.
+     * First read is done after current interval of the node.
+     *
+     * @param nodeId   Node id.
+     * @param listener Listener which receives result of each read.
+     */
+    public void watch(String nodeId, ApiResponseListener listener) {
+
+        PollState pollState = pollStates.get(nodeId);
+
+        if (pollState == null) {
+            pollState = new PollState();
+            pollStates.put(nodeId, pollState);
+        }
+
+        if (!pollState.listeners.contains(listener)) {
+            pollState.listeners.add(listener);
+        }
+
+        if (!pollState.isInFlight) {
+            pollState.nextPollTime = SystemClock.elapsedRealtime() + getDelay(pollState);
+        }
+        schedule();
+    }
+
+    /**
+     * This method is used to stop polling param values of the node for given listener.
+     * Node is polled till it has any listener.
+     *
+     * @param nodeId   Node id.
+     * @param listener Listener given in {@link #watch(String, ApiResponseListener)}.
+     */
+    public void unwatch(String nodeId, ApiResponseListener listener) {
+
+        PollState pollState = pollStates.get(nodeId);
+
+        if (pollState != null) {
+            pollState.listeners.remove(listener);
+            if (pollState.listeners.isEmpty()) {
+                pollStates.remove(nodeId);
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * This method is used to poll the node with min interval, as values are expected to change after user interaction.
+     *
+     * @param nodeId Node id.
+     */
+    public void onUserInteraction(String nodeId) {
+
+        PollState pollState = pollStates.get(nodeId);
+
+        if (pollState != null) {
+            pollState.lastInteractionTime = SystemClock.elapsedRealtime();
+            pollState.interval = AppConstants.POLL_MIN_INTERVAL;
+        }
+    }
+
+    /**
+     * This method is used to delay next read of the node, as its values are received in push event.
+     *
+     * @param nodeId Node id.
+     */
+    public void onNodeUpdated(String nodeId) {
+
+        PollState pollState = pollStates.get(nodeId);
+
+        if (pollState != null && !pollState.isInFlight) {
+            pollState.nextPollTime = SystemClock.elapsedRealtime() + getDelay(pollState);
+            schedule();
+        }
+    }
+
+    private Runnable pollTask = new Runnable() {
+
+        @Override
+        public void run() {
+            poll();
+        }
+    };
+
+    /**
+     * This method is used to schedule timer for the node which is due first.
+     */
+    private void schedule() {
+
+        handler.removeCallbacks(pollTask);
+        long nextPollTime = Long.MAX_VALUE;
+
+        for (PollState pollState : pollStates.values()) {
+            if (!pollState.isInFlight && pollState.nextPollTime < nextPollTime) {
+                nextPollTime = pollState.nextPollTime;
+            }
+        }
+
+        if (nextPollTime != Long.MAX_VALUE) {
+            handler.postDelayed(pollTask, Math.max(nextPollTime - SystemClock.elapsedRealtime(), 0));
+        }
+    }
+
+    private void poll() {
+
+        long now = SystemClock.elapsedRealtime();
+        final ArrayList<String> cloudNodes = new ArrayList<>();
+
+        for (Map.Entry<String, PollState> entry : pollStates.entrySet()) {
+
+            PollState pollState = entry.getValue();
+
+            if (pollState.isInFlight || pollState.nextPollTime > now) {
+                continue;
+            }
+
+            final String nodeId = entry.getKey();
+            pollState.isInFlight = true;
+
+            if (espApp.mDNSDeviceMap.containsKey(nodeId)) {
+                // Local control is done per node.
+                read(nodeId);
+            } else {
+                cloudNodes.add(nodeId);
+            }
+        }
+
+        if (isBatchRead(cloudNodes.size())) {
+
+            Log.d(TAG, "Reading param values of " + cloudNodes.size() + " nodes in one request");
+            final HashMap<String, String> fingerprints = new HashMap<>();
+
+            for (String nodeId : cloudNodes) {
+                fingerprints.put(nodeId, getFingerprint(nodeId));
+            }
+
+            apiManager.getNodesParams(new ApiResponseListener() {
+
+                @Override
+                public void onSuccess(Bundle data) {
+
+                    ArrayList<String> nodeIds = (data != null) ? data.getStringArrayList(AppConstants.KEY_NODE_IDS) : null;
+
+                    for (String nodeId : cloudNodes) {
+
+                        if (nodeIds != null && nodeIds.contains(nodeId)) {
+                            onPollResult(nodeId, fingerprints.get(nodeId), null, false);
+                        } else {
+                            onPollResult(nodeId, null, new RuntimeException("Failed to get param values"), false);
+                        }
+                    }
+                    schedule();
+                }
+
+                @Override
+                public void onResponseFailure(Exception exception) {
+                    for (String nodeId : cloudNodes) {
+                        onPollResult(nodeId, null, exception, false);
+                    }
+                    schedule();
+                }
+
+                @Override
+                public void onNetworkFailure(Exception exception) {
+                    for (String nodeId : cloudNodes) {
+                        onPollResult(nodeId, null, exception, true);
+                    }
+                    schedule();
+                }
+            });
+
+        } else {
+            for (String nodeId : cloudNodes) {
+                read(nodeId);
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * Node list request returns values of all nodes of the user, so it is used only if it is one page
+     * and most of it is due. Otherwise reading only due nodes is cheaper.
+     */
+    private boolean isBatchRead(int dueNodeCount) {
+
+        int nodeCount = espApp.nodeMap.size();
+        return dueNodeCount > 1 && nodeCount <= AppConstants.POLL_BATCH_MAX_NODES
+                && dueNodeCount * 100 >= nodeCount * AppConstants.POLL_BATCH_MIN_DUE_PERCENT;
+    }
+
+    private void read(final String nodeId) {
+
+        final String fingerprint = getFingerprint(nodeId);
+
+        // Local control falls back to cloud if node is not reachable.
+        networkApiManager.getParamsValues(nodeId, new ApiResponseListener() {
+
+            @Override
+            public void onSuccess(final Bundle data) {
+                handler.post(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        onPollResult(nodeId, fingerprint, null, false);
+                        schedule();
+                    }
+                });
+            }
+
+            @Override
+            public void onResponseFailure(final Exception exception) {
+                handler.post(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        onPollResult(nodeId, null, exception, false);
+                        schedule();
+                    }
+                });
+            }
+
+            @Override
+            public void onNetworkFailure(final Exception exception) {
+                handler.post(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        onPollResult(nodeId, null, exception, true);
+                        schedule();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * This method is used to adapt interval of the node as per result of the read and send result to listeners.
+     */
+    private void onPollResult(String nodeId, String oldFingerprint, Exception exception, boolean isNetworkFailure) {
+
+        PollState pollState = pollStates.get(nodeId);
+
+        if (pollState == null) {
+            // Node is not watched anymore.
+            return;
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        pollState.isInFlight = false;
+
+        if (exception != null) {
+            pollState.interval = Math.min(pollState.interval * 2, AppConstants.POLL_MAX_INTERVAL);
+        } else if (now - pollState.lastInteractionTime < AppConstants.POLL_INTERACTION_WINDOW) {
+            pollState.interval = AppConstants.POLL_MIN_INTERVAL;
+        } else if (!getFingerprint(nodeId).equals(oldFingerprint)) {
+            pollState.interval = AppConstants.POLL_INTERVAL;
+        } else {
+            pollState.interval = Math.min(pollState.interval * 3 / 2, AppConstants.POLL_MAX_INTERVAL);
+        }
+        pollState.nextPollTime = now + getDelay(pollState);
+
+        // Copy, as listener can unwatch the node from callback.
+        ArrayList<ApiResponseListener> listeners = new ArrayList<>(pollState.listeners);
+
+        for (ApiResponseListener listener : listeners) {
+            if (exception == null) {
+                listener.onSuccess(null);
+            } else if (isNetworkFailure) {
+                listener.onNetworkFailure(exception);
+            } else {
+                listener.onResponseFailure(exception);
+            }
+        }
+    }
+
+    private long getDelay(PollState pollState) {
+
+        long delay = pollState.interval;
+
+        if (startedActivities == 0) {
+            delay = delay * AppConstants.POLL_BACKGROUND_FACTOR;
+        }
+
+        if (powerManager != null && powerManager.isPowerSaveMode()) {
+            delay = delay * AppConstants.POLL_POWER_SAVE_FACTOR;
+        }
+        return delay;
+    }
+
+    /**
+     * This method is used to get text of all param values of the node to find whether values are changed.
+     */
+    private String getFingerprint(String nodeId) {
+
+        EspNode node = espApp.nodeMap.get(nodeId);
+        StringBuilder fingerprint = new StringBuilder();
+
+        if (node == null || node.getDevices() == null) {
+            return fingerprint.toString();
+        }
+
+        for (Device device : node.getDevices()) {
+
+            if (device.getParams() == null) {
+                continue;
+            }
+
+            for (Param param : device.getParams()) {
+                fingerprint.append(param.getValue()).append(',')
+                        .append(param.getSwitchStatus()).append(',')
+                        .append(param.getLabelValue()).append(';');
+            }
+        }
+        return fingerprint.toString();
+    }
+
+    private Application.ActivityLifecycleCallbacks lifecycleCallbacks = new Application.ActivityLifecycleCallbacks() {
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+            startedActivities++;
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+            startedActivities--;
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+        }
+    };
+}
@@ -0,0 +1,155 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import com.espressif.cloudapi.ServerClock;
+import com.espressif.db.EspDatabase;
+import com.espressif.db.NodeStorage;
+import com.espressif.ui.models.Device;
+import com.espressif.ui.models.EspNode;
+import com.espressif.ui.models.Param;
+import com.espressif.ui.models.UpdateEvent;
+
+import org.greenrobot.eventbus.EventBus;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+
+/**
+ * This class is used to apply state received in push events to the nodes, without getting node from cloud.
+ * Only params and status which are present in event are changed. Changed values are stored
+ * and update event of the node is sent with node id in {@link AppConstants#KEY_NODE_ID}.
+ * Nodes of the app are changed only on main thread, so its methods should be called on main thread.
+ */
+public class PushEventApplier {
+
+    private static final String TAG = PushEventApplier.class.getSimpleName();
+
+    private static PushEventApplier pushEventApplier;
+
+    private EspApplication espApp;
+    private EspDatabase espDatabase;
+
+    public static PushEventApplier getInstance(Context context) {
+
+        if (pushEventApplier == null) {
+            pushEventApplier = new PushEventApplier(context);
+        }
+        return pushEventApplier;
+    }
+
+    private PushEventApplier(Context context) {
+        espApp = (EspApplication) context.getApplicationContext();
+        espDatabase = EspDatabase.getInstance(espApp);
+    }
+
+    /**
+     * This method is used to apply connectivity status of the node.
+     * Status older than current status of the node is ignored, as push events can be received out of order.
+     *
+     * @param nodeId    Node id.
+     * @param connected True if node is connected.
+     * @param timestamp Time of the status change.
+     * @return True if node is available, false otherwise.
+     */
+    public boolean applyConnectivity(String nodeId, boolean connected, long timestamp) {
+
+        EspNode node = espApp.nodeMap.get(nodeId);
+
+        if (node == null) {
+            return false;
+        }
+
+        if (timestamp != 0 && timestamp < node.getTimeStampOfStatus()) {
+            Log.d(TAG, "Ignoring older status of node : " + nodeId);
+            return true;
+        }
+
+        node.setOnline(connected);
+        node.setTimeStampOfStatus(timestamp);
+        postUpdate(nodeId, connected ? AppConstants.UpdateEventType.EVENT_DEVICE_ONLINE
+                : AppConstants.UpdateEventType.EVENT_DEVICE_OFFLINE);
+        return true;
+    }
+
+    /**
+     * This method is used to apply param values of the node.
+     * Unlike {@link JsonDataParser#setAllParams(EspApplication, EspNode, JSONObject, long)}, schedules of the node
+     * are kept if they are not present in the payload.
+     *
+     * @param nodeId      Node id.
+     * @param payloadJson Json data of param values. e.g. {"Light":{"power":true}}
+     * @param timestamp   Time of the event, 0 if it is not available.
+     * @return True if node is available, false otherwise.
+     */
+    public boolean applyParams(String nodeId, JSONObject payloadJson, long timestamp) {
+
+        EspNode node = espApp.nodeMap.get(nodeId);
+
+        if (node == null) {
+            return false;
+        }
+
+        ArrayList<Device> devices = node.getDevices();
+
+        if (devices != null) {
+            for (Device device : devices) {
+
+                JSONObject deviceJson = payloadJson.optJSONObject(device.getDeviceName());
+
+                if (deviceJson == null || device.getParams() == null) {
+                    continue;
+                }
+
+                for (Param param : device.getParams()) {
+                    if (param.isDynamicParam() && deviceJson.has(param.getName())) {
+                        if (timestamp != 0) {
+                            JsonDataParser.setReportedParamValue(deviceJson, device, param, timestamp);
+                        } else {
+                            JsonDataParser.setDeviceParamValue(deviceJson, device, param, ServerClock.now());
+                        }
+                    }
+                }
+            }
+        }
+
+        JSONObject scheduleJson = payloadJson.optJSONObject(AppConstants.KEY_SCHEDULE);
+
+        if (scheduleJson != null) {
+            node.setScheduleData(scheduleJson.toString());
+            ScheduleParser.parseSchedules(node, scheduleJson, espApp.scheduleMap);
+        }
+
+        NodeStorage.saveNode(espDatabase, node, false);
+        postUpdate(nodeId, AppConstants.UpdateEventType.EVENT_DEVICE_STATUS_UPDATE);
+        return true;
+    }
+
+    private void postUpdate(String nodeId, AppConstants.UpdateEventType eventType) {
+
+        Bundle data = new Bundle();
+        data.putString(AppConstants.KEY_NODE_ID, nodeId);
+        UpdateEvent updateEvent = new UpdateEvent(eventType);
+        updateEvent.setData(data);
+        EventBus.getDefault().post(updateEvent);
+
+        // Values are received, so next poll of the node is not needed soon.
+        PollingScheduler.getInstance(espApp).onNodeUpdated(nodeId);
+    }
+}
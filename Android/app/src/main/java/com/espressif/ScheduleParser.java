@@ -0,0 +1,286 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif;
+
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.espressif.ui.models.Action;
+import com.espressif.ui.models.Device;
+import com.espressif.ui.models.EspNode;
+import com.espressif.ui.models.Param;
+import com.espressif.ui.models.Schedule;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * This class is used to parse "Schedule" service params of the node.
+ * Schedules are kept by schedule id. Schedule objects are not changed after they are added in schedule map,
+ * changed schedule is replaced by new object so that screens and sync always see complete schedule.
+ */
+public class ScheduleParser {
+
+    private static final String TAG = ScheduleParser.class.getSimpleName();
+
+    /**
+     * This method is used to parse schedules of the node and add / replace them in given schedule map.
+     * Same schedule configured on multiple nodes is kept as one schedule with actions of all nodes.
+     * Schedule is replaced only if any of its fields or actions of this node are changed.
+     *
+     * @param node         Node for which schedules are received.
+     * @param scheduleJson JSON object of "Schedule" service params.
+     * @param scheduleMap  Schedule map in which schedules are added / replaced.
+     * @return Ids of all schedules of the node.
+     */
+    public static ArrayList<String> parseSchedules(EspNode node, JSONObject scheduleJson, HashMap<String, Schedule> scheduleMap) {
+
+        ArrayList<String> scheduleIds = new ArrayList<>();
+        JSONArray scheduleArrayJson = scheduleJson.optJSONArray(AppConstants.KEY_SCHEDULES);
+
+        if (scheduleArrayJson == null) {
+            return scheduleIds;
+        }
+
+        // Index of node devices by device name.
+        HashMap<String, Device> deviceMap = new HashMap<>();
+        ArrayList<Device> devices = node.getDevices();
+
+        if (devices != null) {
+            for (int i = 0; i < devices.size(); i++) {
+                deviceMap.put(devices.get(i).getDeviceName(), devices.get(i));
+            }
+        }
+
+        for (int index = 0; index < scheduleArrayJson.length(); index++) {
+
+            JSONObject schJson = scheduleArrayJson.optJSONObject(index);
+
+            if (schJson == null) {
+                continue;
+            }
+
+            String scheduleId = schJson.optString(AppConstants.KEY_ID);
+
+            if (TextUtils.isEmpty(scheduleId)) {
+                continue;
+            }
+
+            HashMap<String, Integer> triggers = new HashMap<>();
+            JSONArray triggerArray = schJson.optJSONArray(AppConstants.KEY_TRIGGERS);
+
+            if (triggerArray != null) {
+                for (int t = 0; t < triggerArray.length(); t++) {
+                    JSONObject triggerJson = triggerArray.optJSONObject(t);
+                    if (triggerJson != null) {
+                        triggers.put(AppConstants.KEY_DAYS, triggerJson.optInt(AppConstants.KEY_DAYS));
+                        triggers.put(AppConstants.KEY_MINUTES, triggerJson.optInt(AppConstants.KEY_MINUTES));
+                    }
+                }
+            }
+
+            Schedule schedule = new Schedule();
+            schedule.setId(scheduleId);
+            schedule.setName(schJson.optString(AppConstants.KEY_NAME));
+            schedule.setEnabled(schJson.optBoolean(AppConstants.KEY_ENABLED));
+            schedule.setTriggers(triggers);
+
+            Schedule existing = scheduleMap.get(scheduleId);
+            ArrayList<Action> actions = new ArrayList<>();
+
+            // Actions of other nodes are not changed, so they are shared with existing schedule.
+            if (existing != null && existing.getActions() != null) {
+                for (Action action : existing.getActions()) {
+                    if (!node.getNodeId().equals(getActionNodeId(action))) {
+                        actions.add(action);
+                    }
+                }
+            }
+
+            JSONObject actionsSchJson = schJson.optJSONObject(AppConstants.KEY_ACTION);
+
+            if (actionsSchJson != null) {
+                addActions(node.getNodeId(), actions, actionsSchJson, deviceMap);
+            }
+            schedule.setActions(actions);
+
+            if (existing == null || !isSameSchedule(existing, schedule)) {
+                Log.d(TAG, "Schedule added / changed : " + schedule.getName());
+                scheduleMap.put(scheduleId, schedule);
+            }
+            scheduleIds.add(scheduleId);
+        }
+        return scheduleIds;
+    }
+
+    /**
+     * This method is used to check whether two schedules have same fields and actions.
+     *
+     * @return True if schedules are same.
+     */
+    public static boolean isSameSchedule(Schedule s1, Schedule s2) {
+
+        if (!TextUtils.equals(s1.getId(), s2.getId()) || !TextUtils.equals(s1.getName(), s2.getName())
+                || s1.isEnabled() != s2.isEnabled()) {
+            return false;
+        }
+
+        if (s1.getTriggers() == null ? s2.getTriggers() != null : !s1.getTriggers().equals(s2.getTriggers())) {
+            return false;
+        }
+
+        ArrayList<Action> actions1 = s1.getActions() != null ? s1.getActions() : new ArrayList<Action>();
+        ArrayList<Action> actions2 = s2.getActions() != null ? s2.getActions() : new ArrayList<Action>();
+
+        if (actions1.size() != actions2.size()) {
+            return false;
+        }
+
+        // Index of actions by node id and device name.
+        HashMap<String, Action> actionMap = new HashMap<>();
+
+        for (Action action : actions1) {
+            actionMap.put(getActionKey(action), action);
+        }
+
+        for (Action action : actions2) {
+
+            Action other = actionMap.get(getActionKey(action));
+
+            if (other == null || !isSameActionDevice(other.getDevice(), action.getDevice())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addActions(String nodeId, ArrayList<Action> actions, JSONObject actionsSchJson,
+                                   HashMap<String, Device> deviceMap) {
+
+        Iterator<String> deviceNames = actionsSchJson.keys();
+
+        while (deviceNames.hasNext()) {
+
+            String deviceName = deviceNames.next();
+            Device device = deviceMap.get(deviceName);
+            JSONObject deviceAction = actionsSchJson.optJSONObject(deviceName);
+
+            if (device == null || deviceAction == null) {
+                continue;
+            }
+
+            Device actionDevice = new Device(device);
+            actionDevice.setParams(getActionParams(device, deviceAction));
+            actionDevice.setSelectedState(1);
+
+            for (int paramIndex = 0; paramIndex < actionDevice.getParams().size(); paramIndex++) {
+
+                if (!actionDevice.getParams().get(paramIndex).isSelected()) {
+                    actionDevice.setSelectedState(2); // Partially selected
+                }
+            }
+
+            Action action = new Action();
+            action.setNodeId(nodeId);
+            action.setDevice(actionDevice);
+            actions.add(action);
+        }
+    }
+
+    /**
+     * This method is used to get params of the action with values received in action JSON.
+     */
+    private static ArrayList<Param> getActionParams(Device device, JSONObject deviceAction) {
+
+        ArrayList<Param> params = device.getParams();
+        ArrayList<Param> actionParams = new ArrayList<>();
+
+        if (params == null) {
+            return actionParams;
+        }
+
+        for (int i = 0; i < params.size(); i++) {
+
+            Param p = params.get(i);
+
+            if (!p.isDynamicParam()) {
+                continue;
+            } else if (p.getParamType() != null && p.getParamType().equals(AppConstants.PARAM_TYPE_NAME)) {
+                continue;
+            } else if (!p.getProperties().contains(AppConstants.KEY_PROPERTY_WRITE)) {
+                continue;
+            }
+
+            Param actionParam = new Param(p);
+
+            if (deviceAction.has(p.getName())) {
+                actionParam.setSelected(true);
+                JsonDataParser.setActionParamValue(deviceAction, device, actionParam);
+            } else {
+                actionParam.setSelected(false);
+            }
+            actionParams.add(actionParam);
+        }
+        return actionParams;
+    }
+
+    private static String getActionNodeId(Action action) {
+
+        if (action.getNodeId() == null && action.getDevice() != null) {
+            return action.getDevice().getNodeId();
+        }
+        return action.getNodeId();
+    }
+
+    private static String getActionKey(Action action) {
+        String deviceName = action.getDevice() != null ? action.getDevice().getDeviceName() : null;
+        return getActionNodeId(action) + "/" + deviceName;
+    }
+
+    private static boolean isSameActionDevice(Device d1, Device d2) {
+
+        if (d1 == null || d2 == null) {
+            return d1 == d2;
+        }
+
+        if (d1.getSelectedState() != d2.getSelectedState()) {
+            return false;
+        }
+
+        ArrayList<Param> params1 = d1.getParams() != null ? d1.getParams() : new ArrayList<Param>();
+        ArrayList<Param> params2 = d2.getParams() != null ? d2.getParams() : new ArrayList<Param>();
+
+        if (params1.size() != params2.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < params1.size(); i++) {
+
+            Param p1 = params1.get(i);
+            Param p2 = params2.get(i);
+
+            if (!TextUtils.equals(p1.getName(), p2.getName()) || p1.isSelected() != p2.isSelected()
+                    || p1.getValue() != p2.getValue() || p1.getSwitchStatus() != p2.getSwitchStatus()
+                    || !TextUtils.equals(p1.getLabelValue(), p2.getLabelValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,502 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.espressif.ui.models.Action;
+import com.espressif.ui.models.Device;
+import com.espressif.ui.models.EspNode;
+import com.espressif.ui.models.Group;
+import com.espressif.ui.models.Param;
+import com.espressif.ui.models.Schedule;
+import com.espressif.ui.models.Service;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+import rmaker_snapshot.EspRmakerSnapshot;
+
+/**
+ * This class is used to store nodes, groups and schedules of the user in one protobuf file,
+ * so that last known devices can be displayed on app start without reading database or cloud.
+ * <p>
+ * File contains header (magic, format version, payload length and CRC32) followed by protobuf payload.
+ * File is written atomically and memory mapped while reading.
+ * If file is missing, of different version or corrupted, it is deleted and data should be loaded from database.
+ */
+public class SnapshotStore {
+
+    private static final String TAG = SnapshotStore.class.getSimpleName();
+
+    private static final int MAGIC = 0x45535053; // "ESPS"
+    private static final int HEADER_SIZE = 20;
+    private static final int CRC_CHUNK_SIZE = 64 * 1024;
+
+    private static SnapshotStore snapshotStore;
+
+    private AtomicFile snapshotFile;
+    private ExecutorService writeExecutor = Executors.newSingleThreadExecutor();
+
+    public static SnapshotStore getInstance(Context context) {
+
+        if (snapshotStore == null) {
+            snapshotStore = new SnapshotStore(context);
+        }
+        return snapshotStore;
+    }
+
+    private SnapshotStore(Context context) {
+        snapshotFile = new AtomicFile(new File(context.getApplicationContext().getFilesDir(), AppConstants.SNAPSHOT_FILE_NAME));
+    }
+
+    /**
+     * This method is used to write snapshot of the application data.
+     * Snapshot is created on calling thread and written to file in background.
+     *
+     * @param espApp Application which has nodes, groups and schedules.
+     */
+    public void save(EspApplication espApp) {
+
+        final long startTime = System.currentTimeMillis();
+        EspRmakerSnapshot.FleetSnapshot.Builder snapshot = EspRmakerSnapshot.FleetSnapshot.newBuilder()
+                .setVersion(AppConstants.SNAPSHOT_VERSION)
+                .setTimestamp(startTime);
+
+        for (EspNode node : espApp.nodeMap.values()) {
+            snapshot.addNodes(toNodeState(node));
+        }
+
+        for (Group group : espApp.groupMap.values()) {
+            EspRmakerSnapshot.GroupState.Builder groupState = EspRmakerSnapshot.GroupState.newBuilder()
+                    .setGroupId(nonNull(group.getGroupId()))
+                    .setName(nonNull(group.getGroupName()));
+            if (group.getNodeList() != null) {
+                groupState.addAllNodeIds(group.getNodeList());
+            }
+            snapshot.addGroups(groupState);
+        }
+
+        for (Schedule schedule : espApp.scheduleMap.values()) {
+            snapshot.addSchedules(toScheduleState(schedule));
+        }
+
+        final byte[] payload = snapshot.build().toByteArray();
+
+        writeExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                write(payload);
+                Log.d(TAG, "Snapshot of " + payload.length + " bytes written in " + (System.currentTimeMillis() - startTime) + " ms");
+            }
+        });
+    }
+
+    /**
+     * This method is used to load nodes, groups and schedules from snapshot.
+     * Maps are changed only if snapshot is valid.
+     *
+     * @param espApp Application in which data is loaded.
+     * @return Returns true if snapshot is loaded, false if snapshot is not available or it is not valid.
+     */
+    public boolean load(EspApplication espApp) {
+
+        long startTime = System.currentTimeMillis();
+        EspRmakerSnapshot.FleetSnapshot snapshot;
+
+        try {
+            // Restores previous snapshot if last write was not completed.
+            snapshotFile.openRead().close();
+        } catch (FileNotFoundException e) {
+            return false;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to open snapshot : " + e.getMessage());
+            return false;
+        }
+
+        try {
+            snapshot = read(snapshotFile.getBaseFile());
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read snapshot : " + e.getMessage());
+            snapshot = null;
+        }
+
+        if (snapshot == null) {
+            delete();
+            return false;
+        }
+
+        HashMap<String, EspNode> nodeMap = new HashMap<>();
+
+        for (EspRmakerSnapshot.NodeState nodeState : snapshot.getNodesList()) {
+            EspNode node = toNode(nodeState);
+            nodeMap.put(node.getNodeId(), node);
+        }
+
+        espApp.nodeMap.putAll(nodeMap);
+
+        for (EspRmakerSnapshot.GroupState groupState : snapshot.getGroupsList()) {
+            Group group = new Group(groupState.getName());
+            group.setGroupId(groupState.getGroupId());
+            group.setNodeList(new ArrayList<>(groupState.getNodeIdsList()));
+            espApp.groupMap.put(group.getGroupId(), group);
+        }
+
+        for (EspRmakerSnapshot.ScheduleState scheduleState : snapshot.getSchedulesList()) {
+            Schedule schedule = toSchedule(scheduleState);
+            // Schedules are kept by id, same as ScheduleParser.
+            espApp.scheduleMap.put(schedule.getId(), schedule);
+        }
+
+        Log.d(TAG, "Snapshot of " + nodeMap.size() + " nodes loaded in " + (System.currentTimeMillis() - startTime) + " ms");
+        return true;
+    }
+
+    /**
+     * This method is used to delete snapshot. It should be called when user is changed.
+     */
+    public void delete() {
+        writeExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                snapshotFile.delete();
+            }
+        });
+    }
+
+    private void write(byte[] payload) {
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(AppConstants.SNAPSHOT_VERSION);
+        header.putInt(payload.length);
+        header.putLong(crc.getValue());
+
+        FileOutputStream outputStream = null;
+
+        try {
+            outputStream = snapshotFile.startWrite();
+            outputStream.write(header.array());
+            outputStream.write(payload);
+            // Synced and renamed by finishWrite, so partially written file is never read.
+            snapshotFile.finishWrite(outputStream);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write snapshot : " + e.getMessage());
+            if (outputStream != null) {
+                snapshotFile.failWrite(outputStream);
+            }
+        }
+    }
+
+    /**
+     * This method is used to read and validate snapshot file.
+     *
+     * @return Snapshot or null if file is not valid.
+     */
+    private EspRmakerSnapshot.FleetSnapshot read(File file) throws IOException {
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+
+            if (channel.size() < HEADER_SIZE) {
+                Log.e(TAG, "Snapshot is truncated");
+                return null;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            int length = buffer.getInt();
+            long crcValue = buffer.getLong();
+
+            if (magic != MAGIC || version != AppConstants.SNAPSHOT_VERSION) {
+                Log.e(TAG, "Snapshot version " + version + " is not supported");
+                return null;
+            }
+
+            if (length < 0 || length != buffer.remaining()) {
+                Log.e(TAG, "Snapshot is truncated");
+                return null;
+            }
+
+            ByteBuffer payload = buffer.slice();
+
+            if (getCrc(payload.duplicate()) != crcValue) {
+                Log.e(TAG, "Snapshot is corrupted");
+                return null;
+            }
+
+            try {
+                return EspRmakerSnapshot.FleetSnapshot.parseFrom(CodedInputStream.newInstance(payload));
+            } catch (InvalidProtocolBufferException e) {
+                Log.e(TAG, "Snapshot is corrupted : " + e.getMessage());
+                return null;
+            }
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static long getCrc(ByteBuffer buffer) {
+
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[Math.min(CRC_CHUNK_SIZE, buffer.remaining())];
+
+        while (buffer.hasRemaining()) {
+            int size = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, size);
+            crc.update(chunk, 0, size);
+        }
+        return crc.getValue();
+    }
+
+    private static EspRmakerSnapshot.NodeState toNodeState(EspNode node) {
+
+        EspRmakerSnapshot.NodeState.Builder nodeState = EspRmakerSnapshot.NodeState.newBuilder()
+                .setNodeId(node.getNodeId())
+                .setUserRole(nonNull(node.getUserRole()))
+                .setConfigVersion(nonNull(node.getConfigVersion()))
+                .setName(nonNull(node.getNodeName()))
+                .setFwVersion(nonNull(node.getFwVersion()))
+                .setType(nonNull(node.getNodeType()))
+                .setOnline(node.isOnline())
+                .setStatusTimestamp(node.getTimeStampOfStatus())
+                .setConfigData(nonNull(node.getConfigData()))
+                .setParamData(nonNull(node.getParamData()))
+                .setScheduleData(nonNull(node.getScheduleData()));
+
+        if (node.getDevices() != null) {
+            for (Device device : node.getDevices()) {
+                nodeState.addDevices(toDeviceState(device));
+            }
+        }
+
+        if (node.getServices() != null) {
+            for (Service service : node.getServices()) {
+                EspRmakerSnapshot.ServiceState.Builder serviceState = EspRmakerSnapshot.ServiceState.newBuilder()
+                        .setName(nonNull(service.getName()))
+                        .setType(nonNull(service.getType()));
+                if (service.getParams() != null) {
+                    for (Param param : service.getParams()) {
+                        serviceState.addParams(toParamState(param));
+                    }
+                }
+                nodeState.addServices(serviceState);
+            }
+        }
+
+        if (node.getAttributes() != null) {
+            for (Param param : node.getAttributes()) {
+                nodeState.addAttributes(toParamState(param));
+            }
+        }
+        return nodeState.build();
+    }
+
+    private static EspRmakerSnapshot.DeviceState toDeviceState(Device device) {
+
+        EspRmakerSnapshot.DeviceState.Builder deviceState = EspRmakerSnapshot.DeviceState.newBuilder()
+                .setName(nonNull(device.getDeviceName()))
+                .setUserVisibleName(nonNull(device.getUserVisibleName()))
+                .setType(nonNull(device.getDeviceType()))
+                .setPrimaryParam(nonNull(device.getPrimaryParamName()))
+                .setSelectedState(device.getSelectedState());
+
+        if (device.getParams() != null) {
+            for (Param param : device.getParams()) {
+                deviceState.addParams(toParamState(param));
+            }
+        }
+        return deviceState.build();
+    }
+
+    private static EspRmakerSnapshot.ParamState toParamState(Param param) {
+
+        EspRmakerSnapshot.ParamState.Builder paramState = EspRmakerSnapshot.ParamState.newBuilder()
+                .setName(nonNull(param.getName()))
+                .setParamType(nonNull(param.getParamType()))
+                .setDataType(nonNull(param.getDataType()))
+                .setUiType(nonNull(param.getUiType()))
+                .setMinBounds(param.getMinBounds())
+                .setMaxBounds(param.getMaxBounds())
+                .setStepCount(param.getStepCount())
+                .setDynamic(param.isDynamicParam())
+                .setValue(param.getValue())
+                .setSwitchStatus(param.getSwitchStatus())
+                .setLabelValue(nonNull(param.getLabelValue()))
+                .setSelected(param.isSelected());
+
+        if (param.getProperties() != null) {
+            paramState.addAllProperties(param.getProperties());
+        }
+
+        if (param.getValidStrings() != null) {
+            paramState.addAllValidStrings(param.getValidStrings());
+        }
+        return paramState.build();
+    }
+
+    private static EspRmakerSnapshot.ScheduleState toScheduleState(Schedule schedule) {
+
+        EspRmakerSnapshot.ScheduleState.Builder scheduleState = EspRmakerSnapshot.ScheduleState.newBuilder()
+                .setId(nonNull(schedule.getId()))
+                .setName(nonNull(schedule.getName()))
+                .setEnabled(schedule.isEnabled());
+
+        if (schedule.getActions() != null) {
+            for (Action action : schedule.getActions()) {
+                scheduleState.addActions(EspRmakerSnapshot.ScheduleAction.newBuilder()
+                        .setNodeId(nonNull(action.getNodeId()))
+                        .setDevice(toDeviceState(action.getDevice())));
+            }
+        }
+
+        if (schedule.getTriggers() != null) {
+            for (Map.Entry<String, Integer> trigger : schedule.getTriggers().entrySet()) {
+                scheduleState.addTriggers(EspRmakerSnapshot.ScheduleTrigger.newBuilder()
+                        .setKey(trigger.getKey())
+                        .setValue(trigger.getValue()));
+            }
+        }
+        return scheduleState.build();
+    }
+
+    private static EspNode toNode(EspRmakerSnapshot.NodeState nodeState) {
+
+        EspNode node = new EspNode(nodeState.getNodeId());
+        node.setUserRole(nodeState.getUserRole());
+        node.setConfigVersion(nodeState.getConfigVersion());
+        node.setNodeName(nodeState.getName());
+        node.setFwVersion(nodeState.getFwVersion());
+        node.setNodeType(nodeState.getType());
+        node.setOnline(nodeState.getOnline());
+        node.setTimeStampOfStatus(nodeState.getStatusTimestamp());
+        node.setConfigData(nullIfEmpty(nodeState.getConfigData()));
+        node.setParamData(nullIfEmpty(nodeState.getParamData()));
+        node.setScheduleData(nullIfEmpty(nodeState.getScheduleData()));
+
+        ArrayList<Device> devices = new ArrayList<>();
+        for (EspRmakerSnapshot.DeviceState deviceState : nodeState.getDevicesList()) {
+            devices.add(toDevice(node.getNodeId(), deviceState));
+        }
+        node.setDevices(devices);
+
+        ArrayList<Service> services = new ArrayList<>();
+        for (EspRmakerSnapshot.ServiceState serviceState : nodeState.getServicesList()) {
+            Service service = new Service(node.getNodeId());
+            service.setName(serviceState.getName());
+            service.setType(serviceState.getType());
+            service.setParams(toParams(serviceState.getParamsList()));
+            services.add(service);
+        }
+        node.setServices(services);
+
+        node.setAttributes(toParams(nodeState.getAttributesList()));
+        return node;
+    }
+
+    private static Device toDevice(String nodeId, EspRmakerSnapshot.DeviceState deviceState) {
+
+        Device device = new Device(nodeId);
+        device.setDeviceName(deviceState.getName());
+        device.setUserVisibleName(deviceState.getUserVisibleName());
+        device.setDeviceType(deviceState.getType());
+        device.setPrimaryParamName(deviceState.getPrimaryParam());
+        device.setParams(toParams(deviceState.getParamsList()));
+        device.setSelectedState(deviceState.getSelectedState());
+        return device;
+    }
+
+    private static ArrayList<Param> toParams(List<EspRmakerSnapshot.ParamState> paramStates) {
+
+        ArrayList<Param> params = new ArrayList<>();
+
+        for (EspRmakerSnapshot.ParamState paramState : paramStates) {
+            Param param = new Param();
+            param.setName(paramState.getName());
+            param.setParamType(paramState.getParamType());
+            param.setDataType(paramState.getDataType());
+            param.setUiType(paramState.getUiType());
+            param.setProperties(new ArrayList<>(paramState.getPropertiesList()));
+            param.setMinBounds(paramState.getMinBounds());
+            param.setMaxBounds(paramState.getMaxBounds());
+            param.setStepCount(paramState.getStepCount());
+            param.setValidStrings(new ArrayList<>(paramState.getValidStringsList()));
+            param.setDynamicParam(paramState.getDynamic());
+            param.setValue(paramState.getValue());
+            param.setSwitchStatus(paramState.getSwitchStatus());
+            param.setLabelValue(paramState.getLabelValue());
+            param.setSelected(paramState.getSelected());
+            params.add(param);
+        }
+        return params;
+    }
+
+    private static Schedule toSchedule(EspRmakerSnapshot.ScheduleState scheduleState) {
+
+        Schedule schedule = new Schedule();
+        schedule.setId(scheduleState.getId());
+        schedule.setName(scheduleState.getName());
+        schedule.setEnabled(scheduleState.getEnabled());
+
+        ArrayList<Action> actions = new ArrayList<>();
+        for (EspRmakerSnapshot.ScheduleAction actionState : scheduleState.getActionsList()) {
+            Action action = new Action();
+            action.setNodeId(actionState.getNodeId());
+            action.setDevice(toDevice(actionState.getNodeId(), actionState.getDevice()));
+            actions.add(action);
+        }
+        schedule.setActions(actions);
+
+        HashMap<String, Integer> triggers = new HashMap<>();
+        for (EspRmakerSnapshot.ScheduleTrigger trigger : scheduleState.getTriggersList()) {
+            triggers.put(trigger.getKey(), trigger.getValue());
+        }
+        schedule.setTriggers(triggers);
+        return schedule;
+    }
+
+    private static String nonNull(String value) {
+        return (value == null) ? "" : value;
+    }
+
+    private static String nullIfEmpty(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
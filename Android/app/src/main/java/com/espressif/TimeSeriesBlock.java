@@ -0,0 +1,258 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.espressif;
+
+import com.espressif.ui.models.TimeSeries;
+
+import java.util.Arrays;
+
+/**
+ * This class is used to compress samples of one param in a block.
+ * Timestamps are stored in seconds as delta of delta and values are stored as XOR with previous value,
+ * so samples taken at regular interval with slowly changing values take few bits.
+ * First sample is stored as 64 bit time and 64 bit value.
+ */
+public class TimeSeriesBlock {
+
+    // Number of bits of delta of delta values for each prefix ('10', '110', '1110', '1111').
+    private static final int[] DOD_BITS = {7, 9, 12, 32};
+
+    private final long startTime;
+    private long endTime;
+    private int count;
+
+    private long prevDelta;
+    private long prevValue;
+    private int prevLeading = -1;
+    private int prevTrailing;
+
+    private byte[] buffer = new byte[64];
+    private int bitCount;
+
+    /**
+     * @param startTime Time of first sample in seconds.
+     */
+    public TimeSeriesBlock(long startTime) {
+        this.startTime = startTime;
+        this.endTime = startTime;
+    }
+
+    /**
+     * This method is used to add sample at the end of the block.
+     * Time should not be less than time of last sample and difference should fit in 31 bits.
+     *
+     * @param time  Time in seconds.
+     * @param value Value of the param.
+     */
+    public void append(long time, double value) {
+
+        long valueBits = Double.doubleToLongBits(value);
+
+        if (count == 0) {
+            writeBits(time, 64);
+            writeBits(valueBits, 64);
+            endTime = time;
+            prevValue = valueBits;
+            count++;
+            return;
+        }
+
+        long delta = time - endTime;
+        writeDeltaOfDelta(delta - prevDelta);
+        writeXor(valueBits ^ prevValue);
+
+        prevDelta = delta;
+        prevValue = valueBits;
+        endTime = time;
+        count++;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getLastValue() {
+        return Double.longBitsToDouble(prevValue);
+    }
+
+    /**
+     * This method is used to get encoded samples.
+     *
+     * @return Copy of encoded data.
+     */
+    public byte[] getData() {
+        return Arrays.copyOf(buffer, (bitCount + 7) / 8);
+    }
+
+    private void writeDeltaOfDelta(long dod) {
+
+        if (dod == 0) {
+            writeBits(0, 1);
+            return;
+        }
+
+        for (int i = 0; i < DOD_BITS.length; i++) {
+
+            int bits = DOD_BITS[i];
+            long min = -(1L << (bits - 1));
+            long max = (1L << (bits - 1)) - 1;
+
+            if ((dod >= min && dod <= max) || i == DOD_BITS.length - 1) {
+                // Prefix is i + 1 one bits, followed by zero bit except for the last prefix.
+                writeBits((1L << (i + 1)) - 1, i + 1);
+                if (i < DOD_BITS.length - 1) {
+                    writeBits(0, 1);
+                }
+                writeBits(dod, bits);
+                return;
+            }
+        }
+    }
+
+    private void writeXor(long xor) {
+
+        if (xor == 0) {
+            writeBits(0, 1);
+            return;
+        }
+
+        writeBits(1, 1);
+        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailing = Long.numberOfTrailingZeros(xor);
+
+        if (prevLeading != -1 && leading >= prevLeading && trailing >= prevTrailing) {
+            // Meaningful bits are within the window of previous value.
+            writeBits(0, 1);
+            writeBits(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+        } else {
+            int significant = 64 - leading - trailing;
+            writeBits(1, 1);
+            writeBits(leading, 5);
+            writeBits(significant - 1, 6);
+            writeBits(xor >>> trailing, significant);
+            prevLeading = leading;
+            prevTrailing = trailing;
+        }
+    }
+
+    private void writeBits(long value, int bits) {
+
+        if (bitCount + bits > buffer.length * 8) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, (bitCount + bits + 7) / 8));
+        }
+
+        for (int i = bits - 1; i >= 0; i--) {
+            if (((value >>> i) & 1) != 0) {
+                buffer[bitCount >>> 3] |= (byte) (0x80 >>> (bitCount & 7));
+            }
+            bitCount++;
+        }
+    }
+
+    /**
+     * This method is used to decode samples of a block and add samples which are in given time range.
+     *
+     * @param data   Encoded data of the block.
+     * @param count  Number of samples in the block.
+     * @param from   Start of the range in seconds.
+     * @param to     End of the range in seconds.
+     * @param series Series in which samples are added, with time in milliseconds.
+     */
+    public static void decode(byte[] data, int count, long from, long to, TimeSeries series) {
+
+        BitReader reader = new BitReader(data);
+        long time = 0;
+        long delta = 0;
+        long value = 0;
+        int leading = 0;
+        int trailing = 0;
+
+        for (int i = 0; i < count; i++) {
+
+            if (i == 0) {
+                time = reader.readBits(64);
+                value = reader.readBits(64);
+            } else {
+                delta += readDeltaOfDelta(reader);
+                time += delta;
+
+                if (reader.readBits(1) != 0) {
+                    if (reader.readBits(1) != 0) {
+                        leading = (int) reader.readBits(5);
+                        int significant = (int) reader.readBits(6) + 1;
+                        trailing = 64 - leading - significant;
+                    }
+                    value ^= reader.readBits(64 - leading - trailing) << trailing;
+                }
+            }
+
+            if (time > to) {
+                return;
+            }
+
+            if (time >= from) {
+                series.add(time * 1000, Double.longBitsToDouble(value));
+            }
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader reader) {
+
+        int prefix = 0;
+
+        while (prefix < DOD_BITS.length && reader.readBits(1) != 0) {
+            prefix++;
+        }
+
+        if (prefix == 0) {
+            return 0;
+        }
+
+        int bits = DOD_BITS[prefix - 1];
+        long dod = reader.readBits(bits);
+
+        // Sign extension.
+        return (dod << (64 - bits)) >> (64 - bits);
+    }
+
+    private static class BitReader {
+
+        private final byte[] data;
+        private int position;
+
+        private BitReader(byte[] data) {
+            this.data = data;
+        }
+
+        private long readBits(int bits) {
+
+            long value = 0;
+
+            for (int i = 0; i < bits; i++) {
+                int bit = (data[position >>> 3] >>> (7 - (position & 7))) & 1;
+                value = (value << 1) | bit;
+                position++;
+            }
+            return value;
+        }
+    }
+}
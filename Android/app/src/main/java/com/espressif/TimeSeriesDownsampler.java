@@ -0,0 +1,90 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.espressif;
+
+import com.espressif.ui.models.TimeSeries;
+
+/**
+ * This class is used to reduce number of samples displayed in charts.
+ * Largest-Triangle-Three-Buckets keeps the samples which form largest triangles with neighbouring buckets,
+ * so peaks and shape of the series are kept.
+ */
+public class TimeSeriesDownsampler {
+
+    /**
+     * This method is used to downsample series with Largest-Triangle-Three-Buckets algorithm.
+     * First and last samples are always kept.
+     *
+     * @param series    Series ordered by time.
+     * @param maxPoints Max number of samples in result.
+     * @return Downsampled series, same series if it has less samples.
+     */
+    public static TimeSeries downsample(TimeSeries series, int maxPoints) {
+
+        int size = series.size();
+
+        if (maxPoints >= size || maxPoints < 3) {
+            return series;
+        }
+
+        TimeSeries sampled = new TimeSeries(maxPoints);
+        // Times are relative to first sample to keep precision.
+        long startTime = series.getTimestamp(0);
+        double bucketSize = (double) (size - 2) / (maxPoints - 2);
+        int selected = 0;
+
+        sampled.add(series.getTimestamp(0), series.getValue(0));
+
+        for (int i = 0; i < maxPoints - 2; i++) {
+
+            // Average of next bucket.
+            int nextStart = (int) Math.floor((i + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) Math.floor((i + 2) * bucketSize) + 1, size);
+            double avgTime = 0;
+            double avgValue = 0;
+
+            for (int j = nextStart; j < nextEnd; j++) {
+                avgTime += series.getTimestamp(j) - startTime;
+                avgValue += series.getValue(j);
+            }
+            avgTime /= (nextEnd - nextStart);
+            avgValue /= (nextEnd - nextStart);
+
+            // Sample of current bucket which forms largest triangle with selected sample and next average.
+            int start = (int) Math.floor(i * bucketSize) + 1;
+            int end = (int) Math.floor((i + 1) * bucketSize) + 1;
+            double selectedTime = series.getTimestamp(selected) - startTime;
+            double selectedValue = series.getValue(selected);
+            double maxArea = -1;
+            int next = start;
+
+            for (int j = start; j < end; j++) {
+
+                double area = Math.abs((selectedTime - avgTime) * (series.getValue(j) - selectedValue)
+                        - (selectedTime - (series.getTimestamp(j) - startTime)) * (avgValue - selectedValue));
+
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+
+            sampled.add(series.getTimestamp(next), series.getValue(next));
+            selected = next;
+        }
+
+        sampled.add(series.getTimestamp(size - 1), series.getValue(size - 1));
+        return sampled;
+    }
+}
@@ -20,6 +20,7 @@ import com.espressif.AppConstants;
 import com.espressif.rainmaker.BuildConfig;
 import com.espressif.rainmaker.R;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.GeneralSecurityException;
@@ -38,6 +39,7 @@ import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
 
+import okhttp3.Cache;
 import okhttp3.OkHttpClient;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
@@ -49,6 +51,8 @@ import retrofit2.converter.gson.GsonConverterFactory;
 public class ApiClient {
 
     private static Retrofit retrofitClient = null;
+    private static Cache httpCache = null;
+    private static RetryInterceptor retryInterceptor = new RetryInterceptor();
 
     static Retrofit getClient(Context context) {
 
@@ -74,6 +78,11 @@ public class ApiClient {
             }
         }
 
+        if (httpCache == null) {
+            httpCache = new Cache(new File(context.getCacheDir(), AppConstants.HTTP_CACHE_DIR), AppConstants.HTTP_CACHE_SIZE);
+        }
+        CacheInterceptor cacheInterceptor = new CacheInterceptor();
+
         // creating a KeyStore containing our trusted CAs
         String keyStoreType = KeyStore.getDefaultType();
         KeyStore keyStore = null;
@@ -100,7 +109,14 @@ public class ApiClient {
                     .connectTimeout(15, TimeUnit.SECONDS)
                     .writeTimeout(15, TimeUnit.SECONDS)
                     .readTimeout(15, TimeUnit.SECONDS)
+                    .cache(httpCache)
+                    .addInterceptor(retryInterceptor)
+                    .addInterceptor(authAuthenticator)
+                    .addInterceptor(cacheInterceptor.getAppInterceptor())
+                    .addNetworkInterceptor(cacheInterceptor.getNetworkInterceptor())
+                    .addNetworkInterceptor(ServerClock.getInterceptor())
                     .build();
+            cacheInterceptor.setClient(okHttpClient);
 
         } catch (KeyStoreException e) {
             e.printStackTrace();
@@ -124,6 +140,20 @@ public class ApiClient {
         return retrofitClient;
     }
 
+    /**
+     * This method is used to remove all cached responses. It should be called when user is changed.
+     */
+    static void clearCache() {
+
+        if (httpCache != null) {
+            try {
+                httpCache.evictAll();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     private static X509TrustManager systemDefaultTrustManager() {
 
         try {
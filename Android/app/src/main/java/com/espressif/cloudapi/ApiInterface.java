@@ -15,6 +15,7 @@
 package com.espressif.cloudapi;
 
 import com.espressif.AppConstants;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
 import java.util.HashMap;
@@ -28,9 +29,11 @@ import retrofit2.http.Field;
 import retrofit2.http.FormUrlEncoded;
 import retrofit2.http.GET;
 import retrofit2.http.Header;
+import retrofit2.http.Headers;
 import retrofit2.http.POST;
 import retrofit2.http.PUT;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 import retrofit2.http.Url;
 
 /**
@@ -67,6 +70,8 @@ public interface ApiInterface {
 
     // Get Supported Versions
     @GET
+    @Headers({AppConstants.HEADER_CACHE_POLICY + ": " + AppConstants.CACHE_POLICY_STALE_WHILE_REVALIDATE,
+            AppConstants.HEADER_RETRY_POLICY + ": " + AppConstants.RETRY_POLICY_READ})
     Call<ResponseBody> getSupportedVersions(@Url String url);
 
     // Do login (for GitHub / Google login)
@@ -75,10 +80,22 @@ public interface ApiInterface {
 
     // Get Nodes
     @GET
-    Call<ResponseBody> getNodes(@Url String url, @Header(AppConstants.HEADER_AUTHORIZATION) String token, @Query(AppConstants.KEY_START_ID) String startId);
+    @Streaming
+    @Headers({AppConstants.HEADER_CACHE_POLICY + ": " + AppConstants.CACHE_POLICY_REVALIDATE,
+            AppConstants.HEADER_RETRY_POLICY + ": " + AppConstants.RETRY_POLICY_READ})
+    Call<ResponseBody> getNodes(@Url String url, @Header(AppConstants.HEADER_AUTHORIZATION) String token,
+                                @Query(AppConstants.KEY_START_ID) String startId, @Query(AppConstants.KEY_NUM_RECORDS) Integer numRecords);
+
+    // Get params / status of all nodes
+    @GET
+    @Streaming
+    @Headers(AppConstants.HEADER_RETRY_POLICY + ": " + AppConstants.RETRY_POLICY_READ)
+    Call<ResponseBody> getNodesDetails(@Url String url, @Header(AppConstants.HEADER_AUTHORIZATION) String token,
+                                       @Query(AppConstants.KEY_START_ID) String startId, @Query(AppConstants.KEY_NUM_RECORDS) Integer numRecords);
 
     // Get Node Details
     @GET
+    @Headers(AppConstants.HEADER_RETRY_POLICY + ": " + AppConstants.RETRY_POLICY_READ)
     Call<ResponseBody> getNode(@Url String url, @Header(AppConstants.HEADER_AUTHORIZATION) String token, @Query(AppConstants.KEY_NODE_ID) String nodeId);
 
     // Get Node Status
@@ -92,17 +109,34 @@ public interface ApiInterface {
 
     // Get Add Node request status
     @GET
+    @Headers(AppConstants.HEADER_RETRY_POLICY + ": " + AppConstants.RETRY_POLICY_READ)
     Call<ResponseBody> getAddNodeRequestStatus(@Url String url, @Header(AppConstants.HEADER_AUTHORIZATION) String token,
                                                @Query(AppConstants.KEY_REQ_ID) String requestId, @Query(AppConstants.KEY_USER_REQUEST) boolean userReq);
 
     // Get param values
     @GET
+    @Headers(AppConstants.HEADER_RETRY_POLICY + ": " + AppConstants.RETRY_POLICY_READ)
     Call<ResponseBody> getParamValue(@Url String url, @Header(AppConstants.HEADER_AUTHORIZATION) String token, @Query(AppConstants.KEY_NODE_ID) String nodeId);
 
     // Update param value
     @PUT
+    @Headers(AppConstants.HEADER_RETRY_POLICY + ": " + AppConstants.RETRY_POLICY_WRITE)
     Call<ResponseBody> updateParamValue(@Url String url, @Header(AppConstants.HEADER_AUTHORIZATION) String token, @Query(AppConstants.KEY_NODE_ID) String nodeId, @Body JsonObject body);
 
+    // Update param values of multiple nodes
+    @PUT
+    @Headers(AppConstants.HEADER_RETRY_POLICY + ": " + AppConstants.RETRY_POLICY_WRITE)
+    Call<ResponseBody> updateParamValues(@Url String url, @Header(AppConstants.HEADER_AUTHORIZATION) String token, @Body JsonArray body);
+
+    // Get time series data of the param
+    @GET
+    @Streaming
+    @Headers(AppConstants.HEADER_RETRY_POLICY + ": " + AppConstants.RETRY_POLICY_READ)
+    Call<ResponseBody> getTimeSeriesData(@Url String url, @Header(AppConstants.HEADER_AUTHORIZATION) String token,
+                                         @Query(AppConstants.KEY_NODE_ID) String nodeId, @Query(AppConstants.KEY_PARAM_NAME) String paramName,
+                                         @Query(AppConstants.KEY_START_TIME) long startTime, @Query(AppConstants.KEY_END_TIME) long endTime,
+                                         @Query(AppConstants.KEY_START_ID) String startId, @Query(AppConstants.KEY_NUM_RECORDS) int numRecords);
+
     // Update schedules
     @PUT
     Observable<ResponseBody> updateSchedules(@Url String url, @Header(AppConstants.HEADER_AUTHORIZATION) String token, @Query(AppConstants.KEY_NODE_ID) String nodeId, @Body JsonObject body);
@@ -139,6 +173,8 @@ public interface ApiInterface {
 
     // Get user group
     @GET
+    @Headers({AppConstants.HEADER_CACHE_POLICY + ": " + AppConstants.CACHE_POLICY_REVALIDATE,
+            AppConstants.HEADER_RETRY_POLICY + ": " + AppConstants.RETRY_POLICY_READ})
     Call<ResponseBody> getUserGroups(@Url String url, @Header(AppConstants.HEADER_AUTHORIZATION) String token,
                                      @Query(AppConstants.KEY_GROUP_ID) String groupId,
                                      @Query(AppConstants.KEY_NODE_LIST) boolean shouldGetNodeList);
@@ -147,6 +183,7 @@ public interface ApiInterface {
 
     // Get sharing requests
     @GET
+    @Headers(AppConstants.HEADER_RETRY_POLICY + ": " + AppConstants.RETRY_POLICY_READ)
     Call<ResponseBody> getSharingRequests(@Url String url, @Header(AppConstants.HEADER_AUTHORIZATION) String token,
                                           @Query(AppConstants.KEY_PRIMARY_USER) boolean isPrimaryUser,
                                           @Query(AppConstants.KEY_START_REQ_ID) String startRequestId,
@@ -168,6 +205,8 @@ public interface ApiInterface {
 
     // Get node sharing information
     @GET
+    @Headers({AppConstants.HEADER_CACHE_POLICY + ": " + AppConstants.CACHE_POLICY_REVALIDATE,
+            AppConstants.HEADER_RETRY_POLICY + ": " + AppConstants.RETRY_POLICY_READ})
     Call<ResponseBody> getNodeSharing(@Url String url, @Header(AppConstants.HEADER_AUTHORIZATION) String token,
                                       @Query(AppConstants.KEY_NODE_ID) String nodeId);
 
@@ -19,6 +19,7 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -28,13 +29,16 @@ import com.auth0.android.jwt.JWT;
 import com.espressif.AppConstants;
 import com.espressif.EspApplication;
 import com.espressif.JsonDataParser;
+import com.espressif.JsonStreamParser;
+import com.espressif.ScheduleParser;
 import com.espressif.db.EspDatabase;
+import com.espressif.db.NodeStorage;
 import com.espressif.rainmaker.BuildConfig;
-import com.espressif.ui.models.Action;
 import com.espressif.ui.models.ApiResponse;
 import com.espressif.ui.models.Device;
 import com.espressif.ui.models.EspNode;
 import com.espressif.ui.models.Group;
+import com.espressif.ui.models.NodeSyncDelta;
 import com.espressif.ui.models.Param;
 import com.espressif.ui.models.Schedule;
 import com.espressif.ui.models.Service;
@@ -49,12 +53,17 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import io.reactivex.Observable;
 import io.reactivex.functions.Consumer;
@@ -70,6 +79,7 @@ public class ApiManager {
     private static final String TAG = ApiManager.class.getSimpleName();
 
     private static final int REQ_STATUS_TIME = 5000;
+    private static final int NODES_PAGE_SIZE = 100;
 
     public static boolean isOAuthLogin;
     public static String userId = "";
@@ -77,6 +87,8 @@ public class ApiManager {
     private static String idToken = "";
     private static String accessToken = "";
     private static String refreshToken = "";
+    private static long tokenExpiryTime; // Expiry time of access token in ms.
+    private static final Object tokenLock = new Object();
     private static HashMap<String, String> requestIds = new HashMap<>(); // Map of node id and request id.
 
     private Context context;
@@ -85,8 +97,11 @@ public class ApiManager {
     private ApiInterface apiInterface;
     private EspDatabase espDatabase;
     private SharedPreferences sharedPreferences;
-    private static ArrayList<String> nodeIds = new ArrayList<>();
-    private static ArrayList<String> scheduleIds = new ArrayList<>();
+    private ExecutorService nodeParserExecutor = Executors.newSingleThreadExecutor();
+    private SingleFlight singleFlight = new SingleFlight();
+    // Node list sync in progress.
+    private NodeListSync nodeListSync;
+    private ExecutorService tokenRefreshExecutor = Executors.newSingleThreadExecutor();
 
     private static ApiManager apiManager;
 
@@ -100,7 +115,7 @@ public class ApiManager {
 
     private ApiManager(Context context) {
         this.context = context;
-        handler = new Handler();
+        handler = new Handler(Looper.getMainLooper());
         espApp = (EspApplication) context.getApplicationContext();
         espDatabase = EspDatabase.getInstance(context);
         apiInterface = ApiClient.getClient(context).create(ApiInterface.class);
@@ -160,7 +175,7 @@ public class ApiManager {
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
                 accessToken = null;
-                listener.onNetworkFailure(new RuntimeException("Failed to login"));
+                processFailure(t, listener, new RuntimeException("Failed to login"));
             }
         });
     }
@@ -215,7 +230,7 @@ public class ApiManager {
                 @Override
                 public void onFailure(Call<ResponseBody> call, Throwable t) {
                     t.printStackTrace();
-                    listener.onNetworkFailure(new Exception(t));
+                    processFailure(t, listener, new Exception(t));
                 }
             });
         } catch (Exception e) {
@@ -258,7 +273,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Failed to create user"));
+                processFailure(t, listener, new RuntimeException("Failed to create user"));
             }
         });
     }
@@ -297,7 +312,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Failed to confirm user"));
+                processFailure(t, listener, new RuntimeException("Failed to confirm user"));
             }
         });
     }
@@ -335,7 +350,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Failed to send forgot password request"));
+                processFailure(t, listener, new RuntimeException("Failed to send forgot password request"));
             }
         });
     }
@@ -375,7 +390,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Failed to reset password request"));
+                processFailure(t, listener, new RuntimeException("Failed to reset password request"));
             }
         });
     }
@@ -414,7 +429,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Failed to change password"));
+                processFailure(t, listener, new RuntimeException("Failed to change password"));
             }
         });
     }
@@ -450,17 +465,92 @@ public class ApiManager {
                 editor.apply();
             }
 
+            Date expiresAt = null;
             try {
                 jwt = new JWT(accessToken);
+                expiresAt = jwt.getExpiresAt();
             } catch (DecodeException e) {
                 e.printStackTrace();
             }
-            Date expiresAt = jwt.getExpiresAt();
+            tokenExpiryTime = (expiresAt != null) ? expiresAt.getTime() : 0;
             Log.e(TAG, "==============>>>>>>>>>>> USER ID : " + userId);
             Log.e(TAG, "Token expires At : " + expiresAt);
+            scheduleTokenRefresh();
         }
     }
 
+    /**
+     * This method is used to check whether access token is expired or will expire within
+     * {@link AppConstants#TOKEN_REFRESH_MARGIN}.
+     *
+     * @return True if token should be refreshed before using it.
+     */
+    public boolean isTokenExpiring() {
+        return tokenExpiryTime > 0
+                && System.currentTimeMillis() >= tokenExpiryTime - AppConstants.TOKEN_REFRESH_MARGIN;
+    }
+
+    /**
+     * This method is used to refresh access token. Only one refresh is done at a time.
+     * Callers waiting for refresh get the token received by the running refresh.
+     *
+     * @param oldToken Token which is expired or rejected by cloud.
+     * @return New access token or null if refresh is failed.
+     */
+    public String refreshAccessToken(String oldToken) {
+
+        synchronized (tokenLock) {
+
+            if (!TextUtils.isEmpty(accessToken) && !accessToken.equals(oldToken) && !isTokenExpiring()) {
+                Log.d(TAG, "Token is already refreshed");
+                return accessToken;
+            }
+            return getNewToken();
+        }
+    }
+
+    /**
+     * This method is used to schedule refresh of access token before it expires.
+     */
+    private void scheduleTokenRefresh() {
+
+        handler.removeCallbacks(tokenRefreshTask);
+
+        if (tokenExpiryTime <= 0 || TextUtils.isEmpty(refreshToken)) {
+            return;
+        }
+
+        long delay = tokenExpiryTime - AppConstants.TOKEN_REFRESH_MARGIN - System.currentTimeMillis();
+        Log.d(TAG, "Token refresh scheduled after " + Math.max(delay, 0) + " ms");
+        handler.postDelayed(tokenRefreshTask, Math.max(delay, 0));
+    }
+
+    public void cancelTokenRefresh() {
+        handler.removeCallbacks(tokenRefreshTask);
+        tokenExpiryTime = 0;
+    }
+
+    private Runnable tokenRefreshTask = new Runnable() {
+
+        @Override
+        public void run() {
+
+            final String oldToken = accessToken;
+
+            tokenRefreshExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    // On success, next refresh is scheduled when new token is parsed.
+                    if (TextUtils.isEmpty(refreshAccessToken(oldToken))) {
+                        Log.e(TAG, "Failed to refresh token in advance");
+                    }
+                }
+            });
+        }
+    };
+
     public String getNewToken() {
         String newAccToken = "";
         Log.d(TAG, "Getting new access token ");
@@ -559,6 +649,27 @@ public class ApiManager {
         }
     }
 
+    /**
+     * This method is used to remove cached responses of cloud APIs.
+     */
+    public void clearCache() {
+        ApiClient.clearCache();
+    }
+
+    /**
+     * This method is used to forget requests in flight of previous user on logout / login,
+     * so that requests of new user are not merged with them and node list of previous user is not published.
+     */
+    public void clearInFlightRequests() {
+
+        singleFlight.clear();
+
+        if (nodeListSync != null) {
+            nodeListSync.cancel();
+            nodeListSync = null;
+        }
+    }
+
     public void logout(final ApiResponseListener listener) {
 
         Log.d(TAG, "Logout...");
@@ -588,7 +699,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Failed to logout user"));
+                processFailure(t, listener, new RuntimeException("Failed to logout user"));
             }
         });
     }
@@ -658,28 +769,47 @@ public class ApiManager {
                     public void onFailure(Call<ResponseBody> call, Throwable t) {
                         Log.e(TAG, "Error in receiving Supported Versions");
                         t.printStackTrace();
-                        listener.onNetworkFailure(new Exception(t));
+                        processFailure(t, listener, new Exception(t));
                     }
                 });
     }
 
     /**
      * This method is used to get all nodes for the user.
+     * Node list is always revalidated with cloud, caller joining the sync in flight gets its revalidated result.
      *
      * @param listener Listener to send success or failure.
      */
     public void getNodes(final ApiResponseListener listener) {
 
         Log.d(TAG, "Get Nodes");
-        nodeIds.clear();
-        scheduleIds.clear();
-        getNodesFromCloud("", listener);
+        // Cache policy is part of the key, so that request allowed to use stale response is never joined by this one.
+        ApiResponseListener flightListener = singleFlight.join(AppConstants.URL_USER_NODES_DETAILS
+                + AppConstants.CACHE_POLICY_REVALIDATE, listener);
+
+        if (flightListener == null) {
+            // Same request is in flight.
+            return;
+        }
+
+        NodeSyncEngine syncEngine = new NodeSyncEngine(espApp.nodeMap.keySet(), espApp.scheduleMap);
+        nodeListSync = new NodeListSync(flightListener, syncEngine, espApp.nodeMap, espApp.mDNSDeviceMap.keySet());
+        getNodesFromCloud("", NODES_PAGE_SIZE, nodeListSync);
     }
 
-    private void getNodesFromCloud(final String startId, final ApiResponseListener listener) {
+    /**
+     * Fetches one page of the node list. Next page is requested as soon as its start id is known,
+     * so that it is downloaded while the current page is being parsed on the parser thread.
+     * Next page is requested from parser thread, so pages are always parsed in order.
+     *
+     * @param startId    Start id of the page. Empty for first page.
+     * @param numRecords Number of nodes requested in one page. Null to use default page size of the cloud.
+     * @param sync       State of this node list sync.
+     */
+    private void getNodesFromCloud(final String startId, final Integer numRecords, final NodeListSync sync) {
 
         Log.d(TAG, "Get Nodes from cloud with start id : " + startId);
-        apiInterface.getNodes(AppConstants.URL_USER_NODES_DETAILS, accessToken, startId).enqueue(new Callback<ResponseBody>() {
+        apiInterface.getNodes(AppConstants.URL_USER_NODES_DETAILS, accessToken, startId, numRecords).enqueue(new Callback<ResponseBody>() {
 
             @Override
             public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
@@ -692,584 +822,587 @@ public class ApiManager {
 
                         if (response.body() != null) {
 
-                            if (TextUtils.isEmpty(startId)) {
-                                espDatabase.getNodeDao().deleteAll();
-                                Log.d(TAG, "Delete all nodes from local storage.");
-                            }
-
-                            String jsonResponse = response.body().string();
-                            Log.e(TAG, "onResponse Success : " + jsonResponse);
-                            JSONObject jsonObject = new JSONObject(jsonResponse);
-                            JSONArray nodeJsonArray = jsonObject.optJSONArray(AppConstants.KEY_NODE_DETAILS);
-                            HashMap<String, Schedule> scheduleMap = new HashMap<>();
-
-                            if (nodeJsonArray != null) {
-
-                                for (int nodeIndex = 0; nodeIndex < nodeJsonArray.length(); nodeIndex++) {
-
-                                    JSONObject nodeJson = nodeJsonArray.optJSONObject(nodeIndex);
-
-                                    if (nodeJson != null) {
+                            final ResponseBody body = response.body();
+                            final long readTime = ServerClock.getResponseTime(response.headers());
 
-                                        // Node ID
-                                        String nodeId = nodeJson.optString(AppConstants.KEY_ID);
-                                        Log.d(TAG, "Node id : " + nodeId);
-                                        nodeIds.add(nodeId);
-                                        EspNode espNode;
+                            // Response body is streamed, so it is read on node parser thread.
+                            nodeParserExecutor.execute(new Runnable() {
 
-                                        if (espApp.nodeMap.get(nodeId) != null) {
-                                            espNode = espApp.nodeMap.get(nodeId);
-                                        } else {
-                                            espNode = new EspNode(nodeId);
-                                        }
-
-                                        // User role
-                                        String role = nodeJson.optString(AppConstants.KEY_ROLE);
-                                        espNode.setUserRole(role);
-
-                                        // Node Config
-                                        JSONObject configJson = nodeJson.optJSONObject(AppConstants.KEY_CONFIG);
-                                        if (configJson != null) {
+                                @Override
+                                public void run() {
+                                    readNodesPage(body, numRecords, readTime, sync);
+                                }
+                            });
 
-                                            // If node is available on local network then ignore configuration received from cloud.
-                                            if (!espApp.mDNSDeviceMap.containsKey(nodeId)) {
-                                                espNode = JsonDataParser.setNodeConfig(espNode, configJson);
-                                            } else {
-                                                Log.d(TAG, "Ignore config values for local node :" + nodeId);
-                                            }
+                        } else {
+                            Log.e(TAG, "Response received : null");
+                            sync.onResponseFailure(new RuntimeException("Failed to get User device mapping"));
+                        }
 
-                                            espNode.setOnline(true);
-                                            espNode.setConfigData(configJson.toString());
-                                            espApp.nodeMap.put(nodeId, espNode);
-                                        }
+                    } else if (numRecords != null && response.code() == 400) {
+                        // Cloud does not allow this page size, continue with its default page size.
+                        Log.e(TAG, "Page size " + numRecords + " not allowed, retrying with default page size");
+                        getNodesFromCloud(startId, null, sync);
+                    } else {
+                        String jsonErrResponse = response.errorBody().string();
+                        processError(jsonErrResponse, sync, "Failed to get User device mapping");
+                    }
+                } catch (JSONException e) {
+                    e.printStackTrace();
+                    sync.onResponseFailure(e);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    sync.onResponseFailure(e);
+                }
+            }
 
-                                        // Node Params values
-                                        JSONObject paramsJson = nodeJson.optJSONObject(AppConstants.KEY_PARAMS);
-                                        if (paramsJson != null) {
+            @Override
+            public void onFailure(Call<ResponseBody> call, Throwable t) {
+                t.printStackTrace();
+                processFailure(t, sync, new Exception(t));
+            }
+        });
+    }
 
-                                            espNode.setParamData(paramsJson.toString());
-                                            espDatabase.getNodeDao().insertOrUpdate(espNode);
+    /**
+     * This method is used to read one page of node list from the response stream on node parser thread.
+     */
+    private void readNodesPage(ResponseBody body, Integer numRecords, long readTime, NodeListSync sync) {
 
-                                            ArrayList<Device> devices = espNode.getDevices();
-                                            ArrayList<Service> services = espNode.getServices();
-                                            JSONObject scheduleJson = paramsJson.optJSONObject(AppConstants.KEY_SCHEDULE);
-                                            JSONObject timeJson = paramsJson.optJSONObject(AppConstants.KEY_TIME);
+        if (sync.isFinished()) {
+            body.close();
+            return;
+        }
 
-                                            // If node is available on local network then ignore param values received from cloud.
-                                            if (!espApp.mDNSDeviceMap.containsKey(nodeId) && devices != null) {
+        JsonStreamParser.NodesPage page;
 
-                                                for (int i = 0; i < devices.size(); i++) {
+        try {
+            page = JsonStreamParser.readNodesPage(body.charStream());
+        } catch (IOException e) {
+            e.printStackTrace();
+            postSyncFailure(sync, e);
+            return;
+        }
 
-                                                    ArrayList<Param> params = devices.get(i).getParams();
-                                                    String deviceName = devices.get(i).getDeviceName();
-                                                    JSONObject deviceJson = paramsJson.optJSONObject(deviceName);
+        String nextId = page.nextId;
+        boolean isLastPage = TextUtils.isEmpty(nextId);
+        Log.d(TAG, "Received " + page.nodes.size() + " nodes, start next id : " + nextId);
 
-                                                    if (deviceJson != null) {
+        if (!isLastPage) {
+            getNodesFromCloud(nextId, numRecords, sync);
+        }
+        processNodesPage(page, isLastPage, readTime, sync);
+    }
 
-                                                        for (int j = 0; j < params.size(); j++) {
+    /**
+     * This method is used to parse one page of node list and publish its nodes.
+     * It always runs on the node parser thread. Nodes are parsed in maps of this sync and
+     * they are published in app on main thread.
+     */
+    private void processNodesPage(JsonStreamParser.NodesPage page, final boolean isLastPage, final long readTime,
+                                  final NodeListSync sync) {
 
-                                                            Param param = params.get(j);
-                                                            String key = param.getName();
+        if (sync.isFinished()) {
+            return;
+        }
 
-                                                            if (!param.isDynamicParam()) {
-                                                                continue;
-                                                            }
+        final ArrayList<EspNode> pageNodes;
 
-                                                            if (deviceJson.has(key)) {
-                                                                JsonDataParser.setDeviceParamValue(deviceJson, devices.get(i), param);
-                                                            }
-                                                        }
-                                                    } else {
-                                                        Log.e(TAG, "Device JSON is null");
-                                                    }
-                                                }
-                                            } else {
-                                                Log.d(TAG, "Ignore param values for local node :" + nodeId);
-                                            }
+        try {
+            pageNodes = parseNodesPage(page, readTime, sync);
 
-                                            // Schedules
-                                            if (scheduleJson != null) {
+        } catch (JSONException e) {
+            e.printStackTrace();
+            postSyncFailure(sync, e);
+            return;
+        } catch (IOException e) {
+            e.printStackTrace();
+            postSyncFailure(sync, e);
+            return;
+        }
 
-                                                JSONArray scheduleArrayJson = scheduleJson.optJSONArray(AppConstants.KEY_SCHEDULES);
+        if (!isLastPage) {
+            // Display nodes of this page without waiting for remaining pages.
+            final boolean hasNodeChanges = sync.syncEngine.getDelta().hasNodeChanges();
 
-                                                if (scheduleArrayJson != null) {
+            handler.post(new Runnable() {
 
-                                                    for (int index = 0; index < scheduleArrayJson.length(); index++) {
+                @Override
+                public void run() {
+                    if (sync.isFinished()) {
+                        return;
+                    }
+                    publishNodes(pageNodes, readTime);
+                    if (hasNodeChanges) {
+                        EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_NODE_PAGE_UPDATE));
+                    }
+                }
+            });
+            return;
+        }
 
-                                                        JSONObject schJson = scheduleArrayJson.getJSONObject(index);
-                                                        String scheduleId = schJson.optString(AppConstants.KEY_ID);
-                                                        String key = scheduleId;
+        final NodeSyncDelta delta = sync.syncEngine.sweep(sync.nodeMap, sync.scheduleMap);
 
-                                                        if (!TextUtils.isEmpty(scheduleId)) {
+        // Nodes in local storage are updated in place, remove nodes which are not received in this sync.
+        NodeStorage.deleteStaleNodes(espDatabase, sync.generation);
 
-                                                            String name = schJson.optString(AppConstants.KEY_NAME);
-                                                            key = key + "_" + name + "_" + schJson.optBoolean(AppConstants.KEY_ENABLED);
+        handler.post(new Runnable() {
 
-                                                            HashMap<String, Integer> triggers = new HashMap<>();
-                                                            JSONArray triggerArray = schJson.optJSONArray(AppConstants.KEY_TRIGGERS);
-                                                            for (int t = 0; t < triggerArray.length(); t++) {
-                                                                JSONObject triggerJson = triggerArray.optJSONObject(t);
-                                                                int days = triggerJson.optInt(AppConstants.KEY_DAYS);
-                                                                int mins = triggerJson.optInt(AppConstants.KEY_MINUTES);
-                                                                triggers.put(AppConstants.KEY_DAYS, days);
-                                                                triggers.put(AppConstants.KEY_MINUTES, mins);
-                                                                key = key + "_" + days + "_" + mins;
-                                                            }
+            @Override
+            public void run() {
 
-                                                            Schedule schedule = scheduleMap.get(key);
-                                                            if (schedule == null) {
-                                                                schedule = new Schedule();
-                                                            }
+                if (sync.isFinished()) {
+                    return;
+                }
+                publishNodes(pageNodes, readTime);
 
-                                                            schedule.setId(scheduleId);
-                                                            schedule.setName(schJson.optString(AppConstants.KEY_NAME));
-                                                            schedule.setEnabled(schJson.optBoolean(AppConstants.KEY_ENABLED));
+                for (String nodeId : delta.getRemovedNodes()) {
+                    espApp.nodeMap.remove(nodeId);
+                }
+                espApp.scheduleMap = sync.scheduleMap;
 
-                                                            scheduleIds.add(key);
-                                                            schedule.setTriggers(triggers);
-                                                            Log.d(TAG, "=============== Schedule : " + schedule.getName() + " ===============");
+                Bundle data = new Bundle();
+                data.putSerializable(AppConstants.KEY_SYNC_DELTA, delta);
+                sync.onSuccess(data);
+            }
+        });
+    }
 
-                                                            // Actions
-                                                            JSONObject actionsSchJson = schJson.optJSONObject(AppConstants.KEY_ACTION);
+    private void postSyncFailure(final NodeListSync sync, final Exception exception) {
 
-                                                            if (actionsSchJson != null) {
+        handler.post(new Runnable() {
 
-                                                                ArrayList<Action> actions = schedule.getActions();
-                                                                if (actions == null) {
-                                                                    actions = new ArrayList<>();
-                                                                    schedule.setActions(actions);
-                                                                }
+            @Override
+            public void run() {
+                sync.onResponseFailure(exception);
+            }
+        });
+    }
 
-                                                                for (int deviceIndex = 0; deviceIndex < devices.size(); deviceIndex++) {
-
-                                                                    Device d = new Device(devices.get(deviceIndex));
-                                                                    ArrayList<Param> params = d.getParams();
-                                                                    String deviceName = d.getDeviceName();
-                                                                    JSONObject deviceAction = actionsSchJson.optJSONObject(deviceName);
-
-                                                                    if (deviceAction != null) {
-
-                                                                        Action action = null;
-                                                                        Device actionDevice = null;
-                                                                        int actionIndex = -1;
-
-                                                                        for (int aIndex = 0; aIndex < actions.size(); aIndex++) {
-
-                                                                            Action a = actions.get(aIndex);
-                                                                            if (a.getDevice().getNodeId().equals(nodeId) && deviceName.equals(a.getDevice().getDeviceName())) {
-                                                                                action = actions.get(aIndex);
-                                                                                actionIndex = aIndex;
-                                                                            }
-                                                                        }
-
-                                                                        if (action == null) {
-                                                                            action = new Action();
-                                                                            action.setNodeId(nodeId);
-
-                                                                            for (int k = 0; k < devices.size(); k++) {
-
-                                                                                if (devices.get(k).getNodeId().equals(nodeId) && devices.get(k).getDeviceName().equals(deviceName)) {
-                                                                                    actionDevice = new Device(devices.get(k));
-                                                                                    actionDevice.setSelectedState(1);
-                                                                                    break;
-                                                                                }
-                                                                            }
-
-                                                                            if (actionDevice == null) {
-                                                                                actionDevice = new Device(nodeId);
-                                                                            }
-                                                                            action.setDevice(actionDevice);
-                                                                        } else {
-                                                                            actionDevice = action.getDevice();
-                                                                        }
-
-                                                                        ArrayList<Param> actionParams = new ArrayList<>();
-                                                                        if (params != null) {
-
-                                                                            Iterator<Param> iterator = params.iterator();
-                                                                            while (iterator.hasNext()) {
-                                                                                Param p = iterator.next();
-                                                                                actionParams.add(new Param(p));
-                                                                            }
-
-                                                                            Iterator itr = actionParams.iterator();
-
-                                                                            while (itr.hasNext()) {
-
-                                                                                Param p = (Param) itr.next();
-
-                                                                                if (!p.isDynamicParam()) {
-                                                                                    itr.remove();
-                                                                                } else if (p.getParamType() != null && p.getParamType().equals(AppConstants.PARAM_TYPE_NAME)) {
-                                                                                    itr.remove();
-                                                                                } else if (!p.getProperties().contains(AppConstants.KEY_PROPERTY_WRITE)) {
-                                                                                    itr.remove();
-                                                                                }
-                                                                            }
-                                                                        }
-                                                                        actionDevice.setParams(actionParams);
-
-                                                                        for (int paramIndex = 0; paramIndex < actionParams.size(); paramIndex++) {
-
-                                                                            Param p = actionParams.get(paramIndex);
-                                                                            String paramName = p.getName();
-
-                                                                            if (deviceAction.has(paramName)) {
-
-                                                                                p.setSelected(true);
-                                                                                JsonDataParser.setDeviceParamValue(deviceAction, devices.get(deviceIndex), p);
-                                                                            }
-                                                                        }
-
-                                                                        for (int paramIndex = 0; paramIndex < actionParams.size(); paramIndex++) {
-
-                                                                            if (!actionParams.get(paramIndex).isSelected()) {
-                                                                                actionDevice.setSelectedState(2); // Partially selected
-                                                                            }
-                                                                        }
-
-                                                                        if (actionIndex == -1) {
-                                                                            actions.add(action);
-                                                                        } else {
-                                                                            actions.set(actionIndex, action);
-                                                                        }
-                                                                        schedule.setActions(actions);
-
-                                                                    }
-                                                                }
-                                                            }
-                                                            scheduleMap.put(key, schedule);
-                                                        }
-                                                    }
-                                                }
-                                            } else {
-                                                Log.e(TAG, "Schedule JSON is null");
-                                            }
+    private void publishNodes(ArrayList<EspNode> nodes, long readTime) {
+        for (int i = 0; i < nodes.size(); i++) {
+            EspNode espNode = nodes.get(i);
+            keepPendingWrites(espApp.nodeMap.get(espNode.getNodeId()), espNode, readTime);
+            espApp.nodeMap.put(espNode.getNodeId(), espNode);
+        }
+    }
 
-                                            // Timezone
-                                            if (timeJson != null && services != null) {
-                                                for (int serviceIdx = 0; serviceIdx < services.size(); serviceIdx++) {
-                                                    Service service = services.get(serviceIdx);
-                                                    if (AppConstants.SERVICE_TYPE_TIME.equals(service.getType())) {
-                                                        ArrayList<Param> timeParams = service.getParams();
-                                                        if (timeParams != null) {
-                                                            for (int paramIdx = 0; paramIdx < timeParams.size(); paramIdx++) {
-                                                                Param timeParam = timeParams.get(paramIdx);
-                                                                String dataType = timeParam.getDataType();
-                                                                if (!TextUtils.isEmpty(dataType)) {
-                                                                    if (dataType.equalsIgnoreCase("string")) {
-                                                                        timeParam.setLabelValue(timeJson.optString(timeParam.getName()));
-                                                                    }
-                                                                }
-                                                            }
-                                                        }
-                                                    }
-                                                }
-                                            } else {
-                                                Log.e(TAG, "Time JSON is not available");
-                                            }
-                                        }
+    /**
+     * Param values of the node are parsed on node parser thread in copies of displayed params.
+     * This method is used to keep values written by user in displayed params after the values are read.
+     * It runs on main thread, where params are written.
+     */
+    private static void keepPendingWrites(EspNode displayedNode, EspNode node, long readTime) {
 
-                                        // Node Status
-                                        JSONObject statusJson = nodeJson.optJSONObject(AppConstants.KEY_STATUS);
+        if (displayedNode == null || displayedNode == node || displayedNode.getDevices() == null || node.getDevices() == null) {
+            return;
+        }
 
-                                        if (statusJson != null && !espApp.mDNSDeviceMap.containsKey(nodeId)) {
+        HashMap<String, Device> displayedDevices = new HashMap<>();
+        for (Device device : displayedNode.getDevices()) {
+            displayedDevices.put(device.getDeviceName(), device);
+        }
 
-                                            JSONObject connectivityObject = statusJson.optJSONObject(AppConstants.KEY_CONNECTIVITY);
+        for (Device device : node.getDevices()) {
 
-                                            if (connectivityObject != null) {
+            Device displayedDevice = displayedDevices.get(device.getDeviceName());
 
-                                                boolean nodeStatus = connectivityObject.optBoolean(AppConstants.KEY_CONNECTED);
-                                                long timestamp = connectivityObject.optLong(AppConstants.KEY_TIMESTAMP);
-                                                espNode.setTimeStampOfStatus(timestamp);
+            if (displayedDevice == null || displayedDevice.getParams() == null || device.getParams() == null) {
+                continue;
+            }
 
-                                                if (espNode.isOnline() != nodeStatus) {
-                                                    espNode.setOnline(nodeStatus);
-                                                }
-                                            } else {
-                                                Log.e(TAG, "Connectivity object is null");
-                                            }
-                                        }
-                                    }
-                                }
-                            }
+            for (Param displayedParam : displayedDevice.getParams()) {
 
-                            espApp.scheduleMap = scheduleMap;
-                            String nextId = jsonObject.optString(AppConstants.KEY_NEXT_ID);
-                            Log.d(TAG, "Start next id : " + nextId);
+                if (!displayedParam.hasPendingWrite()) {
+                    continue;
+                }
 
-                            if (!TextUtils.isEmpty(nextId)) {
-                                getNodesFromCloud(nextId, listener);
-                            } else {
-                                Iterator<Map.Entry<String, EspNode>> itr = espApp.nodeMap.entrySet().iterator();
+                for (Param param : device.getParams()) {
+                    if (displayedParam.getName().equals(param.getName())) {
+                        param.keepPendingWrite(displayedParam, readTime);
+                        break;
+                    }
+                }
+            }
+        }
+    }
 
-                                // iterate and remove items simultaneously
-                                while (itr.hasNext()) {
+    /**
+     * This method is used to copy devices and services of the node,
+     * so that param values can be updated without changing node which is displayed in app.
+     */
+    private static void copyDevicesAndServices(EspNode espNode) {
 
-                                    Map.Entry<String, EspNode> entry = itr.next();
-                                    String key = entry.getKey();
+        ArrayList<Device> devices = espNode.getDevices();
 
-                                    if (!nodeIds.contains(key)) {
-                                        itr.remove();
-                                    }
-                                }
+        if (devices != null) {
+            ArrayList<Device> deviceCopies = new ArrayList<>();
+            for (int i = 0; i < devices.size(); i++) {
+                Device device = new Device(devices.get(i));
+                device.setParams(copyParams(device.getParams()));
+                deviceCopies.add(device);
+            }
+            espNode.setDevices(deviceCopies);
+        }
 
-                                Iterator<Map.Entry<String, Schedule>> schItr = espApp.scheduleMap.entrySet().iterator();
+        ArrayList<Service> services = espNode.getServices();
 
-                                // iterate and remove items simultaneously
-                                while (schItr.hasNext()) {
+        if (services != null) {
+            ArrayList<Service> serviceCopies = new ArrayList<>();
+            for (int i = 0; i < services.size(); i++) {
+                Service service = services.get(i);
+                Service serviceCopy = new Service(service.getNodeId());
+                serviceCopy.setName(service.getName());
+                serviceCopy.setType(service.getType());
+                serviceCopy.setParams(copyParams(service.getParams()));
+                serviceCopies.add(serviceCopy);
+            }
+            espNode.setServices(serviceCopies);
+        }
+    }
 
-                                    Map.Entry<String, Schedule> entry = schItr.next();
-                                    String key = entry.getKey();
+    private static ArrayList<Param> copyParams(ArrayList<Param> params) {
 
-                                    if (!scheduleIds.contains(key)) {
-                                        schItr.remove();
-                                        Log.e(TAG, "Remove schedule for key : " + key + " and Size : " + espApp.scheduleMap.size());
-                                    }
-                                }
+        if (params == null) {
+            return null;
+        }
+        ArrayList<Param> paramCopies = new ArrayList<>();
+        for (int i = 0; i < params.size(); i++) {
+            paramCopies.add(new Param(params.get(i)));
+        }
+        return paramCopies;
+    }
 
-                                listener.onSuccess(null);
-                            }
+    /**
+     * This method is used to check whether node config received from cloud is different from config of cached node.
+     * Config version is compared first and then content of the config.
+     */
+    private boolean isConfigChanged(EspNode espNode, JsonStreamParser.NodeDetails nodeDetails) {
 
-                        } else {
-                            Log.e(TAG, "Response received : null");
-                            listener.onResponseFailure(new RuntimeException("Failed to get User device mapping"));
-                        }
+        String cachedConfig = espNode.getConfigData();
+        String receivedConfig = nodeDetails.configData;
 
-                    } else {
-                        String jsonErrResponse = response.errorBody().string();
-                        processError(jsonErrResponse, listener, "Failed to get User device mapping");
-                    }
-                } catch (JSONException e) {
-                    e.printStackTrace();
-                    listener.onResponseFailure(e);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    listener.onResponseFailure(e);
-                }
-            }
+        if (cachedConfig == null || receivedConfig == null || espNode.getDevices() == null) {
+            return true;
+        }
 
-            @Override
-            public void onFailure(Call<ResponseBody> call, Throwable t) {
-                t.printStackTrace();
-                listener.onNetworkFailure(new Exception(t));
-            }
-        });
+        if (!TextUtils.equals(espNode.getConfigVersion(), nodeDetails.configVersion)) {
+            return true;
+        }
+        return cachedConfig.hashCode() != receivedConfig.hashCode() || !cachedConfig.equals(receivedConfig);
     }
 
     /**
-     * This method is used to get node details. This is a blocking call.
+     * This method is used to parse one page of node list in nodes of the sync.
+     * Nodes of the app are not changed here, node is copied before its values are updated.
      *
-     * @param nodeId Node id.
+     * @return Nodes of the page.
      */
-    public void getNodeDetails(String nodeId) {
+    private ArrayList<EspNode> parseNodesPage(JsonStreamParser.NodesPage page, long readTime, NodeListSync sync)
+            throws JSONException, IOException {
 
-        Log.d(TAG, "Get Node Details for id : " + nodeId);
+        ArrayList<EspNode> pageNodes = new ArrayList<>();
+        // Nodes of the page are written in local storage in one transaction.
+        ArrayList<EspNode> changedNodes = new ArrayList<>();
+        HashSet<String> configChangedIds = new HashSet<>();
+        ArrayList<String> unchangedIds = new ArrayList<>();
 
-        try {
-            Response<ResponseBody> response = apiInterface.getNode(AppConstants.URL_USER_NODES, accessToken, nodeId).execute();
-            Log.d(TAG, "Get Node Details, Response code : " + response.code());
+        for (int nodeIndex = 0; nodeIndex < page.nodes.size(); nodeIndex++) {
 
-            try {
-                if (response.isSuccessful()) {
+            JsonStreamParser.NodeDetails nodeDetails = page.nodes.get(nodeIndex);
 
-                    if (response.body() != null) {
+            // Node ID
+            String nodeId = nodeDetails.nodeId;
+            Log.d(TAG, "Node id : " + nodeId);
+            NodeSyncEngine syncEngine = sync.syncEngine;
+            boolean isNodeAdded = syncEngine.markNode(nodeId);
+            boolean isLocalNode = sync.localNodeIds.contains(nodeId);
+            EspNode espNode;
 
-                        String jsonResponse = response.body().string();
-                        Log.e(TAG, "onResponse Success : " + jsonResponse);
-                        JSONObject jsonObject = new JSONObject(jsonResponse);
-                        JSONArray nodeJsonArray = jsonObject.optJSONArray(AppConstants.KEY_NODE_DETAILS);
+            if (sync.nodeMap.get(nodeId) != null) {
+                espNode = new EspNode(sync.nodeMap.get(nodeId));
+            } else {
+                espNode = new EspNode(nodeId);
+            }
+            boolean wasOnline = espNode.isOnline();
+
+            // User role
+            String role = nodeDetails.role;
+            espNode.setUserRole(role);
+
+            // Node Config
+            boolean isConfigChanged = isConfigChanged(espNode, nodeDetails);
+            boolean isConfigApplied = false;
 
-                        if (nodeJsonArray != null) {
+            if (nodeDetails.configData != null) {
 
-                            for (int nodeIndex = 0; nodeIndex < nodeJsonArray.length(); nodeIndex++) {
+                // If node is available on local network then ignore configuration received from cloud.
+                if (isLocalNode) {
+                    Log.d(TAG, "Ignore config values for local node :" + nodeId);
+                } else if (isConfigChanged) {
+                    espNode = JsonStreamParser.readNodeConfig(new StringReader(nodeDetails.configData), espNode);
+                    isConfigApplied = true;
+                    syncEngine.onConfigChanged(nodeId);
+                } else {
+                    Log.d(TAG, "Config not changed for node : " + nodeId);
+                }
 
-                                JSONObject nodeJson = nodeJsonArray.optJSONObject(nodeIndex);
+                espNode.setOnline(true);
+                espNode.setConfigData(nodeDetails.configData);
+            }
 
-                                if (nodeJson != null) {
+            // Node Params values
+            boolean isStored = false;
 
-                                    // Node ID
-                                    String id = nodeJson.optString(AppConstants.KEY_ID);
-                                    Log.d(TAG, "Node id : " + id);
-                                    EspNode espNode;
-
-                                    if (espApp.nodeMap.get(id) != null) {
-                                        espNode = espApp.nodeMap.get(id);
-                                    } else {
-                                        espNode = new EspNode(id);
-                                    }
+            if (nodeDetails.paramData != null) {
 
-                                    // User role
-                                    String role = nodeJson.optString(AppConstants.KEY_ROLE);
-                                    espNode.setUserRole(role);
+                String cachedParamData = espNode.getParamData();
+                boolean isParamChanged = !nodeDetails.paramData.equals(cachedParamData);
+                boolean isValueChanged = isParamChanged || isConfigChanged;
+                String scheduleData = espNode.getScheduleData();
+                String timeData = null;
 
-                                    // Node Config
-                                    JSONObject configJson = nodeJson.optJSONObject(AppConstants.KEY_CONFIG);
-                                    if (configJson != null) {
+                // Devices created from new config are not shared with displayed node.
+                if (isValueChanged && !isConfigApplied) {
+                    copyDevicesAndServices(espNode);
+                }
 
-                                        espNode = JsonDataParser.setNodeConfig(espNode, configJson);
-                                        espNode.setConfigData(configJson.toString());
-                                        espApp.nodeMap.put(nodeId, espNode);
-                                    }
+                ArrayList<Device> devices = espNode.getDevices();
 
-                                    // Node Params
-                                    JSONObject paramsJson = nodeJson.optJSONObject(AppConstants.KEY_PARAMS);
-                                    if (paramsJson != null) {
-                                        JsonDataParser.setAllParams(espApp, espNode, paramsJson);
-                                        espNode.setParamData(paramsJson.toString());
-                                        espDatabase.getNodeDao().insertOrUpdate(espNode);
-                                    }
+                // Params are read only if they are changed, schedules of unchanged node are parsed from its schedule data.
+                if (isValueChanged || scheduleData == null) {
 
-                                    // Node Status
-                                    JSONObject statusJson = nodeJson.optJSONObject(AppConstants.KEY_STATUS);
+                    HashMap<String, String> paramObjects = JsonStreamParser.readParamObjects(new StringReader(nodeDetails.paramData));
+                    scheduleData = paramObjects.get(AppConstants.KEY_SCHEDULE);
+                    timeData = paramObjects.get(AppConstants.KEY_TIME);
+                    espNode.setScheduleData(scheduleData);
 
-                                    if (statusJson != null) {
+                    // Previous param values are required only to find changed devices of existing node.
+                    HashMap<String, String> cachedParamObjects = null;
+                    if (isParamChanged && !isConfigChanged && cachedParamData != null) {
+                        cachedParamObjects = JsonStreamParser.readParamObjects(new StringReader(cachedParamData));
+                    }
 
-                                        JSONObject connectivityObject = statusJson.optJSONObject(AppConstants.KEY_CONNECTIVITY);
+                    // If node is available on local network then ignore param values received from cloud.
+                    if (!isLocalNode && devices != null && isValueChanged) {
 
-                                        if (connectivityObject != null) {
+                        for (int i = 0; i < devices.size(); i++) {
 
-                                            boolean nodeStatus = connectivityObject.optBoolean(AppConstants.KEY_CONNECTED);
-                                            long timestamp = connectivityObject.optLong(AppConstants.KEY_TIMESTAMP);
-                                            espNode.setTimeStampOfStatus(timestamp);
+                            String deviceName = devices.get(i).getDeviceName();
+                            String deviceData = paramObjects.get(deviceName);
 
-                                            if (espNode.isOnline() != nodeStatus) {
-                                                espNode.setOnline(nodeStatus);
-                                                EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_DEVICE_STATUS_UPDATE));
-                                            }
-                                        } else {
-                                            Log.e(TAG, "Connectivity object is null");
-                                        }
+                            if (deviceData != null) {
+
+                                if (isParamChanged) {
+                                    String cachedDeviceData = (cachedParamObjects != null) ? cachedParamObjects.get(deviceName) : null;
+                                    if (!deviceData.equals(cachedDeviceData)) {
+                                        syncEngine.onParamsChanged(nodeId, deviceName);
                                     }
                                 }
+                                JsonStreamParser.readDeviceParamValues(deviceData, devices.get(i), readTime);
+                            } else {
+                                Log.e(TAG, "Device JSON is null");
                             }
                         }
-                    } else {
-                        Log.e(TAG, "Failed to get Node Details. Response received : null");
+                    } else if (isLocalNode) {
+                        Log.d(TAG, "Ignore param values for local node :" + nodeId);
+                    }
+                }
+                espNode.setParamData(nodeDetails.paramData);
+                JSONObject scheduleJson = (scheduleData != null) ? new JSONObject(scheduleData) : null;
+
+                // Schedules
+                if (scheduleJson != null) {
+
+                    ArrayList<String> scheduleKeys = ScheduleParser.parseSchedules(espNode, scheduleJson, sync.scheduleMap);
+
+                    for (int i = 0; i < scheduleKeys.size(); i++) {
+                        syncEngine.markSchedule(scheduleKeys.get(i));
                     }
                 } else {
-                    String jsonErrResponse = response.errorBody().string();
-                    Log.e(TAG, "Failed to get Node Details.");
+                    Log.e(TAG, "Schedule JSON is null");
+                }
+
+                // Timezone
+                if (timeData != null) {
+                    JsonDataParser.setTimeParams(espNode, new JSONObject(timeData));
+                }
+
+                // Write node in local storage only if its config or param values are changed.
+                if (isConfigChanged || isParamChanged) {
+                    isStored = true;
+                    changedNodes.add(espNode);
+                    if (isConfigChanged) {
+                        configChangedIds.add(nodeId);
+                    }
                 }
-            } catch (JSONException e) {
-                e.printStackTrace();
-            } catch (IOException e) {
-                e.printStackTrace();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+
+            if (!isStored) {
+                unchangedIds.add(nodeId);
+            }
+
+            // Node Status
+            if (nodeDetails.isStatusAvailable && !isLocalNode) {
+
+                espNode.setTimeStampOfStatus(nodeDetails.statusTimestamp);
+
+                if (espNode.isOnline() != nodeDetails.isConnected) {
+                    espNode.setOnline(nodeDetails.isConnected);
+                }
+            }
+
+            if (!isNodeAdded && wasOnline != espNode.isOnline()) {
+                syncEngine.onStatusChanged(nodeId);
+            }
+            sync.nodeMap.put(nodeId, espNode);
+            pageNodes.add(espNode);
         }
+        NodeStorage.saveNodes(espDatabase, changedNodes, configChangedIds, unchangedIds, sync.generation);
+        return pageNodes;
     }
 
-    public void getNodeDetails(String nodeId, final ApiResponseListener listener) {
+    /**
+     * This method is used to get one page of time series data of the param. This is a blocking call.
+     *
+     * @param nodeId    Node id.
+     * @param paramName Param name with device name. e.g. "Sensor.Temperature"
+     * @param startTime Start of the range in seconds.
+     * @param endTime   End of the range in seconds.
+     * @param startId   Id of the page received in previous page, null for first page.
+     * @return Samples and next id of the page.
+     * @throws IOException If request fails because of network or response can not be read.
+     */
+    public JsonStreamParser.TimeSeriesPage getTimeSeriesData(String nodeId, String paramName, long startTime, long endTime,
+                                                             String startId) throws IOException {
+
+        Log.d(TAG, "Get time series data for node : " + nodeId + ", param : " + paramName);
+        Response<ResponseBody> response = apiInterface.getTimeSeriesData(AppConstants.URL_USER_NODES_TS_DATA, accessToken,
+                nodeId, paramName, startTime, endTime, startId, AppConstants.BACKFILL_PAGE_SIZE).execute();
+        Log.d(TAG, "Get time series data, Response code : " + response.code());
+        return readTimeSeriesResponse(response);
+    }
 
-        Log.d(TAG, "Get Node Details for id : " + nodeId);
+    /**
+     * This method is used to read one page of time series data from the response of time series API.
+     *
+     * @param response Response of {@link ApiInterface#getTimeSeriesData}.
+     * @return Samples and next id of the page.
+     * @throws IOException    If response can not be read.
+     * @throws CloudException If cloud returns error.
+     */
+    public static JsonStreamParser.TimeSeriesPage readTimeSeriesResponse(Response<ResponseBody> response) throws IOException {
 
-        apiInterface.getNode(AppConstants.URL_USER_NODES, accessToken, nodeId).enqueue(new Callback<ResponseBody>() {
+        if (response.isSuccessful() && response.body() != null) {
+            return JsonStreamParser.readTimeSeriesPage(response.body().charStream());
+        }
 
-            @Override
-            public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
+        String errMsg = "Failed to get time series data";
 
-                Log.d(TAG, "Get Node Details, Response code : " + response.code());
+        if (response.errorBody() != null) {
+            try {
+                JSONObject jsonObject = new JSONObject(response.errorBody().string());
+                errMsg = jsonObject.optString(AppConstants.KEY_DESCRIPTION, errMsg);
+            } catch (JSONException e) {
+                e.printStackTrace();
+            }
+        }
+        throw new CloudException(errMsg);
+    }
 
-                try {
-                    if (response.isSuccessful()) {
+    public void getNodeDetails(String nodeId, final ApiResponseListener listener) {
 
-                        if (response.body() != null) {
+        Log.d(TAG, "Get Node Details for id : " + nodeId);
+        final ApiResponseListener flightListener = singleFlight.join(AppConstants.URL_USER_NODES + nodeId, listener);
 
-                            String jsonResponse = response.body().string();
-                            Log.e(TAG, "onResponse Success : " + jsonResponse);
-                            JSONObject jsonObject = new JSONObject(jsonResponse);
-                            JSONArray nodeJsonArray = jsonObject.optJSONArray(AppConstants.KEY_NODE_DETAILS);
+        if (flightListener == null) {
+            // Same request is in flight.
+            return;
+        }
 
-                            if (nodeJsonArray != null) {
+        apiInterface.getNode(AppConstants.URL_USER_NODES, accessToken, nodeId).enqueue(new Callback<ResponseBody>() {
 
-                                for (int nodeIndex = 0; nodeIndex < nodeJsonArray.length(); nodeIndex++) {
+            @Override
+            public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
 
-                                    JSONObject nodeJson = nodeJsonArray.optJSONObject(nodeIndex);
+                Log.d(TAG, "Get Node Details, Response code : " + response.code());
 
-                                    if (nodeJson != null) {
+                try {
+                    if (response.isSuccessful()) {
 
-                                        // Node ID
-                                        String nodeId = nodeJson.optString(AppConstants.KEY_ID);
-                                        Log.d(TAG, "Node id : " + nodeId);
-                                        EspNode espNode;
+                        if (response.body() != null) {
 
-                                        if (espApp.nodeMap.get(nodeId) != null) {
-                                            espNode = espApp.nodeMap.get(nodeId);
-                                        } else {
-                                            espNode = new EspNode(nodeId);
-                                        }
+                            JsonStreamParser.NodesPage page = JsonStreamParser.readNodesPage(response.body().charStream());
 
-                                        // User role
-                                        String role = nodeJson.optString(AppConstants.KEY_ROLE);
-                                        espNode.setUserRole(role);
+                            for (int nodeIndex = 0; nodeIndex < page.nodes.size(); nodeIndex++) {
 
-                                        // Node Config
-                                        JSONObject configJson = nodeJson.optJSONObject(AppConstants.KEY_CONFIG);
-                                        if (configJson != null) {
+                                JsonStreamParser.NodeDetails nodeDetails = page.nodes.get(nodeIndex);
 
-                                            espNode = JsonDataParser.setNodeConfig(espNode, configJson);
-                                            espNode.setConfigData(configJson.toString());
-                                            espApp.nodeMap.put(nodeId, espNode);
-                                        }
+                                // Node ID
+                                String nodeId = nodeDetails.nodeId;
+                                Log.d(TAG, "Node id : " + nodeId);
+                                EspNode espNode;
 
-                                        // Node Params
-                                        JSONObject paramsJson = nodeJson.optJSONObject(AppConstants.KEY_PARAMS);
-                                        if (paramsJson != null) {
-                                            JsonDataParser.setAllParams(espApp, espNode, paramsJson);
-                                            espNode.setParamData(paramsJson.toString());
-                                            espDatabase.getNodeDao().insertOrUpdate(espNode);
-                                        }
+                                if (espApp.nodeMap.get(nodeId) != null) {
+                                    espNode = espApp.nodeMap.get(nodeId);
+                                } else {
+                                    espNode = new EspNode(nodeId);
+                                }
 
-                                        // Node Status
-                                        JSONObject statusJson = nodeJson.optJSONObject(AppConstants.KEY_STATUS);
+                                // User role
+                                String role = nodeDetails.role;
+                                espNode.setUserRole(role);
 
-                                        if (statusJson != null) {
+                                // Node Config
+                                if (nodeDetails.configData != null) {
+                                    espNode = JsonStreamParser.readNodeConfig(new StringReader(nodeDetails.configData), espNode);
+                                    espNode.setConfigData(nodeDetails.configData);
+                                    espApp.nodeMap.put(nodeId, espNode);
+                                }
 
-                                            JSONObject connectivityObject = statusJson.optJSONObject(AppConstants.KEY_CONNECTIVITY);
+                                // Node Params
+                                if (nodeDetails.paramData != null) {
+                                    applyParamValues(espNode, new StringReader(nodeDetails.paramData),
+                                            ServerClock.getResponseTime(response.headers()));
+                                    espNode.setParamData(nodeDetails.paramData);
+                                    NodeStorage.saveNode(espDatabase, espNode, nodeDetails.configData != null);
+                                }
 
-                                            if (connectivityObject != null) {
+                                // Node Status
+                                if (nodeDetails.isStatusAvailable) {
 
-                                                boolean nodeStatus = connectivityObject.optBoolean(AppConstants.KEY_CONNECTED);
-                                                long timestamp = connectivityObject.optLong(AppConstants.KEY_TIMESTAMP);
-                                                espNode.setTimeStampOfStatus(timestamp);
+                                    espNode.setTimeStampOfStatus(nodeDetails.statusTimestamp);
 
-                                                if (espNode.isOnline() != nodeStatus) {
-                                                    espNode.setOnline(nodeStatus);
-                                                    EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_DEVICE_STATUS_UPDATE));
-                                                }
-                                            } else {
-                                                Log.e(TAG, "Connectivity object is null");
-                                            }
-                                        }
+                                    if (espNode.isOnline() != nodeDetails.isConnected) {
+                                        espNode.setOnline(nodeDetails.isConnected);
+                                        EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_DEVICE_STATUS_UPDATE));
                                     }
                                 }
                             }
 
-                            listener.onSuccess(null);
+                            flightListener.onSuccess(null);
 
                         } else {
                             Log.e(TAG, "Response received : null");
-                            listener.onResponseFailure(new RuntimeException("Failed to get Node Details"));
+                            flightListener.onResponseFailure(new RuntimeException("Failed to get Node Details"));
                         }
                     } else {
                         String jsonErrResponse = response.errorBody().string();
-                        processError(jsonErrResponse, listener, "Failed to get Node Details");
+                        processError(jsonErrResponse, flightListener, "Failed to get Node Details");
                     }
                 } catch (JSONException e) {
                     e.printStackTrace();
-                    listener.onResponseFailure(e);
+                    flightListener.onResponseFailure(e);
                 } catch (IOException e) {
                     e.printStackTrace();
-                    listener.onResponseFailure(e);
+                    flightListener.onResponseFailure(e);
                 }
             }
 
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new Exception(t));
+                processFailure(t, flightListener, new Exception(t));
             }
         });
     }
@@ -1337,11 +1470,189 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new Exception(t));
+                processFailure(t, listener, new Exception(t));
+            }
+        });
+    }
+
+    /**
+     * This method is used to get connectivity status of all nodes of the user, using node list API with status only.
+     * Status of all nodes is updated together and status update event is sent once.
+     * Ids of nodes for which status is received are sent in {@link AppConstants#KEY_NODE_IDS} of success callback.
+     *
+     * @param listener Listener to send success or failure.
+     */
+    public void getNodesStatus(final ApiResponseListener listener) {
+
+        Log.d(TAG, "Get connectivity status of all nodes");
+        getNodesDetails(AppConstants.URL_USER_NODES_STATUS, "", Long.MAX_VALUE, new ArrayList<JsonStreamParser.NodeDetails>(), listener);
+    }
+
+    /**
+     * This method is used to get param values and connectivity status of all nodes of the user in one request,
+     * using node list API with params and status only.
+     * Ids of nodes for which details are received are sent in {@link AppConstants#KEY_NODE_IDS} of success callback.
+     *
+     * @param listener Listener to send success or failure.
+     */
+    public void getNodesParams(final ApiResponseListener listener) {
+
+        Log.d(TAG, "Get param values of all nodes");
+        getNodesDetails(AppConstants.URL_USER_NODES_PARAMS_STATUS, "", Long.MAX_VALUE, new ArrayList<JsonStreamParser.NodeDetails>(), listener);
+    }
+
+    /**
+     * @param readTime Time at which first page is read, values of all pages are applied with this time.
+     */
+    private void getNodesDetails(final String url, final String startId, final long readTime,
+                                 final ArrayList<JsonStreamParser.NodeDetails> detailsList, final ApiResponseListener listener) {
+
+        apiInterface.getNodesDetails(url, accessToken, startId, NODES_PAGE_SIZE).enqueue(new Callback<ResponseBody>() {
+
+            @Override
+            public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
+
+                Log.d(TAG, "Get Nodes details, Response code : " + response.code());
+
+                try {
+                    if (response.isSuccessful()) {
+
+                        if (response.body() != null) {
+
+                            final ResponseBody body = response.body();
+                            final long pageReadTime = Math.min(readTime, ServerClock.getResponseTime(response.headers()));
+
+                            // Response body is streamed, so it is read on node parser thread.
+                            nodeParserExecutor.execute(new Runnable() {
+
+                                @Override
+                                public void run() {
+                                    readNodesDetailsPage(url, body, pageReadTime, detailsList, listener);
+                                }
+                            });
+
+                        } else {
+                            Log.e(TAG, "Response received : null");
+                            listener.onResponseFailure(new RuntimeException("Failed to get Node details"));
+                        }
+                    } else {
+                        String jsonErrResponse = response.errorBody().string();
+                        processError(jsonErrResponse, listener, "Failed to get Node details");
+                    }
+                } catch (JSONException e) {
+                    e.printStackTrace();
+                    listener.onResponseFailure(e);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    listener.onResponseFailure(e);
+                }
+            }
+
+            @Override
+            public void onFailure(Call<ResponseBody> call, Throwable t) {
+                t.printStackTrace();
+                processFailure(t, listener, new Exception(t));
+            }
+        });
+    }
+
+    /**
+     * This method is used to read one page of node details on node parser thread.
+     * Details are applied to the nodes on main thread after last page is received.
+     */
+    private void readNodesDetailsPage(final String url, ResponseBody body, final long readTime,
+                                      final ArrayList<JsonStreamParser.NodeDetails> detailsList,
+                                      final ApiResponseListener listener) {
+
+        final JsonStreamParser.NodesPage page;
+
+        try {
+            page = JsonStreamParser.readNodesPage(body.charStream());
+        } catch (final IOException e) {
+            e.printStackTrace();
+            handler.post(new Runnable() {
+
+                @Override
+                public void run() {
+                    listener.onResponseFailure(e);
+                }
+            });
+            return;
+        }
+
+        handler.post(new Runnable() {
+
+            @Override
+            public void run() {
+
+                detailsList.addAll(page.nodes);
+
+                if (!TextUtils.isEmpty(page.nextId)) {
+                    getNodesDetails(url, page.nextId, readTime, detailsList, listener);
+                    return;
+                }
+
+                try {
+                    Bundle data = new Bundle();
+                    data.putStringArrayList(AppConstants.KEY_NODE_IDS, applyNodesDetails(detailsList, readTime));
+                    listener.onSuccess(data);
+                } catch (JSONException e) {
+                    e.printStackTrace();
+                    listener.onResponseFailure(e);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    listener.onResponseFailure(e);
+                }
             }
         });
     }
 
+    /**
+     * This method is used to apply status and param values (if available) received in node list to the nodes.
+     * Status update event is sent once if status of any node is changed.
+     *
+     * @return Ids of nodes for which details are applied.
+     */
+    private ArrayList<String> applyNodesDetails(ArrayList<JsonStreamParser.NodeDetails> detailsList, long readTime)
+            throws IOException, JSONException {
+
+        boolean isStatusChanged = false;
+        ArrayList<String> nodeIds = new ArrayList<>();
+
+        for (int i = 0; i < detailsList.size(); i++) {
+
+            JsonStreamParser.NodeDetails nodeDetails = detailsList.get(i);
+            EspNode espNode = espApp.nodeMap.get(nodeDetails.nodeId);
+
+            if (espNode == null || (!nodeDetails.isStatusAvailable && nodeDetails.paramData == null)) {
+                continue;
+            }
+
+            nodeIds.add(nodeDetails.nodeId);
+
+            if (nodeDetails.paramData != null) {
+                applyParamValues(espNode, new StringReader(nodeDetails.paramData), readTime);
+            }
+
+            // Status of local node is managed by local discovery.
+            if (!nodeDetails.isStatusAvailable || espApp.mDNSDeviceMap.containsKey(nodeDetails.nodeId)) {
+                continue;
+            }
+
+            espNode.setTimeStampOfStatus(nodeDetails.statusTimestamp);
+
+            if (espNode.isOnline() != nodeDetails.isConnected) {
+                espNode.setOnline(nodeDetails.isConnected);
+                isStatusChanged = true;
+            }
+        }
+
+        if (isStatusChanged) {
+            EventBus.getDefault().post(new UpdateEvent(AppConstants.UpdateEventType.EVENT_DEVICE_STATUS_UPDATE));
+        }
+        return nodeIds;
+    }
+
     /**
      * This method is used to send request for add device (Associate device with user).
      *
@@ -1401,7 +1712,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new Exception(t));
+                processFailure(t, listener, new Exception(t));
             }
         });
     }
@@ -1453,7 +1764,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new Exception(t));
+                processFailure(t, listener, new Exception(t));
             }
         });
     }
@@ -1461,6 +1772,12 @@ public class ApiManager {
     public void getParamsValues(final String nodeId, final ApiResponseListener listener) {
 
         Log.d(TAG, "Get Param values for node : " + nodeId);
+        final ApiResponseListener flightListener = singleFlight.join(AppConstants.URL_USER_NODES_PARAMS + nodeId, listener);
+
+        if (flightListener == null) {
+            // Same request is in flight.
+            return;
+        }
 
         apiInterface.getParamValue(AppConstants.URL_USER_NODES_PARAMS, accessToken, nodeId).enqueue(new Callback<ResponseBody>() {
 
@@ -1475,215 +1792,106 @@ public class ApiManager {
 
                         if (response.body() != null) {
 
-                            String jsonResponse = response.body().string();
-                            Log.e(TAG, "onResponse Success : " + jsonResponse);
-                            JSONObject jsonObject = new JSONObject(jsonResponse);
-                            JSONObject scheduleJson = jsonObject.optJSONObject(AppConstants.KEY_SCHEDULE);
-
                             EspNode node = espApp.nodeMap.get(nodeId);
 
                             if (node != null) {
+                                applyParamValues(node, response.body().charStream(), ServerClock.getResponseTime(response.headers()));
+                            } else {
+                                response.body().close();
+                            }
+                            flightListener.onSuccess(null);
 
-                                ArrayList<Device> devices = node.getDevices();
+                        } else {
+                            flightListener.onResponseFailure(new RuntimeException("Failed to get param values"));
+                        }
 
-                                // Node Params
-                                if (devices != null) {
-                                    for (int i = 0; i < devices.size(); i++) {
+                    } else {
+                        String jsonErrResponse = response.errorBody().string();
+                        processError(jsonErrResponse, flightListener, "Failed to get param values");
+                    }
+                } catch (JSONException e) {
+                    e.printStackTrace();
+                    flightListener.onResponseFailure(e);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    flightListener.onResponseFailure(e);
+                }
+            }
+
+            @Override
+            public void onFailure(Call<ResponseBody> call, Throwable t) {
+                t.printStackTrace();
+                processFailure(t, flightListener, new Exception(t));
+            }
+        });
+    }
 
-                                        ArrayList<Param> params = devices.get(i).getParams();
-                                        String deviceName = devices.get(i).getDeviceName();
-                                        JSONObject deviceJson = jsonObject.optJSONObject(deviceName);
+    /**
+     * This method is used to set param values of the node devices, its schedules and time zone.
+     *
+     * @param node     Node for which params are received.
+     * @param reader   Character stream of params JSON.
+     * @param readTime Time (of the cloud) at which params are read.
+     */
+    private void applyParamValues(EspNode node, Reader reader, long readTime) throws IOException, JSONException {
 
-                                        if (deviceJson != null) {
+        // Node Params
+        HashMap<String, String> serviceParams = JsonStreamParser.readParamValues(reader, node, readTime);
+        String scheduleData = serviceParams.get(AppConstants.KEY_SCHEDULE);
+        String timeData = serviceParams.get(AppConstants.KEY_TIME);
+        JSONObject scheduleJson = null;
+        node.setScheduleData(scheduleData);
 
-                                            for (int j = 0; j < params.size(); j++) {
+        if (scheduleData != null) {
+            scheduleJson = new JSONObject(scheduleData);
+        }
 
-                                                Param param = params.get(j);
-                                                String key = param.getName();
+        // Schedules
+        if (scheduleJson != null) {
 
-                                                if (deviceJson.has(key)) {
-                                                    JsonDataParser.setDeviceParamValue(deviceJson, devices.get(i), param);
-                                                }
-                                            }
-                                        } else {
-                                            Log.e(TAG, "Device JSON is null");
-                                        }
-                                    }
-                                }
+            if (espApp.scheduleMap == null) {
+                espApp.scheduleMap = new HashMap<>();
+            }
+            ScheduleParser.parseSchedules(node, scheduleJson, espApp.scheduleMap);
+        } else {
+            Log.d(TAG, "Schedule JSON is null");
+        }
 
-                                // Schedules
-                                if (scheduleJson != null) {
+        // Timezone
+        if (timeData != null) {
+            JsonDataParser.setTimeParams(node, new JSONObject(timeData));
+        }
+    }
 
-                                    JSONArray scheduleArrayJson = scheduleJson.optJSONArray(AppConstants.KEY_SCHEDULES);
+    public void updateParamValue(final String nodeId, JsonObject body, final ApiResponseListener listener) {
 
-                                    if (scheduleArrayJson != null) {
+        Log.d(TAG, "Updating param value");
 
-                                        if (espApp.scheduleMap == null) {
-                                            espApp.scheduleMap = new HashMap<>();
-                                        }
+        apiInterface.updateParamValue(AppConstants.URL_USER_NODES_PARAMS, accessToken, nodeId, body).enqueue(new Callback<ResponseBody>() {
 
-                                        for (int index = 0; index < scheduleArrayJson.length(); index++) {
+            @Override
+            public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
 
-                                            JSONObject schJson = scheduleArrayJson.getJSONObject(index);
-                                            String scheduleId = schJson.optString(AppConstants.KEY_ID);
-                                            String key = scheduleId;
+                Log.d(TAG, "Update Params Value, Response code : " + response.code());
 
-                                            if (!TextUtils.isEmpty(scheduleId)) {
-
-                                                String name = schJson.optString(AppConstants.KEY_NAME);
-                                                key = key + "_" + name + "_" + schJson.optBoolean(AppConstants.KEY_ENABLED);
-
-                                                HashMap<String, Integer> triggers = new HashMap<>();
-                                                JSONArray triggerArray = schJson.optJSONArray(AppConstants.KEY_TRIGGERS);
-                                                for (int t = 0; t < triggerArray.length(); t++) {
-                                                    JSONObject triggerJson = triggerArray.optJSONObject(t);
-                                                    int days = triggerJson.optInt(AppConstants.KEY_DAYS);
-                                                    int mins = triggerJson.optInt(AppConstants.KEY_MINUTES);
-                                                    triggers.put(AppConstants.KEY_DAYS, days);
-                                                    triggers.put(AppConstants.KEY_MINUTES, mins);
-                                                    key = key + "_" + days + "_" + mins;
-                                                }
+                try {
 
-                                                Schedule schedule = espApp.scheduleMap.get(key);
-                                                if (schedule == null) {
-                                                    schedule = new Schedule();
-                                                }
+                    if (response.isSuccessful()) {
 
-                                                schedule.setId(scheduleId);
-                                                schedule.setName(schJson.optString(AppConstants.KEY_NAME));
-                                                schedule.setEnabled(schJson.optBoolean(AppConstants.KEY_ENABLED));
-                                                schedule.setTriggers(triggers);
+                        if (response.body() != null) {
 
-                                                // Actions
-                                                JSONObject actionsSchJson = schJson.optJSONObject(AppConstants.KEY_ACTION);
-
-                                                if (actionsSchJson != null) {
-
-                                                    ArrayList<Action> actions = schedule.getActions();
-                                                    if (actions == null) {
-                                                        actions = new ArrayList<>();
-                                                        schedule.setActions(actions);
-                                                    }
-
-                                                    for (int deviceIndex = 0; deviceIndex < devices.size(); deviceIndex++) {
-
-                                                        Device d = new Device(devices.get(deviceIndex));
-                                                        ArrayList<Param> params = d.getParams();
-                                                        String deviceName = d.getDeviceName();
-                                                        JSONObject deviceAction = actionsSchJson.optJSONObject(deviceName);
-
-                                                        if (deviceAction != null) {
-
-                                                            Action action = null;
-                                                            Device actionDevice = null;
-                                                            int actionIndex = -1;
-
-                                                            for (int aIndex = 0; aIndex < actions.size(); aIndex++) {
-
-                                                                Action a = actions.get(aIndex);
-                                                                if (a.getDevice().getNodeId().equals(nodeId) && deviceName.equals(a.getDevice().getDeviceName())) {
-                                                                    action = actions.get(aIndex);
-                                                                    actionIndex = aIndex;
-                                                                }
-                                                            }
-
-                                                            if (action == null) {
-                                                                action = new Action();
-                                                                action.setNodeId(nodeId);
-
-                                                                for (int k = 0; k < devices.size(); k++) {
-
-                                                                    if (devices.get(k).getNodeId().equals(nodeId) && devices.get(k).getDeviceName().equals(deviceName)) {
-                                                                        actionDevice = new Device(devices.get(k));
-                                                                        actionDevice.setSelectedState(1);
-                                                                        break;
-                                                                    }
-                                                                }
-
-                                                                if (actionDevice == null) {
-                                                                    actionDevice = new Device(nodeId);
-                                                                }
-                                                                action.setDevice(actionDevice);
-                                                            } else {
-                                                                actionDevice = action.getDevice();
-                                                            }
-
-                                                            ArrayList<Param> actionParams = new ArrayList<>();
-                                                            if (params != null) {
-
-                                                                Iterator<Param> iterator = params.iterator();
-                                                                while (iterator.hasNext()) {
-                                                                    Param p = iterator.next();
-                                                                    actionParams.add(new Param(p));
-                                                                }
-
-                                                                Iterator itr = actionParams.iterator();
-
-                                                                while (itr.hasNext()) {
-
-                                                                    Param p = (Param) itr.next();
-
-                                                                    if (!p.isDynamicParam()) {
-                                                                        itr.remove();
-                                                                    } else if (p.getParamType() != null && p.getParamType().equals(AppConstants.PARAM_TYPE_NAME)) {
-                                                                        itr.remove();
-                                                                    } else if (!p.getProperties().contains(AppConstants.KEY_PROPERTY_WRITE)) {
-                                                                        itr.remove();
-                                                                    }
-                                                                }
-                                                            }
-                                                            actionDevice.setParams(actionParams);
-
-                                                            for (int paramIndex = 0; paramIndex < actionParams.size(); paramIndex++) {
-
-                                                                Param p = actionParams.get(paramIndex);
-                                                                String paramName = p.getName();
-
-                                                                if (deviceAction.has(paramName)) {
-
-                                                                    p.setSelected(true);
-                                                                    JsonDataParser.setDeviceParamValue(deviceAction, devices.get(deviceIndex), p);
-                                                                }
-                                                            }
-
-                                                            for (int paramIndex = 0; paramIndex < actionParams.size(); paramIndex++) {
-
-                                                                if (!actionParams.get(paramIndex).isSelected()) {
-                                                                    actionDevice.setSelectedState(2); // Partially selected
-                                                                }
-                                                            }
-
-                                                            if (actionIndex == -1) {
-                                                                actions.add(action);
-                                                            } else {
-                                                                actions.set(actionIndex, action);
-                                                            }
-                                                            schedule.setActions(actions);
-
-                                                        }
-                                                    }
-                                                }
-                                                espApp.scheduleMap.put(key, schedule);
-                                            }
-                                        }
-                                    }
-                                } else {
-                                    Log.d(TAG, "Schedule JSON is null");
-                                }
-                            }
+                            String jsonResponse = response.body().string();
+                            Log.d(TAG, "onResponse Success : " + jsonResponse);
                             listener.onSuccess(null);
 
                         } else {
-                            listener.onResponseFailure(new RuntimeException("Failed to get param values"));
+                            listener.onResponseFailure(new RuntimeException("Failed to update param value"));
                         }
 
                     } else {
                         String jsonErrResponse = response.errorBody().string();
-                        processError(jsonErrResponse, listener, "Failed to get param values");
+                        processError(jsonErrResponse, listener, "Failed to update param value");
                     }
-                } catch (JSONException e) {
-                    e.printStackTrace();
-                    listener.onResponseFailure(e);
                 } catch (IOException e) {
                     e.printStackTrace();
                     listener.onResponseFailure(e);
@@ -1693,21 +1901,38 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new Exception(t));
+                processFailure(t, listener, new Exception(t));
             }
         });
     }
 
-    public void updateParamValue(final String nodeId, JsonObject body, final ApiResponseListener listener) {
+    /**
+     * This method is used to update param values of multiple nodes in one request.
+     * Nodes for which update is failed are sent in {@link AppConstants#KEY_FAILED_NODES} bundle
+     * of success callback, with node id as key and failure description as value.
+     *
+     * @param nodeParams Map of node id and its param values JSON.
+     * @param listener   Listener to send success or failure.
+     */
+    public void updateParamValues(final HashMap<String, JsonObject> nodeParams, final ApiResponseListener listener) {
 
-        Log.d(TAG, "Updating param value");
+        Log.d(TAG, "Updating param values of " + nodeParams.size() + " nodes");
+        JsonArray body = new JsonArray();
 
-        apiInterface.updateParamValue(AppConstants.URL_USER_NODES_PARAMS, accessToken, nodeId, body).enqueue(new Callback<ResponseBody>() {
+        for (Map.Entry<String, JsonObject> entry : nodeParams.entrySet()) {
+
+            JsonObject nodeJson = new JsonObject();
+            nodeJson.addProperty(AppConstants.KEY_NODE_ID, entry.getKey());
+            nodeJson.add(AppConstants.KEY_PAYLOAD, entry.getValue());
+            body.add(nodeJson);
+        }
+
+        apiInterface.updateParamValues(AppConstants.URL_USER_NODES_PARAMS, accessToken, body).enqueue(new Callback<ResponseBody>() {
 
             @Override
             public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
 
-                Log.d(TAG, "Update Params Value, Response code : " + response.code());
+                Log.d(TAG, "Update Params Values, Response code : " + response.code());
 
                 try {
 
@@ -1717,7 +1942,22 @@ public class ApiManager {
 
                             String jsonResponse = response.body().string();
                             Log.d(TAG, "onResponse Success : " + jsonResponse);
-                            listener.onSuccess(null);
+                            Bundle failedNodes = new Bundle();
+                            JSONArray resultsJson = new JSONArray(jsonResponse);
+
+                            for (int i = 0; i < resultsJson.length(); i++) {
+
+                                JSONObject resultJson = resultsJson.optJSONObject(i);
+
+                                if (resultJson != null && !AppConstants.KEY_STATUS_SUCCESS.equalsIgnoreCase(resultJson.optString(AppConstants.KEY_STATUS))) {
+                                    failedNodes.putString(resultJson.optString(AppConstants.KEY_NODE_ID),
+                                            resultJson.optString(AppConstants.KEY_DESCRIPTION, "Failed to update param value"));
+                                }
+                            }
+
+                            Bundle data = new Bundle();
+                            data.putBundle(AppConstants.KEY_FAILED_NODES, failedNodes);
+                            listener.onSuccess(data);
 
                         } else {
                             listener.onResponseFailure(new RuntimeException("Failed to update param value"));
@@ -1730,13 +1970,16 @@ public class ApiManager {
                 } catch (IOException e) {
                     e.printStackTrace();
                     listener.onResponseFailure(e);
+                } catch (JSONException e) {
+                    e.printStackTrace();
+                    listener.onResponseFailure(e);
                 }
             }
 
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new Exception(t));
+                processFailure(t, listener, new Exception(t));
             }
         });
     }
@@ -1947,7 +2190,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Claim init failed"));
+                processFailure(t, listener, new RuntimeException("Claim init failed"));
             }
         });
     }
@@ -1984,7 +2227,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Claim verify failed"));
+                processFailure(t, listener, new RuntimeException("Claim verify failed"));
             }
         });
     }
@@ -2019,7 +2262,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Failed to create group"));
+                processFailure(t, listener, new RuntimeException("Failed to create group"));
             }
         });
     }
@@ -2054,7 +2297,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Failed to update group"));
+                processFailure(t, listener, new RuntimeException("Failed to update group"));
             }
         });
     }
@@ -2074,8 +2317,17 @@ public class ApiManager {
                     if (response.isSuccessful()) {
 
                         String jsonResponse = response.body().string();
-                        espDatabase.getGroupDao().delete(espApp.groupMap.get(groupId));
-                        espApp.groupMap.remove(groupId);
+                        final Group group = espApp.groupMap.remove(groupId);
+
+                        if (group != null) {
+                            EspDatabase.getExecutor().execute(new Runnable() {
+
+                                @Override
+                                public void run() {
+                                    espDatabase.getGroupDao().delete(group);
+                                }
+                            });
+                        }
                         listener.onSuccess(null);
 
                     } else {
@@ -2092,7 +2344,7 @@ public class ApiManager {
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 Log.e(TAG, "ON FAILURE");
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Failed to remove group"));
+                processFailure(t, listener, new RuntimeException("Failed to remove group"));
             }
         });
     }
@@ -2115,9 +2367,8 @@ public class ApiManager {
                         JSONObject jsonObject = new JSONObject(jsonResponse);
                         JSONArray groupJsonArray = jsonObject.optJSONArray(AppConstants.KEY_GROUPS);
 
-                        if (TextUtils.isEmpty(groupId)) {
-                            espDatabase.getGroupDao().deleteAll();
-                        }
+                        final boolean isAllGroups = TextUtils.isEmpty(groupId);
+                        final ArrayList<Group> groups = new ArrayList<>();
 
                         if (groupJsonArray != null) {
 
@@ -2143,10 +2394,18 @@ public class ApiManager {
                                     group.setGroupId(gId);
                                     group.setNodeList(nodesOfGroup);
                                     espApp.groupMap.put(gId, group);
-                                    espDatabase.getGroupDao().insertOrUpdate(group);
+                                    groups.add(group);
                                 }
                             }
                         }
+
+                        EspDatabase.getExecutor().execute(new Runnable() {
+
+                            @Override
+                            public void run() {
+                                espDatabase.getGroupDao().replace(groups, isAllGroups);
+                            }
+                        });
                         listener.onSuccess(null);
 
                     } else {
@@ -2162,7 +2421,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Failed to get user groups"));
+                processFailure(t, listener, new RuntimeException("Failed to get user groups"));
             }
         });
     }
@@ -2264,7 +2523,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new Exception(t));
+                processFailure(t, listener, new Exception(t));
             }
         });
     }
@@ -2302,7 +2561,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Failed to update sharing request"));
+                processFailure(t, listener, new RuntimeException("Failed to update sharing request"));
             }
         });
     }
@@ -2335,7 +2594,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Failed to remove sharing request"));
+                processFailure(t, listener, new RuntimeException("Failed to remove sharing request"));
             }
         });
     }
@@ -2394,7 +2653,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Node sharing failed"));
+                processFailure(t, listener, new RuntimeException("Node sharing failed"));
             }
         });
     }
@@ -2475,7 +2734,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Failed to get node sharing info"));
+                processFailure(t, listener, new RuntimeException("Failed to get node sharing info"));
             }
         });
     }
@@ -2510,7 +2769,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Failed to remove sharing"));
+                processFailure(t, listener, new RuntimeException("Failed to remove sharing"));
             }
         });
     }
@@ -2550,7 +2809,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Failed to register fcm token"));
+                processFailure(t, listener, new RuntimeException("Failed to register fcm token"));
             }
         });
     }
@@ -2586,7 +2845,7 @@ public class ApiManager {
             @Override
             public void onFailure(Call<ResponseBody> call, Throwable t) {
                 t.printStackTrace();
-                listener.onNetworkFailure(new RuntimeException("Failed to unregister fcm token"));
+                processFailure(t, listener, new RuntimeException("Failed to unregister fcm token"));
             }
         });
     }
@@ -2614,6 +2873,20 @@ public class ApiManager {
         }
     }
 
+    /**
+     * This method is used to send failure of the request for which response is not received.
+     * Request rejected by open circuit of the host is sent as network failure with circuit exception,
+     * so that callers can retry it (e.g. param writes are queued) when the host is reachable.
+     */
+    private void processFailure(Throwable t, ApiResponseListener listener, Exception networkException) {
+
+        if (t instanceof RetryInterceptor.CircuitOpenException) {
+            listener.onNetworkFailure((RetryInterceptor.CircuitOpenException) t);
+        } else {
+            listener.onNetworkFailure(networkException);
+        }
+    }
+
     private Runnable stopRequestStatusPollingTask = new Runnable() {
 
         @Override
@@ -2628,4 +2901,70 @@ public class ApiManager {
     public void cancelRequestStatusPollingTask() {
         handler.removeCallbacks(stopRequestStatusPollingTask);
     }
+
+    /**
+     * State of one paged node list sync.
+     * Pages are fetched ahead of parsing, so this makes sure listener receives only one final callback.
+     */
+    private static class NodeListSync implements ApiResponseListener {
+
+        private final ApiResponseListener listener;
+        private final NodeSyncEngine syncEngine;
+        // Nodes and schedules of this sync, these are used only on node parser thread until sync is finished.
+        private final HashMap<String, EspNode> nodeMap;
+        private final HashMap<String, Schedule> scheduleMap = new HashMap<>();
+        // Ids of nodes available on local network when sync is started.
+        private final HashSet<String> localNodeIds;
+        // Generation with which nodes of this sync are stored in local storage.
+        private final long generation = System.currentTimeMillis();
+        private boolean isFinished;
+
+        NodeListSync(ApiResponseListener listener, NodeSyncEngine syncEngine,
+                     Map<String, EspNode> nodeMap, Set<String> localNodeIds) {
+            this.listener = listener;
+            this.syncEngine = syncEngine;
+            this.nodeMap = new HashMap<>(nodeMap);
+            this.localNodeIds = new HashSet<>(localNodeIds);
+        }
+
+        synchronized boolean isFinished() {
+            return isFinished;
+        }
+
+        private synchronized boolean finish() {
+            if (isFinished) {
+                return false;
+            }
+            isFinished = true;
+            return true;
+        }
+
+        /**
+         * Sync is finished without calling listener, remaining pages are not parsed or published.
+         */
+        void cancel() {
+            finish();
+        }
+
+        @Override
+        public void onSuccess(Bundle data) {
+            if (finish()) {
+                listener.onSuccess(data);
+            }
+        }
+
+        @Override
+        public void onResponseFailure(Exception exception) {
+            if (finish()) {
+                listener.onResponseFailure(exception);
+            }
+        }
+
+        @Override
+        public void onNetworkFailure(Exception exception) {
+            if (finish()) {
+                listener.onNetworkFailure(exception);
+            }
+        }
+    }
 }
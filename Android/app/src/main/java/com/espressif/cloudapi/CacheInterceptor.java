@@ -0,0 +1,207 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.cloudapi;
+
+import android.util.Log;
+
+import com.espressif.AppConstants;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * This class applies cache policy of the endpoint declared in {@link ApiInterface}
+ * with {@link AppConstants#HEADER_CACHE_POLICY} header. Policy uses Cache-Control syntax, e.g.
+ * "max-age=0" to always revalidate cached response using ETag / Last-Modified or
+ * "max-age=3600, stale-while-revalidate=86400" to return stale response and revalidate it in background.
+ * Request with "Cache-Control: max-age=0" header is always revalidated with the cloud, even if stale response is allowed.
+ * <p>
+ * Cache is cleared on login and logout, so cached responses are not shared by users.
+ * <p>
+ * Add application interceptor with {@link #getAppInterceptor()} and network interceptor with
+ * {@link #getNetworkInterceptor()} to the client which has {@link Cache}.
+ */
+public class CacheInterceptor {
+
+    private static final String TAG = CacheInterceptor.class.getSimpleName();
+
+    private static final String KEY_MAX_AGE = "max-age";
+    private static final String KEY_STALE_WHILE_REVALIDATE = "stale-while-revalidate";
+
+    private OkHttpClient client;
+
+    /**
+     * Tag of background request which revalidates stale response.
+     */
+    private static class Revalidation {
+    }
+
+    /**
+     * Client is required to revalidate stale responses in background.
+     *
+     * @param client Client built with interceptors of this class.
+     */
+    public void setClient(OkHttpClient client) {
+        this.client = client;
+    }
+
+    public Interceptor getAppInterceptor() {
+        return appInterceptor;
+    }
+
+    public Interceptor getNetworkInterceptor() {
+        return networkInterceptor;
+    }
+
+    private Interceptor appInterceptor = new Interceptor() {
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+
+            Request request = chain.request();
+            String policy = request.header(AppConstants.HEADER_CACHE_POLICY);
+            int staleWhileRevalidate = getDirective(policy, KEY_STALE_WHILE_REVALIDATE);
+
+            CacheControl requestCaching = request.cacheControl();
+
+            if (staleWhileRevalidate <= 0 || client == null || request.tag(Revalidation.class) != null
+                    || !"GET".equals(request.method()) || requestCaching.noCache() || requestCaching.maxAgeSeconds() == 0) {
+                return chain.proceed(request);
+            }
+
+            Request cacheRequest = request.newBuilder()
+                    .cacheControl(new CacheControl.Builder()
+                            .onlyIfCached()
+                            .maxStale(staleWhileRevalidate, TimeUnit.SECONDS)
+                            .build())
+                    .build();
+
+            Response cacheResponse = chain.proceed(cacheRequest);
+
+            if (cacheResponse.code() == 504) {
+                // Not available in cache.
+                cacheResponse.close();
+                return chain.proceed(request);
+            }
+
+            // Warning 110 is added by cache for stale response.
+            String warning = cacheResponse.header("Warning");
+            if (warning != null && warning.startsWith("110")) {
+                Log.d(TAG, "Return stale response and revalidate : " + request.url().encodedPath());
+                revalidate(request);
+            }
+            return cacheResponse;
+        }
+    };
+
+    private Interceptor networkInterceptor = new Interceptor() {
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+
+            Request request = chain.request();
+            String policy = request.header(AppConstants.HEADER_CACHE_POLICY);
+
+            if (policy == null) {
+                return chain.proceed(request);
+            }
+
+            Response response = chain.proceed(request.newBuilder().removeHeader(AppConstants.HEADER_CACHE_POLICY).build());
+
+            if (!response.isSuccessful()) {
+                return response;
+            }
+
+            Response.Builder builder = response.newBuilder();
+
+            // Keep cache headers of the cloud if available. Otherwise store response with max age of the endpoint.
+            if (isEmpty(response.header("Cache-Control"))) {
+
+                int maxAge = Math.max(getDirective(policy, KEY_MAX_AGE), 0);
+                builder.removeHeader("Pragma")
+                        .header("Cache-Control", "private, max-age=" + maxAge);
+            }
+            return builder.build();
+        }
+    };
+
+    private void revalidate(Request request) {
+
+        Request revalidateRequest = request.newBuilder()
+                .tag(Revalidation.class, new Revalidation())
+                .build();
+
+        client.newCall(revalidateRequest).enqueue(new Callback() {
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                Log.e(TAG, "Failed to revalidate : " + call.request().url().encodedPath());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                // Reading body is required to write it in cache.
+                try {
+                    response.body().string();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } finally {
+                    response.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * This method is used to get value of the directive from policy.
+     *
+     * @return Value in seconds or -1 if directive is not available.
+     */
+    private static int getDirective(String policy, String name) {
+
+        if (isEmpty(policy)) {
+            return -1;
+        }
+
+        String[] directives = policy.split(",");
+
+        for (String directive : directives) {
+
+            String[] keyValue = directive.trim().split("=");
+
+            if (keyValue.length == 2 && name.equalsIgnoreCase(keyValue[0].trim())) {
+                try {
+                    return Integer.parseInt(keyValue[1].trim());
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.length() == 0;
+    }
+}
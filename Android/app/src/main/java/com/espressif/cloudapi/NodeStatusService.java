@@ -0,0 +1,213 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.cloudapi;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.espressif.AppConstants;
+import com.espressif.EspApplication;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class is used to get connectivity status of nodes.
+ * Status received within {@link AppConstants#NODE_STATUS_TTL} is returned from memory.
+ * Requests received within {@link AppConstants#NODE_STATUS_BATCH_WINDOW} are sent in one request,
+ * if user has {@link AppConstants#NODE_STATUS_BATCH_MAX_NODES} nodes or less. Otherwise status of each node is requested separately.
+ */
+public class NodeStatusService {
+
+    private static final String TAG = NodeStatusService.class.getSimpleName();
+
+    private static NodeStatusService nodeStatusService;
+
+    private ApiManager apiManager;
+    private EspApplication espApp;
+    private Handler handler;
+    private HashMap<String, Long> fetchTimes = new HashMap<>();
+    private LinkedHashMap<String, ArrayList<ApiResponseListener>> pendingRequests = new LinkedHashMap<>();
+    private boolean isFlushScheduled;
+
+    public static NodeStatusService getInstance(Context context) {
+
+        if (nodeStatusService == null) {
+            nodeStatusService = new NodeStatusService(context);
+        }
+        return nodeStatusService;
+    }
+
+    private NodeStatusService(Context context) {
+        apiManager = ApiManager.getInstance(context);
+        espApp = (EspApplication) context.getApplicationContext();
+        handler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * This method is used to get connectivity status of the node.
+     * Status is updated in node map of the application.
+     *
+     * @param nodeId   Node id.
+     * @param listener Listener to send success or failure.
+     */
+    public synchronized void getStatus(String nodeId, ApiResponseListener listener) {
+
+        Long fetchTime = fetchTimes.get(nodeId);
+
+        if (fetchTime != null && SystemClock.elapsedRealtime() - fetchTime < AppConstants.NODE_STATUS_TTL) {
+            listener.onSuccess(null);
+            return;
+        }
+
+        ArrayList<ApiResponseListener> listeners = pendingRequests.get(nodeId);
+
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+            pendingRequests.put(nodeId, listeners);
+        }
+        listeners.add(listener);
+
+        if (!isFlushScheduled) {
+            isFlushScheduled = true;
+            handler.postDelayed(flushTask, AppConstants.NODE_STATUS_BATCH_WINDOW);
+        }
+    }
+
+    /**
+     * This method is used to clear status fetch times, so next request for status is sent to cloud.
+     */
+    public synchronized void invalidate() {
+        fetchTimes.clear();
+    }
+
+    private Runnable flushTask = new Runnable() {
+
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private void flush() {
+
+        final LinkedHashMap<String, ArrayList<ApiResponseListener>> requests;
+
+        synchronized (this) {
+            requests = pendingRequests;
+            pendingRequests = new LinkedHashMap<>();
+            isFlushScheduled = false;
+        }
+
+        if (requests.isEmpty()) {
+            return;
+        }
+
+        // Node list API returns status of all nodes, so it is used only for small number of nodes.
+        if (requests.size() == 1 || espApp.nodeMap.size() > AppConstants.NODE_STATUS_BATCH_MAX_NODES) {
+
+            for (Map.Entry<String, ArrayList<ApiResponseListener>> entry : requests.entrySet()) {
+                getNodeStatus(entry.getKey(), entry.getValue());
+            }
+
+        } else {
+
+            Log.d(TAG, "Getting status of " + requests.size() + " nodes in one request");
+
+            apiManager.getNodesStatus(new ApiResponseListener() {
+
+                @Override
+                public void onSuccess(Bundle data) {
+
+                    ArrayList<String> nodeIds = (data != null) ? data.getStringArrayList(AppConstants.KEY_NODE_IDS) : null;
+
+                    if (nodeIds != null) {
+                        for (String nodeId : nodeIds) {
+                            onStatusReceived(nodeId);
+                        }
+                    }
+
+                    for (Map.Entry<String, ArrayList<ApiResponseListener>> entry : requests.entrySet()) {
+
+                        for (ApiResponseListener listener : entry.getValue()) {
+
+                            if (nodeIds != null && nodeIds.contains(entry.getKey())) {
+                                listener.onSuccess(null);
+                            } else {
+                                listener.onResponseFailure(new RuntimeException("Failed to get Node status"));
+                            }
+                        }
+                    }
+                }
+
+                @Override
+                public void onResponseFailure(Exception exception) {
+                    for (ArrayList<ApiResponseListener> listeners : requests.values()) {
+                        for (ApiResponseListener listener : listeners) {
+                            listener.onResponseFailure(exception);
+                        }
+                    }
+                }
+
+                @Override
+                public void onNetworkFailure(Exception exception) {
+                    for (ArrayList<ApiResponseListener> listeners : requests.values()) {
+                        for (ApiResponseListener listener : listeners) {
+                            listener.onNetworkFailure(exception);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    private void getNodeStatus(final String nodeId, final ArrayList<ApiResponseListener> listeners) {
+
+        apiManager.getNodeStatus(nodeId, new ApiResponseListener() {
+
+            @Override
+            public void onSuccess(Bundle data) {
+                onStatusReceived(nodeId);
+                for (ApiResponseListener listener : listeners) {
+                    listener.onSuccess(data);
+                }
+            }
+
+            @Override
+            public void onResponseFailure(Exception exception) {
+                for (ApiResponseListener listener : listeners) {
+                    listener.onResponseFailure(exception);
+                }
+            }
+
+            @Override
+            public void onNetworkFailure(Exception exception) {
+                for (ApiResponseListener listener : listeners) {
+                    listener.onNetworkFailure(exception);
+                }
+            }
+        });
+    }
+
+    private synchronized void onStatusReceived(String nodeId) {
+        fetchTimes.put(nodeId, SystemClock.elapsedRealtime());
+    }
+}
@@ -0,0 +1,185 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.cloudapi;
+
+import android.util.Log;
+
+import com.espressif.ScheduleParser;
+import com.espressif.ui.models.EspNode;
+import com.espressif.ui.models.NodeSyncDelta;
+import com.espressif.ui.models.Schedule;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class is used to reconcile one sync of node list with the cached nodes and schedules.
+ * Nodes and schedules received in the sync are marked in current generation and
+ * entries which are not marked are swept at the end of sync.
+ * Schedule which is not changed keeps its previous object, so that UI can compare schedules by reference.
+ * All changes are collected in {@link NodeSyncDelta}.
+ */
+public class NodeSyncEngine {
+
+    private static final String TAG = NodeSyncEngine.class.getSimpleName();
+
+    private HashSet<String> previousNodeIds;
+    private HashSet<String> previousScheduleKeys;
+    private HashMap<String, Schedule> previousSchedules;
+    private HashSet<String> markedNodeIds = new HashSet<>();
+    private HashSet<String> markedScheduleKeys = new HashSet<>();
+    private NodeSyncDelta delta = new NodeSyncDelta();
+
+    /**
+     * @param nodeIds   Ids of nodes available before this sync.
+     * @param schedules Schedules available before this sync, with schedule id as key.
+     */
+    public NodeSyncEngine(Set<String> nodeIds, Map<String, Schedule> schedules) {
+        previousNodeIds = new HashSet<>(nodeIds);
+        previousSchedules = new HashMap<>(schedules);
+        previousScheduleKeys = new HashSet<>(schedules.keySet());
+    }
+
+    /**
+     * This method is used to mark node received in current sync.
+     *
+     * @param nodeId Node id.
+     * @return True if node was not available before this sync.
+     */
+    public boolean markNode(String nodeId) {
+
+        markedNodeIds.add(nodeId);
+
+        if (!previousNodeIds.contains(nodeId)) {
+            delta.getAddedNodes().add(nodeId);
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isNodeAdded(String nodeId) {
+        return delta.getAddedNodes().contains(nodeId);
+    }
+
+    public void onConfigChanged(String nodeId) {
+        if (!isNodeAdded(nodeId)) {
+            delta.getConfigChangedNodes().add(nodeId);
+        }
+    }
+
+    public void onParamsChanged(String nodeId, String deviceName) {
+
+        if (isNodeAdded(nodeId)) {
+            return;
+        }
+
+        HashSet<String> devices = delta.getParamChangedDevices().get(nodeId);
+        if (devices == null) {
+            devices = new HashSet<>();
+            delta.getParamChangedDevices().put(nodeId, devices);
+        }
+        devices.add(deviceName);
+    }
+
+    public void onStatusChanged(String nodeId) {
+        if (!isNodeAdded(nodeId)) {
+            delta.getStatusChangedNodes().add(nodeId);
+        }
+    }
+
+    /**
+     * This method is used to mark schedule received in current sync.
+     *
+     * @param key Schedule key.
+     */
+    public void markSchedule(String key) {
+
+        markedScheduleKeys.add(key);
+
+        if (!previousScheduleKeys.contains(key)) {
+            delta.getAddedSchedules().add(key);
+        }
+    }
+
+    /**
+     * This method is used to remove nodes and schedules which are not marked in current sync.
+     * Schedules received in this sync are compared with previous schedules to find changed schedules.
+     *
+     * @param nodeMap     Nodes map.
+     * @param scheduleMap Schedules map.
+     * @return Changes of this sync.
+     */
+    public NodeSyncDelta sweep(HashMap<String, EspNode> nodeMap, HashMap<String, Schedule> scheduleMap) {
+
+        Iterator<Map.Entry<String, EspNode>> itr = nodeMap.entrySet().iterator();
+
+        // iterate and remove items simultaneously
+        while (itr.hasNext()) {
+
+            String key = itr.next().getKey();
+
+            if (!markedNodeIds.contains(key)) {
+                itr.remove();
+            }
+        }
+
+        for (String nodeId : previousNodeIds) {
+            if (!markedNodeIds.contains(nodeId)) {
+                delta.getRemovedNodes().add(nodeId);
+            }
+        }
+
+        Iterator<Map.Entry<String, Schedule>> schItr = scheduleMap.entrySet().iterator();
+
+        // iterate and remove items simultaneously
+        while (schItr.hasNext()) {
+
+            Map.Entry<String, Schedule> entry = schItr.next();
+            String key = entry.getKey();
+
+            if (!markedScheduleKeys.contains(key)) {
+                schItr.remove();
+                Log.d(TAG, "Remove schedule for key : " + key);
+                continue;
+            }
+
+            Schedule previousSchedule = previousSchedules.get(key);
+
+            if (previousSchedule != null) {
+                if (ScheduleParser.isSameSchedule(previousSchedule, entry.getValue())) {
+                    entry.setValue(previousSchedule);
+                } else {
+                    delta.getChangedSchedules().add(key);
+                }
+            }
+        }
+
+        for (String key : previousScheduleKeys) {
+            if (!markedScheduleKeys.contains(key)) {
+                delta.getRemovedSchedules().add(key);
+            }
+        }
+
+        Log.d(TAG, "Sync delta : " + delta);
+        return delta;
+    }
+
+    public NodeSyncDelta getDelta() {
+        return delta;
+    }
+}
@@ -0,0 +1,253 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.cloudapi;
+
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.espressif.AppConstants;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Random;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * This class applies retry policy of the endpoint declared in {@link ApiInterface}
+ * with {@link AppConstants#HEADER_RETRY_POLICY} header, e.g. "max-retries=3".
+ * Only idempotent requests (GET, PUT, DELETE or policy with "idempotent") are retried,
+ * on network error or 5xx / 429 response, with jittered exponential backoff.
+ * Retries are stopped when total backoff of the request would exceed {@link AppConstants#RETRY_MAX_TOTAL_DELAY}.
+ * <p>
+ * Circuit breaker is applied to all requests of each host. After {@link AppConstants#CIRCUIT_FAILURE_THRESHOLD}
+ * consecutive failures, requests fail immediately with {@link CircuitOpenException} for
+ * {@link AppConstants#CIRCUIT_OPEN_TIME}. After that, one request is allowed to check the host.
+ */
+public class RetryInterceptor implements Interceptor {
+
+    private static final String TAG = RetryInterceptor.class.getSimpleName();
+
+    private static final String KEY_MAX_RETRIES = "max-retries";
+    private static final String KEY_IDEMPOTENT = "idempotent";
+
+    private final HashMap<String, CircuitBreaker> circuitBreakers = new HashMap<>();
+    private final Random random = new Random();
+
+    private long tripCount;
+
+    /**
+     * Exception for request which is not sent because circuit of the host is open.
+     */
+    public static class CircuitOpenException extends IOException {
+
+        CircuitOpenException(String host) {
+            super("Requests to " + host + " are paused after repeated failures");
+        }
+    }
+
+    private static class CircuitBreaker {
+
+        private int failureCount;
+        private long openUntil;
+        private boolean isProbeInFlight;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+
+        Request request = chain.request();
+        String policy = request.header(AppConstants.HEADER_RETRY_POLICY);
+        String host = request.url().host();
+
+        if (policy != null) {
+            request = request.newBuilder().removeHeader(AppConstants.HEADER_RETRY_POLICY).build();
+        }
+
+        int maxRetries = isIdempotent(request, policy) ? Math.max(getDirective(policy, KEY_MAX_RETRIES), 0) : 0;
+        int attempt = 0;
+        long totalDelay = 0;
+
+        while (true) {
+
+            acquire(host);
+            Response response = null;
+            IOException exception = null;
+
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                exception = e;
+            }
+
+            if (exception != null && chain.call().isCanceled()) {
+                // Cancelled by app, it is not a failure of the host.
+                releaseProbe(host);
+                throw exception;
+            }
+
+            release(host, exception != null || response.code() >= 500);
+
+            boolean isRetriable = exception != null || response.code() >= 500 || response.code() == 429;
+
+            if (!isRetriable || attempt >= maxRetries) {
+                if (exception != null) {
+                    throw exception;
+                }
+                return response;
+            }
+
+            long delay = getBackoff(attempt, response);
+
+            if (totalDelay + delay > AppConstants.RETRY_MAX_TOTAL_DELAY) {
+                Log.d(TAG, "No more retries of " + request.url().encodedPath() + ", waited " + totalDelay + " ms");
+                if (exception != null) {
+                    throw exception;
+                }
+                return response;
+            }
+
+            if (response != null) {
+                response.close();
+            }
+
+            attempt++;
+            totalDelay += delay;
+            Log.d(TAG, "Retry " + attempt + " of " + request.url().encodedPath() + " after " + delay + " ms");
+
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Retry interrupted");
+            }
+        }
+    }
+
+    private synchronized void acquire(String host) throws CircuitOpenException {
+
+        CircuitBreaker circuitBreaker = circuitBreakers.get(host);
+
+        if (circuitBreaker == null || circuitBreaker.failureCount < AppConstants.CIRCUIT_FAILURE_THRESHOLD) {
+            return;
+        }
+
+        // Circuit is open. After open time, allow one request to check whether host is available.
+        if (System.currentTimeMillis() < circuitBreaker.openUntil || circuitBreaker.isProbeInFlight) {
+            throw new CircuitOpenException(host);
+        }
+        circuitBreaker.isProbeInFlight = true;
+    }
+
+    private synchronized void release(String host, boolean isFailed) {
+
+        CircuitBreaker circuitBreaker = circuitBreakers.get(host);
+
+        if (!isFailed) {
+            if (circuitBreaker != null) {
+                if (circuitBreaker.failureCount >= AppConstants.CIRCUIT_FAILURE_THRESHOLD) {
+                    Log.d(TAG, "Circuit closed for " + host);
+                }
+                circuitBreakers.remove(host);
+            }
+            return;
+        }
+
+        if (circuitBreaker == null) {
+            circuitBreaker = new CircuitBreaker();
+            circuitBreakers.put(host, circuitBreaker);
+        }
+
+        circuitBreaker.failureCount++;
+        circuitBreaker.isProbeInFlight = false;
+
+        if (circuitBreaker.failureCount >= AppConstants.CIRCUIT_FAILURE_THRESHOLD) {
+            if (circuitBreaker.failureCount == AppConstants.CIRCUIT_FAILURE_THRESHOLD) {
+                tripCount++;
+            }
+            circuitBreaker.openUntil = System.currentTimeMillis() + AppConstants.CIRCUIT_OPEN_TIME;
+            Log.e(TAG, "Circuit open for " + host + ", trips : " + tripCount);
+        }
+    }
+
+    private synchronized void releaseProbe(String host) {
+
+        CircuitBreaker circuitBreaker = circuitBreakers.get(host);
+
+        if (circuitBreaker != null) {
+            circuitBreaker.isProbeInFlight = false;
+        }
+    }
+
+    private long getBackoff(int attempt, Response response) {
+
+        long maxDelay = Math.min(AppConstants.RETRY_MAX_DELAY, AppConstants.RETRY_BASE_DELAY << attempt);
+
+        // Use delay requested by cloud, if available.
+        if (response != null && response.header("Retry-After") != null) {
+            try {
+                long retryAfter = Long.parseLong(response.header("Retry-After").trim()) * 1000;
+                return Math.min(retryAfter, AppConstants.RETRY_MAX_DELAY);
+            } catch (NumberFormatException e) {
+                // Date format is not used by cloud, use backoff.
+            }
+        }
+
+        // Full jitter, so that retries of multiple requests are spread.
+        synchronized (random) {
+            return (long) (random.nextDouble() * maxDelay);
+        }
+    }
+
+    private static boolean isIdempotent(Request request, String policy) {
+
+        String method = request.method();
+
+        if ("GET".equals(method) || "HEAD".equals(method) || "PUT".equals(method) || "DELETE".equals(method)) {
+            return true;
+        }
+        return policy != null && policy.contains(KEY_IDEMPOTENT);
+    }
+
+    /**
+     * This method is used to get value of the directive from policy.
+     *
+     * @return Value of directive or -1 if directive is not available.
+     */
+    private static int getDirective(String policy, String name) {
+
+        if (TextUtils.isEmpty(policy)) {
+            return -1;
+        }
+
+        String[] directives = policy.split(",");
+
+        for (String directive : directives) {
+
+            String[] keyValue = directive.trim().split("=");
+
+            if (keyValue.length == 2 && name.equalsIgnoreCase(keyValue[0].trim())) {
+                try {
+                    return Integer.parseInt(keyValue[1].trim());
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+}
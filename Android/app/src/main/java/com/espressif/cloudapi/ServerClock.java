@@ -0,0 +1,81 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.cloudapi;
+
+import java.io.IOException;
+import java.util.Date;
+
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * This class keeps time of the cloud, so that param writes done in app can be compared with time of the values
+ * read from cloud. Offset from time of the phone is updated from Date header of each network response.
+ * <p>
+ * Date header has resolution of one second and it is generated after request is sent, so time of this clock
+ * is never earlier than time of the cloud. Write stamped with this clock is not older than the read which is done after it.
+ */
+public class ServerClock {
+
+    // Resolution of Date header.
+    private static final long DATE_RESOLUTION = 1000;
+
+    private static volatile long offset;
+
+    /**
+     * This method is used to get current time of the cloud.
+     *
+     * @return Time in milliseconds.
+     */
+    public static long now() {
+        return System.currentTimeMillis() + offset;
+    }
+
+    /**
+     * This method is used to get time at which response is generated by the cloud.
+     * Cached response returns time at which it was received from the cloud.
+     *
+     * @param headers Headers of the response.
+     * @return Time in milliseconds, current time of the cloud if Date header is not available.
+     */
+    public static long getResponseTime(Headers headers) {
+
+        Date date = headers.getDate("Date");
+        return date != null ? date.getTime() : now();
+    }
+
+    /**
+     * Network interceptor which updates offset of the clock.
+     */
+    public static Interceptor getInterceptor() {
+        return interceptor;
+    }
+
+    private static Interceptor interceptor = new Interceptor() {
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+
+            Response response = chain.proceed(chain.request());
+            Date date = response.headers().getDate("Date");
+
+            if (date != null) {
+                offset = date.getTime() + DATE_RESOLUTION - response.sentRequestAtMillis();
+            }
+            return response;
+        }
+    };
+}
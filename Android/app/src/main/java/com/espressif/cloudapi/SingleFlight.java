@@ -0,0 +1,121 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.cloudapi;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.espressif.AppConstants;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * This class is used to merge identical requests which are in flight.
+ * First caller for a key executes the request and result is delivered to all callers of that key.
+ * Request which is in flight for more than {@link AppConstants#SINGLE_FLIGHT_TIMEOUT} is not joined,
+ * new caller starts new request.
+ */
+public class SingleFlight {
+
+    private static final String TAG = SingleFlight.class.getSimpleName();
+
+    private final HashMap<String, Flight> flights = new HashMap<>();
+
+    private static class Flight {
+
+        private final ArrayList<ApiResponseListener> listeners = new ArrayList<>();
+        private final long startTime = SystemClock.elapsedRealtime();
+
+        boolean isExpired() {
+            return SystemClock.elapsedRealtime() - startTime > AppConstants.SINGLE_FLIGHT_TIMEOUT;
+        }
+    }
+
+    /**
+     * This method is used to join the request for given key.
+     *
+     * @param key      Key which identifies the request.
+     * @param listener Listener of the caller.
+     * @return Listener to be used to execute the request, if there is no request in flight for the key.
+     * Null if listener is added to the request which is already in flight.
+     */
+    public synchronized ApiResponseListener join(final String key, ApiResponseListener listener) {
+
+        Flight flight = flights.get(key);
+
+        if (flight != null && !flight.isExpired()) {
+            Log.d(TAG, "Request in flight for " + key + ", waiting for its result");
+            flight.listeners.add(listener);
+            return null;
+        }
+
+        if (flight != null) {
+            Log.e(TAG, "Request in flight for " + key + " is expired, starting new request");
+        }
+
+        final Flight newFlight = new Flight();
+        newFlight.listeners.add(listener);
+        flights.put(key, newFlight);
+
+        return new ApiResponseListener() {
+
+            @Override
+            public void onSuccess(Bundle data) {
+                for (ApiResponseListener l : land(key, newFlight)) {
+                    l.onSuccess(data);
+                }
+            }
+
+            @Override
+            public void onResponseFailure(Exception exception) {
+                for (ApiResponseListener l : land(key, newFlight)) {
+                    l.onResponseFailure(exception);
+                }
+            }
+
+            @Override
+            public void onNetworkFailure(Exception exception) {
+                for (ApiResponseListener l : land(key, newFlight)) {
+                    l.onNetworkFailure(exception);
+                }
+            }
+        };
+    }
+
+    /**
+     * This method is used to forget all requests in flight, e.g. on logout / login.
+     * Callers after this will start new requests. Requests in flight still deliver result to their own callers.
+     */
+    public synchronized void clear() {
+        flights.clear();
+    }
+
+    /**
+     * Request is completed, so new callers for the key will start new request.
+     * Request for the key started after this flight is expired or cleared, is not removed.
+     */
+    private synchronized ArrayList<ApiResponseListener> land(String key, Flight flight) {
+
+        if (flights.get(key) == flight) {
+            flights.remove(key);
+        }
+
+        ArrayList<ApiResponseListener> listeners = new ArrayList<>(flight.listeners);
+        flight.listeners.clear();
+        return listeners;
+    }
+}
@@ -23,12 +23,21 @@ import com.espressif.AppConstants;
 import com.espressif.EspApplication;
 import com.espressif.ui.activities.MainActivity;
 
+import java.io.IOException;
+
 import okhttp3.Authenticator;
+import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.Route;
 
-public class TokenAuthenticator implements Authenticator {
+/**
+ * This class is used to keep access token of the requests valid.
+ * As an interceptor, it refreshes token which is going to expire before request is sent.
+ * As an authenticator, it refreshes token when request is rejected with 401 and retries the request.
+ * Token refresh is done once for all concurrent requests.
+ */
+public class TokenAuthenticator implements Authenticator, Interceptor {
 
     private static final String TAG = TokenAuthenticator.class.getSimpleName();
 
@@ -38,12 +47,49 @@ public class TokenAuthenticator implements Authenticator {
         this.context = context;
     }
 
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+
+        Request request = chain.request();
+        String token = request.header(AppConstants.HEADER_AUTHORIZATION);
+        ApiManager apiManager = ApiManager.getInstance(context);
+
+        if (TextUtils.isEmpty(token) || !apiManager.isTokenExpiring()) {
+            return chain.proceed(request);
+        }
+
+        Log.d(TAG, "Token is going to expire, refresh it before sending request");
+        String newToken = apiManager.refreshAccessToken(token);
+
+        if (!TextUtils.isEmpty(newToken)) {
+            request = request.newBuilder()
+                    .header(AppConstants.HEADER_AUTHORIZATION, newToken)
+                    .build();
+        }
+        // If refresh is failed, request is sent with old token and authenticator handles 401.
+        return chain.proceed(request);
+    }
+
     @Override
     public Request authenticate(Route route, Response response) {
 
         Log.d(TAG, "=============== Authenticate callback ===============");
         Log.d(TAG, "Response code : " + response.code());
-        String newToken = ApiManager.getInstance(context).getNewToken();
+
+        String oldToken = response.request().header(AppConstants.HEADER_AUTHORIZATION);
+
+        if (TextUtils.isEmpty(oldToken)) {
+            // Request is not authorized with token, nothing to refresh.
+            return null;
+        }
+
+        if (response.priorResponse() != null) {
+            // Request is rejected even after retrying it with new token.
+            doLogout();
+            return null;
+        }
+
+        String newToken = ApiManager.getInstance(context).refreshAccessToken(oldToken);
 
         if (!TextUtils.isEmpty(newToken)) {
             Log.d(TAG, "Retrying with new token");
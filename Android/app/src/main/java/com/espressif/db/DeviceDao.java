@@ -0,0 +1,39 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.db;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import com.espressif.AppConstants;
+import com.espressif.ui.models.DeviceEntity;
+
+import java.util.List;
+
+@Dao
+public interface DeviceDao {
+
+    /**
+     * Get devices of all nodes, ordered by node and position in node config.
+     */
+    @Query("SELECT * FROM " + AppConstants.DEVICE_TABLE + " ORDER BY node_id, position")
+    List<DeviceEntity> getAll();
+
+    /**
+     * Get devices of given nodes, ordered by node and position in node config.
+     */
+    @Query("SELECT * FROM " + AppConstants.DEVICE_TABLE + " WHERE node_id IN (:nodeIds) ORDER BY node_id, position")
+    List<DeviceEntity> getDevices(List<String> nodeIds);
+}
@@ -24,19 +24,51 @@ import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import com.espressif.AppConstants;
+import com.espressif.ui.models.DeviceEntity;
 import com.espressif.ui.models.EspNode;
+import com.espressif.ui.models.FcmMessage;
 import com.espressif.ui.models.Group;
 import com.espressif.ui.models.NotificationEvent;
+import com.espressif.ui.models.ParamEntity;
+import com.espressif.ui.models.ParamHistoryBlock;
+import com.espressif.ui.models.ParamRollup;
+import com.espressif.ui.models.ParamWrite;
+import com.espressif.ui.models.ServiceEntity;
 
-@Database(entities = {EspNode.class, Group.class, NotificationEvent.class}, version = 3, exportSchema = false)
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Database(entities = {EspNode.class, Group.class, NotificationEvent.class, ParamWrite.class,
+        DeviceEntity.class, ServiceEntity.class, ParamEntity.class, ParamHistoryBlock.class, ParamRollup.class,
+        FcmMessage.class}, version = 11, exportSchema = false)
 @TypeConverters({StringArrayListConverters.class})
 public abstract class EspDatabase extends RoomDatabase {
 
     private static EspDatabase espDatabase;
 
+    // All database writes and reads of UI are done on this thread, in order of submission.
+    private static final ExecutorService dbExecutor = Executors.newSingleThreadExecutor();
+
     public abstract NodeDao getNodeDao();
     public abstract GroupDao getGroupDao();
     public abstract NotificationDao getNotificationDao();
+    public abstract ParamWriteDao getParamWriteDao();
+    public abstract DeviceDao getDeviceDao();
+    public abstract ServiceDao getServiceDao();
+    public abstract ParamDao getParamDao();
+    public abstract ParamHistoryDao getParamHistoryDao();
+    public abstract ParamRollupDao getParamRollupDao();
+    public abstract FcmInboxDao getFcmInboxDao();
+
+    /**
+     * This method is used to get executor on which database should be accessed.
+     * Database can not be accessed from main thread.
+     *
+     * @return Executor of the database.
+     */
+    public static ExecutorService getExecutor() {
+        return dbExecutor;
+    }
 
     public static EspDatabase getInstance(Context context) {
         if (null == espDatabase) {
@@ -51,7 +83,15 @@ public abstract class EspDatabase extends RoomDatabase {
                 AppConstants.ESP_DATABASE_NAME)
                 .addMigrations(MIGRATION_2_3)
                 .addMigrations(MIGRATION_1_3)
-                .allowMainThreadQueries().build();
+                .addMigrations(MIGRATION_3_4)
+                .addMigrations(MIGRATION_4_5)
+                .addMigrations(MIGRATION_5_6)
+                .addMigrations(MIGRATION_6_7)
+                .addMigrations(MIGRATION_7_8)
+                .addMigrations(MIGRATION_8_9)
+                .addMigrations(MIGRATION_9_10)
+                .addMigrations(MIGRATION_10_11)
+                .build();
     }
 
     public void cleanUp() {
@@ -72,4 +112,99 @@ public abstract class EspDatabase extends RoomDatabase {
             database.execSQL("CREATE TABLE IF NOT EXISTS `" + AppConstants.NOTIFICATION_TABLE + "` (`notificationId` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `event_version` TEXT, `event_type` TEXT, `description` TEXT, `id` TEXT, `event_data` TEXT, `timestamp` INTEGER NOT NULL, `notification_msg` TEXT)");
         }
     };
+
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `" + AppConstants.PARAM_WRITE_TABLE + "` (`node_id` TEXT NOT NULL, `device_name` TEXT NOT NULL, `param_name` TEXT NOT NULL, `value` TEXT, `timestamp` INTEGER NOT NULL, PRIMARY KEY(`node_id`, `device_name`, `param_name`))");
+        }
+    };
+
+    /**
+     * Node config and param values are stored in device, service and param tables instead of JSON.
+     * Node table keeps config JSON (to find config changes) and node info.
+     * Devices of existing nodes are stored from config JSON when nodes are loaded first time.
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `node_table_new` (`nodeId` TEXT NOT NULL, `user_role` TEXT, `config_version` TEXT, `node_name` TEXT, `fw_version` TEXT, `node_type` TEXT, `config_data` TEXT, `schedule_data` TEXT, PRIMARY KEY(`nodeId`))");
+            database.execSQL("INSERT INTO `node_table_new` (`nodeId`, `config_data`) SELECT `nodeId`, `config_data` FROM `" + AppConstants.NODE_TABLE + "`");
+            database.execSQL("DROP TABLE `" + AppConstants.NODE_TABLE + "`");
+            database.execSQL("ALTER TABLE `node_table_new` RENAME TO `" + AppConstants.NODE_TABLE + "`");
+
+            database.execSQL("CREATE TABLE IF NOT EXISTS `" + AppConstants.DEVICE_TABLE + "` (`node_id` TEXT NOT NULL, `device_name` TEXT NOT NULL, `position` INTEGER NOT NULL, `device_type` TEXT, `primary_param` TEXT, PRIMARY KEY(`node_id`, `device_name`))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_" + AppConstants.DEVICE_TABLE + "_node_id_position` ON `" + AppConstants.DEVICE_TABLE + "` (`node_id`, `position`)");
+
+            database.execSQL("CREATE TABLE IF NOT EXISTS `" + AppConstants.SERVICE_TABLE + "` (`node_id` TEXT NOT NULL, `service_name` TEXT NOT NULL, `position` INTEGER NOT NULL, `service_type` TEXT, PRIMARY KEY(`node_id`, `service_name`))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_" + AppConstants.SERVICE_TABLE + "_node_id_position` ON `" + AppConstants.SERVICE_TABLE + "` (`node_id`, `position`)");
+
+            database.execSQL("CREATE TABLE IF NOT EXISTS `" + AppConstants.PARAM_TABLE + "` (`node_id` TEXT NOT NULL, `owner_type` INTEGER NOT NULL, `owner_name` TEXT NOT NULL, `param_name` TEXT NOT NULL, `position` INTEGER NOT NULL, `param_type` TEXT, `data_type` TEXT, `ui_type` TEXT, `properties` TEXT, `min_bounds` INTEGER NOT NULL, `max_bounds` INTEGER NOT NULL, `step_count` REAL NOT NULL, `valid_strings` TEXT, `is_dynamic` INTEGER NOT NULL, `value` REAL NOT NULL, `switch_status` INTEGER NOT NULL, `label_value` TEXT, PRIMARY KEY(`node_id`, `owner_type`, `owner_name`, `param_name`))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_" + AppConstants.PARAM_TABLE + "_node_id_owner_type_owner_name_position` ON `" + AppConstants.PARAM_TABLE + "` (`node_id`, `owner_type`, `owner_name`, `position`)");
+        }
+    };
+
+    /**
+     * Sync generation is added in node, device, service and param tables,
+     * rows which are not written in latest sync are deleted after the sync.
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `" + AppConstants.NODE_TABLE + "` ADD COLUMN `sync_generation` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `" + AppConstants.DEVICE_TABLE + "` ADD COLUMN `sync_generation` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `" + AppConstants.SERVICE_TABLE + "` ADD COLUMN `sync_generation` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `" + AppConstants.PARAM_TABLE + "` ADD COLUMN `sync_generation` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    /**
+     * Index on timestamp of notifications, notification history is read page by page.
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_" + AppConstants.NOTIFICATION_TABLE + "_timestamp_notificationId` ON `" + AppConstants.NOTIFICATION_TABLE + "` (`timestamp`, `notificationId`)");
+        }
+    };
+
+    /**
+     * Compressed history of numeric param values.
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `" + AppConstants.PARAM_HISTORY_TABLE + "` (`node_id` TEXT NOT NULL, `device_name` TEXT NOT NULL, `param_name` TEXT NOT NULL, `start_time` INTEGER NOT NULL, `end_time` INTEGER NOT NULL, `sample_count` INTEGER NOT NULL, `data` BLOB, PRIMARY KEY(`node_id`, `device_name`, `param_name`, `start_time`))");
+        }
+    };
+
+    /**
+     * Rollups of param history.
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `" + AppConstants.PARAM_ROLLUP_TABLE + "` (`node_id` TEXT NOT NULL, `device_name` TEXT NOT NULL, `param_name` TEXT NOT NULL, `resolution` INTEGER NOT NULL, `bucket_time` INTEGER NOT NULL, `min_value` REAL NOT NULL, `max_value` REAL NOT NULL, `sum` REAL NOT NULL, `sample_count` INTEGER NOT NULL, PRIMARY KEY(`node_id`, `device_name`, `param_name`, `resolution`, `bucket_time`))");
+        }
+    };
+
+    /**
+     * Inbox of push messages.
+     */
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `" + AppConstants.FCM_INBOX_TABLE + "` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `title` TEXT, `payload` TEXT, `received_time` INTEGER NOT NULL)");
+        }
+    };
+
+    /**
+     * Param values JSON of node.
+     */
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `" + AppConstants.NODE_TABLE + "` ADD COLUMN `param_data` TEXT");
+        }
+    };
 }
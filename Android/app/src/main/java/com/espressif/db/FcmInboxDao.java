@@ -0,0 +1,75 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.espressif.AppConstants;
+import com.espressif.ui.models.FcmMessage;
+
+import java.util.List;
+
+@Dao
+public abstract class FcmInboxDao {
+
+    /**
+     * Get oldest messages of the inbox, in order of receiving.
+     *
+     * @param limit Max number of messages.
+     * @return List of messages.
+     */
+    @Query("SELECT * FROM " + AppConstants.FCM_INBOX_TABLE + " ORDER BY id LIMIT :limit")
+    public abstract List<FcmMessage> getMessages(int limit);
+
+    /**
+     * Get number of messages in the inbox.
+     */
+    @Query("SELECT COUNT(*) FROM " + AppConstants.FCM_INBOX_TABLE)
+    public abstract int getCount();
+
+    @Insert
+    abstract long insert(FcmMessage message);
+
+    /**
+     * Add message in the inbox.
+     *
+     * @param message Received message.
+     * @return True if inbox was empty, in that case worker to process the inbox should be started.
+     * Otherwise messages are being processed and worker will process this message as well.
+     */
+    @Transaction
+    public boolean add(FcmMessage message) {
+        boolean wasEmpty = getCount() == 0;
+        insert(message);
+        return wasEmpty;
+    }
+
+    /**
+     * Delete messages which are processed.
+     *
+     * @param lastId Id of last processed message.
+     */
+    @Query("DELETE FROM " + AppConstants.FCM_INBOX_TABLE + " WHERE id <= :lastId")
+    public abstract void deleteUpTo(long lastId);
+
+    /**
+     * Delete all messages from the inbox.
+     */
+    @Query("DELETE FROM " + AppConstants.FCM_INBOX_TABLE)
+    public abstract void deleteAll();
+}
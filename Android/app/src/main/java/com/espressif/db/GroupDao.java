@@ -19,6 +19,7 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
 import com.espressif.AppConstants;
 import com.espressif.ui.models.Group;
@@ -26,10 +27,10 @@ import com.espressif.ui.models.Group;
 import java.util.List;
 
 @Dao
-public interface GroupDao {
+public abstract class GroupDao {
 
     @Query("SELECT * FROM " + AppConstants.GROUP_TABLE)
-    List<Group> getGroupsFromStorage();
+    public abstract List<Group> getGroupsFromStorage();
 
     /**
      * Update group if it exist in database, insert group otherwise.
@@ -37,7 +38,15 @@ public interface GroupDao {
      * @param group Group to be inserted / updated.
      */
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertOrUpdate(Group group);
+    public abstract void insertOrUpdate(Group group);
+
+    /**
+     * Update groups if they exist in database, insert groups otherwise.
+     *
+     * @param groups Groups to be inserted / updated.
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void insertOrUpdate(List<Group> groups);
 
     /**
      * Delete the group from database.
@@ -45,11 +54,25 @@ public interface GroupDao {
      * @param group Group to be deleted.
      */
     @Delete
-    void delete(Group group);
+    public abstract void delete(Group group);
 
     /**
      * Delete all groups from group table.
      */
     @Query("DELETE FROM " + AppConstants.GROUP_TABLE)
-    void deleteAll();
+    public abstract void deleteAll();
+
+    /**
+     * Store groups received from cloud in one transaction.
+     *
+     * @param groups      Groups to be stored.
+     * @param isAllGroups True if groups are all groups of the user, other stored groups are deleted.
+     */
+    @Transaction
+    public void replace(List<Group> groups, boolean isAllGroups) {
+        if (isAllGroups) {
+            deleteAll();
+        }
+        insertOrUpdate(groups);
+    }
 }
@@ -19,17 +19,41 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
 import com.espressif.AppConstants;
+import com.espressif.ui.models.DeviceEntity;
 import com.espressif.ui.models.EspNode;
+import com.espressif.ui.models.ParamEntity;
+import com.espressif.ui.models.ServiceEntity;
 
 import java.util.List;
 
 @Dao
-public interface NodeDao {
+public abstract class NodeDao {
+
+    // Max number of node ids in one query, SQLite allows 999 arguments.
+    private static final int MAX_QUERY_ARGS = 500;
 
     @Query("SELECT * FROM " + AppConstants.NODE_TABLE)
-    List<EspNode> getNodesFromStorage();
+    public abstract List<EspNode> getNodesFromStorage();
+
+    /**
+     * Get nodes with given ids.
+     *
+     * @param nodeIds Node ids.
+     * @return List of nodes.
+     */
+    @Query("SELECT * FROM " + AppConstants.NODE_TABLE + " WHERE nodeId IN (:nodeIds)")
+    public abstract List<EspNode> getNodes(List<String> nodeIds);
+
+    /**
+     * Get ids of all nodes stored in database.
+     *
+     * @return List of node ids.
+     */
+    @Query("SELECT nodeId FROM " + AppConstants.NODE_TABLE)
+    public abstract List<String> getNodeIds();
 
     /**
      * Update node if it exist in database, insert node otherwise.
@@ -37,7 +61,7 @@ public interface NodeDao {
      * @param node Node to be inserted / updated.
      */
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertOrUpdate(EspNode node);
+    public abstract void insertOrUpdate(EspNode node);
 
     /**
      * Delete the node from database.
@@ -45,11 +69,122 @@ public interface NodeDao {
      * @param node Node to be deleted.
      */
     @Delete
-    void delete(EspNode node);
+    public abstract void delete(EspNode node);
+
+    /**
+     * Delete the node from database.
+     *
+     * @param nodeId Id of the node to be deleted.
+     */
+    @Query("DELETE FROM " + AppConstants.NODE_TABLE + " WHERE nodeId = :nodeId")
+    public abstract void deleteById(String nodeId);
 
     /**
      * Delete all nodes from node table.
      */
     @Query("DELETE FROM " + AppConstants.NODE_TABLE)
-    void deleteAll();
+    public abstract void deleteAll();
+
+    /**
+     * Write nodes of one sync page in one transaction.
+     * Nodes, devices, services and params in rows are inserted / updated and param values are updated.
+     * Devices, services and params of config changed nodes which are not written with this generation are deleted.
+     * Generation of unchanged nodes is updated, so that they are not deleted by {@link #deleteStale(long)}.
+     *
+     * @param rows Rows of the nodes.
+     */
+    @Transaction
+    public void upsert(NodeRows rows) {
+
+        insertNodes(rows.nodes);
+        insertDevices(rows.devices);
+        insertServices(rows.services);
+        insertParams(rows.params);
+
+        for (int i = 0; i < rows.configChangedIds.size(); i += MAX_QUERY_ARGS) {
+            List<String> nodeIds = rows.configChangedIds.subList(i, Math.min(i + MAX_QUERY_ARGS, rows.configChangedIds.size()));
+            deleteStaleDevices(nodeIds, rows.generation);
+            deleteStaleServices(nodeIds, rows.generation);
+            deleteStaleParams(nodeIds, rows.generation);
+        }
+
+        for (ParamEntity param : rows.paramValues) {
+            updateParamValue(param.getNodeId(), param.getOwnerType(), param.getOwnerName(), param.getParamName(),
+                    param.getValue(), param.isSwitchStatus(), param.getLabelValue());
+        }
+
+        for (int i = 0; i < rows.unchangedIds.size(); i += MAX_QUERY_ARGS) {
+            List<String> nodeIds = rows.unchangedIds.subList(i, Math.min(i + MAX_QUERY_ARGS, rows.unchangedIds.size()));
+            updateGeneration(nodeIds, rows.generation);
+        }
+    }
+
+    /**
+     * Delete nodes which are not written in the sync of given generation, with their devices, services and params.
+     *
+     * @param generation Generation of completed sync.
+     */
+    @Transaction
+    public void deleteStale(long generation) {
+        deleteStaleNodes(generation);
+        deleteOrphanDevices();
+        deleteOrphanServices();
+        deleteOrphanParams();
+    }
+
+    /**
+     * Delete all nodes with their devices, services and params.
+     */
+    @Transaction
+    public void deleteAllNodes() {
+        deleteAll();
+        deleteOrphanDevices();
+        deleteOrphanServices();
+        deleteOrphanParams();
+    }
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertNodes(List<EspNode> nodes);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertDevices(List<DeviceEntity> devices);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertServices(List<ServiceEntity> services);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertParams(List<ParamEntity> params);
+
+    /**
+     * Update value of one param. Row is written only if value is changed.
+     */
+    @Query("UPDATE " + AppConstants.PARAM_TABLE + " SET value = :value, switch_status = :switchStatus, label_value = :labelValue"
+            + " WHERE node_id = :nodeId AND owner_type = :ownerType AND owner_name = :ownerName AND param_name = :paramName"
+            + " AND (value != :value OR switch_status != :switchStatus OR label_value IS NOT :labelValue)")
+    abstract int updateParamValue(String nodeId, int ownerType, String ownerName, String paramName,
+                                  double value, boolean switchStatus, String labelValue);
+
+    @Query("UPDATE " + AppConstants.NODE_TABLE + " SET sync_generation = :generation WHERE nodeId IN (:nodeIds)")
+    abstract void updateGeneration(List<String> nodeIds, long generation);
+
+    @Query("DELETE FROM " + AppConstants.DEVICE_TABLE + " WHERE node_id IN (:nodeIds) AND sync_generation < :generation")
+    abstract void deleteStaleDevices(List<String> nodeIds, long generation);
+
+    @Query("DELETE FROM " + AppConstants.SERVICE_TABLE + " WHERE node_id IN (:nodeIds) AND sync_generation < :generation")
+    abstract void deleteStaleServices(List<String> nodeIds, long generation);
+
+    @Query("DELETE FROM " + AppConstants.PARAM_TABLE + " WHERE node_id IN (:nodeIds) AND sync_generation < :generation")
+    abstract void deleteStaleParams(List<String> nodeIds, long generation);
+
+    @Query("DELETE FROM " + AppConstants.NODE_TABLE + " WHERE sync_generation < :generation")
+    abstract void deleteStaleNodes(long generation);
+
+    @Query("DELETE FROM " + AppConstants.DEVICE_TABLE + " WHERE node_id NOT IN (SELECT nodeId FROM " + AppConstants.NODE_TABLE + ")")
+    abstract void deleteOrphanDevices();
+
+    @Query("DELETE FROM " + AppConstants.SERVICE_TABLE + " WHERE node_id NOT IN (SELECT nodeId FROM " + AppConstants.NODE_TABLE + ")")
+    abstract void deleteOrphanServices();
+
+    @Query("DELETE FROM " + AppConstants.PARAM_TABLE + " WHERE node_id NOT IN (SELECT nodeId FROM " + AppConstants.NODE_TABLE + ")")
+    abstract void deleteOrphanParams();
 }
@@ -0,0 +1,42 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.db;
+
+import com.espressif.ui.models.DeviceEntity;
+import com.espressif.ui.models.EspNode;
+import com.espressif.ui.models.ParamEntity;
+import com.espressif.ui.models.ServiceEntity;
+
+import java.util.ArrayList;
+
+/**
+ * Rows of the nodes to be written in one transaction by {@link NodeDao#upsert(NodeRows)}.
+ */
+public class NodeRows {
+
+    final long generation;
+    final ArrayList<EspNode> nodes = new ArrayList<>();
+    final ArrayList<DeviceEntity> devices = new ArrayList<>();
+    final ArrayList<ServiceEntity> services = new ArrayList<>();
+    final ArrayList<ParamEntity> params = new ArrayList<>();
+    // Changed params of nodes whose config is not changed, only their values are written.
+    final ArrayList<ParamEntity> paramValues = new ArrayList<>();
+    final ArrayList<String> configChangedIds = new ArrayList<>();
+    final ArrayList<String> unchangedIds = new ArrayList<>();
+
+    NodeRows(long generation) {
+        this.generation = generation;
+    }
+}
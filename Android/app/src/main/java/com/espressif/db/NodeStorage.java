@@ -0,0 +1,368 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.db;
+
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.espressif.AppConstants;
+import com.espressif.JsonDataParser;
+import com.espressif.ScheduleParser;
+import com.espressif.ui.models.Device;
+import com.espressif.ui.models.DeviceEntity;
+import com.espressif.ui.models.EspNode;
+import com.espressif.ui.models.Param;
+import com.espressif.ui.models.ParamEntity;
+import com.espressif.ui.models.Schedule;
+import com.espressif.ui.models.Service;
+import com.espressif.ui.models.ServiceEntity;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class is used to store nodes in node, device, service and param tables and load them back.
+ * Nodes are loaded with one query per table, without parsing node config or param values JSON.
+ * Nodes are written on database thread, in one transaction for each sync page.
+ */
+public class NodeStorage {
+
+    private static final String TAG = NodeStorage.class.getSimpleName();
+
+    // Max number of node ids in one query, SQLite allows 999 arguments.
+    private static final int MAX_QUERY_ARGS = 500;
+
+    /**
+     * This method is used to load all stored nodes. It should not be called from main thread.
+     *
+     * @param espDatabase Database.
+     * @param nodeMap     Map in which nodes are added.
+     * @param scheduleMap Map in which schedules of the nodes are added.
+     */
+    public static void loadNodes(EspDatabase espDatabase, HashMap<String, EspNode> nodeMap,
+                                 HashMap<String, Schedule> scheduleMap) {
+
+        List<EspNode> nodes = espDatabase.getNodeDao().getNodesFromStorage();
+        List<DeviceEntity> deviceRows = espDatabase.getDeviceDao().getAll();
+        List<ServiceEntity> serviceRows = espDatabase.getServiceDao().getAll();
+        List<ParamEntity> paramRows = espDatabase.getParamDao().getAll();
+        addNodes(espDatabase, nodes, deviceRows, serviceRows, paramRows, nodeMap, scheduleMap);
+    }
+
+    /**
+     * This method is used to load stored nodes with given ids. It should not be called from main thread.
+     *
+     * @param espDatabase Database.
+     * @param nodeIds     Ids of the nodes to be loaded.
+     * @param nodeMap     Map in which nodes are added.
+     * @param scheduleMap Map in which schedules of the nodes are added.
+     */
+    public static void loadNodes(EspDatabase espDatabase, List<String> nodeIds, HashMap<String, EspNode> nodeMap,
+                                 HashMap<String, Schedule> scheduleMap) {
+
+        for (int start = 0; start < nodeIds.size(); start += MAX_QUERY_ARGS) {
+
+            List<String> ids = nodeIds.subList(start, Math.min(start + MAX_QUERY_ARGS, nodeIds.size()));
+            List<EspNode> nodes = espDatabase.getNodeDao().getNodes(ids);
+            List<DeviceEntity> deviceRows = espDatabase.getDeviceDao().getDevices(ids);
+            List<ServiceEntity> serviceRows = espDatabase.getServiceDao().getServices(ids);
+            List<ParamEntity> paramRows = espDatabase.getParamDao().getParams(ids);
+            addNodes(espDatabase, nodes, deviceRows, serviceRows, paramRows, nodeMap, scheduleMap);
+        }
+    }
+
+    private static void addNodes(EspDatabase espDatabase, List<EspNode> nodes, List<DeviceEntity> deviceRows,
+                                 List<ServiceEntity> serviceRows, List<ParamEntity> paramRows,
+                                 HashMap<String, EspNode> nodeMap, HashMap<String, Schedule> scheduleMap) {
+
+        // Params of each owner, rows are ordered by position.
+        HashMap<String, ArrayList<Param>> ownerParams = new HashMap<>();
+
+        for (ParamEntity paramRow : paramRows) {
+
+            String key = getOwnerKey(paramRow.getNodeId(), paramRow.getOwnerType(), paramRow.getOwnerName());
+            ArrayList<Param> params = ownerParams.get(key);
+
+            if (params == null) {
+                params = new ArrayList<>();
+                ownerParams.put(key, params);
+            }
+            params.add(paramRow.toParam());
+        }
+
+        HashMap<String, ArrayList<Device>> nodeDevices = new HashMap<>();
+
+        for (DeviceEntity deviceRow : deviceRows) {
+
+            Device device = deviceRow.toDevice();
+            ArrayList<Param> params = ownerParams.get(getOwnerKey(deviceRow.getNodeId(),
+                    ParamEntity.OWNER_DEVICE, deviceRow.getDeviceName()));
+            device.setParams(params != null ? params : new ArrayList<Param>());
+
+            for (Param param : device.getParams()) {
+                if (AppConstants.PARAM_TYPE_NAME.equals(param.getParamType()) && !TextUtils.isEmpty(param.getLabelValue())) {
+                    device.setUserVisibleName(param.getLabelValue());
+                }
+            }
+
+            ArrayList<Device> devices = nodeDevices.get(deviceRow.getNodeId());
+
+            if (devices == null) {
+                devices = new ArrayList<>();
+                nodeDevices.put(deviceRow.getNodeId(), devices);
+            }
+            devices.add(device);
+        }
+
+        HashMap<String, ArrayList<Service>> nodeServices = new HashMap<>();
+
+        for (ServiceEntity serviceRow : serviceRows) {
+
+            Service service = serviceRow.toService();
+            ArrayList<Param> params = ownerParams.get(getOwnerKey(serviceRow.getNodeId(),
+                    ParamEntity.OWNER_SERVICE, serviceRow.getServiceName()));
+            service.setParams(params != null ? params : new ArrayList<Param>());
+
+            ArrayList<Service> services = nodeServices.get(serviceRow.getNodeId());
+
+            if (services == null) {
+                services = new ArrayList<>();
+                nodeServices.put(serviceRow.getNodeId(), services);
+            }
+            services.add(service);
+        }
+
+        for (EspNode node : nodes) {
+
+            if (node.getConfigVersion() == null) {
+
+                // Node stored before devices were stored in tables, store it from config.
+                if (node.getConfigData() == null) {
+                    Log.e(TAG, "Node configuration is not available.");
+                    continue;
+                }
+
+                try {
+                    node = JsonDataParser.setNodeConfig(node, new JSONObject(node.getConfigData()));
+                } catch (JSONException e) {
+                    e.printStackTrace();
+                    continue;
+                }
+
+                if (node == null) {
+                    continue;
+                }
+                saveNode(espDatabase, node, true);
+
+            } else {
+
+                String nodeId = node.getNodeId();
+                ArrayList<Device> devices = nodeDevices.get(nodeId);
+                ArrayList<Service> services = nodeServices.get(nodeId);
+                ArrayList<Param> attributes = ownerParams.get(getOwnerKey(nodeId, ParamEntity.OWNER_NODE, ""));
+
+                node.setDevices(devices != null ? devices : new ArrayList<Device>());
+                node.setServices(services != null ? services : new ArrayList<Service>());
+                node.setAttributes(attributes != null ? attributes : new ArrayList<Param>());
+            }
+
+            if (node.getScheduleData() != null) {
+                try {
+                    ScheduleParser.parseSchedules(node, new JSONObject(node.getScheduleData()), scheduleMap);
+                } catch (JSONException e) {
+                    e.printStackTrace();
+                }
+            }
+            nodeMap.put(node.getNodeId(), node);
+        }
+        Log.d(TAG, "Loaded " + nodes.size() + " nodes, " + deviceRows.size() + " devices and " + paramRows.size() + " params");
+    }
+
+    /**
+     * This method is used to store the node.
+     * If config is changed, all rows of the node are written.
+     * Otherwise only params whose value is changed after they are stored are written, see {@link Param#isValueChanged()}.
+     *
+     * @param espDatabase     Database.
+     * @param node            Node to be stored.
+     * @param isConfigChanged True if devices, services or params of the node are changed.
+     */
+    public static void saveNode(EspDatabase espDatabase, EspNode node, boolean isConfigChanged) {
+
+        ArrayList<EspNode> nodes = new ArrayList<>();
+        nodes.add(node);
+        HashSet<String> configChangedIds = new HashSet<>();
+
+        if (isConfigChanged) {
+            configChangedIds.add(node.getNodeId());
+        }
+        saveNodes(espDatabase, nodes, configChangedIds, new ArrayList<String>(), System.currentTimeMillis());
+    }
+
+    /**
+     * This method is used to store nodes of one sync page in one transaction.
+     * Rows are created on calling thread and written on database thread.
+     *
+     * @param espDatabase      Database.
+     * @param nodes            Nodes whose config or param values are changed.
+     * @param configChangedIds Ids of the nodes whose config is changed.
+     * @param unchangedIds     Ids of the nodes which are not changed, these are only marked with generation.
+     * @param generation       Generation of the sync.
+     */
+    public static void saveNodes(final EspDatabase espDatabase, ArrayList<EspNode> nodes, Set<String> configChangedIds,
+                                 ArrayList<String> unchangedIds, long generation) {
+
+        final NodeRows rows = new NodeRows(generation);
+        rows.unchangedIds.addAll(unchangedIds);
+
+        for (EspNode node : nodes) {
+
+            // Copy, as node is changed by sync while rows are written.
+            EspNode nodeRow = new EspNode(node);
+            nodeRow.setSyncGeneration(generation);
+            rows.nodes.add(nodeRow);
+
+            if (configChangedIds.contains(node.getNodeId())) {
+                rows.configChangedIds.add(node.getNodeId());
+                addRows(rows, node, generation);
+            } else {
+                addParamValues(rows, node);
+            }
+        }
+
+        if (rows.nodes.isEmpty() && rows.unchangedIds.isEmpty()) {
+            return;
+        }
+
+        EspDatabase.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+                long startTime = System.currentTimeMillis();
+                espDatabase.getNodeDao().upsert(rows);
+                Log.d(TAG, "Stored " + rows.nodes.size() + " nodes (" + rows.devices.size() + " devices, "
+                        + (rows.params.size() + rows.paramValues.size()) + " params) in " + (System.currentTimeMillis() - startTime) + " ms");
+            }
+        });
+    }
+
+    /**
+     * This method is used to delete nodes which are not stored or marked in the sync of given generation.
+     * It should be called after sync of all nodes is completed.
+     *
+     * @param espDatabase Database.
+     * @param generation  Generation of the sync.
+     */
+    public static void deleteStaleNodes(final EspDatabase espDatabase, final long generation) {
+
+        EspDatabase.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+                espDatabase.getNodeDao().deleteStale(generation);
+            }
+        });
+    }
+
+    /**
+     * This method is used to delete all nodes and their devices, services and params.
+     *
+     * @param espDatabase Database.
+     */
+    public static void deleteAll(final EspDatabase espDatabase) {
+
+        EspDatabase.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+                espDatabase.getNodeDao().deleteAllNodes();
+            }
+        });
+    }
+
+    private static void addRows(NodeRows rows, EspNode node, long generation) {
+
+        String nodeId = node.getNodeId();
+
+        if (node.getDevices() != null) {
+            for (int i = 0; i < node.getDevices().size(); i++) {
+                Device device = node.getDevices().get(i);
+                DeviceEntity deviceRow = new DeviceEntity(nodeId, i, device);
+                deviceRow.setSyncGeneration(generation);
+                rows.devices.add(deviceRow);
+                addParamRows(rows.params, nodeId, ParamEntity.OWNER_DEVICE, device.getDeviceName(), device.getParams(), generation, false);
+            }
+        }
+
+        if (node.getServices() != null) {
+            for (int i = 0; i < node.getServices().size(); i++) {
+                Service service = node.getServices().get(i);
+                ServiceEntity serviceRow = new ServiceEntity(nodeId, i, service);
+                serviceRow.setSyncGeneration(generation);
+                rows.services.add(serviceRow);
+                addParamRows(rows.params, nodeId, ParamEntity.OWNER_SERVICE, service.getName(), service.getParams(), generation, false);
+            }
+        }
+        addParamRows(rows.params, nodeId, ParamEntity.OWNER_NODE, "", node.getAttributes(), generation, false);
+    }
+
+    private static void addParamValues(NodeRows rows, EspNode node) {
+
+        String nodeId = node.getNodeId();
+
+        if (node.getDevices() != null) {
+            for (Device device : node.getDevices()) {
+                addParamRows(rows.paramValues, nodeId, ParamEntity.OWNER_DEVICE, device.getDeviceName(), device.getParams(), 0, true);
+            }
+        }
+
+        if (node.getServices() != null) {
+            for (Service service : node.getServices()) {
+                addParamRows(rows.paramValues, nodeId, ParamEntity.OWNER_SERVICE, service.getName(), service.getParams(), 0, true);
+            }
+        }
+    }
+
+    private static void addParamRows(ArrayList<ParamEntity> paramRows, String nodeId, int ownerType, String ownerName,
+                                     ArrayList<Param> params, long generation, boolean isChangedOnly) {
+
+        if (params == null || ownerName == null) {
+            return;
+        }
+
+        for (int i = 0; i < params.size(); i++) {
+
+            Param param = params.get(i);
+
+            if (param.getName() == null || (isChangedOnly && !param.isValueChanged())) {
+                continue;
+            }
+            param.setValueChanged(false);
+            ParamEntity paramRow = new ParamEntity(nodeId, ownerType, ownerName, i, param);
+            paramRow.setSyncGeneration(generation);
+            paramRows.add(paramRow);
+        }
+    }
+
+    private static String getOwnerKey(String nodeId, int ownerType, String ownerName) {
+        return nodeId + "/" + ownerType + "/" + ownerName;
+    }
+}
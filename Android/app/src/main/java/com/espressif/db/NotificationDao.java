@@ -28,8 +28,30 @@ import java.util.List;
 @Dao
 public interface NotificationDao {
 
-    @Query("SELECT * FROM " + AppConstants.NOTIFICATION_TABLE + " ORDER BY " + AppConstants.KEY_TIMESTAMP + " DESC")
-    List<NotificationEvent> getNotificationsFromStorage();
+    /**
+     * Get latest notifications, newest first.
+     *
+     * @param limit Max number of notifications.
+     * @return List of notifications.
+     */
+    @Query("SELECT * FROM " + AppConstants.NOTIFICATION_TABLE
+            + " ORDER BY " + AppConstants.KEY_TIMESTAMP + " DESC, notificationId DESC LIMIT :limit")
+    List<NotificationEvent> getLatestNotifications(int limit);
+
+    /**
+     * Get notifications which are older than given notification, newest first.
+     * Query seeks on timestamp index, so time does not depend on number of stored notifications.
+     *
+     * @param timestamp      Timestamp of last loaded notification.
+     * @param notificationId Id of last loaded notification.
+     * @param limit          Max number of notifications.
+     * @return List of notifications.
+     */
+    @Query("SELECT * FROM " + AppConstants.NOTIFICATION_TABLE
+            + " WHERE " + AppConstants.KEY_TIMESTAMP + " <= :timestamp"
+            + " AND (" + AppConstants.KEY_TIMESTAMP + " < :timestamp OR notificationId < :notificationId)"
+            + " ORDER BY " + AppConstants.KEY_TIMESTAMP + " DESC, notificationId DESC LIMIT :limit")
+    List<NotificationEvent> getNotificationsBefore(long timestamp, long notificationId, int limit);
 
     /**
      * Update group if it exist in database, insert group otherwise.
@@ -39,6 +61,15 @@ public interface NotificationDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertOrUpdate(NotificationEvent notification);
 
+    /**
+     * Update notifications if they exist in database, insert them otherwise.
+     *
+     * @param notifications Notification events to be inserted / updated.
+     * @return Ids of the notifications.
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    long[] insertOrUpdate(List<NotificationEvent> notifications);
+
     /**
      * Delete the notification from database.
      *
@@ -52,4 +83,35 @@ public interface NotificationDao {
      */
     @Query("DELETE FROM " + AppConstants.NOTIFICATION_TABLE)
     void deleteAll();
+
+    /**
+     * Delete notifications received before given time.
+     *
+     * @param timestamp Time in milliseconds.
+     * @return Number of deleted notifications.
+     */
+    @Query("DELETE FROM " + AppConstants.NOTIFICATION_TABLE + " WHERE " + AppConstants.KEY_TIMESTAMP + " < :timestamp")
+    int deleteOlderThan(long timestamp);
+
+    /**
+     * Delete notifications of given event types received before given time.
+     *
+     * @param eventTypes Event types.
+     * @param timestamp  Time in milliseconds.
+     * @return Number of deleted notifications.
+     */
+    @Query("DELETE FROM " + AppConstants.NOTIFICATION_TABLE + " WHERE " + AppConstants.KEY_EVENT_TYPE
+            + " IN (:eventTypes) AND " + AppConstants.KEY_TIMESTAMP + " < :timestamp")
+    int deleteOlderThan(List<String> eventTypes, long timestamp);
+
+    /**
+     * Delete all notifications except latest notifications.
+     *
+     * @param maxCount Number of latest notifications to be kept.
+     * @return Number of deleted notifications.
+     */
+    @Query("DELETE FROM " + AppConstants.NOTIFICATION_TABLE + " WHERE notificationId IN (SELECT notificationId FROM "
+            + AppConstants.NOTIFICATION_TABLE + " ORDER BY " + AppConstants.KEY_TIMESTAMP
+            + " DESC, notificationId DESC LIMIT -1 OFFSET :maxCount)")
+    int deleteExceptLatest(int maxCount);
 }
@@ -0,0 +1,39 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.db;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import com.espressif.AppConstants;
+import com.espressif.ui.models.ParamEntity;
+
+import java.util.List;
+
+@Dao
+public interface ParamDao {
+
+    /**
+     * Get params of all nodes, ordered by node, owner and position in owner.
+     */
+    @Query("SELECT * FROM " + AppConstants.PARAM_TABLE + " ORDER BY node_id, owner_type, owner_name, position")
+    List<ParamEntity> getAll();
+
+    /**
+     * Get params of given nodes, ordered by node, owner and position in owner.
+     */
+    @Query("SELECT * FROM " + AppConstants.PARAM_TABLE + " WHERE node_id IN (:nodeIds) ORDER BY node_id, owner_type, owner_name, position")
+    List<ParamEntity> getParams(List<String> nodeIds);
+}
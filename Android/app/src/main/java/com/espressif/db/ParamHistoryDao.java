@@ -0,0 +1,70 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.espressif.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.espressif.AppConstants;
+import com.espressif.ui.models.ParamHistoryBlock;
+
+import java.util.List;
+
+@Dao
+public interface ParamHistoryDao {
+
+    /**
+     * Get blocks of the param which have samples in given time range, ordered by time.
+     *
+     * @param nodeId     Node id.
+     * @param deviceName Device name.
+     * @param paramName  Param name.
+     * @param from       Start of the range in seconds.
+     * @param to         End of the range in seconds.
+     * @return List of blocks.
+     */
+    @Query("SELECT * FROM " + AppConstants.PARAM_HISTORY_TABLE + " WHERE node_id = :nodeId AND device_name = :deviceName"
+            + " AND param_name = :paramName AND start_time <= :to AND end_time >= :from ORDER BY start_time")
+    List<ParamHistoryBlock> getBlocks(String nodeId, String deviceName, String paramName, long from, long to);
+
+    /**
+     * Get number of samples of the param in blocks which have samples in given time range.
+     *
+     * @param nodeId     Node id.
+     * @param deviceName Device name.
+     * @param paramName  Param name.
+     * @param from       Start of the range in seconds.
+     * @param to         End of the range in seconds.
+     * @return Number of samples.
+     */
+    @Query("SELECT IFNULL(SUM(sample_count), 0) FROM " + AppConstants.PARAM_HISTORY_TABLE + " WHERE node_id = :nodeId"
+            + " AND device_name = :deviceName AND param_name = :paramName AND start_time <= :to AND end_time >= :from")
+    int getSampleCount(String nodeId, String deviceName, String paramName, long from, long to);
+
+    /**
+     * Update blocks if they exist in database, insert blocks otherwise.
+     *
+     * @param blocks Blocks to be inserted / updated.
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertOrUpdate(List<ParamHistoryBlock> blocks);
+
+    /**
+     * Delete history of all params.
+     */
+    @Query("DELETE FROM " + AppConstants.PARAM_HISTORY_TABLE)
+    void deleteAll();
+}
@@ -0,0 +1,75 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.espressif.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.espressif.AppConstants;
+import com.espressif.ui.models.ParamRollup;
+
+import java.util.List;
+
+@Dao
+public abstract class ParamRollupDao {
+
+    /**
+     * Get rollups of the param for given resolution and time range, ordered by time.
+     *
+     * @param nodeId     Node id.
+     * @param deviceName Device name.
+     * @param paramName  Param name.
+     * @param resolution Size of the bucket in seconds.
+     * @param from       Start of the range in seconds.
+     * @param to         End of the range in seconds.
+     * @return List of rollups.
+     */
+    @Query("SELECT * FROM " + AppConstants.PARAM_ROLLUP_TABLE + " WHERE node_id = :nodeId AND device_name = :deviceName"
+            + " AND param_name = :paramName AND resolution = :resolution AND bucket_time >= :from AND bucket_time <= :to"
+            + " ORDER BY bucket_time")
+    public abstract List<ParamRollup> getRollups(String nodeId, String deviceName, String paramName, int resolution,
+                                                 long from, long to);
+
+    /**
+     * Add samples of given rollups in stored rollups of the same bucket. Rollups are inserted if they are not stored.
+     *
+     * @param rollups Rollups of samples which are not stored yet.
+     */
+    @Transaction
+    public void add(List<ParamRollup> rollups) {
+        for (ParamRollup rollup : rollups) {
+            if (merge(rollup.getNodeId(), rollup.getDeviceName(), rollup.getParamName(), rollup.getResolution(),
+                    rollup.getBucketTime(), rollup.getMinValue(), rollup.getMaxValue(), rollup.getSum(), rollup.getSampleCount()) == 0) {
+                insert(rollup);
+            }
+        }
+    }
+
+    /**
+     * Delete rollups of all params.
+     */
+    @Query("DELETE FROM " + AppConstants.PARAM_ROLLUP_TABLE)
+    public abstract void deleteAll();
+
+    @Query("UPDATE " + AppConstants.PARAM_ROLLUP_TABLE + " SET min_value = MIN(min_value, :min), max_value = MAX(max_value, :max),"
+            + " sum = sum + :sum, sample_count = sample_count + :count WHERE node_id = :nodeId AND device_name = :deviceName"
+            + " AND param_name = :paramName AND resolution = :resolution AND bucket_time = :bucketTime")
+    abstract int merge(String nodeId, String deviceName, String paramName, int resolution, long bucketTime,
+                       double min, double max, double sum, int count);
+
+    @Insert
+    abstract void insert(ParamRollup rollup);
+}
@@ -0,0 +1,77 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.espressif.AppConstants;
+import com.espressif.ui.models.ParamWrite;
+
+import java.util.List;
+
+@Dao
+public interface ParamWriteDao {
+
+    @Query("SELECT * FROM " + AppConstants.PARAM_WRITE_TABLE + " ORDER BY " + AppConstants.KEY_TIMESTAMP)
+    List<ParamWrite> getAll();
+
+    /**
+     * Get pending values of the node which are written at or after given time.
+     */
+    @Query("SELECT * FROM " + AppConstants.PARAM_WRITE_TABLE + " WHERE " + AppConstants.KEY_NODE_ID + " = :nodeId AND "
+            + AppConstants.KEY_TIMESTAMP + " >= :minTimestamp")
+    List<ParamWrite> getByNode(String nodeId, long minTimestamp);
+
+    /**
+     * Get pending values which are written before given time.
+     */
+    @Query("SELECT * FROM " + AppConstants.PARAM_WRITE_TABLE + " WHERE " + AppConstants.KEY_TIMESTAMP + " < :timestamp")
+    List<ParamWrite> getExpired(long timestamp);
+
+    @Query("SELECT COUNT(*) FROM " + AppConstants.PARAM_WRITE_TABLE)
+    int getCount();
+
+    /**
+     * Replace pending value of the param if it exist in database, insert it otherwise.
+     *
+     * @param paramWrites Param values to be inserted / updated.
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertOrUpdate(List<ParamWrite> paramWrites);
+
+    /**
+     * Delete pending value of the param.
+     */
+    @Query("DELETE FROM " + AppConstants.PARAM_WRITE_TABLE + " WHERE " + AppConstants.KEY_NODE_ID + " = :nodeId AND "
+            + AppConstants.KEY_DEVICE_NAME + " = :deviceName AND " + AppConstants.KEY_PARAM_NAME + " = :paramName")
+    void delete(String nodeId, String deviceName, String paramName);
+
+    /**
+     * Delete pending value of the param only if it is not replaced after given time.
+     */
+    @Query("DELETE FROM " + AppConstants.PARAM_WRITE_TABLE + " WHERE " + AppConstants.KEY_NODE_ID + " = :nodeId AND "
+            + AppConstants.KEY_DEVICE_NAME + " = :deviceName AND " + AppConstants.KEY_PARAM_NAME + " = :paramName AND "
+            + AppConstants.KEY_TIMESTAMP + " <= :timestamp")
+    void deleteIfNotReplaced(String nodeId, String deviceName, String paramName, long timestamp);
+
+    /**
+     * Delete all pending values from the table.
+     */
+    @Query("DELETE FROM " + AppConstants.PARAM_WRITE_TABLE)
+    void deleteAll();
+}
@@ -16,6 +16,8 @@ package com.espressif.mdns;
 
 import android.content.Context;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -23,6 +25,7 @@ import com.espressif.AppConstants;
 import com.espressif.EspApplication;
 import com.espressif.JsonDataParser;
 import com.espressif.cloudapi.ApiResponseListener;
+import com.espressif.cloudapi.ServerClock;
 import com.espressif.provisioning.listeners.ResponseListener;
 import com.espressif.ui.models.EspNode;
 import com.google.gson.JsonObject;
@@ -44,9 +47,11 @@ public class mDNSApiManager {
     private final String TAG = mDNSApiManager.class.getSimpleName();
 
     private EspApplication espApp;
+    private Handler handler;
 
     public mDNSApiManager(Context context) {
         espApp = (EspApplication) context.getApplicationContext();
+        handler = new Handler(Looper.getMainLooper());
     }
 
     public void getNodeDetails(final String nodeId, final ApiResponseListener listener) {
@@ -64,48 +69,55 @@ public class mDNSApiManager {
                 getPropertyValues(url, AppConstants.LOCAL_CONTROL_PATH, dnsDevice.getPropertyCount(), new ApiResponseListener() {
 
                     @Override
-                    public void onSuccess(Bundle data) {
+                    public void onSuccess(final Bundle data) {
 
-                        Log.d(TAG, "Get node detail - Success");
+                        handler.post(new Runnable() {
 
-                        if (data != null) {
+                            @Override
+                            public void run() {
 
-                            String configData = data.getString(AppConstants.KEY_CONFIG);
-                            String paramsData = data.getString(AppConstants.KEY_PARAMS);
+                                Log.d(TAG, "Get node detail - Success");
 
-                            Log.d(TAG, "Config data : " + configData);
-                            Log.d(TAG, "Params data : " + paramsData);
+                                if (data != null) {
 
-                            if (!TextUtils.isEmpty(configData)) {
+                                    String configData = data.getString(AppConstants.KEY_CONFIG);
+                                    String paramsData = data.getString(AppConstants.KEY_PARAMS);
 
-                                JSONObject configJson = null;
-                                try {
-                                    configJson = new JSONObject(configData);
-                                } catch (JSONException e) {
-                                    e.printStackTrace();
-                                }
+                                    Log.d(TAG, "Config data : " + configData);
+                                    Log.d(TAG, "Params data : " + paramsData);
 
-                                EspNode node = espApp.nodeMap.get(nodeId);
-                                boolean isDeviceFound = false;
-                                if (node != null) {
-                                    isDeviceFound = true;
-                                }
-                                EspNode localNode = JsonDataParser.setNodeConfig(node, configJson);
+                                    if (!TextUtils.isEmpty(configData)) {
 
-                                if (!TextUtils.isEmpty(paramsData) && isDeviceFound) {
+                                        JSONObject configJson = null;
+                                        try {
+                                            configJson = new JSONObject(configData);
+                                        } catch (JSONException e) {
+                                            e.printStackTrace();
+                                        }
 
-                                    JSONObject paramsJson = null;
-                                    try {
-                                        paramsJson = new JSONObject(paramsData);
-                                    } catch (JSONException e) {
-                                        e.printStackTrace();
+                                        EspNode node = espApp.nodeMap.get(nodeId);
+                                        boolean isDeviceFound = false;
+                                        if (node != null) {
+                                            isDeviceFound = true;
+                                        }
+                                        EspNode localNode = JsonDataParser.setNodeConfig(node, configJson);
+
+                                        if (!TextUtils.isEmpty(paramsData) && isDeviceFound) {
+
+                                            JSONObject paramsJson = null;
+                                            try {
+                                                paramsJson = new JSONObject(paramsData);
+                                            } catch (JSONException e) {
+                                                e.printStackTrace();
+                                            }
+                                            JsonDataParser.setAllParams(espApp, localNode, paramsJson, ServerClock.now());
+                                            espApp.nodeMap.put(node.getNodeId(), localNode);
+                                            listener.onSuccess(null);
+                                        }
                                     }
-                                    JsonDataParser.setAllParams(espApp, localNode, paramsJson);
-                                    espApp.nodeMap.put(node.getNodeId(), localNode);
-                                    listener.onSuccess(null);
                                 }
                             }
-                        }
+                        });
                     }
 
                     @Override
@@ -165,45 +177,52 @@ public class mDNSApiManager {
                 getPropertyValues(url, AppConstants.LOCAL_CONTROL_PATH, dnsDevice.getPropertyCount(), new ApiResponseListener() {
 
                     @Override
-                    public void onSuccess(Bundle data) {
+                    public void onSuccess(final Bundle data) {
 
-                        Log.d(TAG, "Get param values - Success");
+                        handler.post(new Runnable() {
 
-                        if (data != null) {
+                            @Override
+                            public void run() {
 
-                            String configData = data.getString(AppConstants.KEY_CONFIG);
-                            String paramsData = data.getString(AppConstants.KEY_PARAMS);
-                            Log.e(TAG, "Params data : " + paramsData);
+                                Log.d(TAG, "Get param values - Success");
 
-                            if (!TextUtils.isEmpty(configData)) {
+                                if (data != null) {
 
-                                JSONObject configJson = null;
-                                try {
-                                    configJson = new JSONObject(configData);
-                                } catch (JSONException e) {
-                                    e.printStackTrace();
-                                }
+                                    String configData = data.getString(AppConstants.KEY_CONFIG);
+                                    String paramsData = data.getString(AppConstants.KEY_PARAMS);
+                                    Log.e(TAG, "Params data : " + paramsData);
 
-                                EspNode node = espApp.nodeMap.get(nodeId);
-                                boolean isDeviceFound = false;
-                                if (node != null) {
-                                    isDeviceFound = true;
-                                }
-                                EspNode localNode = JsonDataParser.setNodeConfig(node, configJson);
+                                    if (!TextUtils.isEmpty(configData)) {
 
-                                if (!TextUtils.isEmpty(paramsData) && isDeviceFound) {
+                                        JSONObject configJson = null;
+                                        try {
+                                            configJson = new JSONObject(configData);
+                                        } catch (JSONException e) {
+                                            e.printStackTrace();
+                                        }
 
-                                    JSONObject paramsJson = null;
-                                    try {
-                                        paramsJson = new JSONObject(paramsData);
-                                    } catch (JSONException e) {
-                                        e.printStackTrace();
+                                        EspNode node = espApp.nodeMap.get(nodeId);
+                                        boolean isDeviceFound = false;
+                                        if (node != null) {
+                                            isDeviceFound = true;
+                                        }
+                                        EspNode localNode = JsonDataParser.setNodeConfig(node, configJson);
+
+                                        if (!TextUtils.isEmpty(paramsData) && isDeviceFound) {
+
+                                            JSONObject paramsJson = null;
+                                            try {
+                                                paramsJson = new JSONObject(paramsData);
+                                            } catch (JSONException e) {
+                                                e.printStackTrace();
+                                            }
+                                            JsonDataParser.setAllParams(espApp, localNode, paramsJson, ServerClock.now());
+                                            listener.onSuccess(null);
+                                        }
                                     }
-                                    JsonDataParser.setAllParams(espApp, localNode, paramsJson);
-                                    listener.onSuccess(null);
                                 }
                             }
-                        }
+                        });
                     }
 
                     @Override
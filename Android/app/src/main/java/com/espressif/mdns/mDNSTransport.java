@@ -14,113 +14,92 @@
 
 package com.espressif.mdns;
 
-import android.text.TextUtils;
 import android.util.Log;
 
+import com.espressif.AppConstants;
 import com.espressif.provisioning.listeners.ResponseListener;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.CookieManager;
-import java.net.HttpCookie;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Cookie;
+import okhttp3.CookieJar;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
 
 /**
  * This class is used to send data to device which is available locally.
+ * All transports share one client, so connections with the device are kept alive between requests
+ * and requests of all devices are executed on bounded thread pool.
+ * Requests of one device are sent one by one and cookies (session) are kept separately for each device.
  */
 public class mDNSTransport {
 
-    private String TAG = mDNSTransport.class.getSimpleName();
+    private static final String TAG = mDNSTransport.class.getSimpleName();
 
-    private static final String SET_COOKIE_HEADER = "Set-Cookie";
-    private static final String COOKIE_HEADER = "Cookie";
+    private static final MediaType MEDIA_TYPE = MediaType.parse("application/x-www-form-urlencoded");
+
+    private static OkHttpClient httpClient;
 
     private String baseUrl;
-    private ExecutorService workerThreadPool;
-    private static CookieManager cookieManager;
 
     public mDNSTransport(String baseUrl) {
         this.baseUrl = baseUrl;
-        this.workerThreadPool = Executors.newSingleThreadExecutor();
-        if (cookieManager == null) {
-            cookieManager = new CookieManager();
-        }
     }
 
-    private byte[] sendPostRequest(String path, byte[] data, final ResponseListener listener) {
-        byte[] responseBytes = null;
-        try {
-            URL url = new URL(baseUrl + "/" + path);
-            Log.e(TAG, "URL : " + url.toString());
-            HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setDoOutput(true);
-
-            urlConnection.setRequestMethod("POST");
-            urlConnection.setRequestProperty("Accept", "text/plain");
-            urlConnection.setRequestProperty("Content-type", "application/x-www-form-urlencoded");
-            urlConnection.setConnectTimeout(5000);
-            urlConnection.setReadTimeout(5000);
-
-            if (cookieManager.getCookieStore().getCookies().size() > 0) {
-
-                Log.d(TAG, "Cookie - Name : " + cookieManager.getCookieStore().getCookies().get(0).getName());
-                Log.d(TAG, "Cookie - Value : " + cookieManager.getCookieStore().getCookies().get(0).getValue());
-                // While joining the Cookies, use ',' or ';' as needed. Most of the servers are using ';'
-                urlConnection.setRequestProperty(COOKIE_HEADER,
-                        TextUtils.join(";", cookieManager.getCookieStore().getCookies()));
-            }
+    private static synchronized OkHttpClient getClient() {
 
-            OutputStream os = urlConnection.getOutputStream();
-            os.write(data);
-            os.close();
-
-            int responseCode = urlConnection.getResponseCode();
-            Map<String, List<String>> headerFields = urlConnection.getHeaderFields();
-            List<String> cookiesHeader = headerFields.get(SET_COOKIE_HEADER);
-
-            if (cookiesHeader != null) {
-                for (String cookie : cookiesHeader) {
-                    HttpCookie httpCookie = HttpCookie.parse(cookie).get(0);
-                    // Default version of HttpCookie is 1. In version 1, quotes will be added.
-                    // So set version 0 so that quotes will not be added.
-                    httpCookie.setVersion(0);
-                    cookieManager.getCookieStore().add(null, httpCookie);
-                }
-            }
+        if (httpClient == null) {
 
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                int n;
-                byte[] byteChunk = new byte[4096];
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                InputStream is = urlConnection.getInputStream();
-                while ((n = is.read(byteChunk)) > 0) {
-                    outputStream.write(byteChunk, 0, n);
-                }
-                responseBytes = outputStream.toByteArray();
-            }
-        } catch (MalformedURLException e) {
-            Log.e(TAG, e.getMessage());
-            e.printStackTrace();
-            listener.onFailure(new RuntimeException("Error ! Connection Lost"));
-        } catch (IOException e) {
-            Log.e(TAG, e.getMessage());
-            e.printStackTrace();
-            listener.onFailure(new RuntimeException("Error ! Connection Lost"));
-        } catch (Exception e) {
-            Log.e(TAG, e.getMessage());
-            e.printStackTrace();
-            listener.onFailure(new RuntimeException("Error ! Connection Lost"));
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(AppConstants.LOCAL_CONTROL_MAX_REQUESTS,
+                    AppConstants.LOCAL_CONTROL_MAX_REQUESTS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+            executor.allowCoreThreadTimeOut(true);
+
+            Dispatcher dispatcher = new Dispatcher(executor);
+            dispatcher.setMaxRequests(AppConstants.LOCAL_CONTROL_MAX_REQUESTS);
+            // Device supports limited sockets, so requests of one device are sent on one connection.
+            dispatcher.setMaxRequestsPerHost(1);
+
+            httpClient = new OkHttpClient.Builder()
+                    .dispatcher(dispatcher)
+                    .connectionPool(new ConnectionPool(AppConstants.LOCAL_CONTROL_MAX_REQUESTS,
+                            AppConstants.LOCAL_CONTROL_KEEP_ALIVE, TimeUnit.MILLISECONDS))
+                    .cookieJar(new DeviceCookieJar())
+                    .connectTimeout(AppConstants.LOCAL_CONTROL_CONNECT_TIMEOUT, TimeUnit.MILLISECONDS)
+                    .readTimeout(AppConstants.LOCAL_CONTROL_READ_TIMEOUT, TimeUnit.MILLISECONDS)
+                    .writeTimeout(AppConstants.LOCAL_CONTROL_READ_TIMEOUT, TimeUnit.MILLISECONDS)
+                    .build();
         }
+        return httpClient;
+    }
 
-        return responseBytes;
+    /**
+     * This method is used to change timeouts of local control requests.
+     * Connection pool, thread pool and cookies are kept as it is.
+     *
+     * @param connectTimeout Connect timeout in milliseconds.
+     * @param readTimeout    Read / write timeout in milliseconds.
+     */
+    public static synchronized void setTimeouts(int connectTimeout, int readTimeout) {
+
+        httpClient = getClient().newBuilder()
+                .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeout, TimeUnit.MILLISECONDS)
+                .writeTimeout(readTimeout, TimeUnit.MILLISECONDS)
+                .build();
     }
 
     /***
@@ -130,22 +109,98 @@ public class mDNSTransport {
      * @param listener listener implementation which receives events when response is received.
      */
     public void sendData(final String path, final byte[] data, final ResponseListener listener) {
-        this.workerThreadPool
-                .submit(new Runnable() {
-                    @Override
-                    public void run() {
-                        try {
-                            byte[] returnData = sendPostRequest(path, data, listener);
-
-                            if (returnData == null) {
-                                listener.onFailure(new RuntimeException("Response not received."));
-                            } else {
-                                listener.onSuccess(returnData);
-                            }
-                        } catch (Exception e) {
-                            listener.onFailure(e);
-                        }
+
+        Request request;
+
+        try {
+            request = new Request.Builder()
+                    .url(baseUrl + "/" + path)
+                    .header("Accept", "text/plain")
+                    .post(RequestBody.create(MEDIA_TYPE, data))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Invalid URL : " + baseUrl);
+            listener.onFailure(new RuntimeException("Error ! Connection Lost"));
+            return;
+        }
+
+        Log.d(TAG, "URL : " + request.url());
+
+        getClient().newCall(request).enqueue(new Callback() {
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                Log.e(TAG, "Error : " + e.getMessage());
+                listener.onFailure(new RuntimeException("Error ! Connection Lost"));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+
+                byte[] returnData = null;
+
+                try {
+                    if (response.code() == 200 && response.body() != null) {
+                        returnData = response.body().bytes();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } finally {
+                    response.close();
+                }
+
+                if (returnData == null) {
+                    listener.onFailure(new RuntimeException("Response not received."));
+                } else {
+                    listener.onSuccess(returnData);
+                }
+            }
+        });
+    }
+
+    /**
+     * Cookie jar which keeps cookies of each device (host and port) separately.
+     */
+    private static class DeviceCookieJar implements CookieJar {
+
+        private final HashMap<String, List<Cookie>> deviceCookies = new HashMap<>();
+
+        @Override
+        public synchronized void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
+
+            String key = getKey(url);
+            List<Cookie> storedCookies = deviceCookies.get(key);
+
+            if (storedCookies == null) {
+                storedCookies = new ArrayList<>();
+                deviceCookies.put(key, storedCookies);
+            }
+
+            for (Cookie cookie : cookies) {
+
+                // Replace cookie with same name.
+                for (int i = storedCookies.size() - 1; i >= 0; i--) {
+                    if (storedCookies.get(i).name().equals(cookie.name())) {
+                        storedCookies.remove(i);
                     }
-                });
+                }
+                storedCookies.add(cookie);
+            }
+        }
+
+        @Override
+        public synchronized List<Cookie> loadForRequest(HttpUrl url) {
+
+            List<Cookie> storedCookies = deviceCookies.get(getKey(url));
+
+            if (storedCookies == null) {
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(storedCookies);
+        }
+
+        private static String getKey(HttpUrl url) {
+            return url.host() + ":" + url.port();
+        }
     }
 }
@@ -16,7 +16,6 @@ package com.espressif.ui.activities;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -36,15 +35,25 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import com.espressif.AppConstants;
 import com.espressif.EspApplication;
 import com.espressif.NetworkApiManager;
+import com.espressif.ParamWriteQueue;
+import com.espressif.PollingScheduler;
 import com.espressif.cloudapi.ApiResponseListener;
 import com.espressif.cloudapi.CloudException;
+import com.espressif.cloudapi.NodeStatusService;
+import com.espressif.db.EspDatabase;
 import com.espressif.rainmaker.R;
 import com.espressif.ui.adapters.AttrParamAdapter;
 import com.espressif.ui.adapters.ParamAdapter;
 import com.espressif.ui.models.Device;
 import com.espressif.ui.models.Param;
+import com.espressif.ui.models.UpdateEvent;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.snackbar.Snackbar;
+import com.google.gson.JsonObject;
+
+import org.greenrobot.eventbus.EventBus;
+import org.greenrobot.eventbus.Subscribe;
+import org.greenrobot.eventbus.ThreadMode;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -55,7 +64,6 @@ public class EspDeviceActivity extends AppCompatActivity {
     private static final String TAG = EspDeviceActivity.class.getSimpleName();
 
     private static final int NODE_DETAILS_ACTIVITY_REQUEST = 10;
-    private static final int UPDATE_INTERVAL = 5000;
 
     private TextView tvNoParam, tvNodeOffline;
     private RecyclerView paramRecyclerView;
@@ -70,12 +78,11 @@ public class EspDeviceActivity extends AppCompatActivity {
     private AttrParamAdapter attrAdapter;
     private ArrayList<Param> paramList;
     private ArrayList<Param> attributeList;
-    private Handler handler;
+    private PollingScheduler pollingScheduler;
     private ContentLoadingProgressBar progressBar;
     private boolean isNodeOnline;
     private long timeStampOfStatus;
     private boolean isNetworkAvailable = true;
-    private boolean shouldGetParams = true;
     private RelativeLayout rlProgress, rlParam;
 
     @Override
@@ -87,7 +94,7 @@ public class EspDeviceActivity extends AppCompatActivity {
         espApp = (EspApplication) getApplicationContext();
         networkApiManager = new NetworkApiManager(getApplicationContext());
         device = getIntent().getParcelableExtra(AppConstants.KEY_ESP_DEVICE);
-        handler = new Handler();
+        pollingScheduler = PollingScheduler.getInstance(getApplicationContext());
         isNodeOnline = espApp.nodeMap.get(device.getNodeId()).isOnline();
         timeStampOfStatus = espApp.nodeMap.get(device.getNodeId()).getTimeStampOfStatus();
         snackbar = Snackbar.make(findViewById(R.id.params_parent_layout), R.string.msg_no_internet, Snackbar.LENGTH_INDEFINITE);
@@ -101,12 +108,15 @@ public class EspDeviceActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
+        EventBus.getDefault().register(this);
         getNodeDetails();
+        getPendingWrites();
     }
 
     @Override
     protected void onPause() {
         super.onPause();
+        EventBus.getDefault().unregister(this);
         stopUpdateValueTask();
     }
 
@@ -116,6 +126,27 @@ public class EspDeviceActivity extends AppCompatActivity {
         super.onDestroy();
     }
 
+    @Subscribe(threadMode = ThreadMode.MAIN)
+    public void onEvent(UpdateEvent event) {
+
+        switch (event.getEventType()) {
+
+            case EVENT_DEVICE_STATUS_UPDATE:
+            case EVENT_DEVICE_ONLINE:
+            case EVENT_DEVICE_OFFLINE:
+                // Values received in push event are already applied to the node.
+                Bundle data = event.getData();
+                if (data != null && device.getNodeId().equals(data.getString(AppConstants.KEY_NODE_ID))) {
+                    updateUi();
+                }
+                break;
+
+            case EVENT_PENDING_WRITES_UPDATE:
+                getPendingWrites();
+                break;
+        }
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         super.onCreateOptionsMenu(menu);
@@ -155,14 +186,11 @@ public class EspDeviceActivity extends AppCompatActivity {
     }
 
     public void startUpdateValueTask() {
-        shouldGetParams = true;
-        handler.removeCallbacks(updateValuesTask);
-        handler.postDelayed(updateValuesTask, UPDATE_INTERVAL);
+        pollingScheduler.watch(device.getNodeId(), pollListener);
     }
 
     public void stopUpdateValueTask() {
-        shouldGetParams = false;
-        handler.removeCallbacks(updateValuesTask);
+        pollingScheduler.unwatch(device.getNodeId(), pollListener);
     }
 
     private void goToNodeDetailsActivity() {
@@ -171,16 +199,6 @@ public class EspDeviceActivity extends AppCompatActivity {
         startActivityForResult(intent, NODE_DETAILS_ACTIVITY_REQUEST);
     }
 
-    private Runnable updateValuesTask = new Runnable() {
-
-        @Override
-        public void run() {
-            if (shouldGetParams) {
-                getValues();
-            }
-        }
-    };
-
     private void initViews() {
 
         MaterialToolbar toolbar = findViewById(R.id.toolbar);
@@ -285,9 +303,59 @@ public class EspDeviceActivity extends AppCompatActivity {
         });
     }
 
-    private void getValues() {
+    /**
+     * Listener of param values polled by {@link PollingScheduler}. Callbacks are received on main thread.
+     */
+    private ApiResponseListener pollListener = new ApiResponseListener() {
+
+        @Override
+        public void onSuccess(Bundle data) {
+
+            isNetworkAvailable = true;
+            hideLoading();
+            swipeRefreshLayout.setRefreshing(false);
+            updateUi();
+            getStatus();
+        }
+
+        @Override
+        public void onResponseFailure(Exception exception) {
+
+            stopUpdateValueTask();
+            isNetworkAvailable = true;
+            hideLoading();
+            swipeRefreshLayout.setRefreshing(false);
+            if (exception instanceof CloudException) {
+                Toast.makeText(EspDeviceActivity.this, exception.getMessage(), Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(EspDeviceActivity.this, "Failed to get param values", Toast.LENGTH_SHORT).show();
+            }
+            updateUi();
+        }
+
+        @Override
+        public void onNetworkFailure(Exception exception) {
+
+            stopUpdateValueTask();
+            hideLoading();
+            swipeRefreshLayout.setRefreshing(false);
+            if (exception instanceof CloudException) {
+                Toast.makeText(EspDeviceActivity.this, exception.getMessage(), Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(EspDeviceActivity.this, "Failed to get param values", Toast.LENGTH_SHORT).show();
+            }
+            updateUi();
+        }
+    };
+
+    private void getStatus() {
+
+        // Status of local node is managed by local discovery.
+        if (espApp.mDNSDeviceMap.containsKey(device.getNodeId())) {
+            return;
+        }
 
-        networkApiManager.getParamsValues(device.getNodeId(), new ApiResponseListener() {
+        NodeStatusService.getInstance(getApplicationContext()).getStatus(device.getNodeId(), new ApiResponseListener() {
 
             @Override
             public void onSuccess(Bundle data) {
@@ -296,42 +364,44 @@ public class EspDeviceActivity extends AppCompatActivity {
 
                     @Override
                     public void run() {
-                        isNetworkAvailable = true;
-                        hideLoading();
-                        swipeRefreshLayout.setRefreshing(false);
                         updateUi();
-                        handler.postDelayed(updateValuesTask, UPDATE_INTERVAL);
                     }
                 });
             }
 
             @Override
             public void onResponseFailure(Exception exception) {
-
-                stopUpdateValueTask();
-                isNetworkAvailable = true;
-                hideLoading();
-                swipeRefreshLayout.setRefreshing(false);
-                if (exception instanceof CloudException) {
-                    Toast.makeText(EspDeviceActivity.this, exception.getMessage(), Toast.LENGTH_SHORT).show();
-                } else {
-                    Toast.makeText(EspDeviceActivity.this, "Failed to get param values", Toast.LENGTH_SHORT).show();
-                }
-                updateUi();
+                Log.e(TAG, "Failed to get node status");
             }
 
             @Override
             public void onNetworkFailure(Exception exception) {
+                Log.e(TAG, "Failed to get node status");
+            }
+        });
+    }
 
-                stopUpdateValueTask();
-                hideLoading();
-                swipeRefreshLayout.setRefreshing(false);
-                if (exception instanceof CloudException) {
-                    Toast.makeText(EspDeviceActivity.this, exception.getMessage(), Toast.LENGTH_SHORT).show();
-                } else {
-                    Toast.makeText(EspDeviceActivity.this, "Failed to get param values", Toast.LENGTH_SHORT).show();
-                }
-                updateUi();
+    /**
+     * This method is used to get params of the device which have values queued while offline.
+     */
+    private void getPendingWrites() {
+
+        final String nodeId = device.getNodeId();
+
+        EspDatabase.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+                final JsonObject pendingValues = ParamWriteQueue.getInstance(getApplicationContext()).getPendingValues(nodeId);
+
+                runOnUiThread(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        paramAdapter.updatePendingWrites(pendingValues);
+                    }
+                });
             }
         });
     }
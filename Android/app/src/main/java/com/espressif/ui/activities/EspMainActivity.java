@@ -41,10 +41,8 @@ import androidx.viewpager.widget.ViewPager;
 
 import com.espressif.AppConstants;
 import com.espressif.EspApplication;
-import com.espressif.JsonDataParser;
 import com.espressif.cloudapi.ApiManager;
 import com.espressif.cloudapi.ApiResponseListener;
-import com.espressif.db.EspDatabase;
 import com.espressif.provisioning.ESPConstants;
 import com.espressif.provisioning.ESPProvisionManager;
 import com.espressif.rainmaker.BuildConfig;
@@ -53,8 +51,7 @@ import com.espressif.ui.adapters.HomeScreenPagerAdapter;
 import com.espressif.ui.fragments.DevicesFragment;
 import com.espressif.ui.fragments.SchedulesFragment;
 import com.espressif.ui.fragments.UserProfileFragment;
-import com.espressif.ui.models.EspNode;
-import com.espressif.ui.models.Group;
+import com.espressif.ui.models.NodeSyncDelta;
 import com.espressif.ui.models.UpdateEvent;
 import com.google.android.material.appbar.CollapsingToolbarLayout;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
@@ -63,8 +60,6 @@ import com.google.android.material.snackbar.Snackbar;
 import org.greenrobot.eventbus.EventBus;
 import org.greenrobot.eventbus.Subscribe;
 import org.greenrobot.eventbus.ThreadMode;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.util.ArrayList;
 
@@ -101,7 +96,6 @@ public class EspMainActivity extends AppCompatActivity {
         snackbar = Snackbar.make(findViewById(R.id.frame_container), R.string.msg_no_internet, Snackbar.LENGTH_INDEFINITE);
 
         initViews();
-        loadDataFromLocalStorage();
         String reqId = getIntent().getStringExtra(AppConstants.KEY_REQ_ID);
         if (!TextUtils.isEmpty(reqId)) {
             Log.e(TAG, "Intent string is not empty");
@@ -212,13 +206,15 @@ public class EspMainActivity extends AppCompatActivity {
 
             case EVENT_STATE_CHANGE_UPDATE:
                 Bundle data = event.getData();
+                NodeSyncDelta delta = null;
                 if (data != null) {
                     String errMsg = data.getString(AppConstants.KEY_ERROR_MSG);
                     if (!TextUtils.isEmpty(errMsg)) {
                         Toast.makeText(EspMainActivity.this, errMsg, Toast.LENGTH_SHORT).show();
                     }
+                    delta = (NodeSyncDelta) data.getSerializable(AppConstants.KEY_SYNC_DELTA);
                 }
-                updateUi();
+                updateUi(delta);
                 break;
 
             case EVENT_DEVICE_STATUS_UPDATE:
@@ -231,6 +227,7 @@ public class EspMainActivity extends AppCompatActivity {
                 break;
 
             case EVENT_LOCAL_DEVICE_UPDATE:
+            case EVENT_NODE_PAGE_UPDATE:
                 updateUi();
                 break;
         }
@@ -409,6 +406,13 @@ public class EspMainActivity extends AppCompatActivity {
     }
 
     private void updateUi() {
+        updateUi(null);
+    }
+
+    /**
+     * @param delta Changes of node sync. If it is available, listeners update only changed items.
+     */
+    private void updateUi(NodeSyncDelta delta) {
 
         switch (espApp.getAppState()) {
 
@@ -465,7 +469,11 @@ public class EspMainActivity extends AppCompatActivity {
 
         if (updateListenerArrayList != null) {
             for (UiUpdateListener listener : updateListenerArrayList) {
-                listener.updateUi();
+                if (delta != null) {
+                    listener.updateUi(delta);
+                } else {
+                    listener.updateUi();
+                }
             }
         }
     }
@@ -526,66 +534,6 @@ public class EspMainActivity extends AppCompatActivity {
         return version;
     }
 
-    private void loadDataFromLocalStorage() {
-
-        EspDatabase espDatabase = EspDatabase.getInstance(getApplicationContext());
-        ArrayList<EspNode> nodeList = (ArrayList<EspNode>) espDatabase.getNodeDao().getNodesFromStorage();
-
-        for (int nodeIndex = 0; nodeIndex < nodeList.size(); nodeIndex++) {
-
-            EspNode node = nodeList.get(nodeIndex);
-
-            if (node != null) {
-
-                String configData = node.getConfigData();
-                String paramData = node.getParamData();
-
-                if (configData != null) {
-                    try {
-                        node = JsonDataParser.setNodeConfig(node, new JSONObject(configData));
-                        if (paramData != null) {
-                            JSONObject paramsJson = new JSONObject(paramData);
-                            JsonDataParser.setAllParams(espApp, node, paramsJson);
-                        } else {
-                            Log.e(TAG, "Param configuration is not available.");
-                        }
-                        espApp.nodeMap.put(node.getNodeId(), node);
-
-                    } catch (JSONException e) {
-                        e.printStackTrace();
-                    }
-                } else {
-                    Log.e(TAG, "Node configuration is not available.");
-                }
-            }
-        }
-
-        // Set all devices offline
-//        for (Map.Entry<String, EspNode> entry : espApp.nodeMap.entrySet()) {
-//
-//            String key = entry.getKey();
-//            EspNode node = entry.getValue();
-//
-//            if (node != null) {
-//                node.setOnline(false);
-//                ArrayList<Device> espDevices = node.getDevices();
-//                devices.addAll(espDevices);
-//            }
-//        }
-
-        if (BuildConfig.isNodeGroupingSupported) {
-            ArrayList<Group> groupList = (ArrayList<Group>) espDatabase.getGroupDao().getGroupsFromStorage();
-            for (int groupIndex = 0; groupIndex < groupList.size(); groupIndex++) {
-
-                Group group = groupList.get(groupIndex);
-                if (group != null) {
-                    espApp.groupMap.put(group.getGroupId(), group);
-                }
-            }
-        }
-        Log.d(TAG, "Node list size from local storage : " + espApp.nodeMap.size());
-    }
-
     private void getNodes() {
         espApp.refreshData();
     }
@@ -808,6 +756,9 @@ public class EspMainActivity extends AppCompatActivity {
     }
 
     public interface UiUpdateListener {
+
         void updateUi();
+
+        void updateUi(NodeSyncDelta delta);
     }
 }
@@ -15,7 +15,6 @@
 package com.espressif.ui.activities;
 
 import android.os.Bundle;
-import android.util.Log;
 import android.view.View;
 import android.view.WindowManager;
 import android.widget.ImageView;
@@ -25,6 +24,7 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.widget.ContentLoadingProgressBar;
+import androidx.core.widget.NestedScrollView;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
@@ -42,6 +42,7 @@ import com.espressif.ui.models.SharingRequest;
 import com.google.android.material.appbar.MaterialToolbar;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class NotificationsActivity extends AppCompatActivity {
 
@@ -55,12 +56,14 @@ public class NotificationsActivity extends AppCompatActivity {
     private ImageView ivNoRequest;
     private ContentLoadingProgressBar progressBar;
     private RelativeLayout rlProgress, rlPendingReq;
+    private NestedScrollView scrollView;
 
     private SharingRequestAdapter sharingRequestAdapter;
     private NotificationAdapter notificationAdapter;
     private ArrayList<SharingRequest> pendingRequests;
     private ArrayList<NotificationEvent> notifications;
     private ApiManager apiManager;
+    private boolean isLoadingPage, isLastPage;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -71,13 +74,6 @@ public class NotificationsActivity extends AppCompatActivity {
         pendingRequests = new ArrayList<>();
         notifications = new ArrayList<>();
         apiManager = ApiManager.getInstance(getApplicationContext());
-
-        EspDatabase espDatabase = EspDatabase.getInstance(getApplicationContext());
-        ArrayList<NotificationEvent> events = (ArrayList<NotificationEvent>) espDatabase.getNotificationDao().getNotificationsFromStorage();
-        if (events != null && events.size() > 0) {
-            notifications = events;
-        }
-        Log.e(TAG, "Notification list size : " + notifications.size());
         initViews();
     }
 
@@ -114,6 +110,7 @@ public class NotificationsActivity extends AppCompatActivity {
         swipeRefreshLayout = findViewById(R.id.swipe_container);
         rlPendingReq = findViewById(R.id.rl_pending_requests);
         rlProgress = findViewById(R.id.rl_progress);
+        scrollView = findViewById(R.id.scroll_notifications);
 
         rvSharingReq.setLayoutManager(new LinearLayoutManager(this));
         sharingRequestAdapter = new SharingRequestAdapter(this, pendingRequests);
@@ -123,6 +120,20 @@ public class NotificationsActivity extends AppCompatActivity {
         notificationAdapter = new NotificationAdapter(this, notifications);
         rvNotifications.setAdapter(notificationAdapter);
 
+        scrollView.setOnScrollChangeListener(new NestedScrollView.OnScrollChangeListener() {
+
+            @Override
+            public void onScrollChange(NestedScrollView v, int scrollX, int scrollY, int oldScrollX, int oldScrollY) {
+
+                View content = v.getChildAt(0);
+
+                // Load next page when list is scrolled within one screen from the end.
+                if (content != null && scrollY + 2 * v.getHeight() >= content.getHeight()) {
+                    getNextNotifications();
+                }
+            }
+        });
+
         swipeRefreshLayout.setOnRefreshListener(new SwipeRefreshLayout.OnRefreshListener() {
 
             @Override
@@ -222,13 +233,80 @@ public class NotificationsActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * This method is used to load first page of notification history.
+     */
     private void getNotifications() {
-        EspDatabase espDatabase = EspDatabase.getInstance(getApplicationContext());
-        ArrayList<NotificationEvent> events = (ArrayList<NotificationEvent>) espDatabase.getNotificationDao().getNotificationsFromStorage();
-        if (events != null && events.size() > 0) {
-            notifications = events;
+
+        final EspDatabase espDatabase = EspDatabase.getInstance(getApplicationContext());
+        isLoadingPage = true;
+
+        EspDatabase.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+                final List<NotificationEvent> events = espDatabase.getNotificationDao().getLatestNotifications(AppConstants.NOTIFICATION_PAGE_SIZE);
+
+                runOnUiThread(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        notifications = new ArrayList<>(events);
+                        isLoadingPage = false;
+                        isLastPage = events.size() < AppConstants.NOTIFICATION_PAGE_SIZE;
+                        notificationAdapter.updateList(notifications);
+
+                        if (notifications.size() > 0) {
+                            rlNoRequest.setVisibility(View.GONE);
+                            rlNotifications.setVisibility(View.VISIBLE);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * This method is used to load notifications which are older than last loaded notification.
+     */
+    private void getNextNotifications() {
+
+        if (isLoadingPage || isLastPage || notifications.isEmpty()) {
+            return;
         }
-        notificationAdapter.updateList(notifications);
+
+        final EspDatabase espDatabase = EspDatabase.getInstance(getApplicationContext());
+        final ArrayList<NotificationEvent> list = notifications;
+        final NotificationEvent lastEvent = list.get(list.size() - 1);
+        isLoadingPage = true;
+
+        EspDatabase.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+                final List<NotificationEvent> events = espDatabase.getNotificationDao().getNotificationsBefore(lastEvent.getTimestamp(),
+                        lastEvent.getNotificationId(), AppConstants.NOTIFICATION_PAGE_SIZE);
+
+                runOnUiThread(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        if (list != notifications) {
+                            // List is reloaded from first page.
+                            return;
+                        }
+                        isLoadingPage = false;
+                        isLastPage = events.size() < AppConstants.NOTIFICATION_PAGE_SIZE;
+                        notifications.addAll(events);
+                        notificationAdapter.onPageAdded(events.size());
+                    }
+                });
+            }
+        });
     }
 
     public void showLoading(String msg) {
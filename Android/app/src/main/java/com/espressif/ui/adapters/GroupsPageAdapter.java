@@ -57,12 +57,16 @@ import com.espressif.ui.models.EspNode;
 import com.espressif.ui.models.Group;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public class GroupsPageAdapter extends RecyclerView.Adapter<GroupsPageAdapter.GroupPageViewHolder> {
 
     private final String TAG = GroupsPageAdapter.class.getSimpleName();
 
+    // Payload to update only refresh state of the page.
+    public static final String PAYLOAD_REFRESH_STATE = "refresh_state";
+
     private Activity context;
     private ArrayList<Group> groups;
     private EspApplication espApp;
@@ -215,6 +219,16 @@ public class GroupsPageAdapter extends RecyclerView.Adapter<GroupsPageAdapter.Gr
         viewHolder.swipeRefreshLayout.setRefreshing(isRefreshing);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull GroupPageViewHolder viewHolder, int position, @NonNull List<Object> payloads) {
+
+        if (payloads.contains(PAYLOAD_REFRESH_STATE)) {
+            viewHolder.swipeRefreshLayout.setRefreshing(isRefreshing);
+        } else {
+            onBindViewHolder(viewHolder, position);
+        }
+    }
+
     public void setRefreshing(boolean refreshing) {
         isRefreshing = refreshing;
     }
@@ -78,6 +78,15 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
         notifyDataSetChanged();
     }
 
+    /**
+     * This method is used to display next page of notifications, added at the end of the list.
+     *
+     * @param count Number of notifications added in the list.
+     */
+    public void onPageAdded(int count) {
+        notifyItemRangeInserted(notifications.size() - count, count);
+    }
+
     @Override
     public int getItemCount() {
         return notifications.size();
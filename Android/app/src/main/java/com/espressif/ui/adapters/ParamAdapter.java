@@ -59,6 +59,7 @@ import com.warkiz.tickseekbar.SeekParams;
 import com.warkiz.tickseekbar.TickSeekBar;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 
 public class ParamAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
@@ -69,11 +70,15 @@ public class ParamAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     private final int VIEW_TYPE_PUSH_BTN_BIG = 2;
     private final int VIEW_TYPE_HUE = 3;
 
+    // Alpha of the param which has value queued in ParamWriteQueue.
+    private final float PENDING_WRITE_ALPHA = 0.6f;
+
     private Activity context;
     private Device device;
     private ArrayList<Param> params;
     private NetworkApiManager networkApiManager;
     private String nodeId, deviceName;
+    private HashSet<String> pendingParamNames = new HashSet<>();
 
     public ParamAdapter(Activity context, Device device, ArrayList<Param> paramList) {
         this.context = context;
@@ -132,6 +137,9 @@ public class ParamAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
 
         final Param param = params.get(position);
 
+        // Value written while offline is displayed faded till it is sent to the device.
+        holder.itemView.setAlpha(pendingParamNames.contains(param.getName()) ? PENDING_WRITE_ALPHA : 1f);
+
         if (holder.getItemViewType() == VIEW_TYPE_PARAM) {
 
             final ParamViewHolder paramViewHolder = (ParamViewHolder) holder;
@@ -241,15 +249,16 @@ public class ParamAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
 
                             JsonObject jsonParam = new JsonObject();
                             JsonObject body = new JsonObject();
+                            final boolean newStatus = !param.getSwitchStatus();
 
-                            jsonParam.addProperty(param.getName(), !param.getSwitchStatus());
+                            jsonParam.addProperty(param.getName(), newStatus);
                             body.add(deviceName, jsonParam);
 
                             networkApiManager.updateParamValue(nodeId, body, new ApiResponseListener() {
 
                                 @Override
                                 public void onSuccess(Bundle data) {
-                                    param.setSwitchStatus(!param.getSwitchStatus());
+                                    param.setSwitchStatus(newStatus);
                                     ((EspDeviceActivity) context).startUpdateValueTask();
                                     ((EspDeviceActivity) context).hideParamUpdateLoading();
                                     if (param.getSwitchStatus()) {
@@ -389,6 +398,22 @@ public class ParamAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
         notifyDataSetChanged();
     }
 
+    /**
+     * This method is used to display params which have values queued in ParamWriteQueue.
+     *
+     * @param pendingValues Queued values of the node. e.g. {"Light":{"power":true}}
+     */
+    public void updatePendingWrites(JsonObject pendingValues) {
+
+        pendingParamNames.clear();
+        JsonObject deviceJson = pendingValues.getAsJsonObject(deviceName);
+
+        if (deviceJson != null) {
+            pendingParamNames.addAll(deviceJson.keySet());
+        }
+        notifyDataSetChanged();
+    }
+
     private ArrayList<Param> arrangeParamList(ArrayList<Param> paramList) {
 
         int firstParamIndex = -1;
@@ -27,6 +27,7 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.appcompat.widget.SwitchCompat;
 import androidx.core.widget.ContentLoadingProgressBar;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.espressif.AppConstants;
@@ -259,6 +260,47 @@ public class ScheduleAdapter extends RecyclerView.Adapter<ScheduleAdapter.Schedu
         notifyDataSetChanged();
     }
 
+    /**
+     * This method is used to update only changed items of the list.
+     * Schedule which is not changed in sync keeps same object, so schedules are compared by reference.
+     *
+     * @param updatedScheduleList New list of schedules.
+     * @param changedScheduleIds  Ids of schedules changed in sync.
+     */
+    public void updateList(final ArrayList<Schedule> updatedScheduleList, final Set<String> changedScheduleIds) {
+
+        final ArrayList<Schedule> oldScheduleList = scheduleList;
+
+        DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+
+            @Override
+            public int getOldListSize() {
+                return oldScheduleList.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return updatedScheduleList.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                String oldId = oldScheduleList.get(oldItemPosition).getId();
+                return oldId != null && oldId.equals(updatedScheduleList.get(newItemPosition).getId());
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                Schedule newSchedule = updatedScheduleList.get(newItemPosition);
+                return oldScheduleList.get(oldItemPosition) == newSchedule
+                        && !changedScheduleIds.contains(newSchedule.getId());
+            }
+        });
+
+        scheduleList = updatedScheduleList;
+        diffResult.dispatchUpdatesTo(this);
+    }
+
     private String getDaysText(int days) {
 
         StringBuilder daysText = new StringBuilder();
@@ -16,6 +16,7 @@ package com.espressif.ui.fragments;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.TextUtils;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
@@ -37,12 +38,14 @@ import com.espressif.ui.activities.GroupDetailActivity;
 import com.espressif.ui.activities.GroupsActivity;
 import com.espressif.ui.adapters.GroupsPageAdapter;
 import com.espressif.ui.models.Group;
+import com.espressif.ui.models.NodeSyncDelta;
 import com.google.android.material.tabs.TabLayout;
 import com.google.android.material.tabs.TabLayoutMediator;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Map;
 
 public class DevicesFragment extends Fragment {
@@ -94,6 +97,11 @@ public class DevicesFragment extends Fragment {
         public void updateUi() {
             updateDeviceUi();
         }
+
+        @Override
+        public void updateUi(NodeSyncDelta delta) {
+            updateDeviceUi(delta);
+        }
     };
 
     View.OnClickListener moreBtnClickListener = new View.OnClickListener() {
@@ -130,24 +138,32 @@ public class DevicesFragment extends Fragment {
     }
 
     private void updateDeviceUi() {
+        updateDeviceUi(null);
+    }
+
+    private void updateDeviceUi(NodeSyncDelta delta) {
 
         switch (espApp.getAppState()) {
 
             case NO_INTERNET:
             case GET_DATA_SUCCESS:
             case GET_DATA_FAILED:
-                updateUi(false);
+                updateUi(false, delta);
                 break;
 
             case GETTING_DATA:
             case REFRESH_DATA:
-                updateUi(true);
+                updateUi(true, delta);
                 break;
         }
     }
 
-    private void updateUi(boolean isRefreshing) {
+    /**
+     * @param delta Changes of node sync, null if all group pages should be displayed again.
+     */
+    private void updateUi(boolean isRefreshing, NodeSyncDelta delta) {
 
+        ArrayList<Group> previousGroups = new ArrayList<>(groups);
         groups.clear();
 
         for (Map.Entry<String, Group> entry : espApp.groupMap.entrySet()) {
@@ -171,8 +187,64 @@ public class DevicesFragment extends Fragment {
 
         groups.add(0, new Group(getString(R.string.group_all_devices)));
         Log.d(TAG, "Number of groups : " + groups.size());
-        adapter.notifyDataSetChanged();
         adapter.setRefreshing(isRefreshing);
+
+        if (delta == null || !isSameGroups(previousGroups, groups)) {
+            adapter.notifyDataSetChanged();
+            return;
+        }
+
+        // Bind again only pages which display changed nodes.
+        adapter.notifyItemRangeChanged(0, groups.size(), GroupsPageAdapter.PAYLOAD_REFRESH_STATE);
+
+        if (!delta.hasNodeChanges()) {
+            return;
+        }
+
+        HashSet<String> changedNodeIds = new HashSet<>();
+        changedNodeIds.addAll(delta.getAddedNodes());
+        changedNodeIds.addAll(delta.getRemovedNodes());
+        changedNodeIds.addAll(delta.getConfigChangedNodes());
+        changedNodeIds.addAll(delta.getStatusChangedNodes());
+        changedNodeIds.addAll(delta.getParamChangedDevices().keySet());
+
+        // First page displays all devices.
+        adapter.notifyItemChanged(0);
+
+        for (int i = 1; i < groups.size(); i++) {
+
+            ArrayList<String> nodeIds = groups.get(i).getNodeList();
+
+            if (nodeIds != null && !Collections.disjoint(nodeIds, changedNodeIds)) {
+                adapter.notifyItemChanged(i);
+            }
+        }
+    }
+
+    private boolean isSameGroups(ArrayList<Group> groups1, ArrayList<Group> groups2) {
+
+        if (groups1.size() != groups2.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < groups1.size(); i++) {
+
+            Group g1 = groups1.get(i);
+            Group g2 = groups2.get(i);
+
+            if (!TextUtils.equals(g1.getGroupId(), g2.getGroupId())
+                    || !TextUtils.equals(g1.getGroupName(), g2.getGroupName())) {
+                return false;
+            }
+
+            ArrayList<String> nodes1 = g1.getNodeList();
+            ArrayList<String> nodes2 = g2.getNodeList();
+
+            if (nodes1 == null ? nodes2 != null : !nodes1.equals(nodes2)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private void showPopupMenu(View anchor) {
@@ -40,6 +40,7 @@ import com.espressif.ui.activities.AddScheduleActivity;
 import com.espressif.ui.activities.EspMainActivity;
 import com.espressif.ui.adapters.ScheduleAdapter;
 import com.espressif.ui.models.EspNode;
+import com.espressif.ui.models.NodeSyncDelta;
 import com.espressif.ui.models.Schedule;
 import com.espressif.ui.models.Service;
 import com.google.android.material.card.MaterialCardView;
@@ -115,6 +116,11 @@ public class SchedulesFragment extends Fragment {
         public void updateUi() {
             updateScheduleUi();
         }
+
+        @Override
+        public void updateUi(NodeSyncDelta delta) {
+            updateScheduleUi(delta);
+        }
     };
 
     View.OnClickListener addScheduleBtnClickListener = new View.OnClickListener() {
@@ -167,25 +173,33 @@ public class SchedulesFragment extends Fragment {
     }
 
     private void updateScheduleUi() {
+        updateScheduleUi(null);
+    }
+
+    private void updateScheduleUi(NodeSyncDelta delta) {
 
         switch (espApp.getAppState()) {
 
             case NO_INTERNET:
             case GET_DATA_SUCCESS:
             case GET_DATA_FAILED:
-                updateUi(false);
+                updateUi(false, delta);
                 break;
 
             case GETTING_DATA:
             case REFRESH_DATA:
-                updateUi(true);
+                updateUi(true, delta);
                 break;
         }
     }
 
-    private void updateUi(boolean isRefreshing) {
+    /**
+     * @param delta Changes of node sync, null if all schedules should be displayed again.
+     */
+    private void updateUi(boolean isRefreshing, NodeSyncDelta delta) {
 
-        schedules.clear();
+        // Adapter keeps previous list to find changed schedules.
+        schedules = new ArrayList<>();
         for (Map.Entry<String, Schedule> entry : espApp.scheduleMap.entrySet()) {
 
             String key = entry.getKey();
@@ -259,7 +273,11 @@ public class SchedulesFragment extends Fragment {
             recyclerView.setVisibility(View.GONE);
         }
 
-        scheduleAdapter.updateList(schedules);
+        if (delta != null) {
+            scheduleAdapter.updateList(schedules, delta.getChangedSchedules());
+        } else {
+            scheduleAdapter.updateList(schedules);
+        }
         swipeRefreshLayout.setRefreshing(isRefreshing);
         ((EspMainActivity) getActivity()).updateActionBar();
     }
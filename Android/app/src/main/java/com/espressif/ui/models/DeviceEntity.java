@@ -0,0 +1,129 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.ui.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+
+import com.espressif.AppConstants;
+
+/**
+ * Device of the node stored in local storage. Params of the device are stored in {@link ParamEntity}.
+ */
+@Entity(tableName = AppConstants.DEVICE_TABLE,
+        primaryKeys = {AppConstants.KEY_NODE_ID, AppConstants.KEY_DEVICE_NAME},
+        indices = {@Index({AppConstants.KEY_NODE_ID, "position"})})
+public class DeviceEntity {
+
+    @NonNull
+    @ColumnInfo(name = AppConstants.KEY_NODE_ID)
+    private String nodeId;
+
+    @NonNull
+    @ColumnInfo(name = AppConstants.KEY_DEVICE_NAME)
+    private String deviceName;
+
+    // Index of the device in node config.
+    @ColumnInfo(name = "position")
+    private int position;
+
+    @ColumnInfo(name = "device_type")
+    private String deviceType;
+
+    @ColumnInfo(name = "primary_param")
+    private String primaryParamName;
+
+    // Generation of the sync in which row is written.
+    @ColumnInfo(name = AppConstants.KEY_SYNC_GENERATION, defaultValue = "0")
+    private long syncGeneration;
+
+    public DeviceEntity() {
+    }
+
+    @Ignore
+    public DeviceEntity(@NonNull String nodeId, int position, Device device) {
+        this.nodeId = nodeId;
+        this.deviceName = device.getDeviceName();
+        this.position = position;
+        this.deviceType = device.getDeviceType();
+        this.primaryParamName = device.getPrimaryParamName();
+    }
+
+    /**
+     * This method is used to create device without params.
+     */
+    public Device toDevice() {
+
+        Device device = new Device(nodeId);
+        device.setDeviceName(deviceName);
+        device.setUserVisibleName(deviceName);
+        device.setDeviceType(deviceType);
+        device.setPrimaryParamName(primaryParamName);
+        return device;
+    }
+
+    @NonNull
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(@NonNull String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    @NonNull
+    public String getDeviceName() {
+        return deviceName;
+    }
+
+    public void setDeviceName(@NonNull String deviceName) {
+        this.deviceName = deviceName;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public String getDeviceType() {
+        return deviceType;
+    }
+
+    public void setDeviceType(String deviceType) {
+        this.deviceType = deviceType;
+    }
+
+    public String getPrimaryParamName() {
+        return primaryParamName;
+    }
+
+    public void setPrimaryParamName(String primaryParamName) {
+        this.primaryParamName = primaryParamName;
+    }
+
+    public long getSyncGeneration() {
+        return syncGeneration;
+    }
+
+    public void setSyncGeneration(long syncGeneration) {
+        this.syncGeneration = syncGeneration;
+    }
+}
@@ -34,19 +34,19 @@ public class EspNode implements Parcelable {
     @NonNull
     private String nodeId;
 
-    @Ignore
+    @ColumnInfo(name = "user_role")
     private String userRole;
 
-    @Ignore
+    @ColumnInfo(name = "config_version")
     private String configVersion;
 
-    @Ignore
+    @ColumnInfo(name = "node_name")
     private String nodeName;
 
-    @Ignore
+    @ColumnInfo(name = "fw_version")
     private String fwVersion;
 
-    @Ignore
+    @ColumnInfo(name = "node_type")
     private String nodeType;
 
     @Ignore
@@ -76,9 +76,18 @@ public class EspNode implements Parcelable {
     @ColumnInfo(name = "config_data")
     private String configData;
 
+    // Param values JSON received from cloud, stored to find changes in values of next sync.
     @ColumnInfo(name = "param_data")
     private String paramData;
 
+    // Schedules of the node, JSON received in param values.
+    @ColumnInfo(name = "schedule_data")
+    private String scheduleData;
+
+    // Generation of the sync in which node is written in local storage.
+    @ColumnInfo(name = AppConstants.KEY_SYNC_GENERATION, defaultValue = "0")
+    private long syncGeneration;
+
     @Ignore
     private boolean isSelected;
 
@@ -113,6 +122,8 @@ public class EspNode implements Parcelable {
         port = node.getPort();
         configData = node.getConfigData();
         paramData = node.getParamData();
+        scheduleData = node.getScheduleData();
+        syncGeneration = node.getSyncGeneration();
         isSelected = node.isSelected();
         primaryUsers = node.getPrimaryUsers();
         secondaryUsers = node.getSecondaryUsers();
@@ -246,6 +257,22 @@ public class EspNode implements Parcelable {
         this.paramData = paramData;
     }
 
+    public long getSyncGeneration() {
+        return syncGeneration;
+    }
+
+    public void setSyncGeneration(long syncGeneration) {
+        this.syncGeneration = syncGeneration;
+    }
+
+    public String getScheduleData() {
+        return scheduleData;
+    }
+
+    public void setScheduleData(String scheduleData) {
+        this.scheduleData = scheduleData;
+    }
+
     public boolean isSelected() {
         return isSelected;
     }
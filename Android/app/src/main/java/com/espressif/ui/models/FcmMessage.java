@@ -0,0 +1,84 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.ui.models;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+import com.espressif.AppConstants;
+
+/**
+ * Push message which is received and not processed yet, stored in local storage.
+ */
+@Entity(tableName = AppConstants.FCM_INBOX_TABLE)
+public class FcmMessage {
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    @ColumnInfo(name = AppConstants.KEY_TITLE)
+    private String title;
+
+    @ColumnInfo(name = "payload")
+    private String payload;
+
+    // Time at which message is received, in milliseconds.
+    @ColumnInfo(name = "received_time")
+    private long receivedTime;
+
+    public FcmMessage() {
+    }
+
+    @Ignore
+    public FcmMessage(String title, String payload, long receivedTime) {
+        this.title = title;
+        this.payload = payload;
+        this.receivedTime = receivedTime;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public long getReceivedTime() {
+        return receivedTime;
+    }
+
+    public void setReceivedTime(long receivedTime) {
+        this.receivedTime = receivedTime;
+    }
+}
@@ -0,0 +1,96 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.ui.models;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Changes found in one sync of node list with cloud.
+ */
+public class NodeSyncDelta implements Serializable {
+
+    private HashSet<String> addedNodes = new HashSet<>();
+    private HashSet<String> removedNodes = new HashSet<>();
+    private HashSet<String> configChangedNodes = new HashSet<>();
+    private HashSet<String> statusChangedNodes = new HashSet<>();
+    private HashMap<String, HashSet<String>> paramChangedDevices = new HashMap<>(); // Node id -> device names
+    private HashSet<String> addedSchedules = new HashSet<>();
+    private HashSet<String> removedSchedules = new HashSet<>();
+    private HashSet<String> changedSchedules = new HashSet<>();
+
+    public HashSet<String> getAddedNodes() {
+        return addedNodes;
+    }
+
+    public HashSet<String> getRemovedNodes() {
+        return removedNodes;
+    }
+
+    public HashSet<String> getConfigChangedNodes() {
+        return configChangedNodes;
+    }
+
+    public HashSet<String> getStatusChangedNodes() {
+        return statusChangedNodes;
+    }
+
+    public HashMap<String, HashSet<String>> getParamChangedDevices() {
+        return paramChangedDevices;
+    }
+
+    public HashSet<String> getAddedSchedules() {
+        return addedSchedules;
+    }
+
+    public HashSet<String> getRemovedSchedules() {
+        return removedSchedules;
+    }
+
+    public HashSet<String> getChangedSchedules() {
+        return changedSchedules;
+    }
+
+    /**
+     * Returns true if any node is added, removed or its config / param values / status changed.
+     */
+    public boolean hasNodeChanges() {
+        return !addedNodes.isEmpty() || !removedNodes.isEmpty() || !configChangedNodes.isEmpty()
+                || !statusChangedNodes.isEmpty() || !paramChangedDevices.isEmpty();
+    }
+
+    public boolean hasScheduleChanges() {
+        return !addedSchedules.isEmpty() || !removedSchedules.isEmpty() || !changedSchedules.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return !hasNodeChanges() && !hasScheduleChanges();
+    }
+
+    @Override
+    public String toString() {
+        return "NodeSyncDelta {" +
+                "added = " + addedNodes.size() +
+                ", removed = " + removedNodes.size() +
+                ", configChanged = " + configChangedNodes.size() +
+                ", statusChanged = " + statusChangedNodes.size() +
+                ", paramChanged = " + paramChangedDevices.size() +
+                ", addedSchedules = " + addedSchedules.size() +
+                ", removedSchedules = " + removedSchedules.size() +
+                ", changedSchedules = " + changedSchedules.size() +
+                '}';
+    }
+}
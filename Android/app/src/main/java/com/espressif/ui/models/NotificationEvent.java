@@ -19,11 +19,13 @@ import android.os.Parcelable;
 
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import com.espressif.AppConstants;
 
-@Entity(tableName = AppConstants.NOTIFICATION_TABLE)
+@Entity(tableName = AppConstants.NOTIFICATION_TABLE,
+        indices = {@Index(value = {AppConstants.KEY_TIMESTAMP, "notificationId"})})
 public class NotificationEvent implements Parcelable {
 
     @PrimaryKey(autoGenerate = true)
@@ -36,6 +36,15 @@ public class Param implements Parcelable {
     private boolean isDynamicParam;
     private boolean isSelected;
 
+    // Value written by user which is not reported by device yet. It is not copied or parceled.
+    private Object pendingValue;
+    private long pendingWriteTime;
+    private double confirmedValue;
+    private boolean confirmedSwitchStatus;
+    private String confirmedLabelValue;
+    // Value is changed after the param is stored. It is not copied or parceled.
+    private boolean isValueChanged;
+
     public Param(Param param) {
 
         name = param.getName();
@@ -166,6 +175,105 @@ public class Param implements Parcelable {
         isSelected = selected;
     }
 
+    public boolean isValueChanged() {
+        return isValueChanged;
+    }
+
+    public void setValueChanged(boolean valueChanged) {
+        isValueChanged = valueChanged;
+    }
+
+    /**
+     * This method is used to check whether param has given value.
+     *
+     * @param value        Value of the param.
+     * @param switchStatus Switch status of the param.
+     * @param labelValue   Label value of the param.
+     * @return True if value, switch status and label value are same.
+     */
+    public boolean isSameValue(double value, boolean switchStatus, String labelValue) {
+        return this.value == value && this.switchStatus == switchStatus
+                && (this.labelValue == null ? labelValue == null : this.labelValue.equals(labelValue));
+    }
+
+    public Object getPendingValue() {
+        return pendingValue;
+    }
+
+    public long getPendingWriteTime() {
+        return pendingWriteTime;
+    }
+
+    public boolean hasPendingWrite() {
+        return pendingValue != null;
+    }
+
+    /**
+     * This method is used to record value written by user before device reports it.
+     * Value reported by device before first pending write is kept to roll back the write.
+     *
+     * @param value     Written value. It can be Boolean, Number or String.
+     * @param writeTime Time of the write.
+     */
+    public void setPendingWrite(Object value, long writeTime) {
+
+        if (pendingValue == null) {
+            saveConfirmedValue();
+        }
+        pendingValue = value;
+        pendingWriteTime = writeTime;
+    }
+
+    /**
+     * This method is used to keep current value as value reported by device.
+     */
+    public void saveConfirmedValue() {
+        confirmedValue = value;
+        confirmedSwitchStatus = switchStatus;
+        confirmedLabelValue = labelValue;
+    }
+
+    /**
+     * Device reported written value (or write is expired), so value of param is confirmed.
+     */
+    public void clearPendingWrite() {
+        pendingValue = null;
+        pendingWriteTime = 0;
+    }
+
+    /**
+     * This method is used to keep pending write of the displayed param, when this param object replaces it.
+     * Values of this object are kept as value reported by device if they are read before the write.
+     *
+     * @param displayedParam Param object which is displayed.
+     * @param readTime       Time at which values of this object are read.
+     */
+    public void keepPendingWrite(Param displayedParam, long readTime) {
+
+        if (displayedParam == this || !displayedParam.hasPendingWrite() || readTime >= displayedParam.getPendingWriteTime()) {
+            return;
+        }
+        saveConfirmedValue();
+        pendingValue = displayedParam.pendingValue;
+        pendingWriteTime = displayedParam.pendingWriteTime;
+        value = displayedParam.value;
+        switchStatus = displayedParam.switchStatus;
+        labelValue = displayedParam.labelValue;
+    }
+
+    /**
+     * This method is used to restore value reported by device, when write is failed.
+     */
+    public void rollbackPendingWrite() {
+
+        if (pendingValue != null) {
+            value = confirmedValue;
+            switchStatus = confirmedSwitchStatus;
+            labelValue = confirmedLabelValue;
+            clearPendingWrite();
+        }
+    }
+
     public Param() {
     }
 
@@ -0,0 +1,290 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.ui.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+
+import com.espressif.AppConstants;
+
+import java.util.ArrayList;
+
+/**
+ * Param (description and last value) of the node stored in local storage.
+ * Param belongs to a device, a service or node itself (attributes), as per owner type.
+ */
+@Entity(tableName = AppConstants.PARAM_TABLE,
+        primaryKeys = {AppConstants.KEY_NODE_ID, "owner_type", "owner_name", AppConstants.KEY_PARAM_NAME},
+        indices = {@Index({AppConstants.KEY_NODE_ID, "owner_type", "owner_name", "position"})})
+public class ParamEntity {
+
+    public static final int OWNER_NODE = 0;
+    public static final int OWNER_DEVICE = 1;
+    public static final int OWNER_SERVICE = 2;
+
+    @NonNull
+    @ColumnInfo(name = AppConstants.KEY_NODE_ID)
+    private String nodeId;
+
+    // One of OWNER_NODE, OWNER_DEVICE or OWNER_SERVICE.
+    @ColumnInfo(name = "owner_type")
+    private int ownerType;
+
+    // Name of the device or service. Empty for node attributes.
+    @NonNull
+    @ColumnInfo(name = "owner_name")
+    private String ownerName;
+
+    @NonNull
+    @ColumnInfo(name = AppConstants.KEY_PARAM_NAME)
+    private String paramName;
+
+    // Index of the param in params of the owner.
+    @ColumnInfo(name = "position")
+    private int position;
+
+    @ColumnInfo(name = "param_type")
+    private String paramType;
+
+    @ColumnInfo(name = "data_type")
+    private String dataType;
+
+    @ColumnInfo(name = "ui_type")
+    private String uiType;
+
+    @ColumnInfo(name = "properties")
+    private ArrayList<String> properties;
+
+    @ColumnInfo(name = "min_bounds")
+    private int minBounds;
+
+    @ColumnInfo(name = "max_bounds")
+    private int maxBounds;
+
+    @ColumnInfo(name = "step_count")
+    private float stepCount;
+
+    @ColumnInfo(name = "valid_strings")
+    private ArrayList<String> validStrings;
+
+    @ColumnInfo(name = "is_dynamic")
+    private boolean dynamicParam;
+
+    @ColumnInfo(name = AppConstants.KEY_VALUE)
+    private double value;
+
+    @ColumnInfo(name = "switch_status")
+    private boolean switchStatus;
+
+    @ColumnInfo(name = "label_value")
+    private String labelValue;
+
+    // Generation of the sync in which row is written.
+    @ColumnInfo(name = AppConstants.KEY_SYNC_GENERATION, defaultValue = "0")
+    private long syncGeneration;
+
+    public ParamEntity() {
+    }
+
+    @Ignore
+    public ParamEntity(@NonNull String nodeId, int ownerType, @NonNull String ownerName, int position, Param param) {
+        this.nodeId = nodeId;
+        this.ownerType = ownerType;
+        this.ownerName = ownerName;
+        this.paramName = param.getName();
+        this.position = position;
+        this.paramType = param.getParamType();
+        this.dataType = param.getDataType();
+        this.uiType = param.getUiType();
+        this.properties = param.getProperties();
+        this.minBounds = param.getMinBounds();
+        this.maxBounds = param.getMaxBounds();
+        this.stepCount = param.getStepCount();
+        this.validStrings = param.getValidStrings();
+        this.dynamicParam = param.isDynamicParam();
+        this.value = param.getValue();
+        this.switchStatus = param.getSwitchStatus();
+        this.labelValue = param.getLabelValue();
+    }
+
+    public Param toParam() {
+
+        Param param = new Param();
+        param.setName(paramName);
+        param.setParamType(paramType);
+        param.setDataType(dataType);
+        param.setUiType(uiType);
+        param.setProperties(properties);
+        param.setMinBounds(minBounds);
+        param.setMaxBounds(maxBounds);
+        param.setStepCount(stepCount);
+        param.setValidStrings(validStrings);
+        param.setDynamicParam(dynamicParam);
+        param.setValue(value);
+        param.setSwitchStatus(switchStatus);
+        param.setLabelValue(labelValue);
+        return param;
+    }
+
+    @NonNull
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(@NonNull String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public int getOwnerType() {
+        return ownerType;
+    }
+
+    public void setOwnerType(int ownerType) {
+        this.ownerType = ownerType;
+    }
+
+    @NonNull
+    public String getOwnerName() {
+        return ownerName;
+    }
+
+    public void setOwnerName(@NonNull String ownerName) {
+        this.ownerName = ownerName;
+    }
+
+    @NonNull
+    public String getParamName() {
+        return paramName;
+    }
+
+    public void setParamName(@NonNull String paramName) {
+        this.paramName = paramName;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public String getParamType() {
+        return paramType;
+    }
+
+    public void setParamType(String paramType) {
+        this.paramType = paramType;
+    }
+
+    public String getDataType() {
+        return dataType;
+    }
+
+    public void setDataType(String dataType) {
+        this.dataType = dataType;
+    }
+
+    public String getUiType() {
+        return uiType;
+    }
+
+    public void setUiType(String uiType) {
+        this.uiType = uiType;
+    }
+
+    public ArrayList<String> getProperties() {
+        return properties;
+    }
+
+    public void setProperties(ArrayList<String> properties) {
+        this.properties = properties;
+    }
+
+    public int getMinBounds() {
+        return minBounds;
+    }
+
+    public void setMinBounds(int minBounds) {
+        this.minBounds = minBounds;
+    }
+
+    public int getMaxBounds() {
+        return maxBounds;
+    }
+
+    public void setMaxBounds(int maxBounds) {
+        this.maxBounds = maxBounds;
+    }
+
+    public float getStepCount() {
+        return stepCount;
+    }
+
+    public void setStepCount(float stepCount) {
+        this.stepCount = stepCount;
+    }
+
+    public ArrayList<String> getValidStrings() {
+        return validStrings;
+    }
+
+    public void setValidStrings(ArrayList<String> validStrings) {
+        this.validStrings = validStrings;
+    }
+
+    public boolean isDynamicParam() {
+        return dynamicParam;
+    }
+
+    public void setDynamicParam(boolean dynamicParam) {
+        this.dynamicParam = dynamicParam;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public void setValue(double value) {
+        this.value = value;
+    }
+
+    public boolean isSwitchStatus() {
+        return switchStatus;
+    }
+
+    public void setSwitchStatus(boolean switchStatus) {
+        this.switchStatus = switchStatus;
+    }
+
+    public String getLabelValue() {
+        return labelValue;
+    }
+
+    public void setLabelValue(String labelValue) {
+        this.labelValue = labelValue;
+    }
+
+    public long getSyncGeneration() {
+        return syncGeneration;
+    }
+
+    public void setSyncGeneration(long syncGeneration) {
+        this.syncGeneration = syncGeneration;
+    }
+}
@@ -0,0 +1,130 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.espressif.ui.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+import com.espressif.AppConstants;
+
+/**
+ * Block of compressed samples of one param, stored in local storage.
+ * Samples are encoded by {@link com.espressif.TimeSeriesBlock}.
+ */
+@Entity(tableName = AppConstants.PARAM_HISTORY_TABLE,
+        primaryKeys = {AppConstants.KEY_NODE_ID, AppConstants.KEY_DEVICE_NAME, AppConstants.KEY_PARAM_NAME, "start_time"})
+public class ParamHistoryBlock {
+
+    @NonNull
+    @ColumnInfo(name = AppConstants.KEY_NODE_ID)
+    private String nodeId;
+
+    @NonNull
+    @ColumnInfo(name = AppConstants.KEY_DEVICE_NAME)
+    private String deviceName;
+
+    @NonNull
+    @ColumnInfo(name = AppConstants.KEY_PARAM_NAME)
+    private String paramName;
+
+    // Time of first sample in seconds.
+    @ColumnInfo(name = "start_time")
+    private long startTime;
+
+    // Time of last sample in seconds.
+    @ColumnInfo(name = "end_time")
+    private long endTime;
+
+    @ColumnInfo(name = "sample_count")
+    private int sampleCount;
+
+    @ColumnInfo(name = "data", typeAffinity = ColumnInfo.BLOB)
+    private byte[] data;
+
+    public ParamHistoryBlock() {
+    }
+
+    @Ignore
+    public ParamHistoryBlock(@NonNull String nodeId, @NonNull String deviceName, @NonNull String paramName,
+                             long startTime, long endTime, int sampleCount, byte[] data) {
+        this.nodeId = nodeId;
+        this.deviceName = deviceName;
+        this.paramName = paramName;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.sampleCount = sampleCount;
+        this.data = data;
+    }
+
+    @NonNull
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(@NonNull String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    @NonNull
+    public String getDeviceName() {
+        return deviceName;
+    }
+
+    public void setDeviceName(@NonNull String deviceName) {
+        this.deviceName = deviceName;
+    }
+
+    @NonNull
+    public String getParamName() {
+        return paramName;
+    }
+
+    public void setParamName(@NonNull String paramName) {
+        this.paramName = paramName;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(long endTime) {
+        this.endTime = endTime;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(int sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+}
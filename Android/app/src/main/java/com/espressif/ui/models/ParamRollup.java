@@ -0,0 +1,179 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.espressif.ui.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+import com.espressif.AppConstants;
+
+/**
+ * Min, max, sum and count of samples of one param in a time bucket, stored in local storage.
+ */
+@Entity(tableName = AppConstants.PARAM_ROLLUP_TABLE,
+        primaryKeys = {AppConstants.KEY_NODE_ID, AppConstants.KEY_DEVICE_NAME, AppConstants.KEY_PARAM_NAME, "resolution", "bucket_time"})
+public class ParamRollup {
+
+    @NonNull
+    @ColumnInfo(name = AppConstants.KEY_NODE_ID)
+    private String nodeId;
+
+    @NonNull
+    @ColumnInfo(name = AppConstants.KEY_DEVICE_NAME)
+    private String deviceName;
+
+    @NonNull
+    @ColumnInfo(name = AppConstants.KEY_PARAM_NAME)
+    private String paramName;
+
+    // Size of the bucket in seconds.
+    @ColumnInfo(name = "resolution")
+    private int resolution;
+
+    // Start time of the bucket in seconds.
+    @ColumnInfo(name = "bucket_time")
+    private long bucketTime;
+
+    @ColumnInfo(name = "min_value")
+    private double minValue;
+
+    @ColumnInfo(name = "max_value")
+    private double maxValue;
+
+    @ColumnInfo(name = "sum")
+    private double sum;
+
+    @ColumnInfo(name = "sample_count")
+    private int sampleCount;
+
+    public ParamRollup() {
+    }
+
+    @Ignore
+    public ParamRollup(@NonNull String nodeId, @NonNull String deviceName, @NonNull String paramName,
+                       int resolution, long bucketTime) {
+        this.nodeId = nodeId;
+        this.deviceName = deviceName;
+        this.paramName = paramName;
+        this.resolution = resolution;
+        this.bucketTime = bucketTime;
+        this.minValue = Double.POSITIVE_INFINITY;
+        this.maxValue = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * This method is used to add sample in the bucket.
+     *
+     * @param value Value of the param.
+     */
+    public void add(double value) {
+        minValue = Math.min(minValue, value);
+        maxValue = Math.max(maxValue, value);
+        sum += value;
+        sampleCount++;
+    }
+
+    /**
+     * This method is used to add samples of other rollup of the same bucket.
+     *
+     * @param rollup Rollup to be added.
+     */
+    public void add(ParamRollup rollup) {
+        minValue = Math.min(minValue, rollup.minValue);
+        maxValue = Math.max(maxValue, rollup.maxValue);
+        sum += rollup.sum;
+        sampleCount += rollup.sampleCount;
+    }
+
+    public double getAverage() {
+        return sampleCount > 0 ? sum / sampleCount : Double.NaN;
+    }
+
+    @NonNull
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(@NonNull String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    @NonNull
+    public String getDeviceName() {
+        return deviceName;
+    }
+
+    public void setDeviceName(@NonNull String deviceName) {
+        this.deviceName = deviceName;
+    }
+
+    @NonNull
+    public String getParamName() {
+        return paramName;
+    }
+
+    public void setParamName(@NonNull String paramName) {
+        this.paramName = paramName;
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(int resolution) {
+        this.resolution = resolution;
+    }
+
+    public long getBucketTime() {
+        return bucketTime;
+    }
+
+    public void setBucketTime(long bucketTime) {
+        this.bucketTime = bucketTime;
+    }
+
+    public double getMinValue() {
+        return minValue;
+    }
+
+    public void setMinValue(double minValue) {
+        this.minValue = minValue;
+    }
+
+    public double getMaxValue() {
+        return maxValue;
+    }
+
+    public void setMaxValue(double maxValue) {
+        this.maxValue = maxValue;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public void setSum(double sum) {
+        this.sum = sum;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(int sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+}
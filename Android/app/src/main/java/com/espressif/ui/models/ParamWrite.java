@@ -0,0 +1,100 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.ui.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+
+import com.espressif.AppConstants;
+
+/**
+ * Param value which is not sent to the device yet.
+ * Only latest value is kept for a param of the device.
+ */
+@Entity(tableName = AppConstants.PARAM_WRITE_TABLE,
+        primaryKeys = {AppConstants.KEY_NODE_ID, AppConstants.KEY_DEVICE_NAME, AppConstants.KEY_PARAM_NAME})
+public class ParamWrite {
+
+    @NonNull
+    @ColumnInfo(name = AppConstants.KEY_NODE_ID)
+    private String nodeId;
+
+    @NonNull
+    @ColumnInfo(name = AppConstants.KEY_DEVICE_NAME)
+    private String deviceName;
+
+    @NonNull
+    @ColumnInfo(name = AppConstants.KEY_PARAM_NAME)
+    private String paramName;
+
+    // JSON text of the param value.
+    @ColumnInfo(name = AppConstants.KEY_VALUE)
+    private String value;
+
+    @ColumnInfo(name = AppConstants.KEY_TIMESTAMP)
+    private long timestamp;
+
+    public ParamWrite(@NonNull String nodeId, @NonNull String deviceName, @NonNull String paramName, String value, long timestamp) {
+        this.nodeId = nodeId;
+        this.deviceName = deviceName;
+        this.paramName = paramName;
+        this.value = value;
+        this.timestamp = timestamp;
+    }
+
+    @NonNull
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(@NonNull String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    @NonNull
+    public String getDeviceName() {
+        return deviceName;
+    }
+
+    public void setDeviceName(@NonNull String deviceName) {
+        this.deviceName = deviceName;
+    }
+
+    @NonNull
+    public String getParamName() {
+        return paramName;
+    }
+
+    public void setParamName(@NonNull String paramName) {
+        this.paramName = paramName;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+}
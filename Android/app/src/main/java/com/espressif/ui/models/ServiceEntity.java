@@ -0,0 +1,115 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.ui.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+
+import com.espressif.AppConstants;
+
+/**
+ * Service of the node stored in local storage. Params of the service are stored in {@link ParamEntity}.
+ */
+@Entity(tableName = AppConstants.SERVICE_TABLE,
+        primaryKeys = {AppConstants.KEY_NODE_ID, "service_name"},
+        indices = {@Index({AppConstants.KEY_NODE_ID, "position"})})
+public class ServiceEntity {
+
+    @NonNull
+    @ColumnInfo(name = AppConstants.KEY_NODE_ID)
+    private String nodeId;
+
+    @NonNull
+    @ColumnInfo(name = "service_name")
+    private String serviceName;
+
+    // Index of the service in node config.
+    @ColumnInfo(name = "position")
+    private int position;
+
+    @ColumnInfo(name = "service_type")
+    private String serviceType;
+
+    // Generation of the sync in which row is written.
+    @ColumnInfo(name = AppConstants.KEY_SYNC_GENERATION, defaultValue = "0")
+    private long syncGeneration;
+
+    public ServiceEntity() {
+    }
+
+    @Ignore
+    public ServiceEntity(@NonNull String nodeId, int position, Service service) {
+        this.nodeId = nodeId;
+        this.serviceName = service.getName();
+        this.position = position;
+        this.serviceType = service.getType();
+    }
+
+    /**
+     * This method is used to create service without params.
+     */
+    public Service toService() {
+
+        Service service = new Service(nodeId);
+        service.setName(serviceName);
+        service.setType(serviceType);
+        return service;
+    }
+
+    @NonNull
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(@NonNull String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    @NonNull
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public void setServiceName(@NonNull String serviceName) {
+        this.serviceName = serviceName;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public String getServiceType() {
+        return serviceType;
+    }
+
+    public void setServiceType(String serviceType) {
+        this.serviceType = serviceType;
+    }
+
+    public long getSyncGeneration() {
+        return syncGeneration;
+    }
+
+    public void setSyncGeneration(long syncGeneration) {
+        this.syncGeneration = syncGeneration;
+    }
+}
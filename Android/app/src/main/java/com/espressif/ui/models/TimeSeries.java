@@ -0,0 +1,104 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.espressif.ui.models;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Samples of one param, ordered by time.
+ */
+public class TimeSeries {
+
+    private long[] timestamps;
+    private double[] values;
+    private int size;
+
+    public TimeSeries() {
+        this(16);
+    }
+
+    public TimeSeries(int capacity) {
+        timestamps = new long[Math.max(capacity, 1)];
+        values = new double[Math.max(capacity, 1)];
+    }
+
+    /**
+     * This method is used to add sample at the end of the series.
+     *
+     * @param timestamp Time of the sample in milliseconds.
+     * @param value     Value of the param.
+     */
+    public void add(long timestamp, double value) {
+
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        timestamps[size] = timestamp;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * This method is used to sort samples by time, if they are not in order.
+     */
+    public void sortByTime() {
+
+        boolean isSorted = true;
+
+        for (int i = 1; i < size && isSorted; i++) {
+            isSorted = timestamps[i - 1] <= timestamps[i];
+        }
+
+        if (isSorted) {
+            return;
+        }
+
+        Integer[] indexes = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+
+        Arrays.sort(indexes, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer first, Integer second) {
+                return Long.compare(timestamps[first], timestamps[second]);
+            }
+        });
+
+        long[] sortedTimestamps = new long[timestamps.length];
+        double[] sortedValues = new double[values.length];
+
+        for (int i = 0; i < size; i++) {
+            sortedTimestamps[i] = timestamps[indexes[i]];
+            sortedValues[i] = values[indexes[i]];
+        }
+        timestamps = sortedTimestamps;
+        values = sortedValues;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+}
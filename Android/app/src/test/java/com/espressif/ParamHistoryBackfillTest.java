@@ -0,0 +1,197 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif;
+
+import com.espressif.cloudapi.ApiInterface;
+import com.espressif.cloudapi.ApiManager;
+import com.espressif.cloudapi.CloudException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import retrofit2.Retrofit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Local unit test of time series pagination used by {@link ParamHistoryBackfillWorker}.
+ */
+public class ParamHistoryBackfillTest {
+
+    private static final long START = 1000;
+    private static final long END = 5000;
+
+    private MockWebServer server;
+    private ParamHistoryBackfillWorker.PageSource pageSource;
+
+    @Before
+    public void setUp() throws IOException {
+
+        server = new MockWebServer();
+        server.start();
+
+        final ApiInterface apiInterface = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .build()
+                .create(ApiInterface.class);
+        final String url = server.url("/v1/user/nodes/tsdata").toString();
+
+        pageSource = new ParamHistoryBackfillWorker.PageSource() {
+
+            @Override
+            public JsonStreamParser.TimeSeriesPage getPage(long startTime, long endTime, String startId) throws IOException {
+                return ApiManager.readTimeSeriesResponse(apiInterface.getTimeSeriesData(url, "token", "node_1",
+                        "Sensor.Temperature", startTime, endTime, startId, AppConstants.BACKFILL_PAGE_SIZE).execute());
+            }
+        };
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void pages_areFetchedWithNextId() throws Exception {
+
+        server.enqueue(page("n1", 1100, 1200));
+        server.enqueue(page("n2", 1300));
+        server.enqueue(page(null, 1400));
+
+        ParamHistoryBackfillWorker.Cursor cursor = new ParamHistoryBackfillWorker.Cursor(START, END, null);
+        int sampleCount = 0;
+
+        while (!cursor.isCompleted()) {
+            sampleCount += cursor.fetchNextPage(pageSource).samples.size();
+        }
+
+        assertEquals(4, sampleCount);
+        assertEquals(END, cursor.getStart());
+        assertNull(cursor.getNextId());
+
+        RecordedRequest first = server.takeRequest();
+        assertNull(first.getRequestUrl().queryParameter(AppConstants.KEY_START_ID));
+        assertEquals(String.valueOf(START), first.getRequestUrl().queryParameter(AppConstants.KEY_START_TIME));
+        assertEquals(String.valueOf(END), first.getRequestUrl().queryParameter(AppConstants.KEY_END_TIME));
+        assertEquals("n1", server.takeRequest().getRequestUrl().queryParameter(AppConstants.KEY_START_ID));
+        assertEquals("n2", server.takeRequest().getRequestUrl().queryParameter(AppConstants.KEY_START_ID));
+    }
+
+    @Test
+    public void samples_areConvertedToMilliseconds() throws Exception {
+
+        server.enqueue(page(null, 1100));
+
+        JsonStreamParser.TimeSeriesPage page = new ParamHistoryBackfillWorker.Cursor(START, END, null).fetchNextPage(pageSource);
+
+        assertEquals(1, page.samples.size());
+        assertEquals(1100 * 1000L, page.samples.getTimestamp(0));
+    }
+
+    @Test
+    public void cloudError_keepsCursorOnFailedPage() throws Exception {
+
+        server.enqueue(page("n1", 1100));
+        server.enqueue(new MockResponse().setResponseCode(500)
+                .setBody("{\"status\":\"failure\",\"description\":\"Internal error\"}"));
+        server.enqueue(page(null, 1200));
+
+        ParamHistoryBackfillWorker.Cursor cursor = new ParamHistoryBackfillWorker.Cursor(START, END, null);
+        cursor.fetchNextPage(pageSource);
+
+        try {
+            cursor.fetchNextPage(pageSource);
+            fail("Cloud error is not reported");
+        } catch (CloudException e) {
+            // Expected
+        }
+
+        assertFalse(cursor.isCompleted());
+        assertEquals("n1", cursor.getNextId());
+        assertEquals(START, cursor.getStart());
+        assertEquals(END, cursor.getEnd());
+
+        // Failed page is fetched again with the same next id.
+        assertEquals(1, cursor.fetchNextPage(pageSource).samples.size());
+        assertTrue(cursor.isCompleted());
+
+        server.takeRequest();
+        assertEquals("n1", server.takeRequest().getRequestUrl().queryParameter(AppConstants.KEY_START_ID));
+        assertEquals("n1", server.takeRequest().getRequestUrl().queryParameter(AppConstants.KEY_START_ID));
+    }
+
+    @Test
+    public void networkError_keepsCursorOnFailedPage() throws Exception {
+
+        server.enqueue(page("n1", 1100));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+
+        ParamHistoryBackfillWorker.Cursor cursor = new ParamHistoryBackfillWorker.Cursor(START, END, null);
+        cursor.fetchNextPage(pageSource);
+
+        try {
+            cursor.fetchNextPage(pageSource);
+            fail("Network error is not reported");
+        } catch (IOException e) {
+            // Expected
+        }
+
+        assertFalse(cursor.isCompleted());
+        assertEquals("n1", cursor.getNextId());
+    }
+
+    @Test
+    public void resumedCursor_startsFromStoredNextId() throws Exception {
+
+        server.enqueue(page(null, 1300));
+
+        ParamHistoryBackfillWorker.Cursor cursor = new ParamHistoryBackfillWorker.Cursor(START, END, "n2");
+        cursor.fetchNextPage(pageSource);
+
+        assertTrue(cursor.isCompleted());
+        assertEquals("n2", server.takeRequest().getRequestUrl().queryParameter(AppConstants.KEY_START_ID));
+    }
+
+    /**
+     * Response of time series API with one sample for each given time, times are in seconds.
+     */
+    private static MockResponse page(String nextId, long... times) {
+
+        StringBuilder values = new StringBuilder();
+
+        for (int i = 0; i < times.length; i++) {
+            if (i > 0) {
+                values.append(",");
+            }
+            values.append("{\"ts\":").append(times[i]).append(",\"val\":").append(20 + i).append("}");
+        }
+
+        String body = "{\"ts_data\":[{\"node_id\":\"node_1\",\"params\":[{\"param_name\":\"Sensor.Temperature\","
+                + "\"values\":[" + values + "]}]}]"
+                + (nextId == null ? "" : ",\"next_id\":\"" + nextId + "\"") + "}";
+        return new MockResponse().setBody(body);
+    }
+}
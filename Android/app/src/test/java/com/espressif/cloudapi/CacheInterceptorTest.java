@@ -0,0 +1,182 @@
+// Copyright 2021 Espressif Systems (Shanghai) PTE LTD
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.espressif.cloudapi;
+
+import com.espressif.AppConstants;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Local unit test of {@link CacheInterceptor} with cache policies used by {@link ApiInterface}.
+ */
+public class CacheInterceptorTest {
+
+    private static final String TOKEN = "token_1";
+    private static final String POLICY_STALE = "max-age=0, stale-while-revalidate=604800";
+    private static final String CACHE_CONTROL_REVALIDATE = "max-age=0";
+
+    @Rule
+    public TemporaryFolder cacheDir = new TemporaryFolder();
+
+    private MockWebServer server;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+
+        server = new MockWebServer();
+        server.start();
+
+        CacheInterceptor cacheInterceptor = new CacheInterceptor();
+        client = new OkHttpClient.Builder()
+                .cache(new Cache(cacheDir.newFolder(), 1024 * 1024))
+                .addInterceptor(cacheInterceptor.getAppInterceptor())
+                .addNetworkInterceptor(cacheInterceptor.getNetworkInterceptor())
+                .build();
+        cacheInterceptor.setClient(client);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.dispatcher().executorService().shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void freshResponse_isReturnedFromCache() throws Exception {
+
+        server.enqueue(new MockResponse().setBody("v1"));
+
+        assertEquals("v1", get("max-age=60", TOKEN, null));
+        assertEquals("v1", get("max-age=60", TOKEN, null));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void staleResponse_isReturnedAndRevalidatedInBackground() throws Exception {
+
+        server.enqueue(new MockResponse().setBody("v1"));
+        server.enqueue(new MockResponse().setBody("v2"));
+
+        assertEquals("v1", get(POLICY_STALE, TOKEN, null));
+        // Stale response is returned without waiting for the cloud.
+        assertEquals("v1", get(POLICY_STALE, TOKEN, null));
+
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+        awaitIdle();
+
+        server.enqueue(new MockResponse().setBody("v3"));
+        assertEquals("v2", get(POLICY_STALE, TOKEN, null));
+    }
+
+    @Test
+    public void notModifiedResponse_returnsCachedBody() throws Exception {
+
+        server.enqueue(new MockResponse().setHeader("ETag", "\"e1\"").setBody("v1"));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        assertEquals("v1", get(AppConstants.CACHE_POLICY_REVALIDATE, TOKEN, null));
+        assertEquals("v1", get(AppConstants.CACHE_POLICY_REVALIDATE, TOKEN, null));
+
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+        RecordedRequest revalidation = server.takeRequest();
+        assertEquals("\"e1\"", revalidation.getHeader("If-None-Match"));
+        assertNull(revalidation.getHeader(AppConstants.HEADER_CACHE_POLICY));
+    }
+
+    @Test
+    public void revalidateRequest_isNotAnsweredWithStaleResponse() throws Exception {
+
+        server.enqueue(new MockResponse().setHeader("ETag", "\"e1\"").setBody("v1"));
+        server.enqueue(new MockResponse().setHeader("ETag", "\"e2\"").setBody("v2"));
+
+        assertEquals("v1", get(POLICY_STALE, TOKEN, null));
+        assertEquals("v2", get(POLICY_STALE, TOKEN, CACHE_CONTROL_REVALIDATE));
+
+        server.takeRequest();
+        assertEquals("\"e1\"", server.takeRequest().getHeader("If-None-Match"));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void nodeListPolicy_alwaysRevalidates() throws Exception {
+
+        server.enqueue(new MockResponse().setHeader("ETag", "\"e1\"").setBody("v1"));
+        server.enqueue(new MockResponse().setHeader("ETag", "\"e2\"").setBody("v2"));
+
+        assertEquals("v1", get(AppConstants.CACHE_POLICY_REVALIDATE, TOKEN, null));
+        // Changed node list is returned, never the stale one.
+        assertEquals("v2", get(AppConstants.CACHE_POLICY_REVALIDATE, TOKEN, null));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void cachedResponse_doesNotVaryByAuthorization() throws Exception {
+
+        server.enqueue(new MockResponse().setBody("v1"));
+
+        assertEquals("v1", get("max-age=60", TOKEN, null));
+        // Refreshed token of the same user still uses cached response.
+        assertEquals("v1", get("max-age=60", "token_2", null));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private String get(String policy, String token, String cacheControl) throws IOException {
+
+        Request.Builder builder = new Request.Builder()
+                .url(server.url("/v1/user/nodes"))
+                .header(AppConstants.HEADER_CACHE_POLICY, policy)
+                .header(AppConstants.HEADER_AUTHORIZATION, token);
+
+        if (cacheControl != null) {
+            builder.header("Cache-Control", cacheControl);
+        }
+
+        Response response = client.newCall(builder.build()).execute();
+        try {
+            return response.body().string();
+        } finally {
+            response.close();
+        }
+    }
+
+    private void awaitIdle() throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (client.dispatcher().runningCallsCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}